@@ -191,6 +191,26 @@ public class JobClient extends BaseGenieClient {
         return getIdFromLocation(response.headers().get("location"));
     }
 
+    /**
+     * Submit a batch of jobs to genie in a single request. The jobs which genie can't run right away are queued or
+     * failed so check the status of each returned job.
+     *
+     * @param jobRequests The job requests containing all the details for running each job.
+     *
+     * @return The jobs created by genie in the same order as the requests, with their ids and statuses.
+     *
+     * @throws GenieClientException If the response recieved is not 2xx.
+     * @throws IOException For Network and other IO issues.
+     */
+    public List<Job> submitJobs(
+        final List<JobRequest> jobRequests
+    ) throws IOException, GenieClientException {
+        if (jobRequests == null || jobRequests.isEmpty()) {
+            throw new IllegalArgumentException("Job Requests cannot be null or empty.");
+        }
+        return jobService.submitJobs(jobRequests).execute().body();
+    }
+
     /**
      * Method to get a list of all the jobs.
      *
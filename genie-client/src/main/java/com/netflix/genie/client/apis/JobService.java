@@ -76,6 +76,15 @@ public interface JobService {
         @Part("request") JobRequest request,
         @Part List<MultipartBody.Part> attachments);
 
+    /**
+     * Method to submit a batch of jobs to Genie.
+     *
+     * @param requests The job requests to submit
+     * @return A callable object.
+     */
+    @POST(JOBS_URL_SUFFIX + "/batch")
+    Call<List<Job>> submitJobs(@Body final List<JobRequest> requests);
+
     /**
      * Method to get all jobs from Genie.
      *
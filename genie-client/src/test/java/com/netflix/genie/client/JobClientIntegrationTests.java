@@ -257,6 +257,50 @@ public class JobClientIntegrationTests extends GenieClientsIntegrationTestsBase
         Assert.assertEquals("ATTACHMENT DATA", sb.toString());
     }
 
+    /**
+     * Method to test submitting a batch of jobs.
+     *
+     * @throws Exception If there is any problem.
+     */
+    @Test
+    public void canSubmitJobs() throws Exception {
+        createClusterAndCommandForTest();
+
+        final List<ClusterCriteria> clusterCriteriaList
+            = Lists.newArrayList(new ClusterCriteria(Sets.newHashSet("laptop")));
+
+        final Set<String> commandCriteria = Sets.newHashSet("bash");
+
+        final List<JobRequest> jobRequests = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            jobRequests.add(
+                new JobRequest.Builder(
+                    JOB_NAME,
+                    JOB_USER,
+                    JOB_VERSION,
+                    "-c 'echo hello world'",
+                    clusterCriteriaList,
+                    commandCriteria
+                )
+                    .withId(UUID.randomUUID().toString())
+                    .withDisableLogArchival(true)
+                    .build()
+            );
+        }
+
+        final List<Job> jobs = jobClient.submitJobs(jobRequests);
+        Assert.assertEquals(jobRequests.size(), jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            Assert.assertEquals(jobRequests.get(i).getId(), jobs.get(i).getId());
+            if (jobs.get(i).getStatus() != JobStatus.FAILED) {
+                Assert.assertEquals(
+                    JobStatus.SUCCEEDED,
+                    jobClient.waitForCompletion(jobs.get(i).getId(), 600000, 5000)
+                );
+            }
+        }
+    }
+
     /**
      * Method to test killing a job.
      *
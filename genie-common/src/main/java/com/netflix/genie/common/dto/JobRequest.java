@@ -55,6 +55,7 @@ public class JobRequest extends CommonDTO {
     @Size(max = 1024, message = "Max length of the setup file is 1024 characters")
     private final String setupFile;
     private final boolean disableLogArchival;
+    private final boolean memoize;
     @Size(max = 255, message = "Max length of the email 255 characters")
     @Email(message = "Must be a valid email address")
     private final String email;
@@ -66,6 +67,8 @@ public class JobRequest extends CommonDTO {
     private final int timeout;
     private final Set<String> dependencies = new HashSet<>();
     private final List<String> applications = new ArrayList<>();
+    @Size(max = 10000, message = "An array job can have at most 10000 tasks")
+    private final List<String> arrayParameters = new ArrayList<>();
 
     /**
      * Constructor used by the builder build() method.
@@ -82,6 +85,7 @@ public class JobRequest extends CommonDTO {
         this.setupFile = builder.bSetupFile;
         this.dependencies.addAll(builder.bDependencies);
         this.disableLogArchival = builder.bDisableLogArchival;
+        this.memoize = builder.bMemoize;
         this.email = builder.bEmail;
         this.cpu = builder.bCpu;
         this.memory = builder.bMemory;
@@ -90,6 +94,7 @@ public class JobRequest extends CommonDTO {
         if (builder.bApplications != null) {
             this.applications.addAll(builder.bApplications);
         }
+        this.arrayParameters.addAll(builder.bArrayParameters);
     }
 
     /**
@@ -132,6 +137,15 @@ public class JobRequest extends CommonDTO {
         return Collections.unmodifiableList(this.applications);
     }
 
+    /**
+     * Get the parameters of the tasks of this job if it is an array job.
+     *
+     * @return The parameters, one per task, as a read-only list. Empty if this isn't an array job.
+     */
+    public List<String> getArrayParameters() {
+        return Collections.unmodifiableList(this.arrayParameters);
+    }
+
     /**
      * A builder to create job requests.
      *
@@ -147,10 +161,12 @@ public class JobRequest extends CommonDTO {
         private String bSetupFile;
         private final Set<String> bDependencies = new HashSet<>();
         private boolean bDisableLogArchival;
+        private boolean bMemoize;
         private String bEmail;
         private int bCpu = 1;
         private int bMemory = 1536;
         private final List<String> bApplications = new ArrayList<>();
+        private final List<String> bArrayParameters = new ArrayList<>();
         private int bTimeout = 604800;
 
         /**
@@ -234,6 +250,19 @@ public class JobRequest extends CommonDTO {
             return this;
         }
 
+        /**
+         * Set whether the job can be answered with a recent successful job which ran the same command arguments
+         * with the same cluster, command, applications and files. Only use for jobs whose output depends on nothing
+         * else. Jobs with attachments are never memoized.
+         *
+         * @param memoize true if a previous identical job can be returned instead of running this one
+         * @return The builder
+         */
+        public Builder withMemoize(final boolean memoize) {
+            this.bMemoize = memoize;
+            return this;
+        }
+
         /**
          * Set the email to use for alerting of job completion. If no alert desired leave blank.
          *
@@ -281,6 +310,24 @@ public class JobRequest extends CommonDTO {
             return this;
         }
 
+        /**
+         * Make this an array job. The cluster, command, applications and files of the job are set up once and then
+         * the command is run once per parameter, each in its own directory under array/{index} of the job directory
+         * with GENIE_ARRAY_INDEX and GENIE_ARRAY_PARAMETER exported. The command arguments can refer to them, e.g.
+         * "-f query.q -d date=${GENIE_ARRAY_PARAMETER}". Up to cpu tasks run at once and the job only succeeds if
+         * all of them do.
+         *
+         * @param arrayParameters The parameter of each task in the order of their index
+         * @return The builder
+         */
+        public Builder withArrayParameters(final List<String> arrayParameters) {
+            this.bArrayParameters.clear();
+            if (arrayParameters != null) {
+                this.bArrayParameters.addAll(arrayParameters);
+            }
+            return this;
+        }
+
         /**
          * Set the length of the job timeout in seconds after which Genie will kill the client process.
          *
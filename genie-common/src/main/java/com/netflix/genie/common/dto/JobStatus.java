@@ -27,6 +27,10 @@ import org.apache.commons.lang3.StringUtils;
  */
 public enum JobStatus {
 
+    /**
+     * Job has been accepted but is waiting for capacity on the node before it is initialized.
+     */
+    QUEUED,
     /**
      * Job has been initialized, but not running yet.
      */
@@ -56,7 +60,7 @@ public enum JobStatus {
      * Parse job status.
      *
      * @param value string to parse/convert
-     * @return INIT, RUNNING, SUCCEEDED, KILLED, FAILED if match
+     * @return QUEUED, INIT, RUNNING, SUCCEEDED, KILLED, FAILED if match
      * @throws GeniePreconditionException if invalid value passed in
      */
     public static JobStatus parse(final String value) throws GeniePreconditionException {
@@ -68,7 +72,7 @@ public enum JobStatus {
             }
         }
         throw new GeniePreconditionException(
-            "Unacceptable job status. Must be one of {Init, Running, Succeeded, Killed, Failed, Invalid}"
+            "Unacceptable job status. Must be one of {Queued, Init, Running, Succeeded, Killed, Failed, Invalid}"
         );
     }
 }
@@ -0,0 +1,69 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.exceptions;
+
+/**
+ * Extension of a GenieException for when the server has accepted as much work as it can and the client should
+ * back off before trying again.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class GenieTooManyRequestsException extends GenieException {
+
+    /**
+     * The HTTP status code for too many requests. Not defined in {@link java.net.HttpURLConnection}.
+     */
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The number of seconds to tell the client to wait if nothing else is specified.
+     */
+    public static final long DEFAULT_RETRY_AFTER_SECONDS = 30L;
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor.
+     *
+     * @param msg               human readable message
+     * @param retryAfterSeconds how long in seconds the client should wait before retrying
+     */
+    public GenieTooManyRequestsException(final String msg, final long retryAfterSeconds) {
+        super(HTTP_TOO_MANY_REQUESTS, msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param msg human readable message
+     */
+    public GenieTooManyRequestsException(final String msg) {
+        this(msg, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * Get the number of seconds the client should wait before retrying the request.
+     *
+     * @return The number of seconds to wait. Used for the Retry-After header.
+     */
+    public long getRetryAfterSeconds() {
+        return this.retryAfterSeconds;
+    }
+}
@@ -74,6 +74,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getCommandCriteria(), Matchers.is(COMMAND_CRITERIA));
         Assert.assertThat(request.getCpu(), Matchers.is(1));
         Assert.assertThat(request.isDisableLogArchival(), Matchers.is(false));
+        Assert.assertThat(request.isMemoize(), Matchers.is(false));
         Assert.assertThat(request.getEmail(), Matchers.nullValue());
         Assert.assertThat(request.getDependencies(), Matchers.empty());
         Assert.assertThat(request.getGroup(), Matchers.nullValue());
@@ -86,6 +87,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getUpdated(), Matchers.nullValue());
         Assert.assertThat(request.getApplications(), Matchers.empty());
         Assert.assertThat(request.getTimeout(), Matchers.is(604800));
+        Assert.assertThat(request.getArrayParameters(), Matchers.empty());
     }
 
     /**
@@ -102,6 +104,9 @@ public class JobRequestUnitTests {
         final boolean disableLogArchival = true;
         builder.withDisableLogArchival(disableLogArchival);
 
+        final boolean memoize = true;
+        builder.withMemoize(memoize);
+
         final String email = UUID.randomUUID().toString() + "@netflix.com";
         builder.withEmail(email);
 
@@ -151,6 +156,12 @@ public class JobRequestUnitTests {
         final int timeout = 8970243;
         builder.withTimeout(timeout);
 
+        final List<String> arrayParameters = Lists.newArrayList(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString()
+        );
+        builder.withArrayParameters(arrayParameters);
+
         final JobRequest request = builder.build();
         Assert.assertThat(request.getName(), Matchers.is(NAME));
         Assert.assertThat(request.getUser(), Matchers.is(USER));
@@ -160,6 +171,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getCommandCriteria(), Matchers.is(COMMAND_CRITERIA));
         Assert.assertThat(request.getCpu(), Matchers.is(cpu));
         Assert.assertThat(request.isDisableLogArchival(), Matchers.is(disableLogArchival));
+        Assert.assertThat(request.isMemoize(), Matchers.is(memoize));
         Assert.assertThat(request.getEmail(), Matchers.is(email));
         Assert.assertThat(request.getDependencies(), Matchers.is(dependencies));
         Assert.assertThat(request.getGroup(), Matchers.is(group));
@@ -172,6 +184,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getUpdated(), Matchers.is(updated));
         Assert.assertThat(request.getApplications(), Matchers.is(applications));
         Assert.assertThat(request.getTimeout(), Matchers.is(timeout));
+        Assert.assertThat(request.getArrayParameters(), Matchers.is(arrayParameters));
     }
 
     /**
@@ -190,6 +203,7 @@ public class JobRequestUnitTests {
         builder.withTags(null);
         builder.withUpdated(null);
         builder.withApplications(null);
+        builder.withArrayParameters(null);
 
         final JobRequest request = builder.build();
         Assert.assertThat(request.getName(), Matchers.is(NAME));
@@ -200,6 +214,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getCommandCriteria(), Matchers.empty());
         Assert.assertThat(request.getCpu(), Matchers.is(1));
         Assert.assertThat(request.isDisableLogArchival(), Matchers.is(false));
+        Assert.assertThat(request.isMemoize(), Matchers.is(false));
         Assert.assertThat(request.getEmail(), Matchers.nullValue());
         Assert.assertThat(request.getDependencies(), Matchers.empty());
         Assert.assertThat(request.getGroup(), Matchers.nullValue());
@@ -211,6 +226,7 @@ public class JobRequestUnitTests {
         Assert.assertThat(request.getTags(), Matchers.empty());
         Assert.assertThat(request.getUpdated(), Matchers.nullValue());
         Assert.assertThat(request.getApplications(), Matchers.empty());
+        Assert.assertThat(request.getArrayParameters(), Matchers.empty());
     }
 
     /**
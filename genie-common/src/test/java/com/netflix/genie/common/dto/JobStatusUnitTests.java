@@ -44,6 +44,7 @@ public class JobStatusUnitTests {
         Assert.assertEquals(JobStatus.KILLED, JobStatus.parse(JobStatus.KILLED.name().toLowerCase()));
         Assert.assertEquals(JobStatus.INIT, JobStatus.parse(JobStatus.INIT.name().toLowerCase()));
         Assert.assertEquals(JobStatus.SUCCEEDED, JobStatus.parse(JobStatus.SUCCEEDED.name().toLowerCase()));
+        Assert.assertEquals(JobStatus.QUEUED, JobStatus.parse(JobStatus.QUEUED.name().toLowerCase()));
     }
 
     /**
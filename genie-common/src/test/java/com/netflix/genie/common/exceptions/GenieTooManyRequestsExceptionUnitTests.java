@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.exceptions;
+
+import com.netflix.genie.test.categories.UnitTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Test the constructors of the GenieTooManyRequestsException.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class GenieTooManyRequestsExceptionUnitTests extends Exception {
+
+    private static final String ERROR_MESSAGE = "Too Many Jobs";
+
+    /**
+     * Test the constructor.
+     *
+     * @throws GenieTooManyRequestsException When the server is too busy
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testTwoArgConstructor() throws GenieTooManyRequestsException {
+        final GenieTooManyRequestsException ge = new GenieTooManyRequestsException(ERROR_MESSAGE, 12L);
+        Assert.assertEquals(GenieTooManyRequestsException.HTTP_TOO_MANY_REQUESTS, ge.getErrorCode());
+        Assert.assertEquals(ERROR_MESSAGE, ge.getMessage());
+        Assert.assertEquals(12L, ge.getRetryAfterSeconds());
+        Assert.assertNull(ge.getCause());
+        throw ge;
+    }
+
+    /**
+     * Test the constructor.
+     *
+     * @throws GenieTooManyRequestsException When the server is too busy
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void testMessageArgConstructor() throws GenieTooManyRequestsException {
+        final GenieTooManyRequestsException ge = new GenieTooManyRequestsException(ERROR_MESSAGE);
+        Assert.assertEquals(GenieTooManyRequestsException.HTTP_TOO_MANY_REQUESTS, ge.getErrorCode());
+        Assert.assertEquals(ERROR_MESSAGE, ge.getMessage());
+        Assert.assertEquals(
+            GenieTooManyRequestsException.DEFAULT_RETRY_AFTER_SECONDS,
+            ge.getRetryAfterSeconds()
+        );
+        throw ge;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.events;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * An event sent when an application, command or cluster is created, updated or deleted.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Getter
+public class ConfigChangedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = -3925474165309548174L;
+
+    private final ConfigEntityType type;
+    private final String id;
+
+    /**
+     * Constructor.
+     *
+     * @param type   The type of configuration which changed
+     * @param id     The id of the configuration which changed. Null if all configuration of the type may have changed
+     * @param source The source object which generates this event
+     */
+    public ConfigChangedEvent(@NotNull final ConfigEntityType type, final String id, @NotNull final Object source) {
+        super(source);
+        this.type = type;
+        this.id = id;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterCriteria;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, versioned, in memory view of the UP clusters, the ACTIVE commands and all the applications which can
+ * be used to resolve job requests without going to the database.
+ * <p>
+ * Clusters and commands are each given a position and an inverted index maps every tag to the bit set of positions
+ * of the entities carrying it. Matching a set of criteria is then the intersection of the bit sets of its tags.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * A snapshot with no configuration in it.
+     */
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(
+        0L,
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        ImmutableMap.of()
+    );
+
+    @Getter
+    private final long version;
+
+    private final Cluster[] clusters;
+    private final int[][] clusterCommands;
+    private final BitSet allClusters;
+    private final Map<String, BitSet> clusterTagIndex;
+
+    private final Command[] commands;
+    private final BitSet allCommands;
+    private final Map<String, BitSet> commandTagIndex;
+    private final Map<String, List<String>> commandApplications;
+
+    private final Map<String, Application> applications;
+
+    /**
+     * Constructor. Clusters which aren't UP and commands which aren't ACTIVE are left out. References to commands
+     * which aren't in the snapshot are dropped.
+     *
+     * @param version             The version of this snapshot
+     * @param clusters            The clusters keyed by id
+     * @param clusterCommands     The ids of the commands attached to each cluster in priority order keyed by cluster id
+     * @param commands            The commands keyed by id
+     * @param commandApplications The ids of the applications attached to each command in order keyed by command id
+     * @param applications        The applications keyed by id
+     */
+    public ConfigSnapshot(
+        final long version,
+        @NotNull final Map<String, Cluster> clusters,
+        @NotNull final Map<String, List<String>> clusterCommands,
+        @NotNull final Map<String, Command> commands,
+        @NotNull final Map<String, List<String>> commandApplications,
+        @NotNull final Map<String, Application> applications
+    ) {
+        this.version = version;
+
+        final List<Command> activeCommands = new ArrayList<>();
+        final Map<String, Integer> commandPositions = new HashMap<>();
+        final Map<String, BitSet> commandIndex = new HashMap<>();
+        final ImmutableMap.Builder<String, List<String>> commandApplicationsBuilder = ImmutableMap.builder();
+        for (final Command command : commands.values()) {
+            if (command.getStatus() != CommandStatus.ACTIVE) {
+                continue;
+            }
+            final int position = activeCommands.size();
+            activeCommands.add(command);
+            commandPositions.put(command.getId(), position);
+            index(commandIndex, command.getTags(), position);
+            final List<String> applicationIds = commandApplications.get(command.getId());
+            commandApplicationsBuilder.put(
+                command.getId(),
+                applicationIds == null ? ImmutableList.of() : ImmutableList.copyOf(applicationIds)
+            );
+        }
+        this.commands = activeCommands.toArray(new Command[activeCommands.size()]);
+        this.allCommands = new BitSet(this.commands.length);
+        this.allCommands.set(0, this.commands.length);
+        this.commandTagIndex = ImmutableMap.copyOf(commandIndex);
+        this.commandApplications = commandApplicationsBuilder.build();
+
+        final List<Cluster> upClusters = new ArrayList<>();
+        final List<int[]> upClusterCommands = new ArrayList<>();
+        final Map<String, BitSet> clusterIndex = new HashMap<>();
+        for (final Cluster cluster : clusters.values()) {
+            if (cluster.getStatus() != ClusterStatus.UP) {
+                continue;
+            }
+            final int position = upClusters.size();
+            upClusters.add(cluster);
+            index(clusterIndex, cluster.getTags(), position);
+            final List<String> commandIds = clusterCommands.get(cluster.getId());
+            upClusterCommands.add(
+                commandIds == null
+                    ? new int[0]
+                    : commandIds
+                    .stream()
+                    .filter(commandPositions::containsKey)
+                    .mapToInt(commandPositions::get)
+                    .toArray()
+            );
+        }
+        this.clusters = upClusters.toArray(new Cluster[upClusters.size()]);
+        this.clusterCommands = upClusterCommands.toArray(new int[upClusterCommands.size()][]);
+        this.allClusters = new BitSet(this.clusters.length);
+        this.allClusters.set(0, this.clusters.length);
+        this.clusterTagIndex = ImmutableMap.copyOf(clusterIndex);
+
+        this.applications = ImmutableMap.copyOf(applications);
+    }
+
+    /**
+     * Resolve the cluster, command and applications for a job request. The same rules as the database backed
+     * resolution apply except tags have to match exactly.
+     *
+     * @param jobRequest          The job request to resolve
+     * @param clusterLoadBalancer The load balancer to pick a cluster from the candidates with
+     * @return The resolved job or null if this snapshot can't resolve the request. Either because nothing in it
+     * matches or because it doesn't know about a requested application.
+     * @throws GenieException If the load balancer fails
+     */
+    public ResolvedJob resolve(
+        @NotNull final JobRequest jobRequest,
+        @NotNull final ClusterLoadBalancer clusterLoadBalancer
+    ) throws GenieException {
+        final BitSet matchingCommands = match(this.commandTagIndex, this.allCommands, jobRequest.getCommandCriteria());
+        if (matchingCommands.isEmpty()) {
+            return null;
+        }
+
+        for (final ClusterCriteria clusterCriteria : jobRequest.getClusterCriterias()) {
+            final BitSet matchingClusters = match(this.clusterTagIndex, this.allClusters, clusterCriteria.getTags());
+            final List<Cluster> candidates = new ArrayList<>();
+            final Map<String, Command> candidateCommands = new HashMap<>();
+            for (int i = matchingClusters.nextSetBit(0); i >= 0; i = matchingClusters.nextSetBit(i + 1)) {
+                // Commands are in priority order so the first one which matches wins
+                for (final int commandPosition : this.clusterCommands[i]) {
+                    if (matchingCommands.get(commandPosition)) {
+                        candidates.add(this.clusters[i]);
+                        candidateCommands.put(this.clusters[i].getId(), this.commands[commandPosition]);
+                        break;
+                    }
+                }
+            }
+
+            if (!candidates.isEmpty()) {
+                final Cluster cluster = clusterLoadBalancer.selectCluster(candidates);
+                final Command command = candidateCommands.get(cluster.getId());
+                final List<Application> resolvedApplications = this.getApplications(
+                    jobRequest.getApplications().isEmpty()
+                        ? this.commandApplications.get(command.getId())
+                        : jobRequest.getApplications()
+                );
+                return resolvedApplications == null
+                    ? null
+                    : new ResolvedJob(cluster, command, resolvedApplications, candidates);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the number of UP clusters in this snapshot.
+     *
+     * @return The number of clusters
+     */
+    public int getNumClusters() {
+        return this.clusters.length;
+    }
+
+    /**
+     * Get the number of ACTIVE commands in this snapshot.
+     *
+     * @return The number of commands
+     */
+    public int getNumCommands() {
+        return this.commands.length;
+    }
+
+    /**
+     * Get the number of applications in this snapshot.
+     *
+     * @return The number of applications
+     */
+    public int getNumApplications() {
+        return this.applications.size();
+    }
+
+    private List<Application> getApplications(final List<String> applicationIds) {
+        final List<Application> resolved = new ArrayList<>(applicationIds.size());
+        for (final String applicationId : applicationIds) {
+            final Application application = this.applications.get(applicationId);
+            if (application == null) {
+                return null;
+            }
+            resolved.add(application);
+        }
+        return resolved;
+    }
+
+    private static void index(final Map<String, BitSet> index, final Set<String> tags, final int position) {
+        for (final String tag : tags) {
+            index.computeIfAbsent(tag, key -> new BitSet()).set(position);
+        }
+    }
+
+    private static BitSet match(final Map<String, BitSet> index, final BitSet all, final Set<String> tags) {
+        final BitSet matches = (BitSet) all.clone();
+        if (tags == null) {
+            return matches;
+        }
+        for (final String tag : tags) {
+            final BitSet tagged = index.get(tag);
+            if (tagged == null) {
+                return new BitSet();
+            }
+            matches.and(tagged);
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+}
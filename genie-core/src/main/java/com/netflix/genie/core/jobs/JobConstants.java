@@ -45,6 +45,16 @@ public final class JobConstants {
      **/
     public static final String FILE_TRANSFER_SERVICE_KEY = "fts";
 
+    /**
+     * Key used for look up of the Job Staging object in a Context Map for workflows.
+     **/
+    public static final String JOB_STAGING_KEY = "staging";
+
+    /**
+     * Key used for look up of the Job Timeline Service in a Context Map for workflows.
+     **/
+    public static final String JOB_TIMELINE_SERVICE_KEY = "timeline";
+
     /**
      * Key used for look up of Job Execution DTO in a Context Map for workflows.
      **/
@@ -164,6 +174,31 @@ public final class JobConstants {
      **/
     public static final String LOGS_PATH_VAR = "logs";
 
+    /**
+     * File Path prefix to be used while creating the working directories of the tasks of an array job.
+     **/
+    public static final String GENIE_ARRAY_PATH_VAR = "array";
+
+    /**
+     * Name of the script, under the genie directory, that runs one task of an array job.
+     **/
+    public static final String GENIE_ARRAY_SCRIPT_NAME = "array.sh";
+
+    /**
+     * Name of the file in the working directory of an array task holding its parameter.
+     **/
+    public static final String GENIE_ARRAY_PARAMETER_FILE_NAME = "parameter";
+
+    /**
+     * Environment variable for the index of the task of an array job.
+     **/
+    public static final String GENIE_ARRAY_INDEX_ENV_VAR = "GENIE_ARRAY_INDEX";
+
+    /**
+     * Environment variable for the parameter of the task of an array job.
+     **/
+    public static final String GENIE_ARRAY_PARAMETER_ENV_VAR = "GENIE_ARRAY_PARAMETER";
+
     /**
      * Environment variable for Genie job working directory.
      **/
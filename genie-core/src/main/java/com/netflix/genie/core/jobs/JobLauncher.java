@@ -26,7 +26,9 @@ import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
 import com.netflix.genie.common.exceptions.GenieTimeoutException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
 import com.netflix.genie.core.util.MetricsConstants;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
@@ -46,6 +48,8 @@ public class JobLauncher implements Runnable {
     private final JobSubmitterService jobSubmitterService;
     private final JobRequest jobRequest;
     private final Registry registry;
+    private final JobTimelineService jobTimelineService;
+    private final long createdNanos = System.nanoTime();
 
     /**
      * Constructor.
@@ -53,15 +57,18 @@ public class JobLauncher implements Runnable {
      * @param jobSubmitterService The job submission service to use
      * @param jobRequest          The job request to be submitted
      * @param registry            The registry to use for metrics
+     * @param jobTimelineService  The service to record how long the job waited for a thread with
      */
     public JobLauncher(
         @NotNull final JobSubmitterService jobSubmitterService,
         @NotNull final JobRequest jobRequest,
-        @NotNull final Registry registry
+        @NotNull final Registry registry,
+        @NotNull final JobTimelineService jobTimelineService
     ) {
         this.jobSubmitterService = jobSubmitterService;
         this.jobRequest = jobRequest;
         this.registry = registry;
+        this.jobTimelineService = jobTimelineService;
     }
 
     /**
@@ -69,6 +76,7 @@ public class JobLauncher implements Runnable {
      */
     @Override
     public void run() {
+        this.jobTimelineService.record(this.jobRequest.getId(), "executor.queue", this.createdNanos);
         try {
             this.jobSubmitterService.submitJob(this.jobRequest);
         } catch (final GenieException e) {
@@ -87,6 +95,8 @@ public class JobLauncher implements Runnable {
                 this.registry.counter(MetricsConstants.GENIE_EXCEPTIONS_SERVER_UNAVAILABLE_RATE).increment();
             } else if (e instanceof GenieTimeoutException) {
                 this.registry.counter(MetricsConstants.GENIE_EXCEPTIONS_TIMEOUT_RATE).increment();
+            } else if (e instanceof GenieTooManyRequestsException) {
+                this.registry.counter(MetricsConstants.GENIE_EXCEPTIONS_TOO_MANY_REQUESTS_RATE).increment();
             } else {
                 this.registry.counter(MetricsConstants.GENIE_EXCEPTIONS_OTHER_RATE).increment();
             }
@@ -0,0 +1,347 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The files which have to be on local disk before a job can be launched, staged concurrently.
+ * <p>
+ * Every file to fetch and every directory it has to be fetched into is a node in a dependency graph. A file depends
+ * on the directory it's fetched into and a directory on its parent directory, so each transfer starts on the I/O
+ * pool as soon as its directory exists instead of after every file registered before it. At most a fixed number of
+ * files of the job are in flight at once, registering more files blocks until one of them is done.
+ * <p>
+ * Files are registered from the thread setting the job up and this class is not meant to be shared between threads.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class JobStaging {
+
+    private final String jobId;
+    private final DependencyCacheService dependencyCacheService;
+    private final StagedEnvironmentService stagedEnvironmentService;
+    private final JobTimelineService jobTimelineService;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore permits;
+    private final long timeout;
+    private final Timer fileTimer;
+    private final Counter fileFailureCounter;
+    private final Timer jobTimer;
+    private final long start = System.nanoTime();
+
+    private final Map<String, CompletableFuture<Void>> directories = new HashMap<>();
+    private final List<CompletableFuture<Void>> files = new ArrayList<>();
+    private final CompletableFuture<Void> failure = new CompletableFuture<>();
+    private CompletableFuture<Void> staged;
+    private int numStaged = -1;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor.
+     *
+     * @param jobId                    The id of the job the files are staged for
+     * @param dependencyCacheService   The service used to fetch the files through the cache of the node
+     * @param stagedEnvironmentService The service to link the shared trees of entities with. Null to not share them
+     * @param jobTimelineService       The service to record each transfer in the launch timeline of the job with
+     * @param executor                 The I/O pool to fetch the files and create the directories on
+     * @param scheduler                The scheduler used to fail staging which doesn't finish in time
+     * @param maxConcurrentFiles       The maximum number of files of this job to fetch at once
+     * @param timeout                  How long, in milliseconds, to wait for all the files to be staged
+     * @param fileTimer                The timer to record how long fetching each file took with
+     * @param fileFailureCounter       The counter to count the files which couldn't be fetched with
+     * @param jobTimer                 The timer to record how long staging all the files of the job took with
+     */
+    public JobStaging(
+        @NotBlank final String jobId,
+        @NotNull final DependencyCacheService dependencyCacheService,
+        final StagedEnvironmentService stagedEnvironmentService,
+        @NotNull final JobTimelineService jobTimelineService,
+        @NotNull final Executor executor,
+        @NotNull final ScheduledExecutorService scheduler,
+        final int maxConcurrentFiles,
+        final long timeout,
+        @NotNull final Timer fileTimer,
+        @NotNull final Counter fileFailureCounter,
+        @NotNull final Timer jobTimer
+    ) {
+        this.jobId = jobId;
+        this.dependencyCacheService = dependencyCacheService;
+        this.stagedEnvironmentService = stagedEnvironmentService;
+        this.jobTimelineService = jobTimelineService;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.permits = new Semaphore(maxConcurrentFiles);
+        this.timeout = timeout;
+        this.fileTimer = fileTimer;
+        this.fileFailureCounter = fileFailureCounter;
+        this.jobTimer = jobTimer;
+    }
+
+    /**
+     * Register a file to fetch. The transfer starts in the background as soon as the directory it's fetched into
+     * exists, creating the directory if needed.
+     *
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @param dstLocalPath  Local path where the file needs to be placed
+     * @throws GenieException If interrupted while waiting for another file of the job to finish
+     */
+    public void getFile(
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath
+    ) throws GenieException {
+        this.register(srcRemotePath, new File(dstLocalPath), () -> this.transfer(srcRemotePath, dstLocalPath));
+    }
+
+    /**
+     * Whether the files of clusters, commands and applications are shared between jobs through links to staged
+     * environments rather than fetched for each job.
+     *
+     * @return True if {@link #linkEnvironment(AdminResources, String, String, Map, File)} can be used
+     */
+    public boolean canLinkEnvironments() {
+        return this.stagedEnvironmentService != null;
+    }
+
+    /**
+     * Register the shared tree of the files of an entity to link into the job directory. The tree is staged in the
+     * background if this version of the entity isn't on the node yet, creating the directory of the link if needed.
+     *
+     * @param type    The type of the entity
+     * @param id      The id of the entity
+     * @param version A value which changes whenever the entity does, e.g. the time it was last updated
+     * @param files   The remote location of each file of the entity keyed by its path relative to the tree
+     * @param link    The path of the link to create in the job directory
+     * @throws GenieException If interrupted while waiting for another file of the job to finish
+     */
+    public void linkEnvironment(
+        @NotNull final AdminResources type,
+        @NotBlank final String id,
+        @NotBlank final String version,
+        @NotNull final Map<String, String> files,
+        @NotNull final File link
+    ) throws GenieException {
+        if (this.stagedEnvironmentService == null) {
+            throw new GenieServerException("Staged environments aren't enabled");
+        }
+        this.register(id, link, () -> this.linkStagedEnvironment(type, id, version, files, link));
+    }
+
+    private void register(final String name, final File dst, final Runnable stage) throws GenieException {
+        final CompletableFuture<Void> directory = this.getDirectory(dst.getParentFile());
+        try {
+            this.permits.acquire();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while staging " + name + " for job " + this.jobId);
+        }
+
+        final CompletableFuture<Void> file = directory
+            .thenRunAsync(this.unlessCancelled(stage), this.executor)
+            .whenComplete(
+                (result, throwable) -> {
+                    this.permits.release();
+                    if (throwable != null) {
+                        this.failure.completeExceptionally(throwable);
+                    }
+                }
+            );
+        this.files.add(file);
+    }
+
+    /**
+     * Get a future which completes once all the files registered so far are staged. It completes exceptionally as
+     * soon as any of them fails or if staging doesn't finish in time, in which case the files which haven't started
+     * yet are cancelled. Lets the job be launched once its files are on disk without holding a thread meanwhile.
+     *
+     * @return The future tracking the staging of the files
+     */
+    public CompletableFuture<Void> whenStaged() {
+        if (this.staged != null && this.numStaged == this.files.size()) {
+            return this.staged;
+        }
+
+        final CompletableFuture<Void> all
+            = CompletableFuture.allOf(this.files.toArray(new CompletableFuture[this.files.size()]));
+        final long remaining = this.timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start);
+        final ScheduledFuture<?> timer = this.scheduler.schedule(
+            () -> this.failure.completeExceptionally(
+                new GenieServerException(
+                    "Staging files for job " + this.jobId + " didn't finish within " + this.timeout + " ms"
+                )
+            ),
+            Math.max(remaining, 0L),
+            TimeUnit.MILLISECONDS
+        );
+        this.numStaged = this.files.size();
+        this.staged = CompletableFuture
+            .anyOf(all, this.failure)
+            .thenAccept(result -> this.jobTimer.record(System.nanoTime() - this.start, TimeUnit.NANOSECONDS))
+            .whenComplete(
+                (result, throwable) -> {
+                    timer.cancel(false);
+                    if (throwable != null) {
+                        this.cancel();
+                    } else {
+                        log.debug("Staged {} files for job {}", this.files.size(), this.jobId);
+                    }
+                }
+            );
+        return this.staged;
+    }
+
+    /**
+     * Wait for all the registered files to be staged.
+     *
+     * @throws GenieException If a file couldn't be staged or staging didn't finish in time
+     * @see #whenStaged()
+     */
+    public void awaitCompletion() throws GenieException {
+        try {
+            this.whenStaged().get();
+        } catch (final ExecutionException ee) {
+            if (ee.getCause() instanceof GenieException) {
+                throw (GenieException) ee.getCause();
+            }
+            throw new GenieServerException("Unable to stage files for job " + this.jobId, ee.getCause());
+        } catch (final InterruptedException ie) {
+            this.cancel();
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while waiting for files of job " + this.jobId + " to stage");
+        }
+    }
+
+    /**
+     * Cancel all the files which haven't started to transfer yet. Transfers in flight run to completion.
+     */
+    public void cancel() {
+        // Cancelling the futures doesn't stop the stages queued on the I/O pool before them, they check this instead
+        this.cancelled = true;
+        this.files.forEach(file -> file.cancel(false));
+    }
+
+    private CompletableFuture<Void> getDirectory(final File directory) {
+        if (directory == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final String path = directory.getPath();
+        CompletableFuture<Void> node = this.directories.get(path);
+        if (node == null) {
+            if (directory.isDirectory()) {
+                node = CompletableFuture.completedFuture(null);
+            } else {
+                node = this
+                    .getDirectory(directory.getParentFile())
+                    .thenRunAsync(this.unlessCancelled(() -> this.createDirectory(directory)), this.executor);
+            }
+            this.directories.put(path, node);
+        }
+        return node;
+    }
+
+    private Runnable unlessCancelled(final Runnable stage) {
+        return () -> {
+            if (this.cancelled) {
+                throw new CancellationException("Staging files for job " + this.jobId + " was cancelled");
+            }
+            stage.run();
+        };
+    }
+
+    private void createDirectory(final File directory) {
+        if (!directory.mkdir() && !directory.isDirectory()) {
+            throw new CompletionException(new GenieServerException("Could not create directory: " + directory));
+        }
+    }
+
+    private void linkStagedEnvironment(
+        final AdminResources type,
+        final String id,
+        final String version,
+        final Map<String, String> files,
+        final File link
+    ) {
+        final long linkStart = System.nanoTime();
+        try {
+            this.stagedEnvironmentService.link(type, id, version, files, link);
+        } catch (final GenieException ge) {
+            this.fileFailureCounter.increment();
+            throw new CompletionException(ge);
+        } finally {
+            final long duration = System.nanoTime() - linkStart;
+            this.jobTimelineService.record(this.jobId, "environment", type + " " + id, linkStart, linkStart + duration);
+            log.debug(
+                "Linking environment of {} {} for job {} took {} ms",
+                type,
+                id,
+                this.jobId,
+                TimeUnit.NANOSECONDS.toMillis(duration)
+            );
+        }
+    }
+
+    private void transfer(final String srcRemotePath, final String dstLocalPath) {
+        final long fileStart = System.nanoTime();
+        try {
+            this.dependencyCacheService.getFile(srcRemotePath, dstLocalPath);
+        } catch (final GenieException ge) {
+            this.fileFailureCounter.increment();
+            throw new CompletionException(ge);
+        } finally {
+            final long duration = System.nanoTime() - fileStart;
+            this.fileTimer.record(duration, TimeUnit.NANOSECONDS);
+            this.jobTimelineService.record(this.jobId, "transfer", srcRemotePath, fileStart, fileStart + duration);
+            log.debug(
+                "Transfer of {} for job {} took {} ms",
+                srcRemotePath,
+                this.jobId,
+                TimeUnit.NANOSECONDS.toMillis(duration)
+            );
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import lombok.Getter;
+import org.hibernate.validator.constraints.NotBlank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The stages a job went through while it was launched on this node and how long each of them took. Stages are
+ * recorded with System.nanoTime() so they can be compared with each other but not with timestamps from other hosts.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class JobTimeline {
+
+    @Getter
+    private final String id;
+    private final List<Stage> stages = new ArrayList<>();
+    private long originNanos = Long.MAX_VALUE;
+    private long originMillis;
+    private String clusterName;
+    private String commandName;
+    private int numExported;
+
+    /**
+     * Constructor.
+     *
+     * @param id The id of the job
+     */
+    public JobTimeline(@NotBlank final String id) {
+        this.id = id;
+    }
+
+    /**
+     * Add a stage to the timeline. Stages can be added in any order.
+     *
+     * @param name       The name of the stage
+     * @param detail     What the stage worked on if there can be more than one stage with the same name. Can be null
+     * @param startNanos The value of System.nanoTime() when the stage started
+     * @param endNanos   The value of System.nanoTime() when the stage ended
+     */
+    public synchronized void add(
+        @NotBlank final String name,
+        final String detail,
+        final long startNanos,
+        final long endNanos
+    ) {
+        if (startNanos < this.originNanos) {
+            this.originNanos = startNanos;
+            this.originMillis
+                = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+        this.stages.add(new Stage(name, detail, startNanos, endNanos - startNanos));
+    }
+
+    /**
+     * Get the stages of the timeline ordered by when they started.
+     *
+     * @return The stages with their start relative to the start of the first stage in nanoseconds
+     */
+    public synchronized List<Stage> getStages() {
+        return this.stages
+            .stream()
+            .sorted(Comparator.comparingLong(Stage::getStart))
+            .map(stage -> new Stage(stage.name, stage.detail, stage.start - this.originNanos, stage.duration))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get when the first stage of the timeline started.
+     *
+     * @return The start of the timeline in milliseconds since the epoch. Zero if no stage has been added
+     */
+    public synchronized long getStartTime() {
+        return this.originMillis;
+    }
+
+    /**
+     * Set the cluster and command the job was resolved to.
+     *
+     * @param resolvedClusterName The name of the cluster the job runs on
+     * @param resolvedCommandName The name of the command the job runs
+     */
+    public synchronized void setResolution(
+        @NotBlank final String resolvedClusterName,
+        @NotBlank final String resolvedCommandName
+    ) {
+        this.clusterName = resolvedClusterName;
+        this.commandName = resolvedCommandName;
+    }
+
+    /**
+     * Get the name of the cluster the job was resolved to.
+     *
+     * @return The cluster name or null if the job hasn't been resolved
+     */
+    public synchronized String getClusterName() {
+        return this.clusterName;
+    }
+
+    /**
+     * Get the name of the command the job was resolved to.
+     *
+     * @return The command name or null if the job hasn't been resolved
+     */
+    public synchronized String getCommandName() {
+        return this.commandName;
+    }
+
+    /**
+     * Get the stages which were added since the last call. Used to export each stage exactly once.
+     *
+     * @return The stages not returned by a previous call, in the order they were added
+     */
+    public synchronized List<Stage> takeUnexported() {
+        final List<Stage> unexported = new ArrayList<>(this.stages.subList(this.numExported, this.stages.size()));
+        this.numExported = this.stages.size();
+        return unexported;
+    }
+
+    /**
+     * A single stage of the timeline.
+     */
+    @Getter
+    public static final class Stage {
+        private final String name;
+        private final String detail;
+        private final long start;
+        private final long duration;
+
+        /**
+         * Constructor.
+         *
+         * @param name     The name of the stage
+         * @param detail   What the stage worked on. Can be null
+         * @param start    When the stage started in nanoseconds
+         * @param duration How long the stage took in nanoseconds
+         */
+        Stage(final String name, final String detail, final long start, final long duration) {
+            this.name = name;
+            this.detail = detail;
+            this.start = start;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import lombok.Getter;
+
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The cluster, command and applications a job request resolved to and all the clusters the load balancer could have
+ * picked from.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Getter
+public class ResolvedJob {
+    private final Cluster cluster;
+    private final Command command;
+    private final List<Application> applications;
+    private final List<Cluster> candidateClusters;
+
+    /**
+     * Constructor for a job which could only have run on the given cluster.
+     *
+     * @param cluster      The cluster the job will run on
+     * @param command      The command the job will run
+     * @param applications The applications the job needs in the order they should be set up
+     */
+    public ResolvedJob(
+        @NotNull final Cluster cluster,
+        @NotNull final Command command,
+        @NotNull final List<Application> applications
+    ) {
+        this(cluster, command, applications, ImmutableList.of(cluster));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cluster      The cluster the job will run on
+     * @param command      The command the job will run
+     * @param applications The applications the job needs in the order they should be set up
+     * @param candidates   All the clusters matching the request the cluster was picked from. Kept in id order with
+     *                     the cluster the job will run on added if it isn't one of them
+     */
+    public ResolvedJob(
+        @NotNull final Cluster cluster,
+        @NotNull final Command command,
+        @NotNull final List<Application> applications,
+        @NotNull final Collection<Cluster> candidates
+    ) {
+        this.cluster = cluster;
+        this.command = command;
+        this.applications = ImmutableList.copyOf(applications);
+        final Map<String, Cluster> candidatesById = new TreeMap<>();
+        for (final Cluster candidate : candidates) {
+            if (candidate.getId() != null) {
+                candidatesById.putIfAbsent(candidate.getId(), candidate);
+            }
+        }
+        if (cluster.getId() != null) {
+            candidatesById.putIfAbsent(cluster.getId(), cluster);
+        }
+        this.candidateClusters = ImmutableList.copyOf(candidatesById.values());
+    }
+}
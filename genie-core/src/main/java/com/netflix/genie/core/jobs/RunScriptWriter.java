@@ -0,0 +1,118 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writer for the run script of a job which keeps the whole script in memory and writes it to disk once.
+ * <p>
+ * The workflow tasks append the script in many small pieces. They are appended to a string builder without the
+ * locking and encoding a file writer does on every call, and the script is encoded and written in a single write when
+ * the writer is closed. That's right before the script is run, or once the setup or launch of the job failed, in which
+ * case the file holds the part of the script written up to the failure. Flushing doesn't touch the file.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class RunScriptWriter extends Writer {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final File runScript;
+    private final StringBuilder script = new StringBuilder(INITIAL_CAPACITY);
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param runScript The file the script is written to on close
+     */
+    public RunScriptWriter(@NotNull final File runScript) {
+        this.runScript = runScript;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        this.ensureOpen();
+        this.script.append(cbuf, off, len);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final String str) throws IOException {
+        this.ensureOpen();
+        this.script.append(str);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        this.ensureOpen();
+        this.script.append(str, off, off + len);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Writer append(final CharSequence csq) throws IOException {
+        this.ensureOpen();
+        this.script.append(csq);
+        return this;
+    }
+
+    /**
+     * Does nothing as the script is only written to disk once it's complete.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Write the script to the file in a single write. Closing an already closed writer has no effect.
+     *
+     * @throws IOException When the script can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        Files.write(this.runScript.toPath(), this.script.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Run script " + this.runScript + " is already written");
+        }
+    }
+}
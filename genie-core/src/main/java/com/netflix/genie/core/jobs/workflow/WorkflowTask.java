@@ -40,4 +40,14 @@ public interface WorkflowTask {
     void executeTask(
         Map<String, Object> context
     ) throws GenieException, IOException;
+
+    /**
+     * Whether the task launches the job. The first launch task and every task after it only run once all the files
+     * the job needs are staged, on the executor dedicated to launching job processes.
+     *
+     * @return true if the task launches the job
+     */
+    default boolean isLaunchTask() {
+        return false;
+    }
 }
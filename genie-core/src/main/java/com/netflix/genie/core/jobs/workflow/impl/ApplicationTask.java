@@ -23,13 +23,13 @@ import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
-import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -51,40 +51,17 @@ public class ApplicationTask extends GenieBaseTask {
     ) throws GenieException, IOException {
         log.debug("Executing Application Task in the workflow.");
 
-        final GenieFileTransferService fts =
-            (GenieFileTransferService) context.get(JobConstants.FILE_TRANSFER_SERVICE_KEY);
         final JobExecutionEnvironment jobExecEnv =
             (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-        final String genieDir = jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR;
         final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
 
 
         if (jobExecEnv.getApplications() != null) {
             for (Application application : jobExecEnv.getApplications()) {
 
-                // Create the directory for this application under applications in the cwd
-                createEntityInstanceDirectory(
-                    genieDir,
-                    application.getId(),
-                    AdminResources.APPLICATION
-                );
-
-                // Create the config directory for this id
-                createEntityInstanceConfigDirectory(
-                    genieDir,
-                    application.getId(),
-                    AdminResources.APPLICATION
-                );
-
-                // Create the dependencies directory for this id
-                createEntityInstanceDependenciesDirectory(
-                    genieDir,
-                    application.getId(),
-                    AdminResources.APPLICATION
-                );
+                // The remote location of each file the application needs keyed by its local path
+                final Map<String, String> files = new LinkedHashMap<>();
 
                 // Get the setup file if specified and add it as source command in launcher script
                 final String applicationSetupFile = application.getSetupFile();
@@ -96,7 +73,7 @@ public class ApplicationTask extends GenieBaseTask {
                         FileType.SETUP,
                         AdminResources.APPLICATION
                     );
-                    fts.getFile(applicationSetupFile, localPath);
+                    files.put(localPath, applicationSetupFile);
 
                     super.generateSetupFileSourceSnippet(
                         application.getId(),
@@ -115,7 +92,7 @@ public class ApplicationTask extends GenieBaseTask {
                         FileType.DEPENDENCIES,
                         AdminResources.APPLICATION
                     );
-                    fts.getFile(dependencyFile, localPath);
+                    files.put(localPath, dependencyFile);
                 }
 
                 // Iterate over and get all configuration files
@@ -127,8 +104,17 @@ public class ApplicationTask extends GenieBaseTask {
                         FileType.CONFIG,
                         AdminResources.APPLICATION
                     );
-                    fts.getFile(configFile, localPath);
+                    files.put(localPath, configFile);
                 }
+
+                super.stageEntity(
+                    context,
+                    jobWorkingDirectory,
+                    application.getId(),
+                    application.getUpdated(),
+                    AdminResources.APPLICATION,
+                    files
+                );
             }
         }
     }
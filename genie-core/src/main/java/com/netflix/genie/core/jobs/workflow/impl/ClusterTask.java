@@ -22,13 +22,13 @@ import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
-import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -49,29 +49,13 @@ public class ClusterTask extends GenieBaseTask {
     ) throws GenieException, IOException {
         log.debug("Executing Cluster Task in the workflow.");
 
-        final GenieFileTransferService fts =
-            (GenieFileTransferService) context.get(JobConstants.FILE_TRANSFER_SERVICE_KEY);
         final JobExecutionEnvironment jobExecEnv =
             (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-        final String genieDir = jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR;
         final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
 
-        // Create the directory for this application under applications in the cwd
-        createEntityInstanceDirectory(
-            genieDir,
-            jobExecEnv.getCluster().getId(),
-            AdminResources.CLUSTER
-        );
-
-        // Create the config directory for this id
-        createEntityInstanceConfigDirectory(
-            genieDir,
-            jobExecEnv.getCluster().getId(),
-            AdminResources.CLUSTER
-        );
+        // The remote location of each file the cluster needs keyed by its local path
+        final Map<String, String> files = new LinkedHashMap<>();
 
         // Get the set up file for cluster and add it to source in launcher script
         final String clusterSetupFile = jobExecEnv.getCluster().getSetupFile();
@@ -85,7 +69,7 @@ public class ClusterTask extends GenieBaseTask {
                 AdminResources.CLUSTER
             );
 
-            fts.getFile(clusterSetupFile, localPath);
+            files.put(localPath, clusterSetupFile);
 
             super.generateSetupFileSourceSnippet(
                 jobExecEnv.getCluster().getId(),
@@ -104,7 +88,16 @@ public class ClusterTask extends GenieBaseTask {
                 FileType.CONFIG,
                 AdminResources.CLUSTER
             );
-            fts.getFile(configFile, localPath);
+            files.put(localPath, configFile);
         }
+
+        super.stageEntity(
+            context,
+            jobWorkingDirectory,
+            jobExecEnv.getCluster().getId(),
+            jobExecEnv.getCluster().getUpdated(),
+            AdminResources.CLUSTER,
+            files
+        );
     }
 }
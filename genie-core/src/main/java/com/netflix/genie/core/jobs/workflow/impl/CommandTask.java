@@ -22,13 +22,13 @@ import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
-import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -50,29 +50,13 @@ public class CommandTask extends GenieBaseTask {
     ) throws GenieException, IOException {
         log.debug("Executing Command Task in the workflow.");
 
-        final GenieFileTransferService fts =
-            (GenieFileTransferService) context.get(JobConstants.FILE_TRANSFER_SERVICE_KEY);
         final JobExecutionEnvironment jobExecEnv =
             (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-        final String genieDir = jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR;
         final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
 
-        // Create the directory for this command under command dir in the cwd
-        createEntityInstanceDirectory(
-            genieDir,
-            jobExecEnv.getCommand().getId(),
-            AdminResources.COMMAND
-        );
-
-        // Create the config directory for this id
-        createEntityInstanceConfigDirectory(
-            genieDir,
-            jobExecEnv.getCommand().getId(),
-            AdminResources.COMMAND
-        );
+        // The remote location of each file the command needs keyed by its local path
+        final Map<String, String> files = new LinkedHashMap<>();
 
         // Get the setup file if specified and add it as source command in launcher script
         final String commandSetupFile = jobExecEnv.getCommand().getSetupFile();
@@ -85,7 +69,7 @@ public class CommandTask extends GenieBaseTask {
                 AdminResources.COMMAND
             );
 
-            fts.getFile(commandSetupFile, localPath);
+            files.put(localPath, commandSetupFile);
 
             super.generateSetupFileSourceSnippet(
                 jobExecEnv.getCommand().getId(),
@@ -104,7 +88,16 @@ public class CommandTask extends GenieBaseTask {
                 FileType.CONFIG,
                 AdminResources.COMMAND
             );
-            fts.getFile(configFile, localPath);
+            files.put(localPath, configFile);
         }
+
+        super.stageEntity(
+            context,
+            jobWorkingDirectory,
+            jobExecEnv.getCommand().getId(),
+            jobExecEnv.getCommand().getUpdated(),
+            AdminResources.COMMAND,
+            files
+        );
     }
 }
@@ -22,14 +22,24 @@ import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobStaging;
 import com.netflix.genie.core.jobs.workflow.WorkflowTask;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * An abstract class that all classes that implement a workflow task should inherit from. Provides some
@@ -41,6 +51,9 @@ import java.io.Writer;
 @Slf4j
 public abstract class GenieBaseTask implements WorkflowTask {
 
+    // Users are created by more than one task, only one of them at a time should try to
+    private static final Object USER_CREATION_LOCK = new Object();
+
     /**
      * Helper Function to fetch file to local dir.
      *
@@ -250,6 +263,77 @@ public abstract class GenieBaseTask implements WorkflowTask {
                 + JobConstants.DEPENDENCY_FILE_PATH_PREFIX);
     }
 
+    /**
+     * Helper method to put the files of a particular application, cluster or command in the current working directory
+     * for the job. When the job shares staged environments the directory of the entity is a link to the tree all the
+     * jobs using this version of the entity share. Otherwise its directories are created and each of its files is
+     * fetched for this job.
+     *
+     * @param context             The context of the workflow
+     * @param jobWorkingDirectory The current working directory for the job
+     * @param id                  The id of entity instance
+     * @param updated             When the entity was last updated. Null if unknown, the files are then fetched
+     * @param adminResources      The type of entity Application, Cluster or Command
+     * @param files               The remote location of each file of the entity keyed by its local path
+     * @throws GenieException If there is any problem
+     */
+    protected void stageEntity(
+        @NotNull
+        final Map<String, Object> context,
+        @NotBlank
+        final String jobWorkingDirectory,
+        @NotBlank
+        final String id,
+        final Date updated,
+        @NotNull
+        final AdminResources adminResources,
+        @NotNull
+        final Map<String, String> files
+    ) throws GenieException {
+        final String genieDir = jobWorkingDirectory
+            + JobConstants.FILE_PATH_DELIMITER
+            + JobConstants.GENIE_PATH_VAR;
+        final JobStaging staging = (JobStaging) context.get(JobConstants.JOB_STAGING_KEY);
+
+        if (staging != null && staging.canLinkEnvironments() && updated != null) {
+            final Path entityPath = Paths.get(genieDir, getEntityPathVar(adminResources), id);
+            final Map<String, String> relativeFiles = new HashMap<>();
+            for (final Map.Entry<String, String> file : files.entrySet()) {
+                relativeFiles.put(entityPath.relativize(Paths.get(file.getKey())).toString(), file.getValue());
+            }
+            staging.linkEnvironment(
+                adminResources,
+                id,
+                Long.toString(updated.getTime()),
+                relativeFiles,
+                entityPath.toFile()
+            );
+            return;
+        }
+
+        this.createEntityInstanceDirectory(genieDir, id, adminResources);
+        this.createEntityInstanceConfigDirectory(genieDir, id, adminResources);
+        if (adminResources == AdminResources.APPLICATION) {
+            this.createEntityInstanceDependenciesDirectory(genieDir, id, adminResources);
+        }
+        for (final Map.Entry<String, String> file : files.entrySet()) {
+            this.fetchFile(context, file.getValue(), file.getKey());
+        }
+    }
+
+    private static String getEntityPathVar(final AdminResources adminResources) {
+        switch (adminResources) {
+            case APPLICATION:
+                return JobConstants.APPLICATION_PATH_VAR;
+            case COMMAND:
+                return JobConstants.COMMAND_PATH_VAR;
+            case CLUSTER:
+                return JobConstants.CLUSTER_PATH_VAR;
+            default:
+                throw new IllegalArgumentException("Unknown entity type " + adminResources);
+        }
+    }
+
     /**
      * Helper method to create directories on local filesystem.
      *
@@ -266,6 +350,94 @@ public abstract class GenieBaseTask implements WorkflowTask {
         }
     }
 
+    /**
+     * Helper method to create a user on the system if it doesn't exist yet. Only one user is created at a time across
+     * all tasks.
+     *
+     * @param user     user id
+     * @param group    group id
+     * @param executor The executor to run the commands with
+     * @throws GenieException If there is any problem.
+     */
+    protected void createUser(
+        @NotBlank
+        final String user,
+        final String group,
+        @NotNull
+        final Executor executor
+    ) throws GenieException {
+        synchronized (USER_CREATION_LOCK) {
+            // First check if user already exists
+            final CommandLine idCheckCommandLine = new CommandLine("id");
+            idCheckCommandLine.addArgument("-u");
+            idCheckCommandLine.addArgument(user);
+
+            try {
+                executor.execute(idCheckCommandLine);
+                log.debug("User already exists");
+            } catch (final IOException ioe) {
+                log.debug("User does not exist. Creating it now.");
+
+                // Create the group for the user.
+                final CommandLine groupCreateCommandLine = new CommandLine("sudo");
+                groupCreateCommandLine.addArgument("groupadd");
+                groupCreateCommandLine.addArgument(group);
+
+                // We create the group and ignore the error as it will fail if group already exists.
+                // If the failure is due to some other reason, then user creation will fail and we catch that.
+                try {
+                    executor.execute(groupCreateCommandLine);
+                } catch (IOException ioexception) {
+                    log.debug("Group creation  threw an error as it might already exist");
+                }
+
+                final CommandLine userCreateCommandLine = new CommandLine("sudo");
+                userCreateCommandLine.addArgument("useradd");
+                userCreateCommandLine.addArgument(user);
+
+                if (StringUtils.isNotBlank(group)) {
+                    userCreateCommandLine.addArgument("-G");
+                    userCreateCommandLine.addArgument(group);
+                }
+
+                userCreateCommandLine.addArgument("-M");
+
+                try {
+                    executor.execute(userCreateCommandLine);
+                } catch (IOException ioexception) {
+                    throw new GenieServerException("Could not create user " + user + "with exception " + ioexception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to fetch a file the job needs. If the files of the job are being staged the transfer is added to
+     * the staging and runs in the background, otherwise the file is fetched right away.
+     *
+     * @param context       The context of the workflow
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @param dstLocalPath  Local path where the file needs to be placed
+     * @throws GenieException If there is a problem.
+     */
+    protected void fetchFile(
+        @NotNull
+        final Map<String, Object> context,
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath
+    ) throws GenieException {
+        final JobStaging staging = (JobStaging) context.get(JobConstants.JOB_STAGING_KEY);
+        if (staging != null) {
+            staging.getFile(srcRemotePath, dstLocalPath);
+        } else {
+            final GenieFileTransferService fts =
+                (GenieFileTransferService) context.get(JobConstants.FILE_TRANSFER_SERVICE_KEY);
+            fts.getFile(srcRemotePath, dstLocalPath);
+        }
+    }
+
     protected void generateSetupFileSourceSnippet(
         final String id,
         final String type,
@@ -273,14 +445,13 @@ public abstract class GenieBaseTask implements WorkflowTask {
         final Writer writer,
         final String jobWorkingDirectory
     ) throws IOException {
-        writer.write("# Sourcing setup file from " + type + " " + id + System.lineSeparator());
-
+        // The comment, the source line and the empty line after it are handed to the writer at once
         writer.write(
-            JobConstants.SOURCE
+            "# Sourcing setup file from " + type + " " + id + System.lineSeparator()
+                + JobConstants.SOURCE
                 + filePath.replace(jobWorkingDirectory, "${" + JobConstants.GENIE_JOB_DIR_ENV_VAR + "}")
-                + System.lineSeparator());
-
-        // Append new line
-        writer.write(System.lineSeparator());
+                + System.lineSeparator()
+                + System.lineSeparator()
+        );
     }
 }
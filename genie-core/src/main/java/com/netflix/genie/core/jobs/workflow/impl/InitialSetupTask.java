@@ -17,6 +17,8 @@
  */
 package com.netflix.genie.core.jobs.workflow.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.netflix.genie.common.dto.Cluster;
 import com.netflix.genie.common.dto.Command;
 import com.netflix.genie.common.exceptions.GenieException;
@@ -38,6 +40,39 @@ import java.util.Map;
 @Slf4j
 public class InitialSetupTask extends GenieBaseTask {
 
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int ENV_BLOCK_CAPACITY = 1024;
+    private static final int MAX_CACHED_BLOCKS = 1024;
+
+    private static final String GENIE_DIR_PREFIX = "${"
+        + JobConstants.GENIE_JOB_DIR_ENV_VAR
+        + "}"
+        + JobConstants.FILE_PATH_DELIMITER
+        + JobConstants.GENIE_PATH_VAR
+        + JobConstants.FILE_PATH_DELIMITER;
+
+    private static final String APPLICATION_DIR_EXPORT = JobConstants.EXPORT
+        + JobConstants.GENIE_APPLICATION_DIR_ENV_VAR
+        + JobConstants.EQUALS_SYMBOL
+        + JobConstants.DOUBLE_QUOTE_SYMBOL
+        + GENIE_DIR_PREFIX
+        + JobConstants.APPLICATION_PATH_VAR
+        + JobConstants.DOUBLE_QUOTE_SYMBOL
+        + LINE_SEPARATOR
+        + LINE_SEPARATOR;
+
+    private static final String COMMAND_DIR_PREFIX = GENIE_DIR_PREFIX
+        + JobConstants.COMMAND_PATH_VAR
+        + JobConstants.FILE_PATH_DELIMITER;
+
+    private static final String CLUSTER_DIR_PREFIX = GENIE_DIR_PREFIX
+        + JobConstants.CLUSTER_PATH_VAR
+        + JobConstants.FILE_PATH_DELIMITER;
+
+    // The exports of a command and cluster keyed by their ids and when they were last updated
+    private final Cache<String, String> entityBlocks
+        = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_BLOCKS).build();
+
     /**
      * {@inheritDoc}
      */
@@ -48,7 +83,6 @@ public class InitialSetupTask extends GenieBaseTask {
     ) throws GenieException, IOException {
         log.debug("Executing Initial setup Task in the workflow.");
 
-        final String lineSeperator = System.lineSeparator();
         final JobExecutionEnvironment jobExecEnv =
             (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
@@ -93,154 +127,83 @@ public class InitialSetupTask extends GenieBaseTask {
 
         /** set the env variables in the launcher script **/
 
+        final Command command = jobExecEnv.getCommand();
+        final Cluster cluster = jobExecEnv.getCluster();
+
+        // Only the values of the job vary between scripts of jobs run with the same versions of a command and cluster.
+        // The rest is built once and the whole block is handed to the writer in one go.
+        final StringBuilder env = new StringBuilder(ENV_BLOCK_CAPACITY);
+
         // set environment variable for the job directory
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_JOB_DIR_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + jobWorkingDirectory
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + lineSeperator);
-
-        // Append new line
-        writer.write(lineSeperator);
-
-        // create environment variable for the application directory
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_APPLICATION_DIR_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + "${"
-            + JobConstants.GENIE_JOB_DIR_ENV_VAR
-            + "}"
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.APPLICATION_PATH_VAR
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + lineSeperator);
+        appendExport(env, JobConstants.GENIE_JOB_DIR_ENV_VAR, jobWorkingDirectory);
 
-        // Append new line
-        writer.write(lineSeperator);
+        // create environment variables for the application directory, the command and the cluster
+        env.append(this.getEntityBlock(command, cluster));
 
-        // create environment variables for the command
-        final Command command = jobExecEnv.getCommand();
+        // create environment variables for the job id and name
+        appendExport(env, JobConstants.GENIE_JOB_ID_ENV_VAR, jobExecEnv.getJobRequest().getId());
+        appendExport(env, JobConstants.GENIE_JOB_NAME_ENV_VAR, jobExecEnv.getJobRequest().getName());
 
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_COMMAND_DIR_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + "${"
-            + JobConstants.GENIE_JOB_DIR_ENV_VAR
-            + "}"
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.COMMAND_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + command.getId()
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + lineSeperator);
-
-        // Append new line
-        writer.write(lineSeperator);
-
-        writer.write(
-            JobConstants.EXPORT
-                + JobConstants.GENIE_COMMAND_ID_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + command.getId()
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + lineSeperator
-        );
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        writer.write(
-            JobConstants.EXPORT
-                + JobConstants.GENIE_COMMAND_NAME_ENV_VAR
-                + JobConstants.EQUALS_SYMBOL
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + command.getName()
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + lineSeperator
-        );
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        // create environment variables for the cluster
-        final Cluster cluster = jobExecEnv.getCluster();
+        writer.write(env.toString());
+    }
 
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_CLUSTER_DIR_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + "${"
-            + JobConstants.GENIE_JOB_DIR_ENV_VAR
-            + "}"
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
+    /**
+     * Get the exports of the application directory, the command and the cluster. They only change when the command or
+     * cluster is updated so they're built once per version of the two.
+     *
+     * @param command The command the job runs
+     * @param cluster The cluster the job runs on
+     * @return The exports
+     */
+    private String getEntityBlock(final Command command, final Cluster cluster) {
+        if (command.getUpdated() == null || cluster.getUpdated() == null) {
+            // Without knowing the versions there's no telling whether a cached block is still valid
+            return buildEntityBlock(command, cluster);
+        }
+
+        final String key = command.getId()
             + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.CLUSTER_PATH_VAR
+            + command.getUpdated().getTime()
             + JobConstants.FILE_PATH_DELIMITER
             + cluster.getId()
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + System.lineSeparator());
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        writer.write(
-            JobConstants.EXPORT
-                + JobConstants.GENIE_CLUSTER_ID_ENV_VAR
-                + JobConstants.EQUALS_SYMBOL
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + cluster.getId()
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + lineSeperator
-        );
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        writer.write(
-            JobConstants.EXPORT
-                + JobConstants.GENIE_CLUSTER_NAME_ENV_VAR
-                + JobConstants.EQUALS_SYMBOL
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + cluster.getName()
-                + JobConstants.DOUBLE_QUOTE_SYMBOL
-                + lineSeperator
-        );
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        // create environment variable for the job id
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_JOB_ID_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + jobExecEnv.getJobRequest().getId()
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + System.lineSeparator());
-
-        // Append new line
-        writer.write(System.lineSeparator());
-
-        // create environment variable for the job name
-        writer.write(JobConstants.EXPORT
-            + JobConstants.GENIE_JOB_NAME_ENV_VAR
-            + JobConstants.EQUALS_SYMBOL
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + jobExecEnv.getJobRequest().getName()
-            + JobConstants.DOUBLE_QUOTE_SYMBOL
-            + System.lineSeparator());
-
-        // Append new line
-        writer.write(System.lineSeparator());
+            + JobConstants.FILE_PATH_DELIMITER
+            + cluster.getUpdated().getTime();
+        final String cached = this.entityBlocks.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final String block = buildEntityBlock(command, cluster);
+        this.entityBlocks.put(key, block);
+        return block;
+    }
+
+    private static String buildEntityBlock(final Command command, final Cluster cluster) {
+        final StringBuilder block = new StringBuilder(ENV_BLOCK_CAPACITY).append(APPLICATION_DIR_EXPORT);
+        appendExport(block, JobConstants.GENIE_COMMAND_DIR_ENV_VAR, COMMAND_DIR_PREFIX + command.getId());
+        appendExport(block, JobConstants.GENIE_COMMAND_ID_ENV_VAR, command.getId());
+        appendExport(block, JobConstants.GENIE_COMMAND_NAME_ENV_VAR, command.getName());
+        appendExport(block, JobConstants.GENIE_CLUSTER_DIR_ENV_VAR, CLUSTER_DIR_PREFIX + cluster.getId());
+        appendExport(block, JobConstants.GENIE_CLUSTER_ID_ENV_VAR, cluster.getId());
+        appendExport(block, JobConstants.GENIE_CLUSTER_NAME_ENV_VAR, cluster.getName());
+        return block.toString();
+    }
+
+    /**
+     * Append the export of an environment variable followed by an empty line.
+     *
+     * @param env   The block to append to
+     * @param name  The name of the environment variable
+     * @param value The value of the environment variable
+     */
+    private static void appendExport(final StringBuilder env, final String name, final String value) {
+        env
+            .append(JobConstants.EXPORT)
+            .append(name)
+            .append(JobConstants.EQUALS_SYMBOL)
+            .append(JobConstants.DOUBLE_QUOTE_SYMBOL)
+            .append(value)
+            .append(JobConstants.DOUBLE_QUOTE_SYMBOL)
+            .append(LINE_SEPARATOR)
+            .append(LINE_SEPARATOR);
     }
 }
@@ -0,0 +1,109 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.Executor;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Workflow task giving the user a job is run as access to the job directory before anything is put in it. The
+ * directory gets an ACL entry and a default ACL entry for the user, so everything created in it afterwards is
+ * accessible to the user as well and the directory doesn't have to be handed over to the user with a recursive chown
+ * right before the job is launched. Runs one non recursive setfacl which doesn't need sudo as Genie owns the
+ * directory.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class JobDirectoryAclTask extends GenieBaseTask {
+
+    private final boolean isUserCreationEnabled;
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param userCreationEnabled Flag that tells if the user specified should be created
+     * @param executor            The executor to run the commands with
+     */
+    public JobDirectoryAclTask(final boolean userCreationEnabled, @NotNull final Executor executor) {
+        this.isUserCreationEnabled = userCreationEnabled;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void executeTask(
+        @NotNull
+        final Map<String, Object> context
+    ) throws GenieException, IOException {
+        log.debug("Executing Job Directory ACL Task in the workflow.");
+
+        final JobExecutionEnvironment jobExecEnv =
+            (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
+        final JobRequest jobRequest = jobExecEnv.getJobRequest();
+        final File jobWorkingDir = jobExecEnv.getJobWorkingDir();
+
+        // The user has to exist before it can be named in an ACL
+        if (this.isUserCreationEnabled) {
+            this.createUser(jobRequest.getUser(), jobRequest.getGroup(), this.executor);
+        }
+
+        this.grantAccessToDirectory(jobWorkingDir.getCanonicalPath(), jobRequest.getUser());
+
+        // The run script was created along with the directory so it doesn't get the default entry
+        final File runScript = new File(jobWorkingDir, JobConstants.GENIE_JOB_LAUNCHER_SCRIPT);
+        if (!runScript.setReadable(true, false) || !runScript.setExecutable(true, false)) {
+            throw new GenieServerException("Unable to make run script executable by user " + jobRequest.getUser());
+        }
+    }
+
+    /**
+     * Give the user read, write and execute access to the directory and everything created in it from now on.
+     *
+     * @param dir  The directory to give the user access to
+     * @param user Userid of the user
+     * @throws GenieException If there is a problem
+     */
+    protected void grantAccessToDirectory(final String dir, final String user) throws GenieException {
+        final CommandLine commandLine = new CommandLine("setfacl");
+        commandLine.addArgument("-m");
+        commandLine.addArgument("u:" + user + ":rwx,d:u:" + user + ":rwx");
+        commandLine.addArgument(dir);
+
+        try {
+            this.executor.execute(commandLine);
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Could not give user " + user + " access to " + dir, ioe);
+        }
+    }
+}
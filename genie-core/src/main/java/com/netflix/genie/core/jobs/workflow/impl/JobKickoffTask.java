@@ -23,10 +23,11 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import com.netflix.genie.core.jobs.JobStaging;
+import com.netflix.genie.core.services.JobTimelineService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.Executor;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 
 import javax.validation.constraints.NotNull;
@@ -53,6 +54,7 @@ public class JobKickoffTask extends GenieBaseTask {
 
     private boolean isRunAsUserEnabled;
     private boolean isUserCreationEnabled;
+    private boolean isJobDirectoryAclEnabled;
     private Executor executor;
     private String hostname;
 
@@ -69,12 +71,42 @@ public class JobKickoffTask extends GenieBaseTask {
         final boolean userCreationEnabled,
         final Executor executor,
         final String hostname
+    ) {
+        this(runAsUserEnabled, userCreationEnabled, false, executor, hostname);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param runAsUserEnabled Flag that tells if job should be run as user specified in the request
+     * @param userCreationEnabled Flag that tells if the user specified should be created
+     * @param jobDirectoryAclEnabled Flag that tells if the user was already given access to the job directory by a
+     *                               {@link JobDirectoryAclTask}, in which case its ownership isn't changed
+     * @param executor An executor object used to run jobs
+     * @param hostname Hostname for the node the job is running on
+     */
+    public JobKickoffTask(
+        final boolean runAsUserEnabled,
+        final boolean userCreationEnabled,
+        final boolean jobDirectoryAclEnabled,
+        final Executor executor,
+        final String hostname
     ) {
         this.isRunAsUserEnabled = runAsUserEnabled;
         this.isUserCreationEnabled = userCreationEnabled;
+        this.isJobDirectoryAclEnabled = jobDirectoryAclEnabled;
         this.executor = executor;
         this.hostname = hostname;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLaunchTask() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -90,6 +122,13 @@ public class JobKickoffTask extends GenieBaseTask {
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
         final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
 
+        // The files the job needs are fetched in the background while the run script is written. Wait for all of
+        // them to be on disk before launching.
+        final JobStaging staging = (JobStaging) context.get(JobConstants.JOB_STAGING_KEY);
+        if (staging != null) {
+            staging.awaitCompletion();
+        }
+
         // At this point all contents are written to the run script and we call an explicit flush and close to write
         // the contents to the file before we execute it.
         try {
@@ -103,16 +142,19 @@ public class JobKickoffTask extends GenieBaseTask {
             + JobConstants.FILE_PATH_DELIMITER
             + JobConstants.GENIE_JOB_LAUNCHER_SCRIPT;
 
-        if (this.isUserCreationEnabled) {
+        // With ACLs the user was created and given access to the job directory when the job was set up
+        if (this.isUserCreationEnabled && !this.isJobDirectoryAclEnabled) {
             createUser(jobExecEnv.getJobRequest().getUser(), jobExecEnv.getJobRequest().getGroup());
         }
 
         final List<String> command = new ArrayList<>();
         if (this.isRunAsUserEnabled) {
-            changeOwnershipOfDirectory(jobWorkingDirectory, jobExecEnv.getJobRequest().getUser());
+            if (!this.isJobDirectoryAclEnabled) {
+                changeOwnershipOfDirectory(jobWorkingDirectory, jobExecEnv.getJobRequest().getUser());
 
-            // This is needed because the genie.log file is still generated as the user running Genie system.
-            makeDirGroupWritable(jobWorkingDirectory + "/genie/logs");
+                // This is needed because the genie.log file is still generated as the user running Genie system.
+                makeDirGroupWritable(jobWorkingDirectory + "/genie/logs");
+            }
             command.add("sudo");
             command.add("-u");
             command.add(jobExecEnv.getJobRequest().getUser());
@@ -133,7 +175,13 @@ public class JobKickoffTask extends GenieBaseTask {
         pb.redirectError(new File(jobExecEnv.getJobWorkingDir() + JobConstants.GENIE_LOG_PATH));
 
         try {
+            final long processStart = System.nanoTime();
             final Process process = pb.start();
+            final JobTimelineService timeline
+                = (JobTimelineService) context.get(JobConstants.JOB_TIMELINE_SERVICE_KEY);
+            if (timeline != null) {
+                timeline.record(jobExecEnv.getJobRequest().getId(), "process.start", processStart);
+            }
             final int processId = getProcessId(process);
             final JobRequest request = jobExecEnv.getJobRequest();
             final Calendar calendar = Calendar.getInstance(UTC);
@@ -165,57 +213,16 @@ public class JobKickoffTask extends GenieBaseTask {
     }
 
     /**
-     * Create user on the system. Synchronized to prevent multiple threads from trying to create user at the same time.
+     * Create user on the system. Only one user is created at a time.
      *
      * @param user user id
      * @param group group id
      * @throws GenieException If there is any problem.
      */
-    protected synchronized void createUser(
+    protected void createUser(
         final String user,
         final String group) throws GenieException {
-
-        // First check if user already exists
-        final CommandLine idCheckCommandLine = new CommandLine("id");
-        idCheckCommandLine.addArgument("-u");
-        idCheckCommandLine.addArgument(user);
-
-        try {
-            this.executor.execute(idCheckCommandLine);
-            log.debug("User already exists");
-        } catch (final IOException ioe) {
-            log.debug("User does not exist. Creating it now.");
-
-            // Create the group for the user.
-            final CommandLine groupCreateCommandLine = new CommandLine("sudo");
-            groupCreateCommandLine.addArgument("groupadd");
-            groupCreateCommandLine.addArgument(group);
-
-            // We create the group and ignore the error as it will fail if group already exists.
-            // If the failure is due to some other reason, then user creation will fail and we catch that.
-            try {
-                this.executor.execute(groupCreateCommandLine);
-            } catch (IOException ioexception) {
-                log.debug("Group creation  threw an error as it might already exist");
-            }
-
-            final CommandLine userCreateCommandLine = new CommandLine("sudo");
-            userCreateCommandLine.addArgument("useradd");
-            userCreateCommandLine.addArgument(user);
-
-            if (StringUtils.isNotBlank(group)) {
-                userCreateCommandLine.addArgument("-G");
-                userCreateCommandLine.addArgument(group);
-            }
-
-            userCreateCommandLine.addArgument("-M");
-
-            try {
-                this.executor.execute(userCreateCommandLine);
-            } catch (IOException ioexception) {
-                throw new GenieServerException("Could not create user " + user + "with exception " + ioexception);
-            }
-        }
+        super.createUser(user, group, this.executor);
     }
 
     /**
@@ -21,13 +21,17 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
 import com.netflix.genie.core.services.AttachmentService;
-import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
+import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -62,8 +66,6 @@ public class JobTask extends GenieBaseTask {
     ) throws GenieException, IOException {
         log.debug("Execution Job Task in the workflow.");
 
-        final GenieFileTransferService fts =
-            (GenieFileTransferService) context.get(JobConstants.FILE_TRANSFER_SERVICE_KEY);
         final JobExecutionEnvironment jobExecEnv =
             (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
         final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
@@ -77,7 +79,7 @@ public class JobTask extends GenieBaseTask {
                     + JobConstants.FILE_PATH_DELIMITER
                     + jobSetupFile.substring(jobSetupFile.lastIndexOf(JobConstants.FILE_PATH_DELIMITER) + 1);
 
-            fts.getFile(jobSetupFile, localPath);
+            super.fetchFile(context, jobSetupFile, localPath);
 
             writer.write("# Sourcing setup file specified in job request" + System.lineSeparator());
             writer.write(
@@ -95,11 +97,11 @@ public class JobTask extends GenieBaseTask {
                 + JobConstants.FILE_PATH_DELIMITER
                 + dependencyFile.substring(dependencyFile.lastIndexOf(JobConstants.FILE_PATH_DELIMITER) + 1);
 
-            fts.getFile(dependencyFile, localPath);
+            super.fetchFile(context, dependencyFile, localPath);
         }
 
-        // Copy down the attachments if any to the current working directory
-        this.attachmentService.copy(
+        // Move the attachments if any into the current working directory
+        this.attachmentService.move(
             jobExecEnv.getJobRequest().getId(),
             jobExecEnv.getJobWorkingDir());
 
@@ -113,20 +115,54 @@ public class JobTask extends GenieBaseTask {
         // Append new line
         writer.write(System.lineSeparator());
 
-        writer.write("# Kick off the command in background mode and wait for it using its pid"
-            + System.lineSeparator());
+        final List<String> arrayParameters = jobExecEnv.getJobRequest().getArrayParameters();
+        if (arrayParameters.isEmpty()) {
+            writer.write("# Kick off the command in background mode and wait for it using its pid"
+                + System.lineSeparator());
+
+            writer.write(
+                jobExecEnv.getCommand().getExecutable()
+                    + JobConstants.WHITE_SPACE
+                    + jobExecEnv.getJobRequest().getCommandArgs()
+                    + JobConstants.STDOUT_REDIRECT
+                    + JobConstants.STDOUT_LOG_FILE_NAME
+                    + JobConstants.STDERR_REDIRECT
+                    + JobConstants.STDERR_LOG_FILE_NAME
+                    + " &"
+                    + System.lineSeparator()
+            );
+        } else {
+            this.writeArrayScript(
+                jobExecEnv.getJobWorkingDir(),
+                jobExecEnv.getCommand().getExecutable(),
+                jobExecEnv.getJobRequest().getCommandArgs(),
+                arrayParameters
+            );
+
+            writer.write("# Kick off the tasks of the array job in background mode and wait for them using the pid"
+                + System.lineSeparator());
 
-        writer.write(
-            jobExecEnv.getCommand().getExecutable()
-                + JobConstants.WHITE_SPACE
-                + jobExecEnv.getJobRequest().getCommandArgs()
-                + JobConstants.STDOUT_REDIRECT
-                + JobConstants.STDOUT_LOG_FILE_NAME
-                + JobConstants.STDERR_REDIRECT
-                + JobConstants.STDERR_LOG_FILE_NAME
-                + " &"
-                + System.lineSeparator()
-        );
+            writer.write(
+                "seq 0 "
+                    + (arrayParameters.size() - 1)
+                    + " | xargs -P "
+                    + Math.max(1, jobExecEnv.getJobRequest().getCpu())
+                    + " -I {} bash \"${"
+                    + JobConstants.GENIE_JOB_DIR_ENV_VAR
+                    + "}"
+                    + JobConstants.FILE_PATH_DELIMITER
+                    + JobConstants.GENIE_PATH_VAR
+                    + JobConstants.FILE_PATH_DELIMITER
+                    + JobConstants.GENIE_ARRAY_SCRIPT_NAME
+                    + "\" {}"
+                    + JobConstants.STDOUT_REDIRECT
+                    + JobConstants.STDOUT_LOG_FILE_NAME
+                    + JobConstants.STDERR_REDIRECT
+                    + JobConstants.STDERR_LOG_FILE_NAME
+                    + " &"
+                    + System.lineSeparator()
+            );
+        }
 
         // Wait for the above process started in background mode. Wait lets us get interrupted by kill signals.
         writer.write("wait $!" + System.lineSeparator());
@@ -140,4 +176,78 @@ public class JobTask extends GenieBaseTask {
             + JobConstants.GENIE_DONE_FILE_NAME
             + System.lineSeparator());
     }
+
+    /**
+     * Lay out the tasks of an array job. Each task gets a directory array/{index} under the job directory holding
+     * its parameter and links to everything the job downloaded, so relative paths in the command arguments resolve
+     * the same as for a regular job. The generated genie/array.sh runs the command for one index in its directory
+     * and records its exit code there. It exits with 1 on failure so xargs reports the failure of the job as a whole.
+     *
+     * @param jobWorkingDir   The job working directory
+     * @param executable      The executable of the command
+     * @param commandArgs     The command arguments of the job
+     * @param arrayParameters The parameter of each task
+     * @throws IOException If the files can't be written
+     */
+    void writeArrayScript(
+        @NotNull final File jobWorkingDir,
+        @NotNull final String executable,
+        @NotNull final String commandArgs,
+        @NotNull final List<String> arrayParameters
+    ) throws IOException {
+        final Path arrayDir = jobWorkingDir.toPath().resolve(JobConstants.GENIE_ARRAY_PATH_VAR);
+        for (int i = 0; i < arrayParameters.size(); i++) {
+            final Path taskDir = Files.createDirectories(arrayDir.resolve(Integer.toString(i)));
+            Files.write(
+                taskDir.resolve(JobConstants.GENIE_ARRAY_PARAMETER_FILE_NAME),
+                arrayParameters.get(i).getBytes(StandardCharsets.UTF_8)
+            );
+        }
+
+        final String taskDir = "${" + JobConstants.GENIE_JOB_DIR_ENV_VAR + "}"
+            + JobConstants.FILE_PATH_DELIMITER
+            + JobConstants.GENIE_ARRAY_PATH_VAR
+            + JobConstants.FILE_PATH_DELIMITER
+            + "${" + JobConstants.GENIE_ARRAY_INDEX_ENV_VAR + "}";
+        final String script = new StringBuilder()
+            .append("#!/usr/bin/env bash\n\n")
+            .append("set -o nounset -o pipefail\n\n")
+            .append(JobConstants.EXPORT).append(JobConstants.GENIE_ARRAY_INDEX_ENV_VAR).append("=\"$1\"\n")
+            .append(JobConstants.EXPORT).append(JobConstants.GENIE_ARRAY_PARAMETER_ENV_VAR)
+            .append("=\"$(cat \"").append(taskDir).append(JobConstants.FILE_PATH_DELIMITER)
+            .append(JobConstants.GENIE_ARRAY_PARAMETER_FILE_NAME).append("\")\"\n\n")
+            .append("cd \"").append(taskDir).append("\" || exit 1\n\n")
+            .append("# Link everything the job downloaded into the task directory\n")
+            .append("for FILE in \"${").append(JobConstants.GENIE_JOB_DIR_ENV_VAR).append("}\"/*; do\n")
+            .append("    case \"$(basename \"${FILE}\")\" in\n")
+            .append("        ")
+            .append(JobConstants.GENIE_ARRAY_PATH_VAR).append("|")
+            .append(JobConstants.GENIE_PATH_VAR).append("|")
+            .append(JobConstants.GENIE_JOB_LAUNCHER_SCRIPT).append("|")
+            .append(JobConstants.STDOUT_LOG_FILE_NAME).append("|")
+            .append(JobConstants.STDERR_LOG_FILE_NAME).append(") ;;\n")
+            .append("        *) ln -sfn \"${FILE}\" . ;;\n")
+            .append("    esac\n")
+            .append("done\n")
+            .append("mkdir -p ").append(JobConstants.GENIE_PATH_VAR).append("\n\n")
+            .append(executable)
+            .append(JobConstants.WHITE_SPACE)
+            .append(commandArgs)
+            .append(JobConstants.STDOUT_REDIRECT)
+            .append(JobConstants.STDOUT_LOG_FILE_NAME)
+            .append(JobConstants.STDERR_REDIRECT)
+            .append(JobConstants.STDERR_LOG_FILE_NAME)
+            .append("\n")
+            .append("EXIT_CODE=$?\n")
+            .append("printf '{\"exitCode\": \"%s\"}\\n' \"${EXIT_CODE}\" > ")
+            .append(JobConstants.GENIE_DONE_FILE_NAME).append("\n")
+            .append("[[ ${EXIT_CODE} -eq 0 ]] || exit 1\n")
+            .toString();
+
+        final Path scriptPath = jobWorkingDir.toPath()
+            .resolve(JobConstants.GENIE_PATH_VAR)
+            .resolve(JobConstants.GENIE_ARRAY_SCRIPT_NAME);
+        Files.createDirectories(scriptPath.getParent());
+        Files.write(scriptPath, script.getBytes(StandardCharsets.UTF_8));
+    }
 }
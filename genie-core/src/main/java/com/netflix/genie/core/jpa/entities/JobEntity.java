@@ -102,6 +102,11 @@ public class JobEntity extends CommonFieldsEntity {
     @Size(max = 255, message = "Max length in database is 255 characters")
     private String commandName;
 
+    @Basic
+    @Column(name = "host_name")
+    @Size(max = 255, message = "Max length in database is 255 characters")
+    private String hostName;
+
     @OneToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "id")
     @MapsId
@@ -180,6 +185,24 @@ public class JobEntity extends CommonFieldsEntity {
         this.commandName = commandName;
     }
 
+    /**
+     * Gets the host the job was accepted on. Known before the job has an execution, e.g. while it's queued.
+     *
+     * @return The host name
+     */
+    public String getHostName() {
+        return this.hostName;
+    }
+
+    /**
+     * Set the host the job was accepted on and will run on.
+     *
+     * @param hostName The host name
+     */
+    public void setHostName(final String hostName) {
+        this.hostName = hostName;
+    }
+
     /**
      * Gets the commandArgs specified to run the job.
      *
@@ -300,7 +323,7 @@ public class JobEntity extends CommonFieldsEntity {
 
         if (jobStatus == JobStatus.INIT) {
             this.setStarted(new Date());
-        } else if (jobStatus != JobStatus.RUNNING) {
+        } else if (jobStatus != JobStatus.RUNNING && jobStatus != JobStatus.QUEUED) {
             setFinished(new Date());
         }
     }
@@ -0,0 +1,63 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.entities;
+
+import org.hibernate.validator.constraints.Length;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The fingerprint of everything a memoized job ran with. The id of the entity is the id of the job.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Entity
+@Table(name = "job_fingerprints")
+public class JobFingerprintEntity extends BaseEntity {
+
+    private static final long serialVersionUID = -2351735483657128423L;
+
+    @Basic(optional = false)
+    @Column(name = "fingerprint", nullable = false, length = 64, updatable = false)
+    @NotBlank(message = "No fingerprint entered and is required.")
+    @Length(max = 64, message = "Max length in database is 64 characters")
+    private String fingerprint;
+
+    /**
+     * Get the fingerprint of the job.
+     *
+     * @return The hex encoded fingerprint
+     */
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Set the fingerprint of the job.
+     *
+     * @param fingerprint The hex encoded fingerprint
+     */
+    public void setFingerprint(final String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+}
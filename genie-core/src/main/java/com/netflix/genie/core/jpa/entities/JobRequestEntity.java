@@ -37,6 +37,7 @@ import javax.persistence.Table;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -91,6 +92,10 @@ public class JobRequestEntity extends SetupFileEntity {
     @Column(name = "disable_log_archival")
     private boolean disableLogArchival;
 
+    @Basic
+    @Column(name = "memoize")
+    private boolean memoize;
+
     @Basic
     @Column(name = "email")
     @Size(max = 255, message = "Max length in database is 255 characters")
@@ -116,6 +121,11 @@ public class JobRequestEntity extends SetupFileEntity {
     @Size(min = 1, max = 2048)
     private String applications = EMPTY_JSON_ARRAY;
 
+    @Basic
+    @Column(name = "array_parameters", length = 65535)
+    @Size(max = 65535, message = "Max length in the database is 65535 characters")
+    private String arrayParameters = EMPTY_JSON_ARRAY;
+
     @Basic(optional = false)
     @Column(name = "timeout", nullable = false)
     @Min(value = 1)
@@ -263,6 +273,24 @@ public class JobRequestEntity extends SetupFileEntity {
         this.disableLogArchival = disableLogArchival;
     }
 
+    /**
+     * Whether the job can be answered with a previous identical job.
+     *
+     * @return true if the job can be memoized
+     */
+    public boolean isMemoize() {
+        return this.memoize;
+    }
+
+    /**
+     * Set whether the job can be answered with a previous identical job.
+     *
+     * @param memoize True if memoizing is desired
+     */
+    public void setMemoize(final boolean memoize) {
+        this.memoize = memoize;
+    }
+
     /**
      * Gets the commandArgs specified to run the job.
      *
@@ -412,6 +440,48 @@ public class JobRequestEntity extends SetupFileEntity {
         this.applications = applications;
     }
 
+    /**
+     * Get the parameters of the tasks of an array job as a List.
+     *
+     * @return The array parameters. Empty if this isn't an array job.
+     * @throws GenieException On any exception
+     */
+    public List<String> getArrayParametersAsList() throws GenieException {
+        if (this.arrayParameters == null) {
+            return new ArrayList<>();
+        }
+        return JsonUtils.unmarshall(this.arrayParameters, LIST_STRING_TYPE_REFERENCE);
+    }
+
+    /**
+     * Sets the parameters of the tasks of an array job from a list of strings.
+     *
+     * @param arrayParametersList The parameter of each task in order of their index
+     * @throws GenieException for any processing error
+     */
+    public void setArrayParametersFromList(final List<String> arrayParametersList) throws GenieException {
+        this.arrayParameters
+            = arrayParametersList == null ? EMPTY_JSON_ARRAY : JsonUtils.marshall(arrayParametersList);
+    }
+
+    /**
+     * Gets the array parameters for the job as JSON array.
+     *
+     * @return The array parameters
+     */
+    protected String getArrayParameters() {
+        return this.arrayParameters;
+    }
+
+    /**
+     * Sets the array parameters for the job.
+     *
+     * @param arrayParameters Array parameters for the job in JSON array string
+     */
+    protected void setArrayParameters(final String arrayParameters) {
+        this.arrayParameters = arrayParameters;
+    }
+
     /**
      * Get the job associated with this job request.
      *
@@ -450,6 +520,7 @@ public class JobRequestEntity extends SetupFileEntity {
             .withId(this.getId())
             .withDescription(this.getDescription())
             .withDisableLogArchival(this.disableLogArchival)
+            .withMemoize(this.memoize)
             .withEmail(this.email)
             .withDependencies(this.getDependenciesAsSet())
             .withGroup(this.group)
@@ -459,6 +530,7 @@ public class JobRequestEntity extends SetupFileEntity {
             .withMemory(this.memory)
             .withUpdated(this.getUpdated())
             .withApplications(this.getApplicationsAsList())
+            .withArrayParameters(this.getArrayParametersAsList())
             .withTimeout(this.timeout)
             .build();
     }
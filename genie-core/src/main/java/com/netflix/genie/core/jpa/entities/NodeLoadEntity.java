@@ -0,0 +1,83 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.entities;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.validation.constraints.Min;
+
+/**
+ * The last load a Genie node published about itself. The id of the entity is the host name of the node.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Entity
+@Table(name = "node_loads")
+public class NodeLoadEntity extends BaseEntity {
+
+    private static final long serialVersionUID = 3425683211871947281L;
+
+    @Basic(optional = false)
+    @Column(name = "running", nullable = false)
+    @Min(0)
+    private int running;
+
+    @Basic(optional = false)
+    @Column(name = "free_slots", nullable = false)
+    @Min(0)
+    private int freeSlots;
+
+    /**
+     * Get the number of jobs running on the node.
+     *
+     * @return The number of running jobs
+     */
+    public int getRunning() {
+        return this.running;
+    }
+
+    /**
+     * Set the number of jobs running on the node.
+     *
+     * @param running The number of running jobs
+     */
+    public void setRunning(final int running) {
+        this.running = running;
+    }
+
+    /**
+     * Get the number of new jobs the node can currently take.
+     *
+     * @return The number of free slots
+     */
+    public int getFreeSlots() {
+        return this.freeSlots;
+    }
+
+    /**
+     * Set the number of new jobs the node can currently take.
+     *
+     * @param freeSlots The number of free slots
+     */
+    public void setFreeSlots(final int freeSlots) {
+        this.freeSlots = freeSlots;
+    }
+}
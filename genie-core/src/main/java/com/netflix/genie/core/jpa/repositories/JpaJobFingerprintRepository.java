@@ -0,0 +1,47 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.repositories;
+
+import com.netflix.genie.core.jpa.entities.JobFingerprintEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Job fingerprint repository.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Repository
+public interface JpaJobFingerprintRepository extends JpaRepository<JobFingerprintEntity, String> {
+
+    /**
+     * Find the jobs with the given fingerprint created after the given date, newest first.
+     *
+     * @param fingerprint The fingerprint to look for
+     * @param created     The time the job must have been created after
+     * @return The matching fingerprints. Empty if there are none.
+     */
+    List<JobFingerprintEntity> findByFingerprintAndCreatedAfterOrderByCreatedDesc(
+        final String fingerprint,
+        final Date created
+    );
+}
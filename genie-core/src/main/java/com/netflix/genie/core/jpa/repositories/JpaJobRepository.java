@@ -15,11 +15,14 @@
  */
 package com.netflix.genie.core.jpa.repositories;
 
+import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.core.jpa.entities.JobEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Job repository.
  *
@@ -27,4 +30,13 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface JpaJobRepository extends JpaRepository<JobEntity, String>, JpaSpecificationExecutor {
+
+    /**
+     * Get all the jobs which were accepted on the given host and are in the given status.
+     *
+     * @param hostName The hostname to search for
+     * @param status   The status to search for
+     * @return All the jobs of that host in that status
+     */
+    List<JobEntity> findByHostNameAndStatus(final String hostName, final JobStatus status);
 }
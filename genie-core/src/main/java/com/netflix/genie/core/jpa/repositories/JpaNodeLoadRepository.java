@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.repositories;
+
+import com.netflix.genie.core.jpa.entities.NodeLoadEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+/**
+ * Node load repository.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Repository
+public interface JpaNodeLoadRepository extends JpaRepository<NodeLoadEntity, String> {
+
+    /**
+     * Find the node, other than the given one, with the most free slots out of those which have published their
+     * load recently.
+     *
+     * @param id        The host name of the node to leave out
+     * @param freeSlots The number of free slots the node must have more than
+     * @param updated   The time the load must have been published after
+     * @return The node load or null if no node matches
+     */
+    NodeLoadEntity findFirstByIdNotAndFreeSlotsGreaterThanAndUpdatedAfterOrderByFreeSlotsDesc(
+        final String id,
+        final int freeSlots,
+        final Date updated
+    );
+}
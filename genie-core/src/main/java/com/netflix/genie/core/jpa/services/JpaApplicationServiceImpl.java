@@ -32,6 +32,8 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
 import com.netflix.genie.core.jpa.entities.ApplicationEntity;
 import com.netflix.genie.core.jpa.entities.CommandEntity;
 import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
@@ -43,6 +45,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
 import org.hibernate.validator.constraints.NotEmpty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
@@ -75,19 +78,23 @@ public class JpaApplicationServiceImpl implements ApplicationService {
     private final ObjectMapper mapper = new ObjectMapper();
     private final JpaApplicationRepository applicationRepo;
     private final JpaCommandRepository commandRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Default constructor.
      *
      * @param applicationRepo The application repository to use
      * @param commandRepo     The command repository to use
+     * @param eventPublisher  The publisher to notify of application changes with
      */
     public JpaApplicationServiceImpl(
         final JpaApplicationRepository applicationRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
         this.applicationRepo = applicationRepo;
         this.commandRepo = commandRepo;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -111,6 +118,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
             applicationEntity.setId(app.getId());
         }
         this.updateAndSaveApplicationEntity(applicationEntity, app);
+        this.publishChanged(applicationEntity.getId());
         return applicationEntity.getId();
     }
 
@@ -169,6 +177,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
 
         log.debug("Called with app {}", updateApp.toString());
         this.updateAndSaveApplicationEntity(this.findApplication(id), updateApp);
+        this.publishChanged(id);
     }
 
     /**
@@ -189,6 +198,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
             log.error("Unable to patch application {} with patch {} due to exception.", id, patch, e);
             throw new GenieServerException(e.getLocalizedMessage(), e);
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -208,6 +218,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
             }
         }
         this.applicationRepo.deleteAll();
+        this.publishChanged(null);
     }
 
     /**
@@ -229,6 +240,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         }
 
         this.applicationRepo.delete(applicationEntity);
+        this.publishChanged(id);
     }
 
     /**
@@ -242,6 +254,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> configs
     ) throws GenieException {
         this.findApplication(id).getConfigs().addAll(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -267,6 +280,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> configs
     ) throws GenieException {
         this.findApplication(id).setConfigs(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -278,6 +292,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final String id
     ) throws GenieException {
         this.findApplication(id).getConfigs().clear();
+        this.publishChanged(id);
     }
 
     /**
@@ -291,6 +306,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final String config
     ) throws GenieException {
         this.findApplication(id).getConfigs().remove(config);
+        this.publishChanged(id);
     }
 
     /**
@@ -304,6 +320,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> dependencies
     ) throws GenieException {
         this.findApplication(id).getDependencies().addAll(dependencies);
+        this.publishChanged(id);
     }
 
     /**
@@ -329,6 +346,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> dependencies
     ) throws GenieException {
         this.findApplication(id).setDependencies(dependencies);
+        this.publishChanged(id);
     }
 
     /**
@@ -340,6 +358,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final String id
     ) throws GenieException {
         this.findApplication(id).getDependencies().clear();
+        this.publishChanged(id);
     }
 
     /**
@@ -353,6 +372,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final String dependency
     ) throws GenieException {
         this.findApplication(id).getDependencies().remove(dependency);
+        this.publishChanged(id);
     }
 
     /**
@@ -369,6 +389,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> appTags = app.getTags();
         appTags.addAll(tags);
         app.setTags(appTags);
+        this.publishChanged(id);
     }
 
     /**
@@ -394,6 +415,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> tags
     ) throws GenieException {
         this.findApplication(id).setTags(tags);
+        this.publishChanged(id);
     }
 
     /**
@@ -405,6 +427,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final String id
     ) throws GenieException {
         this.findApplication(id).setTags(Sets.newHashSet());
+        this.publishChanged(id);
     }
 
     /**
@@ -421,6 +444,7 @@ public class JpaApplicationServiceImpl implements ApplicationService {
         final Set<String> tags = app.getTags();
         tags.remove(tag);
         app.setTags(tags);
+        this.publishChanged(id);
     }
 
     /**
@@ -476,4 +500,8 @@ public class JpaApplicationServiceImpl implements ApplicationService {
 
         this.applicationRepo.save(entity);
     }
+
+    private void publishChanged(final String id) {
+        this.eventPublisher.publishEvent(new ConfigChangedEvent(ConfigEntityType.APPLICATION, id, this));
+    }
 }
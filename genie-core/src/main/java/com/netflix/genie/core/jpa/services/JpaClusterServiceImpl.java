@@ -34,6 +34,8 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
 import com.netflix.genie.core.jpa.entities.ClusterEntity;
 import com.netflix.genie.core.jpa.entities.CommandEntity;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
@@ -44,6 +46,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
 import org.hibernate.validator.constraints.NotEmpty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
@@ -77,19 +80,23 @@ public class JpaClusterServiceImpl implements ClusterService {
     private final ObjectMapper mapper = new ObjectMapper();
     private final JpaClusterRepository clusterRepo;
     private final JpaCommandRepository commandRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Default constructor - initialize all required dependencies.
      *
-     * @param clusterRepo The cluster repository to use.
-     * @param commandRepo The command repository to use.
+     * @param clusterRepo    The cluster repository to use.
+     * @param commandRepo    The command repository to use.
+     * @param eventPublisher The publisher to notify of cluster changes with.
      */
     public JpaClusterServiceImpl(
         final JpaClusterRepository clusterRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
         this.clusterRepo = clusterRepo;
         this.commandRepo = commandRepo;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -109,6 +116,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final ClusterEntity clusterEntity = new ClusterEntity();
         clusterEntity.setId(StringUtils.isBlank(cluster.getId()) ? UUID.randomUUID().toString() : cluster.getId());
         this.updateAndSaveClusterEntity(clusterEntity, cluster);
+        this.publishChanged(clusterEntity.getId());
         return clusterEntity.getId();
     }
 
@@ -204,6 +212,7 @@ public class JpaClusterServiceImpl implements ClusterService {
 
         //TODO: Move update of common fields to super classes
         this.updateAndSaveClusterEntity(this.clusterRepo.findOne(id), updateCluster);
+        this.publishChanged(id);
     }
 
     /**
@@ -224,6 +233,7 @@ public class JpaClusterServiceImpl implements ClusterService {
             log.error("Unable to patch cluster {} with patch {} due to exception.", id, patch, e);
             throw new GenieServerException(e.getLocalizedMessage(), e);
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -258,6 +268,7 @@ public class JpaClusterServiceImpl implements ClusterService {
             }
         }
         this.clusterRepo.delete(clusterEntity);
+        this.publishChanged(id);
     }
 
     /**
@@ -272,6 +283,7 @@ public class JpaClusterServiceImpl implements ClusterService {
     ) throws GenieException {
         log.debug("called");
         this.findCluster(id).getConfigs().addAll(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -299,6 +311,7 @@ public class JpaClusterServiceImpl implements ClusterService {
     ) throws GenieException {
         log.debug("called with id {} and configs {}", id, configs);
         this.findCluster(id).setConfigs(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -310,6 +323,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final String id
     ) throws GenieException {
         this.findCluster(id).getConfigs().clear();
+        this.publishChanged(id);
     }
 
     /**
@@ -326,6 +340,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final Set<String> clusterTags = cluster.getTags();
         clusterTags.addAll(tags);
         cluster.setTags(clusterTags);
+        this.publishChanged(id);
     }
 
     /**
@@ -351,6 +366,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final Set<String> tags
     ) throws GenieException {
         this.findCluster(id).setTags(tags);
+        this.publishChanged(id);
     }
 
     /**
@@ -362,6 +378,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final String id
     ) throws GenieException {
         this.findCluster(id).setTags(Sets.newHashSet());
+        this.publishChanged(id);
     }
 
     /**
@@ -378,6 +395,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final Set<String> tags = cluster.getTags();
         tags.remove(tag);
         cluster.setTags(tags);
+        this.publishChanged(id);
     }
 
     /**
@@ -398,6 +416,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         for (final String commandId : commandIds) {
             clusterEntity.addCommand(this.commandRepo.findOne(commandId));
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -440,6 +459,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         commandIds.stream().forEach(commandId -> commandEntities.add(this.commandRepo.findOne(commandId)));
 
         clusterEntity.setCommands(commandEntities);
+        this.publishChanged(id);
     }
 
     /**
@@ -451,6 +471,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         final String id
     ) throws GenieException {
         this.findCluster(id).removeAllCommands();
+        this.publishChanged(id);
     }
 
     /**
@@ -470,6 +491,7 @@ public class JpaClusterServiceImpl implements ClusterService {
         } else {
             throw new GenieNotFoundException("No command with id " + cmdId + " exists.");
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -500,4 +522,8 @@ public class JpaClusterServiceImpl implements ClusterService {
 
         this.clusterRepo.save(clusterEntity);
     }
+
+    private void publishChanged(final String id) {
+        this.eventPublisher.publishEvent(new ConfigChangedEvent(ConfigEntityType.CLUSTER, id, this));
+    }
 }
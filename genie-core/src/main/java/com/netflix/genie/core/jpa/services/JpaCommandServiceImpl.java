@@ -34,6 +34,8 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
 import com.netflix.genie.core.jpa.entities.ApplicationEntity;
 import com.netflix.genie.core.jpa.entities.ClusterEntity;
 import com.netflix.genie.core.jpa.entities.CommandEntity;
@@ -47,6 +49,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
 import org.hibernate.validator.constraints.NotEmpty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
@@ -81,22 +84,26 @@ public class JpaCommandServiceImpl implements CommandService {
     private final JpaCommandRepository commandRepo;
     private final JpaApplicationRepository appRepo;
     private final JpaClusterRepository clusterRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Default constructor.
      *
-     * @param commandRepo the command repository to use
-     * @param appRepo     the application repository to use
-     * @param clusterRepo the cluster repository to use
+     * @param commandRepo    the command repository to use
+     * @param appRepo        the application repository to use
+     * @param clusterRepo    the cluster repository to use
+     * @param eventPublisher the publisher to notify of command changes with
      */
     public JpaCommandServiceImpl(
         final JpaCommandRepository commandRepo,
         final JpaApplicationRepository appRepo,
-        final JpaClusterRepository clusterRepo
+        final JpaClusterRepository clusterRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
         this.commandRepo = commandRepo;
         this.appRepo = appRepo;
         this.clusterRepo = clusterRepo;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -116,6 +123,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final CommandEntity commandEntity = new CommandEntity();
         commandEntity.setId(StringUtils.isBlank(command.getId()) ? UUID.randomUUID().toString() : command.getId());
         this.updateAndSaveCommandEntity(commandEntity, command);
+        this.publishChanged(commandEntity.getId());
         return commandEntity.getId();
     }
 
@@ -181,6 +189,7 @@ public class JpaCommandServiceImpl implements CommandService {
         log.debug("Called to update command with id {} {}", id, updateCommand);
 
         this.updateAndSaveCommandEntity(this.findCommand(id), updateCommand);
+        this.publishChanged(id);
     }
 
     /**
@@ -201,6 +210,7 @@ public class JpaCommandServiceImpl implements CommandService {
             log.error("Unable to patch cluster {} with patch {} due to exception.", id, patch, e);
             throw new GenieServerException(e.getLocalizedMessage(), e);
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -238,6 +248,7 @@ public class JpaCommandServiceImpl implements CommandService {
             clusterEntities.forEach(clusterEntity -> clusterEntity.removeCommand(commandEntity));
         }
         this.commandRepo.delete(commandEntity);
+        this.publishChanged(id);
     }
 
     /**
@@ -251,6 +262,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final Set<String> configs
     ) throws GenieException {
         this.findCommand(id).getConfigs().addAll(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -276,6 +288,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final Set<String> configs
     ) throws GenieException {
         this.findCommand(id).setConfigs(configs);
+        this.publishChanged(id);
     }
 
     /**
@@ -287,6 +300,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final String id
     ) throws GenieException {
         this.findCommand(id).getConfigs().clear();
+        this.publishChanged(id);
     }
 
     /**
@@ -300,6 +314,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final String config
     ) throws GenieException {
         this.findCommand(id).getConfigs().remove(config);
+        this.publishChanged(id);
     }
 
     /**
@@ -316,6 +331,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final Set<String> commandTags = command.getTags();
         commandTags.addAll(tags);
         command.setTags(commandTags);
+        this.publishChanged(id);
     }
 
     /**
@@ -341,6 +357,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final Set<String> tags
     ) throws GenieException {
         this.findCommand(id).setTags(tags);
+        this.publishChanged(id);
     }
 
     /**
@@ -352,6 +369,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final String id
     ) throws GenieException {
         this.findCommand(id).setTags(Sets.newHashSet());
+        this.publishChanged(id);
     }
 
     /**
@@ -368,6 +386,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final Set<String> commandTags = command.getTags();
         commandTags.remove(tag);
         command.setTags(commandTags);
+        this.publishChanged(id);
     }
 
     /**
@@ -388,6 +407,7 @@ public class JpaCommandServiceImpl implements CommandService {
         for (final String appId : applicationIds) {
             commandEntity.addApplication(this.appRepo.findOne(appId));
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -409,6 +429,7 @@ public class JpaCommandServiceImpl implements CommandService {
         applicationIds.stream().forEach(appId -> applicationEntities.add(this.appRepo.findOne(appId)));
 
         commandEntity.setApplications(applicationEntities);
+        this.publishChanged(id);
     }
 
     /**
@@ -437,6 +458,7 @@ public class JpaCommandServiceImpl implements CommandService {
         final String id
     ) throws GenieException {
         this.findCommand(id).setApplications(null);
+        this.publishChanged(id);
     }
 
     /**
@@ -456,6 +478,7 @@ public class JpaCommandServiceImpl implements CommandService {
         } else {
             throw new GenieNotFoundException("No application with id " + id + " exists.");
         }
+        this.publishChanged(id);
     }
 
     /**
@@ -515,4 +538,8 @@ public class JpaCommandServiceImpl implements CommandService {
 
         this.commandRepo.save(commandEntity);
     }
+
+    private void publishChanged(final String id) {
+        this.eventPublisher.publishEvent(new ConfigChangedEvent(ConfigEntityType.COMMAND, id, this));
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.BaseDTO;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.jpa.entities.JobFingerprintEntity;
+import com.netflix.genie.core.jpa.repositories.JpaJobFingerprintRepository;
+import com.netflix.genie.core.services.JobMemoizationService;
+import com.netflix.genie.core.services.JobResolverService;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * JPA implementation of the JobMemoizationService. The fingerprint of a job is a SHA-256 over the user, the command
+ * arguments, the id and last update time of every cluster it could have run on and of the command and applications it
+ * resolved to and the location and content hash of every file they and the request depend on.
+ * <p>
+ * The cluster a job runs on is picked from the candidates by the load balancer, which may do so at random, so all the
+ * candidates, in id order, are part of the fingerprint rather than the one which was picked. Otherwise identical
+ * requests would only be memoized when they happened to land on the same cluster. A change to any candidate, or to
+ * the content of its setup file or configs, changes the fingerprint.
+ * <p>
+ * Not transactional as a whole on purpose. Getting the content hash of a file can mean a round trip to S3 and no
+ * database connection should be held while waiting on that.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class JpaJobMemoizationServiceImpl implements JobMemoizationService {
+
+    private static final char SEPARATOR = '\0';
+
+    private final JpaJobFingerprintRepository jobFingerprintRepository;
+    private final JobSearchService jobSearchService;
+    private final JobResolverService jobResolverService;
+    private final GenieFileTransferService fileTransferService;
+    private final long ttl;
+
+    /**
+     * Constructor.
+     *
+     * @param jobFingerprintRepository The repository to store the fingerprints of jobs in
+     * @param jobSearchService         The service to use to get the status of previous jobs
+     * @param jobResolverService       The service to use to resolve what a request would run with
+     * @param fileTransferService      The service to use to get the content hash of files
+     * @param ttl                      How long, in milliseconds, a successful job can be returned for after it was
+     *                                 created
+     */
+    public JpaJobMemoizationServiceImpl(
+        @NotNull final JpaJobFingerprintRepository jobFingerprintRepository,
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final JobResolverService jobResolverService,
+        @NotNull final GenieFileTransferService fileTransferService,
+        final long ttl
+    ) {
+        this.jobFingerprintRepository = jobFingerprintRepository;
+        this.jobSearchService = jobSearchService;
+        this.jobResolverService = jobResolverService;
+        this.fileTransferService = fileTransferService;
+        this.ttl = ttl;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job getMemoizedJob(@NotNull final JobRequest jobRequest) throws GenieException {
+        final ResolvedJob resolvedJob = this.jobResolverService.resolveJob(jobRequest);
+        final String fingerprint = this.getFingerprint(jobRequest, resolvedJob);
+        if (fingerprint == null) {
+            log.debug("Job request {} depends on a file which can't be checked for changes", jobRequest.getId());
+            return null;
+        }
+        final Date createdAfter = new Date(System.currentTimeMillis() - this.ttl);
+        final List<JobFingerprintEntity> jobFingerprints = this.jobFingerprintRepository
+            .findByFingerprintAndCreatedAfterOrderByCreatedDesc(fingerprint, createdAfter);
+        for (final JobFingerprintEntity jobFingerprint : jobFingerprints) {
+            final String jobId = jobFingerprint.getId();
+            try {
+                if (this.jobSearchService.getJobStatus(jobId) == JobStatus.SUCCEEDED) {
+                    log.debug("Job {} has the same fingerprint {} as the request", jobId, fingerprint);
+                    return this.jobSearchService.getJob(jobId);
+                }
+            } catch (final GenieNotFoundException gnfe) {
+                // The job was purged after the fingerprint was read. Try the next one.
+                log.debug("Job {} no longer exists", jobId);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveFingerprint(
+        @NotBlank final String jobId,
+        @NotNull final JobRequest jobRequest,
+        @NotNull final ResolvedJob resolvedJob
+    ) throws GenieException {
+        final String fingerprint = this.getFingerprint(jobRequest, resolvedJob);
+        if (fingerprint == null) {
+            log.debug("Job {} depends on a file which can't be checked for changes. Not saving a fingerprint", jobId);
+            return;
+        }
+        final JobFingerprintEntity jobFingerprint = new JobFingerprintEntity();
+        jobFingerprint.setId(jobId);
+        jobFingerprint.setFingerprint(fingerprint);
+        this.jobFingerprintRepository.save(jobFingerprint);
+        log.debug("Saved fingerprint {} for job {}", jobFingerprint.getFingerprint(), jobId);
+    }
+
+    /**
+     * Compute the fingerprint of a job request and what it resolved to.
+     *
+     * @param jobRequest  The job request
+     * @param resolvedJob The cluster, command and applications the request resolved to
+     * @return The hex encoded SHA-256 fingerprint or null if the file system of any of the files can't tell whether
+     * it changed
+     * @throws GenieException If the content hash of any of the files can't be found
+     */
+    String getFingerprint(final JobRequest jobRequest, final ResolvedJob resolvedJob) throws GenieException {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        this.putString(hasher, jobRequest.getUser());
+        this.putString(hasher, jobRequest.getCommandArgs());
+        if (!this.putFiles(hasher, jobRequest.getSetupFile(), jobRequest.getDependencies())) {
+            return null;
+        }
+        hasher.putInt(jobRequest.getArrayParameters().size());
+        for (final String arrayParameter : jobRequest.getArrayParameters()) {
+            this.putString(hasher, arrayParameter);
+        }
+
+        hasher.putInt(resolvedJob.getCandidateClusters().size());
+        for (final Cluster cluster : resolvedJob.getCandidateClusters()) {
+            this.putResource(hasher, cluster);
+            if (!this.putFiles(hasher, cluster.getSetupFile(), cluster.getConfigs())) {
+                return null;
+            }
+        }
+
+        final Command command = resolvedJob.getCommand();
+        this.putResource(hasher, command);
+        this.putString(hasher, command.getExecutable());
+        if (!this.putFiles(hasher, command.getSetupFile(), command.getConfigs())) {
+            return null;
+        }
+
+        for (final Application application : resolvedJob.getApplications()) {
+            this.putResource(hasher, application);
+            if (!this.putFiles(hasher, application.getSetupFile(), application.getConfigs())
+                || !this.putFiles(hasher, null, application.getDependencies())) {
+                return null;
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private void putResource(final Hasher hasher, final BaseDTO resource) {
+        // The entity version isn't exposed outside the JPA layer but every change to a resource bumps its update time
+        this.putString(hasher, resource.getId());
+        final Date updated = resource.getUpdated();
+        hasher.putLong(updated == null ? -1L : updated.getTime());
+    }
+
+    private boolean putFiles(
+        final Hasher hasher,
+        final String setupFile,
+        final Collection<String> files
+    ) throws GenieException {
+        if (setupFile != null && !this.putFile(hasher, setupFile)) {
+            return false;
+        }
+        hasher.putChar(SEPARATOR);
+        // Sorted so the order the files were entered in doesn't change the fingerprint
+        for (final String file : new TreeSet<>(files)) {
+            if (!this.putFile(hasher, file)) {
+                return false;
+            }
+        }
+        hasher.putChar(SEPARATOR);
+        return true;
+    }
+
+    private boolean putFile(final Hasher hasher, final String file) throws GenieException {
+        final String contentHash = this.fileTransferService.getContentHash(file);
+        if (contentHash == null) {
+            log.debug("Can't tell whether {} changed", file);
+            return false;
+        }
+        this.putString(hasher, file);
+        this.putString(hasher, contentHash);
+        return true;
+    }
+
+    private void putString(final Hasher hasher, final String value) {
+        if (value != null) {
+            hasher.putString(value, StandardCharsets.UTF_8);
+        }
+        hasher.putChar(SEPARATOR);
+    }
+}
@@ -18,6 +18,7 @@
 package com.netflix.genie.core.jpa.services;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobExecution;
 import com.netflix.genie.common.dto.JobRequest;
@@ -42,12 +43,14 @@ import com.netflix.genie.core.services.JobPersistenceService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolationException;
 import javax.validation.constraints.NotNull;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * JPA implementation of the job persistence service.
@@ -123,24 +126,7 @@ public class JpaJobPersistenceServiceImpl implements JobPersistenceService {
             throw new GeniePreconditionException("Cannot find the job request for the id of the job specified.");
         }
 
-        final JobEntity jobEntity = new JobEntity();
-
-        jobEntity.setId(job.getId());
-        jobEntity.setName(job.getName());
-        jobEntity.setUser(job.getUser());
-        jobEntity.setVersion(job.getVersion());
-        jobEntity.setArchiveLocation(job.getArchiveLocation());
-        jobEntity.setDescription(job.getDescription());
-
-        if (job.getStarted() != null) {
-            jobEntity.setStarted(job.getStarted());
-        }
-        jobEntity.setStatus(job.getStatus());
-        jobEntity.setStatusMsg(job.getStatusMsg());
-        jobEntity.setTags(job.getTags());
-        jobEntity.setCommandArgs(job.getCommandArgs());
-
-        jobRequestEntity.setJob(jobEntity);
+        jobRequestEntity.setJob(this.toJobEntity(job));
     }
 
     /**
@@ -183,6 +169,33 @@ public class JpaJobPersistenceServiceImpl implements JobPersistenceService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean updateJobStatus(
+        @NotBlank(message = "No job id entered. Unable to update.")
+        final String id,
+        @NotNull(message = "Expected status cannot be null.")
+        final JobStatus expectedStatus,
+        @NotNull(message = "Status cannot be null.")
+        final JobStatus jobStatus,
+        @NotBlank(message = "Status message cannot be empty.")
+        final String statusMsg
+    ) throws GenieException {
+        log.debug("Called to update job with id {} from status {} to {}", id, expectedStatus, jobStatus);
+
+        final JobEntity jobEntity = this.jobRepo.findOne(id);
+        if (jobEntity == null) {
+            throw new GenieNotFoundException("No job exists for the id specified");
+        }
+        if (jobEntity.getStatus() != expectedStatus) {
+            return false;
+        }
+        this.updateJobStatus(id, jobStatus, statusMsg);
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -216,9 +229,16 @@ public class JpaJobPersistenceServiceImpl implements JobPersistenceService {
             throw new GenieNotFoundException("Cannot find command with ID " + commandId);
         }
 
+        // One IN query for all the applications rather than a lookup per id, then put them back in the given order
+        final Map<String, ApplicationEntity> applicationsById = Maps.newHashMap();
+        if (!applicationIds.isEmpty()) {
+            for (final ApplicationEntity application : this.applicationRepo.findAll(applicationIds)) {
+                applicationsById.put(application.getId(), application);
+            }
+        }
         final List<ApplicationEntity> applications = Lists.newArrayList();
         for (final String applicationId : applicationIds) {
-            final ApplicationEntity application = this.applicationRepo.findOne(applicationId);
+            final ApplicationEntity application = applicationsById.get(applicationId);
             if (application == null) {
                 throw new GenieNotFoundException("Cannot find application with ID + " + applicationId);
             }
@@ -245,33 +265,81 @@ public class JpaJobPersistenceServiceImpl implements JobPersistenceService {
             throw new GenieConflictException("A job with id " + jobRequest.getId() + " already exists");
         }
 
-        final JobRequestEntity jobRequestEntity = new JobRequestEntity();
+        final JobRequestEntity jobRequestEntity = this.toJobRequestEntity(jobRequest, clientHost);
+        this.jobRequestRepo.save(jobRequestEntity);
+        return jobRequestEntity.getDTO();
+    }
 
-        jobRequestEntity.setId(jobRequest.getId());
-        jobRequestEntity.setName(jobRequest.getName());
-        jobRequestEntity.setUser(jobRequest.getUser());
-        jobRequestEntity.setVersion(jobRequest.getVersion());
-        jobRequestEntity.setDescription(jobRequest.getDescription());
-        jobRequestEntity.setCommandArgs(jobRequest.getCommandArgs());
-        jobRequestEntity.setGroup(jobRequest.getGroup());
-        jobRequestEntity.setSetupFile(jobRequest.getSetupFile());
-        jobRequestEntity.setClusterCriteriasFromList(jobRequest.getClusterCriterias());
-        jobRequestEntity.setCommandCriteriaFromSet(jobRequest.getCommandCriteria());
-        jobRequestEntity.setDependenciesFromSet(jobRequest.getDependencies());
-        jobRequestEntity.setDisableLogArchival(jobRequest.isDisableLogArchival());
-        jobRequestEntity.setEmail(jobRequest.getEmail());
-        jobRequestEntity.setTags(jobRequest.getTags());
-        jobRequestEntity.setCpu(jobRequest.getCpu());
-        jobRequestEntity.setMemory(jobRequest.getMemory());
-        jobRequestEntity.setApplicationsFromList(jobRequest.getApplications());
-        jobRequestEntity.setTimeout(jobRequest.getTimeout());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createJobs(
+        @NotEmpty(message = "No job requests provided to create")
+        final List<JobRequest> jobRequests,
+        @NotEmpty(message = "No jobs provided to create")
+        final List<Job> jobs,
+        final String clientHost,
+        final String hostName
+    ) throws GenieException {
+        log.debug("Called to create {} jobs for client host {} on host {}", jobs.size(), clientHost, hostName);
 
-        if (StringUtils.isNotBlank(clientHost)) {
-            jobRequestEntity.setClientHost(clientHost);
+        if (jobRequests.size() != jobs.size()) {
+            throw new GeniePreconditionException("There must be exactly one job for every job request");
         }
 
-        this.jobRequestRepo.save(jobRequestEntity);
-        return jobRequestEntity.getDTO();
+        final List<String> ids = Lists.newArrayList();
+        for (int i = 0; i < jobRequests.size(); i++) {
+            final String id = jobRequests.get(i).getId();
+            if (StringUtils.isBlank(id) || !id.equals(jobs.get(i).getId())) {
+                throw new GeniePreconditionException("Each job must have the same id as the job request at its index");
+            }
+            ids.add(id);
+        }
+
+        // One query for the whole batch rather than an exists check per job
+        final List<String> existing = Lists.newArrayList();
+        for (final JobRequestEntity jobRequestEntity : this.jobRequestRepo.findAll(ids)) {
+            existing.add(jobRequestEntity.getId());
+        }
+        if (!existing.isEmpty()) {
+            throw new GenieConflictException("Jobs with ids " + existing + " already exist");
+        }
+
+        final List<JobRequestEntity> jobRequestEntities = Lists.newArrayList();
+        for (int i = 0; i < jobRequests.size(); i++) {
+            final JobRequestEntity jobRequestEntity = this.toJobRequestEntity(jobRequests.get(i), clientHost);
+            final JobEntity jobEntity = this.toJobEntity(jobs.get(i));
+            jobEntity.setHostName(hostName);
+            jobRequestEntity.setJob(jobEntity);
+            jobRequestEntities.add(jobRequestEntity);
+        }
+
+        // The jobs are cascaded from their requests so this is one round of batched inserts per table
+        this.jobRequestRepo.save(jobRequestEntities);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> failQueuedJobs(
+        @NotBlank(message = "No host name entered. Unable to fail queued jobs.")
+        final String hostName,
+        @NotBlank(message = "Status message cannot be empty.")
+        final String statusMsg
+    ) {
+        log.debug("Called to fail queued jobs on host {}", hostName);
+        final List<JobEntity> jobEntities = this.jobRepo.findByHostNameAndStatus(hostName, JobStatus.QUEUED);
+        final List<String> ids = Lists.newArrayList();
+        for (final JobEntity jobEntity : jobEntities) {
+            // Queued jobs never started so there is no finish time to set
+            jobEntity.setStatus(JobStatus.FAILED);
+            jobEntity.setStatusMsg(statusMsg);
+            ids.add(jobEntity.getId());
+        }
+        this.jobRepo.save(jobEntities);
+        return ids;
     }
 
     /**
@@ -365,4 +433,59 @@ public class JpaJobPersistenceServiceImpl implements JobPersistenceService {
     public long deleteAllJobsCreatedBeforeDate(@NotNull final Date date) {
         return this.jobRequestRepo.deleteByCreatedBefore(date);
     }
+
+    private JobRequestEntity toJobRequestEntity(
+        final JobRequest jobRequest,
+        final String clientHost
+    ) throws GenieException {
+        final JobRequestEntity jobRequestEntity = new JobRequestEntity();
+
+        jobRequestEntity.setId(jobRequest.getId());
+        jobRequestEntity.setName(jobRequest.getName());
+        jobRequestEntity.setUser(jobRequest.getUser());
+        jobRequestEntity.setVersion(jobRequest.getVersion());
+        jobRequestEntity.setDescription(jobRequest.getDescription());
+        jobRequestEntity.setCommandArgs(jobRequest.getCommandArgs());
+        jobRequestEntity.setGroup(jobRequest.getGroup());
+        jobRequestEntity.setSetupFile(jobRequest.getSetupFile());
+        jobRequestEntity.setClusterCriteriasFromList(jobRequest.getClusterCriterias());
+        jobRequestEntity.setCommandCriteriaFromSet(jobRequest.getCommandCriteria());
+        jobRequestEntity.setDependenciesFromSet(jobRequest.getDependencies());
+        jobRequestEntity.setDisableLogArchival(jobRequest.isDisableLogArchival());
+        jobRequestEntity.setMemoize(jobRequest.isMemoize());
+        jobRequestEntity.setEmail(jobRequest.getEmail());
+        jobRequestEntity.setTags(jobRequest.getTags());
+        jobRequestEntity.setCpu(jobRequest.getCpu());
+        jobRequestEntity.setMemory(jobRequest.getMemory());
+        jobRequestEntity.setApplicationsFromList(jobRequest.getApplications());
+        jobRequestEntity.setArrayParametersFromList(jobRequest.getArrayParameters());
+        jobRequestEntity.setTimeout(jobRequest.getTimeout());
+
+        if (StringUtils.isNotBlank(clientHost)) {
+            jobRequestEntity.setClientHost(clientHost);
+        }
+
+        return jobRequestEntity;
+    }
+
+    private JobEntity toJobEntity(final Job job) {
+        final JobEntity jobEntity = new JobEntity();
+
+        jobEntity.setId(job.getId());
+        jobEntity.setName(job.getName());
+        jobEntity.setUser(job.getUser());
+        jobEntity.setVersion(job.getVersion());
+        jobEntity.setArchiveLocation(job.getArchiveLocation());
+        jobEntity.setDescription(job.getDescription());
+
+        if (job.getStarted() != null) {
+            jobEntity.setStarted(job.getStarted());
+        }
+        jobEntity.setStatus(job.getStatus());
+        jobEntity.setStatusMsg(job.getStatusMsg());
+        jobEntity.setTags(job.getTags());
+        jobEntity.setCommandArgs(job.getCommandArgs());
+
+        return jobEntity;
+    }
 }
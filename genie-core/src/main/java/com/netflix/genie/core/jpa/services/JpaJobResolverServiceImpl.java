@@ -0,0 +1,299 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterCriteria;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.jpa.entities.ApplicationEntity;
+import com.netflix.genie.core.jpa.entities.ClusterEntity;
+import com.netflix.genie.core.jpa.entities.ClusterEntity_;
+import com.netflix.genie.core.jpa.entities.CommandEntity;
+import com.netflix.genie.core.jpa.entities.CommandEntity_;
+import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
+import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
+import com.netflix.genie.core.jpa.specifications.JpaClusterSpecs;
+import com.netflix.genie.core.jpa.specifications.JpaSpecificationUtils;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import com.netflix.genie.core.services.JobResolverService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ListJoin;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.SetJoin;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JPA implementation of the Job Resolver Service.
+ * <p>
+ * Candidate clusters and their highest priority matching command are found with a single projection query per
+ * cluster criteria rather than loading the full entity graph of every matching cluster. The configs of the candidates
+ * are fetched in one more query so the whole candidate set can be fingerprinted for memoization. Only the cluster
+ * picked by the load balancer is then loaded, along with its commands and their applications, in one more round trip.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+@Transactional(readOnly = true)
+public class JpaJobResolverServiceImpl implements JobResolverService {
+
+    private final JpaClusterRepository clusterRepo;
+    private final JpaApplicationRepository applicationRepo;
+    private final ClusterLoadBalancer clusterLoadBalancer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructor.
+     *
+     * @param clusterRepo         The cluster repository to use
+     * @param applicationRepo     The application repository to use
+     * @param clusterLoadBalancer The load balancer used to pick a cluster from the candidates
+     */
+    public JpaJobResolverServiceImpl(
+        final JpaClusterRepository clusterRepo,
+        final JpaApplicationRepository applicationRepo,
+        final ClusterLoadBalancer clusterLoadBalancer
+    ) {
+        this.clusterRepo = clusterRepo;
+        this.applicationRepo = applicationRepo;
+        this.clusterLoadBalancer = clusterLoadBalancer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResolvedJob resolveJob(
+        @NotNull(message = "No job request provided. Unable to resolve.")
+        final JobRequest jobRequest
+    ) throws GenieException {
+        log.debug("Called with job request {}", jobRequest);
+
+        // Map of candidate cluster id to the id of the command which would be used on that cluster
+        Map<String, String> commandIds = new LinkedHashMap<>();
+        final List<Cluster> candidates = new ArrayList<>();
+        for (final ClusterCriteria clusterCriteria : jobRequest.getClusterCriterias()) {
+            commandIds = this.findCandidates(clusterCriteria, jobRequest.getCommandCriteria(), candidates);
+            if (!commandIds.isEmpty()) {
+                break;
+            }
+        }
+
+        // The load balancer is responsible for failing when there are no candidates
+        final Cluster selected = this.clusterLoadBalancer.selectCluster(candidates);
+        final String commandId = commandIds.get(selected.getId());
+        if (commandId == null) {
+            throw new GeniePreconditionException(
+                "No command found matching all command criteria ["
+                    + jobRequest.getCommandCriteria()
+                    + "] attached to cluster with id: "
+                    + selected.getId()
+            );
+        }
+
+        // Commands and their applications are fetched eagerly with the cluster
+        final ClusterEntity clusterEntity = this.clusterRepo.findOne(selected.getId());
+        if (clusterEntity == null) {
+            throw new GenieServerException("Cluster " + selected.getId() + " was deleted while resolving the job");
+        }
+        final CommandEntity commandEntity = clusterEntity
+            .getCommands()
+            .stream()
+            .filter(command -> command.getId().equals(commandId))
+            .findFirst()
+            .orElseThrow(
+                () -> new GenieServerException(
+                    "Command " + commandId + " was removed from cluster " + selected.getId() + " while resolving"
+                )
+            );
+
+        return new ResolvedJob(
+            clusterEntity.getDTO(),
+            commandEntity.getDTO(),
+            this.getApplications(jobRequest, commandEntity),
+            candidates
+        );
+    }
+
+    /**
+     * Find the UP clusters matching the cluster criteria which have an ACTIVE command attached matching all the
+     * command criteria. Only the columns needed to decide and to tell one version of a cluster from another are
+     * selected.
+     *
+     * @param clusterCriteria The cluster criteria to match
+     * @param commandCriteria The command criteria to match
+     * @param candidates      The list to add a lightweight DTO of each matching cluster to for load balancing
+     * @return Map of matching cluster id to the id of its highest priority matching command
+     */
+    private Map<String, String> findCandidates(
+        final ClusterCriteria clusterCriteria,
+        final Set<String> commandCriteria,
+        final List<Cluster> candidates
+    ) {
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<ClusterEntity> root = query.from(ClusterEntity.class);
+        final ListJoin<ClusterEntity, CommandEntity> commands = root.join(ClusterEntity_.commands);
+
+        final Path<String> clusterId = root.get(ClusterEntity_.id);
+        final Path<String> clusterName = root.get(ClusterEntity_.name);
+        final Path<String> clusterUser = root.get(ClusterEntity_.user);
+        final Path<String> clusterVersion = root.get(ClusterEntity_.version);
+        final Path<ClusterStatus> clusterStatus = root.get(ClusterEntity_.status);
+        final Path<String> clusterTags = root.get(ClusterEntity_.tags);
+        final Path<Date> clusterUpdated = root.get(ClusterEntity_.updated);
+        final Path<String> clusterSetupFile = root.get(ClusterEntity_.setupFile);
+        final Path<String> commandId = commands.get(CommandEntity_.id);
+        final Path<String> commandTags = commands.get(CommandEntity_.tags);
+        final Expression<Integer> commandOrder = commands.index();
+
+        query
+            .multiselect(
+                clusterId,
+                clusterName,
+                clusterUser,
+                clusterVersion,
+                clusterStatus,
+                clusterTags,
+                clusterUpdated,
+                clusterSetupFile,
+                commandId,
+                commandTags,
+                commandOrder
+            )
+            .where(
+                JpaClusterSpecs.getClusterAndCommandCriteriaPredicate(
+                    root,
+                    commands,
+                    cb,
+                    clusterCriteria,
+                    commandCriteria
+                )
+            )
+            .orderBy(cb.asc(clusterId), cb.asc(commandOrder));
+
+        final Map<String, String> commandIds = new LinkedHashMap<>();
+        final Map<String, Cluster.Builder> builders = new LinkedHashMap<>();
+        for (final Tuple tuple : this.entityManager.createQuery(query).getResultList()) {
+            final String id = tuple.get(clusterId);
+            // Rows are in command priority order so the first command which matches exactly wins. The tag like
+            // clause of the query can match partial tags so the exact check has to be done here.
+            if (commandIds.containsKey(id)
+                || !JpaSpecificationUtils.getTags(tuple.get(commandTags)).containsAll(commandCriteria)) {
+                continue;
+            }
+            commandIds.put(id, tuple.get(commandId));
+            builders.put(
+                id,
+                new Cluster.Builder(
+                    tuple.get(clusterName),
+                    tuple.get(clusterUser),
+                    tuple.get(clusterVersion),
+                    tuple.get(clusterStatus)
+                )
+                    .withId(id)
+                    .withUpdated(tuple.get(clusterUpdated))
+                    .withTags(JpaSpecificationUtils.getTags(tuple.get(clusterTags)))
+                    .withSetupFile(tuple.get(clusterSetupFile))
+            );
+        }
+
+        if (!builders.isEmpty()) {
+            final Map<String, Set<String>> configs = this.getConfigs(builders.keySet());
+            builders.forEach((id, builder) -> candidates.add(builder.withConfigs(configs.get(id)).build()));
+        }
+        return commandIds;
+    }
+
+    /**
+     * Get the configs of the given clusters.
+     *
+     * @param clusterIds The ids of the clusters
+     * @return Map of cluster id to its configs. Clusters without configs aren't in the map.
+     */
+    private Map<String, Set<String>> getConfigs(final Set<String> clusterIds) {
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<ClusterEntity> root = query.from(ClusterEntity.class);
+        final SetJoin<ClusterEntity, String> configs = root.join(ClusterEntity_.configs);
+        final Path<String> clusterId = root.get(ClusterEntity_.id);
+        query.multiselect(clusterId, configs).where(clusterId.in(clusterIds));
+
+        final Map<String, Set<String>> configsById = new HashMap<>();
+        for (final Tuple tuple : this.entityManager.createQuery(query).getResultList()) {
+            configsById.computeIfAbsent(tuple.get(clusterId), id -> new HashSet<>()).add(tuple.get(configs));
+        }
+        return configsById;
+    }
+
+    private List<Application> getApplications(
+        final JobRequest jobRequest,
+        final CommandEntity commandEntity
+    ) throws GenieNotFoundException {
+        if (jobRequest.getApplications().isEmpty()) {
+            return commandEntity
+                .getApplications()
+                .stream()
+                .map(ApplicationEntity::getDTO)
+                .collect(Collectors.toList());
+        }
+
+        // Fetch all the requested applications at once then put them back in the requested order
+        final Map<String, ApplicationEntity> found = this.applicationRepo
+            .findAll(jobRequest.getApplications())
+            .stream()
+            .collect(Collectors.toMap(ApplicationEntity::getId, Function.identity()));
+        final List<Application> applications = new ArrayList<>();
+        for (final String applicationId : jobRequest.getApplications()) {
+            final ApplicationEntity applicationEntity = found.get(applicationId);
+            if (applicationEntity == null) {
+                throw new GenieNotFoundException("No application with id " + applicationId);
+            }
+            applications.add(applicationEntity.getDTO());
+        }
+        return applications;
+    }
+}
@@ -346,6 +346,12 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         final JobExecutionEntity jobExecution = this.jobExecutionRepository.findOne(jobId);
         if (jobExecution != null) {
             return jobExecution.getHostName();
+        }
+
+        // Jobs still waiting in the queue of a node have no execution yet but know which node accepted them
+        final JobEntity job = this.jobRepository.findOne(jobId);
+        if (job != null && job.getHostName() != null) {
+            return job.getHostName();
         } else {
             throw new GenieNotFoundException("No job execution found for id " + jobId);
         }
@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.core.jpa.entities.NodeLoadEntity;
+import com.netflix.genie.core.jpa.repositories.JpaNodeLoadRepository;
+import com.netflix.genie.core.services.NodeLoadService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.constraints.Min;
+import java.util.Date;
+
+/**
+ * JPA implementation of the NodeLoadService. The database is the one store every Genie node shares so each node
+ * keeps a row with its latest load in it.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+@Transactional
+public class JpaNodeLoadServiceImpl implements NodeLoadService {
+
+    private final JpaNodeLoadRepository nodeLoadRepository;
+    private final long loadExpiry;
+
+    /**
+     * Constructor.
+     *
+     * @param nodeLoadRepository The repository to use to store node loads
+     * @param loadExpiry         How long, in milliseconds, the load published by a node is trusted for
+     */
+    public JpaNodeLoadServiceImpl(final JpaNodeLoadRepository nodeLoadRepository, final long loadExpiry) {
+        this.nodeLoadRepository = nodeLoadRepository;
+        this.loadExpiry = loadExpiry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publishLoad(
+        @NotBlank final String hostName,
+        @Min(0) final int running,
+        @Min(0) final int freeSlots
+    ) {
+        NodeLoadEntity nodeLoad = this.nodeLoadRepository.findOne(hostName);
+        if (nodeLoad == null) {
+            nodeLoad = new NodeLoadEntity();
+            try {
+                nodeLoad.setId(hostName);
+            } catch (final GeniePreconditionException gpe) {
+                // Can't happen as the entity is brand new
+                throw new IllegalStateException(gpe);
+            }
+        }
+        nodeLoad.setRunning(running);
+        nodeLoad.setFreeSlots(freeSlots);
+        // Set explicitly so the row is seen as fresh even when the load hasn't changed since the last publish
+        nodeLoad.setUpdated(new Date());
+        this.nodeLoadRepository.save(nodeLoad);
+        log.debug("Published load of {}. Running: {} Free slots: {}", hostName, running, freeSlots);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public String getLeastLoadedNode(@NotBlank final String excludedHostName) {
+        final NodeLoadEntity nodeLoad = this.nodeLoadRepository
+            .findFirstByIdNotAndFreeSlotsGreaterThanAndUpdatedAfterOrderByFreeSlotsDesc(
+                excludedHostName,
+                0,
+                new Date(System.currentTimeMillis() - this.loadExpiry)
+            );
+        return nodeLoad == null ? null : nodeLoad.getId();
+    }
+}
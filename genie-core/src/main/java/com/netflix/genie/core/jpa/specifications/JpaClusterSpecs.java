@@ -112,36 +112,58 @@ public final class JpaClusterSpecs {
         final Set<String> commandCriteria
     ) {
         return (final Root<ClusterEntity> root, final CriteriaQuery<?> cq, final CriteriaBuilder cb) -> {
-            final List<Predicate> predicates = new ArrayList<>();
             final Join<ClusterEntity, CommandEntity> commands = root.join(ClusterEntity_.commands);
 
             cq.distinct(true);
 
-            predicates.add(cb.equal(commands.get(CommandEntity_.status), CommandStatus.ACTIVE));
-            predicates.add(cb.equal(root.get(ClusterEntity_.status), ClusterStatus.UP));
-
-            if (commandCriteria != null && !commandCriteria.isEmpty()) {
-                predicates.add(
-                    cb.like(
-                        commands.get(CommandEntity_.tags),
-                        JpaSpecificationUtils.getTagLikeString(commandCriteria)
-                    )
-                );
-            }
-
-            if (clusterCriteria != null && clusterCriteria.getTags() != null && !clusterCriteria.getTags().isEmpty()) {
-                predicates.add(
-                    cb.like(
-                        root.get(ClusterEntity_.tags),
-                        JpaSpecificationUtils.getTagLikeString(clusterCriteria.getTags())
-                    )
-                );
-            }
-
-            return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+            return getClusterAndCommandCriteriaPredicate(root, commands, cb, clusterCriteria, commandCriteria);
         };
     }
 
+    /**
+     * Get the predicate matching UP clusters with an ACTIVE command attached given the criteria. Shared by the
+     * specification above and projection queries which need to select columns from the command join as well.
+     *
+     * @param root            The cluster root of the query
+     * @param commands        The join from the clusters to their commands
+     * @param cb              The criteria builder to use
+     * @param clusterCriteria The cluster criteria
+     * @param commandCriteria The command criteria
+     * @return The predicate
+     */
+    public static Predicate getClusterAndCommandCriteriaPredicate(
+        final Root<ClusterEntity> root,
+        final Join<ClusterEntity, CommandEntity> commands,
+        final CriteriaBuilder cb,
+        final ClusterCriteria clusterCriteria,
+        final Set<String> commandCriteria
+    ) {
+        final List<Predicate> predicates = new ArrayList<>();
+
+        predicates.add(cb.equal(commands.get(CommandEntity_.status), CommandStatus.ACTIVE));
+        predicates.add(cb.equal(root.get(ClusterEntity_.status), ClusterStatus.UP));
+
+        if (commandCriteria != null && !commandCriteria.isEmpty()) {
+            predicates.add(
+                cb.like(
+                    commands.get(CommandEntity_.tags),
+                    JpaSpecificationUtils.getTagLikeString(commandCriteria)
+                )
+            );
+        }
+
+        if (clusterCriteria != null && clusterCriteria.getTags() != null && !clusterCriteria.getTags().isEmpty()) {
+            predicates.add(
+                cb.like(
+                    root.get(ClusterEntity_.tags),
+                    JpaSpecificationUtils.getTagLikeString(clusterCriteria.getTags())
+                )
+            );
+        }
+
+        return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+    }
+
     /**
      * Get all the clusters given the specified parameters.
      *
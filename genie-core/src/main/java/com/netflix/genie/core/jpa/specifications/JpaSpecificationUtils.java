@@ -20,6 +20,8 @@ package com.netflix.genie.core.jpa.specifications;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -30,7 +32,7 @@ import java.util.Set;
  */
 public final class JpaSpecificationUtils {
 
-//    private static final String PIPE_REGEX = "\\|";
+    private static final String PIPE_REGEX = "\\|";
 
     protected JpaSpecificationUtils() {
     }
@@ -50,4 +52,18 @@ public final class JpaSpecificationUtils {
                 .forEach(tag -> builder.append(tag).append("%"));
         return builder.toString();
     }
+
+    /**
+     * Split the pipe delimited tags column of an entity, as returned by a projection query, into the set of tags.
+     *
+     * @param tags The tags column value. May be null.
+     * @return The set of tags. Empty if there were none.
+     */
+    public static Set<String> getTags(final String tags) {
+        final Set<String> returnTags = new HashSet<>();
+        if (tags != null) {
+            returnTags.addAll(Arrays.asList(tags.split(PIPE_REGEX)));
+        }
+        return returnTags;
+    }
 }
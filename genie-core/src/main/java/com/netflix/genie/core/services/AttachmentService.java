@@ -20,6 +20,7 @@ package com.netflix.genie.core.services;
 import com.netflix.genie.common.exceptions.GenieException;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -42,13 +43,25 @@ public interface AttachmentService {
     void save(final String jobId, final String filename, final InputStream content) throws GenieException;
 
     /**
-     * Copy all the attachments for a job into the specified directory.
+     * Save a given attachment for a job for later retrieval by having it transfer itself to where it is kept. Used
+     * for attachments the server already buffered on disk so they can be moved rather than copied.
+     *
+     * @param jobId    The id of the job to save the attachment for
+     * @param filename The name of the attachment
+     * @param content  The attachment to transfer
+     * @throws GenieException For any error during the save process
+     */
+    void save(final String jobId, final String filename, final AttachmentContent content) throws GenieException;
+
+    /**
+     * Move all the attachments for a job into the specified directory. The attachments are no longer kept by the
+     * service afterwards.
      *
      * @param jobId       The id of the job to get the attachments for.
-     * @param destination The directory to copy the attachments into
-     * @throws GenieException For any error during the copy process
+     * @param destination The directory to move the attachments into
+     * @throws GenieException For any error during the move process
      */
-    void copy(final String jobId, final File destination) throws GenieException;
+    void move(final String jobId, final File destination) throws GenieException;
 
     /**
      * Delete the attachments for the given job.
@@ -57,4 +70,19 @@ public interface AttachmentService {
      * @throws GenieException For any error during the delete process
      */
     void delete(final String jobId) throws GenieException;
+
+    /**
+     * The content of an attachment which can transfer itself to a file, e.g. a part of a multipart request.
+     */
+    @FunctionalInterface
+    interface AttachmentContent {
+
+        /**
+         * Transfer the content to the given file.
+         *
+         * @param destination The file to transfer the content to
+         * @throws IOException If the content can't be transferred
+         */
+        void transferTo(final File destination) throws IOException;
+    }
 }
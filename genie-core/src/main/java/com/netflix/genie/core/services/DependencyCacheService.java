@@ -0,0 +1,98 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import org.hibernate.validator.constraints.NotBlank;
+
+/**
+ * A cache on the local disk of the node of the files jobs need, so files used by many jobs like the jars and
+ * configurations of a command are only downloaded again when they change.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface DependencyCacheService {
+
+    /**
+     * Get a file needed by a job, from the cache if the same version of it is already there. Concurrent calls for
+     * the same file share a single download. Files whose file system can't tell which version they are at are
+     * downloaded without being cached.
+     *
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @param dstLocalPath  Local path where the file needs to be placed
+     * @throws GenieException If the file can't be fetched
+     */
+    void getFile(@NotBlank final String srcRemotePath, @NotBlank final String dstLocalPath) throws GenieException;
+
+    /**
+     * Whether a file would be kept in the cache when fetched. Files already on the node aren't cached. Doesn't
+     * check whether the version of the file can be told, which needs a round trip to its file system.
+     *
+     * @param srcRemotePath Path of the file in the remote location
+     * @return true if the file is cached when fetched
+     */
+    boolean isCacheable(@NotBlank final String srcRemotePath);
+
+    /**
+     * Whether the current version of a file is in the cache.
+     *
+     * @param srcRemotePath Path of the file in the remote location
+     * @return true if the next job fetching the file gets it from the cache
+     * @throws GenieException If the current version of the file can't be looked up
+     */
+    boolean isCached(@NotBlank final String srcRemotePath) throws GenieException;
+
+    /**
+     * Download the current version of a file into the cache, if it isn't there yet, without giving it to a job. The
+     * download yields to the transfers jobs are waiting on and jobs never wait on it.
+     *
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @return The number of bytes downloaded. 0 if the file was already cached or isn't cacheable
+     * @throws GenieException If the file can't be fetched
+     */
+    long warm(@NotBlank final String srcRemotePath) throws GenieException;
+
+    /**
+     * Get the number of files in the cache.
+     *
+     * @return The number of files
+     */
+    int getNumFiles();
+
+    /**
+     * Get the total size of the files in the cache.
+     *
+     * @return The size in bytes
+     */
+    long getSize();
+
+    /**
+     * Get the size the cache is kept under by evicting the least recently used files.
+     *
+     * @return The size in bytes. 0 if nothing is cached
+     */
+    long getMaxSize();
+
+    /**
+     * Remove all the files from the cache. Jobs already given a file keep their copy.
+     *
+     * @throws GenieException If the files can't be removed
+     */
+    void clear() throws GenieException;
+}
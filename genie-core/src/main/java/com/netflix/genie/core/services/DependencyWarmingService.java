@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.core.events.ConfigEntityType;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Fills the dependency cache of the node with the files of the clusters, commands and applications jobs can run
+ * with, so the first jobs using them after a deploy or a change don't wait on downloads.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface DependencyWarmingService {
+
+    /**
+     * Warm the files of all the UP clusters and ACTIVE commands and applications. Blocks until done.
+     */
+    void warmAll();
+
+    /**
+     * Warm the files of a single cluster, command or application, if it's UP or ACTIVE. Blocks until done.
+     *
+     * @param type The type of the entity
+     * @param id   The id of the entity
+     */
+    void warm(@NotNull final ConfigEntityType type, @NotBlank final String id);
+
+    /**
+     * Get the number of cacheable files of the UP and ACTIVE entities seen by the last warming of each.
+     *
+     * @return The number of files
+     */
+    int getNumFiles();
+
+    /**
+     * Get how many of those files were in the cache after they were last warmed.
+     *
+     * @return The number of warm files
+     */
+    int getNumWarmFiles();
+
+    /**
+     * Get the number of bytes downloaded into the cache by warming since startup.
+     *
+     * @return The number of bytes
+     */
+    long getWarmedBytes();
+}
@@ -56,4 +56,20 @@ public interface FileTransfer {
      * @throws GenieException exception in case of an error
      */
     void putFile(String srcLocalPath, String dstRemotePath) throws GenieException;
+
+    /**
+     * Gets a value which changes whenever the content of a file changes, without copying it locally, so callers
+     * can tell whether the file changed. Implementations should use metadata the file system already keeps, e.g. an
+     * ETag or the size and modification time, rather than reading the file.
+     * <p>
+     * By default nothing is known about the file so nothing derived from it, e.g. a cached copy or a memoized job,
+     * can be reused.
+     *
+     * @param remotePath Path of the file to hash
+     * @return A value which changes whenever the content of the file changes or null if it can't be told
+     * @throws GenieException exception in case of an error
+     */
+    default String getContentHash(final String remotePath) throws GenieException {
+        return null;
+    }
 }
@@ -21,22 +21,43 @@ import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
-import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
+import com.netflix.genie.core.events.JobFinishedEvent;
 import com.netflix.genie.core.events.JobScheduledEvent;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobLauncher;
+import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.TaskRejectedException;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -49,37 +70,74 @@ import java.util.concurrent.Future;
 @Slf4j
 public class JobCoordinatorService {
 
+    private static final String INIT_STATUS_MESSAGE = "Job Accepted and in initialization phase.";
+    private static final String QUEUED_STATUS_MESSAGE
+        = "Job Accepted and waiting for resources on the host to free up.";
+    private static final String QUEUE_FULL_MESSAGE
+        = "Unable to run job due to host being too busy and the job queue being full during request.";
+    private static final String LOST_IN_RESTART_MESSAGE
+        = "Job was queued on a host which restarted before it could be launched.";
+
     private final AsyncTaskExecutor taskExecutor;
     private final JobPersistenceService jobPersistenceService;
     private final JobSubmitterService jobSubmitterService;
     private final JobKillService jobKillService;
-    private final JobCountService jobCountService;
-    private final int maxRunningJobs;
+    private final JobSlotService jobSlotService;
+    private final JobQuotaService jobQuotaService;
+    private final JobMemoizationService jobMemoizationService;
+    private final JobTimelineService jobTimelineService;
     private final String baseArchiveLocation;
+    private final String hostName;
     private final Registry registry;
     private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<QueuedJob> queuedJobs;
+    private final int maxQueuedJobs;
+    private final long queueRetryAfterSeconds;
+    private final boolean rejectOverQuota;
+
+    // Metrics
+    private final Counter queuedRate;
+    private final Counter queueRejectedRate;
+    private final Timer queueWaitTimer;
+    private final Counter memoizationHitRate;
+    private final Counter memoizationMissRate;
 
     /**
      * Constructor.
      *
-     * @param taskExecutor          The executor to use to launch jobs
-     * @param jobPersistenceService implementation of job persistence service interface
-     * @param jobSubmitterService   implementation of the job submitter service
-     * @param jobKillService        The job kill service to use
-     * @param jobCountService       The service which will return the number of running jobs on this host
-     * @param baseArchiveLocation   The base directory location of where the job dir should be archived
-     * @param maxRunningJobs        The maximum number of jobs that can run on this host at any time
-     * @param registry              The registry to use for metrics
-     * @param eventPublisher        The application event publisher to use
+     * @param taskExecutor           The executor to resolve and set up jobs on
+     * @param jobPersistenceService  implementation of job persistence service interface
+     * @param jobSubmitterService    implementation of the job submitter service
+     * @param jobKillService         The job kill service to use
+     * @param jobSlotService         The service which hands out the job slots available on this host
+     * @param jobQuotaService        The service which limits how many jobs each user and group can run on this host
+     * @param jobMemoizationService  The service to find a recent identical successful job for memoized requests
+     * @param jobTimelineService     The service to record how long each stage of launching a job takes
+     * @param baseArchiveLocation    The base directory location of where the job dir should be archived
+     * @param hostName               The name of this host, saved with the jobs it accepts
+     * @param maxQueuedJobs          The maximum number of accepted jobs that can wait on this host for a free slot.
+     *                               If zero jobs are rejected as soon as the host is full
+     * @param queueRetryAfterSeconds The number of seconds clients are told to wait before retrying when the queue
+     *                               is full
+     * @param rejectOverQuota        Whether to reject jobs from users or groups which are at their limit rather than
+     *                               queue them until they are under it again
+     * @param registry               The registry to use for metrics
+     * @param eventPublisher         The application event publisher to use
      */
     public JobCoordinatorService(
         @NotNull final AsyncTaskExecutor taskExecutor,
         @NotNull final JobPersistenceService jobPersistenceService,
         @NotNull final JobSubmitterService jobSubmitterService,
         @NotNull final JobKillService jobKillService,
-        @NotNull final JobCountService jobCountService,
+        @NotNull final JobSlotService jobSlotService,
+        @NotNull final JobQuotaService jobQuotaService,
+        @NotNull final JobMemoizationService jobMemoizationService,
+        @NotNull final JobTimelineService jobTimelineService,
         @NotNull final String baseArchiveLocation,
-        final int maxRunningJobs,
+        @NotBlank final String hostName,
+        final int maxQueuedJobs,
+        final long queueRetryAfterSeconds,
+        final boolean rejectOverQuota,
         @NotNull final Registry registry,
         @NotNull final ApplicationEventPublisher eventPublisher
     ) {
@@ -87,15 +145,31 @@ public class JobCoordinatorService {
         this.jobPersistenceService = jobPersistenceService;
         this.jobSubmitterService = jobSubmitterService;
         this.jobKillService = jobKillService;
-        this.jobCountService = jobCountService;
+        this.jobSlotService = jobSlotService;
+        this.jobQuotaService = jobQuotaService;
+        this.jobMemoizationService = jobMemoizationService;
+        this.jobTimelineService = jobTimelineService;
         this.baseArchiveLocation = baseArchiveLocation;
-        this.maxRunningJobs = maxRunningJobs;
+        this.hostName = hostName;
+        this.maxQueuedJobs = maxQueuedJobs;
         this.registry = registry;
         this.eventPublisher = eventPublisher;
+        // LinkedBlockingQueue doesn't allow a capacity of zero so use one and never offer to it when disabled
+        this.queuedJobs = new LinkedBlockingQueue<>(Math.max(maxQueuedJobs, 1));
+        this.queueRetryAfterSeconds = queueRetryAfterSeconds;
+        this.rejectOverQuota = rejectOverQuota;
+
+        this.registry.collectionSize("genie.jobs.queued.gauge", this.queuedJobs);
+        this.queuedRate = registry.counter("genie.jobs.queued.rate");
+        this.queueRejectedRate = registry.counter("genie.jobs.queued.rejected.rate");
+        this.queueWaitTimer = registry.timer("genie.jobs.queued.wait.timer");
+        this.memoizationHitRate = registry.counter("genie.jobs.memoization.hit.rate");
+        this.memoizationMissRate = registry.counter("genie.jobs.memoization.miss.rate");
     }
 
     /**
-     * Takes in a Job Request object and does necessary preparation for execution.
+     * Takes in a Job Request object and does necessary preparation for execution. If the request is memoized and
+     * an identical job succeeded recently nothing is run and the id of that job is returned instead.
      *
      * @param jobRequest of job to kill
      * @param clientHost Host which is sending the job request
@@ -113,54 +187,201 @@ public class JobCoordinatorService {
             throw new GenieServerException("Id of the jobRequest cannot be null");
         }
 
-        // Log the job request and optionally the client host
-        this.jobPersistenceService.createJobRequest(jobRequest, clientHost);
-
-        String archiveLocation = null;
-        if (!jobRequest.isDisableLogArchival()) {
-            archiveLocation = this.baseArchiveLocation
-                + JobConstants.FILE_PATH_DELIMITER
-                + jobRequest.getId()
-                + ".tar.gz";
+        final Job memoizedJob = this.getMemoizedJob(jobRequest);
+        if (memoizedJob != null) {
+            return memoizedJob.getId();
         }
 
-        // create the job object in the database with status INIT
-        final Job.Builder jobBuilder = new Job.Builder(
-            jobRequest.getName(),
-            jobRequest.getUser(),
-            jobRequest.getVersion(),
-            jobRequest.getCommandArgs()
-        )
-            .withArchiveLocation(archiveLocation)
-            .withDescription(jobRequest.getDescription())
-            .withId(jobRequest.getId())
-            .withTags(jobRequest.getTags());
+        // Decide what happens to the job before anything is saved so the request and the job are saved together
+        final Job.Builder jobBuilder = this.createJobBuilder(jobRequest);
 
-        if (this.canRunJob()) {
+        // Reserving the quota and slot is the capacity check so there is no window between checking and launching
+        final boolean withinQuota = this.jobQuotaService.reserve(jobRequest);
+        if (withinQuota && this.jobSlotService.reserve(jobRequest)) {
             jobBuilder
                 .withStatus(JobStatus.INIT)
-                .withStatusMsg("Job Accepted and in initialization phase.");
-            // TODO: if this throws exception the job will never be marked failed
-            this.jobPersistenceService.createJob(jobBuilder.build());
+                .withStatusMsg(INIT_STATUS_MESSAGE);
             try {
-                final Future<?> task
-                    = this.taskExecutor.submit(new JobLauncher(this.jobSubmitterService, jobRequest, this.registry));
-
-                // Tell the system a new job has been scheduled so any actions can be taken
-                this.eventPublisher.publishEvent(new JobScheduledEvent(jobRequest.getId(), task, this));
-            } catch (final TaskRejectedException e) {
-                final String errorMsg = "Unable to launch job due to exception: " + e.getMessage();
-                this.jobPersistenceService.updateJobStatus(jobRequest.getId(), JobStatus.FAILED, errorMsg);
-                throw new GenieServerException(errorMsg, e);
+                this.createJob(jobRequest, jobBuilder.build(), clientHost);
+                this.launchJob(jobRequest);
+            } catch (final GenieException | RuntimeException e) {
+                this.release(jobRequest.getId());
+                throw e;
             }
             return jobRequest.getId();
+        }
+
+        this.releaseQuotaOrCountOverQuota(jobRequest, withinQuota);
+        if (!withinQuota && this.rejectOverQuota) {
+            final String overQuotaMessage = this.getOverQuotaMessage(jobRequest);
+            jobBuilder
+                .withStatus(JobStatus.FAILED)
+                .withStatusMsg(overQuotaMessage);
+            this.createJob(jobRequest, jobBuilder.build(), clientHost);
+            throw new GenieTooManyRequestsException(overQuotaMessage, this.queueRetryAfterSeconds);
+        } else if (this.maxQueuedJobs > 0 && this.queuedJobs.remainingCapacity() > 0) {
+            // Persist the job before it becomes visible to the drainer so the status update to INIT can't be lost
+            jobBuilder
+                .withStatus(JobStatus.QUEUED)
+                .withStatusMsg(withinQuota ? QUEUED_STATUS_MESSAGE : this.getOverQuotaQueuedMessage(jobRequest));
+            this.createJob(jobRequest, jobBuilder.build(), clientHost);
+            if (!this.queuedJobs.offer(new QueuedJob(jobRequest))) {
+                // Lost the race for the last spot in the queue
+                this.queueRejectedRate.increment();
+                this.jobPersistenceService.updateJobStatus(jobRequest.getId(), JobStatus.FAILED, QUEUE_FULL_MESSAGE);
+                throw new GenieTooManyRequestsException(QUEUE_FULL_MESSAGE, this.queueRetryAfterSeconds);
+            }
+            this.queuedRate.increment();
+            log.info("Host is at capacity. Queued job {}", jobRequest.getId());
+
+            // A slot may have been released between the capacity check and the offer so try to drain right away
+            this.drainQueue();
+            return jobRequest.getId();
         } else {
+            this.queueRejectedRate.increment();
             jobBuilder
                 .withStatus(JobStatus.FAILED)
-                .withStatusMsg("Unable to run job due to host being too busy during request.");
-            this.jobPersistenceService.createJob(jobBuilder.build());
-            throw new GenieServerUnavailableException("Reached max running jobs on this host. Unable to run job.");
+                .withStatusMsg(QUEUE_FULL_MESSAGE);
+            this.createJob(jobRequest, jobBuilder.build(), clientHost);
+            throw new GenieTooManyRequestsException(
+                "Reached max running and queued jobs on this host. Unable to run job.",
+                this.queueRetryAfterSeconds
+            );
+        }
+    }
+
+    /**
+     * Takes in a batch of job requests and admits as many of them as this host has capacity for. Jobs which can't
+     * get a slot are queued while there is room in the queue and the rest are failed. All the job requests and jobs
+     * are saved together so a batch costs one transaction rather than two per job. Memoized requests with a recent
+     * identical successful job aren't run and that job is returned in their place.
+     *
+     * @param jobRequests The job requests to run. Each must have a unique id
+     * @param clientHost  Host which is sending the job requests
+     * @return The jobs created for the requests, in the same order, with the status each was admitted with
+     * @throws GenieException if there is an error saving the batch. In which case none of the jobs were created
+     */
+    public List<Job> coordinateJobs(
+        @NotEmpty(message = "No job requests provided. Unable to submit jobs for execution.")
+        @Valid
+        final List<JobRequest> jobRequests,
+        final String clientHost
+    ) throws GenieException {
+        log.debug("Called with {} job requests", jobRequests.size());
+        final Set<String> ids = new HashSet<>();
+        for (final JobRequest jobRequest : jobRequests) {
+            if (StringUtils.isBlank(jobRequest.getId())) {
+                throw new GenieServerException("Id of the jobRequest cannot be null");
+            }
+            if (!ids.add(jobRequest.getId())) {
+                throw new GeniePreconditionException("Job id " + jobRequest.getId() + " is in the batch twice");
+            }
+        }
+
+        final List<Job> memoizedJobs = new ArrayList<>(jobRequests.size());
+        final List<JobRequest> jobRequestsToRun = new ArrayList<>(jobRequests.size());
+        for (final JobRequest jobRequest : jobRequests) {
+            final Job memoizedJob = this.getMemoizedJob(jobRequest);
+            memoizedJobs.add(memoizedJob);
+            if (memoizedJob == null) {
+                jobRequestsToRun.add(jobRequest);
+            }
+        }
+        if (jobRequestsToRun.size() == jobRequests.size()) {
+            return this.admitJobs(jobRequests, clientHost);
         }
+
+        final Iterator<Job> admittedJobs = jobRequestsToRun.isEmpty()
+            ? Collections.emptyIterator()
+            : this.admitJobs(jobRequestsToRun, clientHost).iterator();
+        final List<Job> jobs = new ArrayList<>(jobRequests.size());
+        for (final Job memoizedJob : memoizedJobs) {
+            jobs.add(memoizedJob == null ? admittedJobs.next() : memoizedJob);
+        }
+        return jobs;
+    }
+
+    private List<Job> admitJobs(final List<JobRequest> jobRequests, final String clientHost) throws GenieException {
+        // Decide what happens to every job up front so the whole batch can be saved at once
+        final int queueCapacity = this.maxQueuedJobs > 0 ? this.queuedJobs.remainingCapacity() : 0;
+        final List<Job.Builder> jobBuilders = new ArrayList<>(jobRequests.size());
+        final List<JobStatus> statuses = new ArrayList<>(jobRequests.size());
+        int numToQueue = 0;
+        for (final JobRequest jobRequest : jobRequests) {
+            final Job.Builder jobBuilder = this.createJobBuilder(jobRequest);
+            final JobStatus status;
+            final boolean withinQuota = this.jobQuotaService.reserve(jobRequest);
+            if (withinQuota && this.jobSlotService.reserve(jobRequest)) {
+                status = JobStatus.INIT;
+                jobBuilder.withStatus(status).withStatusMsg(INIT_STATUS_MESSAGE);
+            } else if (!this.releaseQuotaOrCountOverQuota(jobRequest, withinQuota) && this.rejectOverQuota) {
+                status = JobStatus.FAILED;
+                jobBuilder.withStatus(status).withStatusMsg(this.getOverQuotaMessage(jobRequest));
+            } else if (numToQueue < queueCapacity) {
+                numToQueue++;
+                status = JobStatus.QUEUED;
+                jobBuilder
+                    .withStatus(status)
+                    .withStatusMsg(withinQuota ? QUEUED_STATUS_MESSAGE : this.getOverQuotaQueuedMessage(jobRequest));
+            } else {
+                this.queueRejectedRate.increment();
+                status = JobStatus.FAILED;
+                jobBuilder.withStatus(status).withStatusMsg(QUEUE_FULL_MESSAGE);
+            }
+            jobBuilders.add(jobBuilder);
+            statuses.add(status);
+        }
+
+        final List<Job> jobs = new ArrayList<>(jobBuilders.size());
+        jobBuilders.forEach(jobBuilder -> jobs.add(jobBuilder.build()));
+        final long persistStart = System.nanoTime();
+        try {
+            this.jobPersistenceService.createJobs(jobRequests, jobs, clientHost, this.hostName);
+            final long persistEnd = System.nanoTime();
+            for (final JobRequest jobRequest : jobRequests) {
+                this.jobTimelineService.record(jobRequest.getId(), "persist", null, persistStart, persistEnd);
+            }
+        } catch (final GenieException | RuntimeException e) {
+            for (int i = 0; i < jobRequests.size(); i++) {
+                if (statuses.get(i) == JobStatus.INIT) {
+                    this.release(jobRequests.get(i).getId());
+                }
+            }
+            throw e;
+        }
+
+        for (int i = 0; i < jobRequests.size(); i++) {
+            final JobRequest jobRequest = jobRequests.get(i);
+            if (statuses.get(i) == JobStatus.INIT) {
+                try {
+                    this.launchJob(jobRequest);
+                } catch (final GenieException | RuntimeException e) {
+                    // launchJob already marked the job failed if it was rejected. Carry on with the rest
+                    log.error("Unable to launch job {} from batch", jobRequest.getId(), e);
+                    this.release(jobRequest.getId());
+                    jobs.set(i, jobBuilders.get(i).withStatus(JobStatus.FAILED).withStatusMsg(e.getMessage()).build());
+                }
+            } else if (statuses.get(i) == JobStatus.QUEUED) {
+                if (this.queuedJobs.offer(new QueuedJob(jobRequest))) {
+                    this.queuedRate.increment();
+                } else {
+                    // Lost the race for a spot in the queue
+                    this.queueRejectedRate.increment();
+                    this.jobPersistenceService
+                        .updateJobStatus(jobRequest.getId(), JobStatus.FAILED, QUEUE_FULL_MESSAGE);
+                    jobs.set(
+                        i,
+                        jobBuilders.get(i).withStatus(JobStatus.FAILED).withStatusMsg(QUEUE_FULL_MESSAGE).build()
+                    );
+                }
+            }
+        }
+
+        if (numToQueue > 0) {
+            log.info("Host is at capacity. Queued {} jobs from batch", numToQueue);
+            this.drainQueue();
+        }
+        return jobs;
     }
 
     /**
@@ -175,11 +396,258 @@ public class JobCoordinatorService {
 
 
     /**
-     * Synchronized to make sure only one request thread at a time is checking whether they can run.
+     * When a job finishes a slot is released on this host so move as many queued jobs as will fit into the
+     * launch executor. Jobs which are killed while still queued are removed from the queue.
+     * <p>
+     * Ordered last so that the slot of the finished job has already been released.
+     *
+     * @param event The job finished event
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onJobFinished(final JobFinishedEvent event) {
+        if (this.queuedJobs.removeIf(queuedJob -> queuedJob.getJobRequest().getId().equals(event.getId()))) {
+            log.info("Removed job {} from the queue as it finished before it was launched", event.getId());
+        }
+        this.drainQueue();
+    }
+
+    /**
+     * The queue only lives in memory so jobs which were queued on this host when it stopped will never be launched.
+     * Fail them when the host starts so clients waiting on them find out.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        try {
+            final List<String> ids = this.jobPersistenceService.failQueuedJobs(this.hostName, LOST_IN_RESTART_MESSAGE);
+            if (!ids.isEmpty()) {
+                log.warn("Failed {} jobs left queued on this host by its last run: {}", ids.size(), ids);
+            }
+        } catch (final RuntimeException re) {
+            log.error("Unable to fail the jobs left queued on this host by its last run", re);
+        }
+    }
+
+    /**
+     * Get the number of jobs currently waiting for a free slot on this host.
      *
-     * @return true if the job can run on this node or not
+     * @return The number of queued jobs
      */
-    private synchronized boolean canRunJob() {
-        return this.jobCountService.getNumJobs() < this.maxRunningJobs;
+    public int getNumQueuedJobs() {
+        return this.queuedJobs.size();
+    }
+
+    /**
+     * Get the number of new jobs this host can currently take, counting both the free slots and the free spots in
+     * the queue. When this is zero the next job submitted to this host will be rejected.
+     *
+     * @return The number of jobs which can still be run or queued on this host
+     */
+    public int getNumFreeSlots() {
+        final int freeRunSlots = Math.max(this.jobSlotService.getMaxSlots() - this.jobSlotService.getNumReserved(), 0);
+        final int freeQueueSlots = this.maxQueuedJobs > 0 ? this.queuedJobs.remainingCapacity() : 0;
+        return freeRunSlots + freeQueueSlots;
+    }
+
+    /**
+     * Launch queued jobs in fair share order for as long as slots and the cpu and memory they request can be
+     * reserved on this host. The quota and slot are reserved for a job before it is taken off the queue so a job is
+     * never removed without somewhere to run. Safe to call from multiple threads at once without locking.
+     */
+    private void drainQueue() {
+        QueuedJob queuedJob;
+        while ((queuedJob = this.reserveNextQueuedJob()) != null) {
+            final JobRequest jobRequest = queuedJob.getJobRequest();
+            final String jobId = jobRequest.getId();
+            if (!this.queuedJobs.remove(queuedJob)) {
+                // The job was killed or launched by another thread between being picked and the remove
+                this.release(jobId);
+                continue;
+            }
+
+            this.queueWaitTimer.record(System.nanoTime() - queuedJob.getQueuedTime(), TimeUnit.NANOSECONDS);
+            this.jobTimelineService.record(jobId, "queued", queuedJob.getQueuedTime());
+            try {
+                // A kill which read the job as queued before it was taken off the queue only marks it killed
+                if (!this.jobPersistenceService.updateJobStatus(
+                    jobId,
+                    JobStatus.QUEUED,
+                    JobStatus.INIT,
+                    INIT_STATUS_MESSAGE
+                )) {
+                    log.info("Queued job {} was killed before it could be launched", jobId);
+                    this.release(jobId);
+                    continue;
+                }
+                this.launchJob(jobRequest);
+                log.info("Launched queued job {}", jobId);
+            } catch (final GenieException | RuntimeException e) {
+                // launchJob already marked the job failed if it was rejected. Keep draining the rest
+                log.error("Unable to launch queued job {}", jobId, e);
+                this.release(jobId);
+            }
+        }
+    }
+
+    /**
+     * Pick the queued job to launch next and reserve its quota and slot. Jobs of the users using the least of their
+     * fair share of this host go first, in the order they were queued. Jobs of users or groups at their limit are
+     * skipped so they can't hold up everyone else.
+     *
+     * @return The picked job, which now holds a quota and a slot, or null if no queued job can run right now
+     */
+    private QueuedJob reserveNextQueuedJob() {
+        final List<QueuedJob> candidates = new ArrayList<>(this.queuedJobs);
+        // Work the shares out up front so they can't change while sorting
+        final Map<String, Double> shares = new HashMap<>();
+        for (final QueuedJob candidate : candidates) {
+            shares.computeIfAbsent(candidate.getJobRequest().getUser(), this.jobQuotaService::getShare);
+        }
+        candidates.sort(
+            Comparator
+                .comparingDouble((QueuedJob candidate) -> shares.get(candidate.getJobRequest().getUser()))
+                .thenComparingLong(QueuedJob::getQueuedTime)
+        );
+
+        for (final QueuedJob candidate : candidates) {
+            final JobRequest jobRequest = candidate.getJobRequest();
+            if (!this.jobQuotaService.reserve(jobRequest)) {
+                // Either the user or group is at their limit or another thread is already launching this job
+                continue;
+            }
+            if (this.jobSlotService.reserve(jobRequest)) {
+                return candidate;
+            }
+            // The host doesn't have room for the job whose turn it is so don't let others jump ahead of it
+            this.jobQuotaService.release(jobRequest.getId());
+            return null;
+        }
+        return null;
+    }
+
+    private void release(final String jobId) {
+        this.jobSlotService.release(jobId);
+        this.jobQuotaService.release(jobId);
+    }
+
+    /**
+     * A job which got its quota but no slot has to give the quota back until it can run. One which didn't get its
+     * quota is counted against its user.
+     *
+     * @param jobRequest  The job which couldn't be launched right away
+     * @param withinQuota Whether the job got its quota
+     * @return Whether the job got its quota
+     */
+    private boolean releaseQuotaOrCountOverQuota(final JobRequest jobRequest, final boolean withinQuota) {
+        if (withinQuota) {
+            this.jobQuotaService.release(jobRequest.getId());
+        } else {
+            final String user = jobRequest.getUser();
+            this.registry.counter(this.registry.createId("genie.jobs.quotas.overQuota.rate").withTag("user", user))
+                .increment();
+            log.info("User {} is at their limit. Job {} can't run right away", user, jobRequest.getId());
+        }
+        return withinQuota;
+    }
+
+    private String getOverQuotaMessage(final JobRequest jobRequest) {
+        return "Unable to run job as user " + jobRequest.getUser() + " or their group is already running as many"
+            + " jobs as they are allowed on this host.";
+    }
+
+    private String getOverQuotaQueuedMessage(final JobRequest jobRequest) {
+        return "Job Accepted and waiting for user " + jobRequest.getUser() + " or their group to finish some of"
+            + " their running jobs.";
+    }
+
+    private Job getMemoizedJob(final JobRequest jobRequest) {
+        if (!jobRequest.isMemoize()) {
+            return null;
+        }
+        try {
+            final Job memoizedJob = this.jobMemoizationService.getMemoizedJob(jobRequest);
+            if (memoizedJob != null) {
+                log.info("Job {} is memoized. Returning identical job {}", jobRequest.getId(), memoizedJob.getId());
+                this.memoizationHitRate.increment();
+                return memoizedJob;
+            }
+        } catch (final GenieException | RuntimeException e) {
+            // Not being able to look for a previous run is no reason to fail the job. Just run it.
+            log.error("Unable to look for a memoized job for job {}", jobRequest.getId(), e);
+        }
+        this.memoizationMissRate.increment();
+        return null;
+    }
+
+    private void createJob(final JobRequest jobRequest, final Job job, final String clientHost) throws GenieException {
+        // Saving the request and the job as a batch of one is a single transaction with one lookup for conflicts
+        final long persistStart = System.nanoTime();
+        this.jobPersistenceService.createJobs(
+            Collections.singletonList(jobRequest),
+            Collections.singletonList(job),
+            clientHost,
+            this.hostName
+        );
+        this.jobTimelineService.record(jobRequest.getId(), "persist", persistStart);
+    }
+
+    private Job.Builder createJobBuilder(final JobRequest jobRequest) {
+        String archiveLocation = null;
+        if (!jobRequest.isDisableLogArchival()) {
+            archiveLocation = this.baseArchiveLocation
+                + JobConstants.FILE_PATH_DELIMITER
+                + jobRequest.getId()
+                + ".tar.gz";
+        }
+
+        return new Job.Builder(
+            jobRequest.getName(),
+            jobRequest.getUser(),
+            jobRequest.getVersion(),
+            jobRequest.getCommandArgs()
+        )
+            .withArchiveLocation(archiveLocation)
+            .withDescription(jobRequest.getDescription())
+            .withId(jobRequest.getId())
+            .withTags(jobRequest.getTags());
+    }
+
+    private void launchJob(final JobRequest jobRequest) throws GenieException {
+        try {
+            final Future<?> task
+                = this.taskExecutor.submit(
+                new JobLauncher(this.jobSubmitterService, jobRequest, this.registry, this.jobTimelineService)
+            );
+
+            // Tell the system a new job has been scheduled so any actions can be taken
+            this.eventPublisher.publishEvent(new JobScheduledEvent(jobRequest.getId(), task, this));
+        } catch (final TaskRejectedException e) {
+            final String errorMsg = "Unable to launch job due to exception: " + e.getMessage();
+            this.jobPersistenceService.updateJobStatus(jobRequest.getId(), JobStatus.FAILED, errorMsg);
+            throw new GenieServerException(errorMsg, e);
+        }
+    }
+
+    /**
+     * A job request which has been accepted and is waiting for a slot on this host.
+     */
+    private static final class QueuedJob {
+        private final JobRequest jobRequest;
+        private final long queuedTime;
+
+        QueuedJob(final JobRequest jobRequest) {
+            this.jobRequest = jobRequest;
+            this.queuedTime = System.nanoTime();
+        }
+
+        JobRequest getJobRequest() {
+            return this.jobRequest;
+        }
+
+        long getQueuedTime() {
+            return this.queuedTime;
+        }
     }
 }
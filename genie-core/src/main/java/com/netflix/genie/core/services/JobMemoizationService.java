@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A service which remembers what each memoized job ran with so an identical request can be answered with a recent
+ * successful job instead of running it again. Two requests are identical when they are submitted by the same user
+ * with the same command arguments, resolve to the same versions of the same cluster, command and applications and
+ * every file either of them would download has the same content. Requests with a file whose file system can't tell
+ * whether its content changed are never memoized.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface JobMemoizationService {
+
+    /**
+     * Find the most recent job which succeeded with the same fingerprint as the given request would run with.
+     *
+     * @param jobRequest The job request to look for a previous run of
+     * @return The job or null if no recent job matches, the matching jobs didn't succeed or the request can't be
+     * memoized
+     * @throws GenieException If the request can't be resolved or the content of its files can't be checked
+     */
+    Job getMemoizedJob(@NotNull final JobRequest jobRequest) throws GenieException;
+
+    /**
+     * Save the fingerprint of the given job so later identical requests can find it once it succeeds. Nothing is
+     * saved if the job can't be memoized.
+     *
+     * @param jobId       The id of the job
+     * @param jobRequest  The request the job was submitted with
+     * @param resolvedJob The cluster, command and applications the job resolved to
+     * @throws GenieException If the content of the files of the job can't be checked
+     */
+    void saveFingerprint(
+        @NotBlank final String jobId,
+        @NotNull final JobRequest jobRequest,
+        @NotNull final ResolvedJob resolvedJob
+    ) throws GenieException;
+}
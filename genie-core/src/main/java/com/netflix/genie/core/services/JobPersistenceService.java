@@ -23,6 +23,7 @@ import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.exceptions.GenieException;
 import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.constraints.NotNull;
 import java.util.Date;
@@ -58,6 +59,24 @@ public interface JobPersistenceService {
         @NotBlank final String statusMsg
     ) throws GenieException;
 
+    /**
+     * Update the status and status message of the job only if it still has the expected status. Lets a caller move
+     * a job on without overwriting a change someone else made in the meantime, e.g. a kill.
+     *
+     * @param id             The id of the job to update the status for.
+     * @param expectedStatus The status the job has to have for it to be updated.
+     * @param jobStatus      The updated status of the job.
+     * @param statusMsg      The updated status message of the job.
+     * @return True if the job had the expected status and was updated
+     * @throws GenieException if there is an error
+     */
+    boolean updateJobStatus(
+        @NotBlank final String id,
+        @NotNull final JobStatus expectedStatus,
+        @NotNull final JobStatus jobStatus,
+        @NotBlank final String statusMsg
+    ) throws GenieException;
+
     /**
      * Update the job with the various resources used to run the job including the cluster, command and applications.
      *
@@ -85,6 +104,33 @@ public interface JobPersistenceService {
      */
     JobRequest createJobRequest(@NotNull final JobRequest jobRequest, final String clientHost) throws GenieException;
 
+    /**
+     * Save a batch of job requests along with the job created for each of them. Either all of them are saved or
+     * none are.
+     *
+     * @param jobRequests The job requests to save. Each must have an id. Not empty
+     * @param jobs        The jobs to save. The job at each index must be for the job request at the same index
+     * @param clientHost  The host of the client that sent the requests. Can be null.
+     * @param hostName    The host which accepted the jobs and will run them. Can be null.
+     * @throws GenieException if any of the jobs already exist or there is any other error
+     */
+    void createJobs(
+        @NotEmpty final List<JobRequest> jobRequests,
+        @NotEmpty final List<Job> jobs,
+        final String clientHost,
+        final String hostName
+    ) throws GenieException;
+
+    /**
+     * Fail all the jobs which are still queued on the given host. The queue of a host only lives in its memory so
+     * once it restarts nothing will ever launch them.
+     *
+     * @param hostName  The host whose queued jobs to fail
+     * @param statusMsg The status message to fail them with
+     * @return The ids of the jobs which were failed
+     */
+    List<String> failQueuedJobs(@NotBlank final String hostName, @NotBlank final String statusMsg);
+
     /**
      * Save the jobExecution object in the data store.
      *
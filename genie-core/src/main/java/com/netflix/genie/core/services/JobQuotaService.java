@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.dto.JobRequest;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A service which limits how many jobs each user, and optionally each group, can run on this node at once and
+ * tracks how much of its fair share of the node each user is using.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface JobQuotaService {
+
+    /**
+     * Try to take a running job from the quota of the user, and the group if the job has one, that submitted the
+     * given job. Reservations are keyed by job id so a job holds at most one no matter how many times this is
+     * called.
+     *
+     * @param jobRequest The job request to reserve against the quotas
+     * @return true if the job was within the quotas and is now counted against them. False if the user or group
+     * is already running as many jobs as they are allowed or the job already holds a reservation
+     */
+    boolean reserve(@NotNull final JobRequest jobRequest);
+
+    /**
+     * Give back the reservation held by the given job if there is one. Safe to call multiple times for the same
+     * job.
+     *
+     * @param jobId The id of the job whose reservation should be released
+     */
+    void release(@NotBlank final String jobId);
+
+    /**
+     * Get the number of jobs the given user is running on this node.
+     *
+     * @param user The user
+     * @return The number of running jobs
+     */
+    int getNumRunning(@NotBlank final String user);
+
+    /**
+     * Get the maximum number of jobs the given user can run on this node at once.
+     *
+     * @param user The user
+     * @return The limit or zero if the user isn't limited
+     */
+    int getUserLimit(@NotBlank final String user);
+
+    /**
+     * Get how much of this node the given user is using relative to their weight. Users with a lower share are
+     * served first when jobs are waiting for a slot.
+     *
+     * @param user The user
+     * @return The number of jobs the user is running divided by their weight
+     */
+    double getShare(@NotBlank final String user);
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Service which resolves the cluster, command and applications a job request should run with.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Validated
+public interface JobResolverService {
+
+    /**
+     * Resolve the job request. The first cluster criteria which matches any UP cluster with an ACTIVE command
+     * matching the command criteria wins. The cluster is picked from the matches by the load balancer and the
+     * command is the highest priority matching command attached to it. The applications are the ones requested or,
+     * if none were requested, the ones attached to the command.
+     *
+     * @param jobRequest The job request to resolve
+     * @return The cluster, command and applications to run the job with
+     * @throws GenieException If no cluster or command matches the request or a requested application doesn't exist
+     */
+    ResolvedJob resolveJob(
+        @NotNull(message = "No job request provided. Unable to resolve.")
+        final JobRequest jobRequest
+    ) throws GenieException;
+}
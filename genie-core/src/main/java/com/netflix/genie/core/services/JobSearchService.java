@@ -158,7 +158,7 @@ public interface JobSearchService {
     List<Application> getJobApplications(@NotBlank final String id) throws GenieException;
 
     /**
-     * Get the hostname a job is running on.
+     * Get the hostname a job is running on. For a job which is still queued this is the host which accepted it.
      *
      * @param jobId The id of the job to get the hostname for
      * @return The hostname
@@ -0,0 +1,94 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.dto.JobRequest;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A service which hands out the job slots available on this node. A slot must be reserved before a job is
+ * launched and is held until the job is finished. Along with the slot the cpu and memory requested by the job are
+ * reserved against the capacity of the node.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface JobSlotService {
+
+    /**
+     * Try to reserve a slot and the requested cpu and memory on this node for the given job. Reservations are keyed
+     * by job id so a job holds at most one slot no matter how many times this is called.
+     *
+     * @param jobRequest The job request to reserve a slot for
+     * @return true if the slot was reserved for the job. False if the node doesn't have enough free capacity or the
+     * job already holds a slot
+     */
+    boolean reserve(@NotNull final JobRequest jobRequest);
+
+    /**
+     * Release the slot and resources held by the given job if there are any. Safe to call multiple times for the
+     * same job.
+     *
+     * @param jobId The id of the job whose slot should be released
+     */
+    void release(@NotBlank final String jobId);
+
+    /**
+     * Get the number of slots currently reserved on this node.
+     *
+     * @return The number of reserved slots
+     */
+    int getNumReserved();
+
+    /**
+     * Get the total number of slots on this node.
+     *
+     * @return The maximum number of jobs which can hold a slot at once
+     */
+    int getMaxSlots();
+
+    /**
+     * Get the number of cpus currently reserved by jobs on this node.
+     *
+     * @return The reserved cpus
+     */
+    int getReservedCpu();
+
+    /**
+     * Get the number of cpus on this node which can be reserved by jobs.
+     *
+     * @return The cpu capacity
+     */
+    int getMaxCpu();
+
+    /**
+     * Get the amount of memory, in MB, currently reserved by jobs on this node.
+     *
+     * @return The reserved memory in MB
+     */
+    long getReservedMemory();
+
+    /**
+     * Get the amount of memory, in MB, on this node which can be reserved by jobs.
+     *
+     * @return The memory capacity in MB
+     */
+    long getMaxMemory();
+}
@@ -0,0 +1,76 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobTimeline;
+import org.hibernate.validator.constraints.NotBlank;
+
+/**
+ * A service which records how long each stage of launching a job took on this node, from the request arriving
+ * until the job process is running.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface JobTimelineService {
+
+    /**
+     * Record a stage of the launch of a job which ends now.
+     *
+     * @param jobId      The id of the job
+     * @param stage      The name of the stage
+     * @param startNanos The value of System.nanoTime() when the stage started
+     */
+    void record(@NotBlank final String jobId, @NotBlank final String stage, final long startNanos);
+
+    /**
+     * Record a stage of the launch of a job.
+     *
+     * @param jobId      The id of the job
+     * @param stage      The name of the stage
+     * @param detail     What the stage worked on if a job can go through the stage more than once. Can be null
+     * @param startNanos The value of System.nanoTime() when the stage started
+     * @param endNanos   The value of System.nanoTime() when the stage ended
+     */
+    void record(
+        @NotBlank final String jobId,
+        @NotBlank final String stage,
+        final String detail,
+        final long startNanos,
+        final long endNanos
+    );
+
+    /**
+     * Record which cluster and command the job was resolved to so its stages can be told apart by them.
+     *
+     * @param jobId       The id of the job
+     * @param clusterName The name of the cluster the job runs on
+     * @param commandName The name of the command the job runs
+     */
+    void resolved(@NotBlank final String jobId, @NotBlank final String clusterName, @NotBlank final String commandName);
+
+    /**
+     * Get the timeline of the launch of a job.
+     *
+     * @param jobId The id of the job
+     * @return The timeline of the job
+     * @throws GenieException If there is no timeline for the job on this node
+     */
+    JobTimeline getTimeline(@NotBlank final String jobId) throws GenieException;
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.Min;
+
+/**
+ * A service which shares the load of each Genie node with the rest of the cluster so that a node which is full can
+ * hand new jobs off to one which isn't.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface NodeLoadService {
+
+    /**
+     * Publish the current load of a node, replacing whatever it published before.
+     *
+     * @param hostName  The host name of the node
+     * @param running   The number of jobs running on the node
+     * @param freeSlots The number of new jobs the node can currently take, either to run or to queue
+     */
+    void publishLoad(
+        @NotBlank final String hostName,
+        @Min(0) final int running,
+        @Min(0) final int freeSlots
+    );
+
+    /**
+     * Get the node with the most free slots, ignoring the given node and any node which hasn't published its load
+     * recently.
+     *
+     * @param excludedHostName The host name of the node which shouldn't be returned, usually the calling node
+     * @return The host name of the least loaded node or null if no other node has a free slot
+     */
+    String getLeastLoadedNode(@NotBlank final String excludedHostName);
+}
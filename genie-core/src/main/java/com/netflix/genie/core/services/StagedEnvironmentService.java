@@ -0,0 +1,71 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.AdminResources;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Read only trees of the files of clusters, commands and applications shared by all the jobs on the node which use
+ * the same version of them. A job directory gets a symbolic link to the tree of each entity instead of its own copy
+ * of the directory and the files in it.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public interface StagedEnvironmentService {
+
+    /**
+     * Link the tree of the files of an entity into a job directory. The tree is staged first if this version of the
+     * entity, or of any of its files, isn't on the node yet. Concurrent calls for the same version share the staging.
+     *
+     * @param type    The type of the entity
+     * @param id      The id of the entity
+     * @param version A value which changes whenever the entity does, e.g. the time it was last updated
+     * @param files   The remote location of each file of the entity keyed by its path relative to the tree
+     * @param link    The path of the link to create in the job directory
+     * @throws GenieException If the tree can't be staged or linked
+     */
+    void link(
+        @NotNull final AdminResources type,
+        @NotBlank final String id,
+        @NotBlank final String version,
+        @NotNull final Map<String, String> files,
+        @NotNull final File link
+    ) throws GenieException;
+
+    /**
+     * Get the number of trees staged on the node.
+     *
+     * @return The number of trees
+     */
+    int getNumEnvironments();
+
+    /**
+     * Delete the trees of the versions of entities which have been replaced by a newer version and which no job
+     * directory links to anymore.
+     *
+     * @return The number of trees deleted
+     */
+    int collectGarbage();
+}
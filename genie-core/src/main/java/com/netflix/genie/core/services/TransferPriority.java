@@ -0,0 +1,43 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+/**
+ * The classes of file transfers sharing the network and disks of a node, in the order they are given free transfer
+ * slots.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public enum TransferPriority {
+
+    /**
+     * Downloads of the files a job needs before it can start.
+     */
+    LAUNCH,
+
+    /**
+     * Uploads of the archives of finished jobs.
+     */
+    ARCHIVE,
+
+    /**
+     * Downloads which only fill caches ahead of the jobs needing them.
+     */
+    WARM
+}
@@ -0,0 +1,567 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.hash.Hashing;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.TransferPriority;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * A dependency cache in a directory on the local disk.
+ * <p>
+ * Files are stored once per content under files/{SHA-256 of the content}, so the same jar published under two paths
+ * takes space once. Which content a path has is kept under index/{SHA-256 of the path and its validator}, where the
+ * validator is the content hash the file transfer reports for the path, e.g. the ETag on S3. A new version of a file
+ * has a new validator so it's a miss and is downloaded again. Both survive restarts of the node. Paths without a
+ * validator can't be told apart from a new version so they are never cached. The index entries of a file are removed
+ * along with it when it's evicted.
+ * <p>
+ * Jobs asking for the same file at the same time share one download. Downloads warming the cache are only shared
+ * with other warmings. A job asking for a file which is being warmed downloads it again at the launch priority, as
+ * waiting on the warming would leave it queued and paced behind all launch transfers.
+ * <p>
+ * Jobs get a copy of the cached file which they own and can write to, as they would have had the file been downloaded
+ * for them. Linking can be enabled instead to save the copy, in which case jobs get a hard link to the cached file
+ * where possible. Cached files are read only, so a job writing to a linked file, e.g. editing a config in place, fails
+ * with a permission error. A job which changes the permissions of its link changes the file every other job gets
+ * though, so only enable linking for jobs which are trusted not to. When jobs run as their user the link would be
+ * handed over to the user along with the job directory, so files are always copied then. The least recently used
+ * files are evicted once the cache grows over its size. Files which are already on the node aren't cached, copying
+ * them costs the same as filling the cache.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class DiskDependencyCacheServiceImpl implements DependencyCacheService {
+
+    private static final Pattern REMOTE_PATH_PATTERN = Pattern.compile("^(?!file:)[a-zA-Z][a-zA-Z0-9+.-]*://.+$");
+    private static final Pattern CONTENT_HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+    private static final char SEPARATOR = '\0';
+
+    private final GenieFileTransferService fileTransferService;
+    private final Path filesDir;
+    private final Path indexDir;
+    private final Path tmpDir;
+    private final long maxSize;
+    private final boolean linkFiles;
+
+    // The content hash of each path and validator looked up since startup and still cached. Incomplete while being
+    // downloaded for a job
+    private final ConcurrentMap<String, CompletableFuture<String>> entries = new ConcurrentHashMap<>();
+    // Downloads to warm the cache. Kept apart so jobs never wait on a download paced at the warm priority
+    private final ConcurrentMap<String, CompletableFuture<String>> warmings = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CachedFile> files = new ConcurrentHashMap<>();
+    // Files are linked or copied under the read lock and added or evicted under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong size;
+    private final Counter hitRate;
+    private final Counter missRate;
+    private final Counter savedBytes;
+    private final Counter evictionRate;
+
+    /**
+     * Constructor.
+     *
+     * @param fileTransferService The service used to download the files
+     * @param cacheDir            The directory to keep the cache in. Created if it doesn't exist
+     * @param maxSize             The size, in bytes, to keep the cache under. 0 to not cache anything
+     * @param linkFiles           Whether jobs can be given hard links to the cached files rather than copies
+     * @param registry            The metrics registry to use
+     * @throws GenieException If the cache directory can't be set up
+     */
+    public DiskDependencyCacheServiceImpl(
+        @NotNull final GenieFileTransferService fileTransferService,
+        @NotNull final File cacheDir,
+        final long maxSize,
+        final boolean linkFiles,
+        @NotNull final Registry registry
+    ) throws GenieException {
+        this.fileTransferService = fileTransferService;
+        this.filesDir = cacheDir.toPath().resolve("files");
+        this.indexDir = cacheDir.toPath().resolve("index");
+        this.tmpDir = cacheDir.toPath().resolve("tmp");
+        this.maxSize = maxSize;
+        this.linkFiles = linkFiles;
+        this.size = registry.gauge(registry.createId("genie.jobs.dependencies.cache.size.gauge"), new AtomicLong());
+        this.hitRate = registry.counter("genie.jobs.dependencies.cache.hit.rate");
+        this.missRate = registry.counter("genie.jobs.dependencies.cache.miss.rate");
+        this.savedBytes = registry.counter("genie.jobs.dependencies.cache.saved.bytes");
+        this.evictionRate = registry.counter("genie.jobs.dependencies.cache.eviction.rate");
+
+        if (this.maxSize > 0) {
+            this.load();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getFile(
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath
+    ) throws GenieException {
+        if (!this.isCacheable(srcRemotePath)) {
+            this.fileTransferService.getFile(srcRemotePath, dstLocalPath);
+            return;
+        }
+
+        final String key = this.getKey(srcRemotePath);
+        if (key == null) {
+            this.fileTransferService.getFile(srcRemotePath, dstLocalPath);
+            return;
+        }
+        while (true) {
+            final Lookup lookup = this.lookup(this.entries, srcRemotePath, key, TransferPriority.LAUNCH);
+            final long fileSize = this.link(lookup.contentHash, dstLocalPath);
+            if (fileSize >= 0) {
+                if (lookup.downloaded) {
+                    this.missRate.increment();
+                } else {
+                    this.hitRate.increment();
+                    this.savedBytes.increment(fileSize);
+                }
+                return;
+            }
+
+            // Evicted between being looked up and linked so look it up again
+            this.entries.remove(key, lookup.entry);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable(@NotBlank final String srcRemotePath) {
+        return this.maxSize > 0 && REMOTE_PATH_PATTERN.matcher(srcRemotePath).matches();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCached(@NotBlank final String srcRemotePath) throws GenieException {
+        if (!this.isCacheable(srcRemotePath)) {
+            return false;
+        }
+        final String key = this.getKey(srcRemotePath);
+        if (key == null) {
+            return false;
+        }
+        final CompletableFuture<String> entry = this.entries.get(key);
+        if (entry != null && entry.isDone() && !entry.isCompletedExceptionally()) {
+            return this.files.containsKey(entry.join());
+        }
+        return this.readIndex(key) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long warm(@NotBlank final String srcRemotePath) throws GenieException {
+        if (!this.isCacheable(srcRemotePath)) {
+            return 0L;
+        }
+        final String key = this.getKey(srcRemotePath);
+        if (key == null) {
+            return 0L;
+        }
+        final CompletableFuture<String> entry = this.entries.get(key);
+        if (entry != null) {
+            // A job already looked it up or is downloading it
+            this.await(srcRemotePath, entry);
+            return 0L;
+        }
+
+        // A job asking for the file while it's being warmed downloads it itself at the launch priority rather than
+        // waiting on this download, which is queued and paced behind all launch transfers
+        final Lookup lookup = this.lookup(this.warmings, srcRemotePath, key, TransferPriority.WARM);
+        try {
+            this.entries.putIfAbsent(key, lookup.entry);
+            if (!lookup.downloaded) {
+                return 0L;
+            }
+            final CachedFile cachedFile = this.files.get(lookup.contentHash);
+            return cachedFile == null ? 0L : cachedFile.size;
+        } finally {
+            this.warmings.remove(key, lookup.entry);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumFiles() {
+        return this.files.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSize() {
+        return this.size.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() throws GenieException {
+        if (this.maxSize <= 0) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            // Downloads in flight finish and are cached as usual
+            this.entries.values().removeIf(CompletableFuture::isDone);
+            for (final Map.Entry<String, CachedFile> file : new ArrayList<>(this.files.entrySet())) {
+                this.evict(file.getKey(), file.getValue());
+            }
+            this.deleteContents(this.indexDir);
+            log.info("Cleared the dependency cache");
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to clear the dependency cache", ioe);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws GenieException {
+        try {
+            Files.createDirectories(this.filesDir);
+            Files.createDirectories(this.indexDir);
+            Files.createDirectories(this.tmpDir);
+
+            // Anything left in tmp is from downloads cut short by a restart
+            this.deleteContents(this.tmpDir);
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(this.filesDir)) {
+                for (final Path file : stream) {
+                    final String contentHash = file.getFileName().toString();
+                    if (CONTENT_HASH_PATTERN.matcher(contentHash).matches()) {
+                        final CachedFile cachedFile
+                            = new CachedFile(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+                        this.files.put(contentHash, cachedFile);
+                        this.size.addAndGet(cachedFile.size);
+                    } else {
+                        Files.delete(file);
+                    }
+                }
+            }
+
+            this.lock.writeLock().lock();
+            try {
+                // The cache may have been given less space since it was last used
+                this.evictLeastRecentlyUsed(null);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+
+            // Index entries of files evicted while they weren't looked up since the previous start
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(this.indexDir)) {
+                for (final Path index : stream) {
+                    if (!this.files.containsKey(new String(Files.readAllBytes(index), StandardCharsets.UTF_8))) {
+                        Files.delete(index);
+                    }
+                }
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException(
+                "Unable to set up the dependency cache in " + this.filesDir.getParent(),
+                ioe
+            );
+        }
+        log.info("Loaded {} files of {} bytes into the dependency cache", this.files.size(), this.size.get());
+    }
+
+    private String getKey(final String srcRemotePath) throws GenieException {
+        final String validator = this.fileTransferService.getContentHash(srcRemotePath);
+        if (validator == null) {
+            log.debug("Unable to tell which version {} is at. Not caching it", srcRemotePath);
+            return null;
+        }
+        return Hashing.sha256().newHasher()
+            .putString(srcRemotePath, StandardCharsets.UTF_8)
+            .putChar(SEPARATOR)
+            .putString(validator, StandardCharsets.UTF_8)
+            .hash()
+            .toString();
+    }
+
+    private Lookup lookup(
+        final ConcurrentMap<String, CompletableFuture<String>> lookups,
+        final String srcRemotePath,
+        final String key,
+        final TransferPriority priority
+    ) throws GenieException {
+        final CompletableFuture<String> lookup = new CompletableFuture<>();
+        final CompletableFuture<String> existing = lookups.putIfAbsent(key, lookup);
+        if (existing != null) {
+            // Someone else at the same priority is already downloading it or has looked it up before
+            return new Lookup(existing, this.await(srcRemotePath, existing), false);
+        }
+
+        try {
+            String cached = this.readIndex(key);
+            boolean downloaded = false;
+            if (cached == null) {
+                cached = this.download(srcRemotePath, key, priority);
+                downloaded = true;
+            }
+            lookup.complete(cached);
+            return new Lookup(lookup, cached, downloaded);
+        } catch (final GenieException | RuntimeException e) {
+            lookups.remove(key, lookup);
+            lookup.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String readIndex(final String key) {
+        final Path index = this.indexDir.resolve(key);
+        if (!Files.exists(index)) {
+            return null;
+        }
+        try {
+            final String contentHash = new String(Files.readAllBytes(index), StandardCharsets.UTF_8);
+            return this.files.containsKey(contentHash) ? contentHash : null;
+        } catch (final IOException ioe) {
+            log.warn("Unable to read dependency cache index {}. Downloading the file again", index, ioe);
+            return null;
+        }
+    }
+
+    private String download(
+        final String srcRemotePath,
+        final String key,
+        final TransferPriority priority
+    ) throws GenieException {
+        final Path tmp = this.tmpDir.resolve(UUID.randomUUID().toString());
+        try {
+            this.fileTransferService.getFile(srcRemotePath, tmp.toString(), priority);
+            // Guava's Files clashes with the NIO one used for everything else
+            final String contentHash
+                = com.google.common.io.Files.asByteSource(tmp.toFile()).hash(Hashing.sha256()).toString();
+            this.add(contentHash, tmp);
+            Files.write(this.indexDir.resolve(key), contentHash.getBytes(StandardCharsets.UTF_8));
+            return contentHash;
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to cache " + srcRemotePath, ioe);
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (final IOException ioe) {
+                log.warn("Unable to delete dependency cache download {}", tmp, ioe);
+            }
+        }
+    }
+
+    private void add(final String contentHash, final Path tmp) throws IOException {
+        final long fileSize = Files.size(tmp);
+        this.lock.writeLock().lock();
+        try {
+            final CachedFile cachedFile = this.files.get(contentHash);
+            if (cachedFile != null) {
+                // The same content was already cached under another path
+                cachedFile.lastAccess = System.currentTimeMillis();
+                return;
+            }
+
+            final Path file = this.filesDir.resolve(contentHash);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            if (!file.toFile().setReadOnly()) {
+                log.warn("Unable to make cached file {} read only", file);
+            }
+            this.files.put(contentHash, new CachedFile(fileSize, System.currentTimeMillis()));
+            this.size.addAndGet(fileSize);
+            this.evictLeastRecentlyUsed(contentHash);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private long link(final String contentHash, final String dstLocalPath) throws GenieException {
+        this.lock.readLock().lock();
+        try {
+            final CachedFile cachedFile = this.files.get(contentHash);
+            if (cachedFile == null) {
+                return -1L;
+            }
+            cachedFile.lastAccess = System.currentTimeMillis();
+
+            final Path file = this.filesDir.resolve(contentHash);
+            final Path dst = Paths.get(dstLocalPath);
+            if (this.linkFiles) {
+                try {
+                    Files.createLink(dst, file);
+                    return cachedFile.size;
+                } catch (final IOException | UnsupportedOperationException e) {
+                    log.debug("Unable to link {} to cached file {}. Copying it instead", dst, file, e);
+                }
+            }
+            Files.copy(file, dst);
+            // The copy gets the read only permissions of the cached file
+            if (!dst.toFile().setWritable(true)) {
+                log.warn("Unable to make {} writable", dst);
+            }
+            return cachedFile.size;
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to copy cached file to " + dstLocalPath, ioe);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private String await(final String srcRemotePath, final CompletableFuture<String> entry) throws GenieException {
+        try {
+            return entry.get();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while waiting for " + srcRemotePath + " to download");
+        } catch (final ExecutionException ee) {
+            if (ee.getCause() instanceof GenieException) {
+                throw (GenieException) ee.getCause();
+            }
+            throw new GenieServerException("Unable to download " + srcRemotePath, ee.getCause());
+        }
+    }
+
+    private void evictLeastRecentlyUsed(final String keep) {
+        if (this.size.get() <= this.maxSize) {
+            return;
+        }
+        final List<Map.Entry<String, CachedFile>> leastRecentlyUsed = new ArrayList<>(this.files.entrySet());
+        leastRecentlyUsed.sort(Comparator.comparingLong(file -> file.getValue().lastAccess));
+        for (final Map.Entry<String, CachedFile> file : leastRecentlyUsed) {
+            if (this.size.get() <= this.maxSize) {
+                return;
+            }
+            if (!file.getKey().equals(keep)) {
+                this.evict(file.getKey(), file.getValue());
+            }
+        }
+    }
+
+    private void evict(final String contentHash, final CachedFile cachedFile) {
+        final Path file = this.filesDir.resolve(contentHash);
+        try {
+            // Jobs given a hard link keep their file
+            Files.deleteIfExists(file);
+        } catch (final IOException ioe) {
+            log.error("Unable to delete cached file {}", file, ioe);
+        }
+        this.files.remove(contentHash);
+        this.size.addAndGet(-cachedFile.size);
+        this.evictionRate.increment();
+
+        // Forget every path and validator which had this content. Downloads in flight are left alone.
+        for (final Map.Entry<String, CompletableFuture<String>> entry : this.entries.entrySet()) {
+            final CompletableFuture<String> lookup = entry.getValue();
+            if (lookup.isDone()
+                && !lookup.isCompletedExceptionally()
+                && contentHash.equals(lookup.join())
+                && this.entries.remove(entry.getKey(), lookup)) {
+                final Path index = this.indexDir.resolve(entry.getKey());
+                try {
+                    Files.deleteIfExists(index);
+                } catch (final IOException ioe) {
+                    log.warn("Unable to delete dependency cache index {}", index, ioe);
+                }
+            }
+        }
+    }
+
+    private void deleteContents(final Path dir) throws IOException {
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (final Path file : stream) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * The result of looking up the current version of a file in the cache.
+     */
+    private static final class Lookup {
+        private final CompletableFuture<String> entry;
+        private final String contentHash;
+        private final boolean downloaded;
+
+        private Lookup(final CompletableFuture<String> entry, final String contentHash, final boolean downloaded) {
+            this.entry = entry;
+            this.contentHash = contentHash;
+            this.downloaded = downloaded;
+        }
+    }
+
+    /**
+     * A file in the cache.
+     */
+    private static final class CachedFile {
+        private final long size;
+        private volatile long lastAccess;
+
+        private CachedFile(final long size, final long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
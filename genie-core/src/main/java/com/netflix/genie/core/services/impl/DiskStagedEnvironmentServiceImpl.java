@@ -0,0 +1,496 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.AdminResources;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Staged environments in a directory on the local disk.
+ * <p>
+ * The tree of an entity is kept under {type}/{id}/{SHA-256 of the version, the files of the entity and their content
+ * hashes}, mirroring the layout of the genie directory of a job, and survives restarts of the node. Its files are
+ * fetched through the dependency cache so a file shared by several entities still takes space once. A tree is staged
+ * in a temporary directory and moved into place once complete, then made read only so a job can't change what the
+ * other jobs see.
+ * <p>
+ * Once an entity changes, or a file is overwritten in place at the same location, the next job gets a new tree. So
+ * every job looks up the content hash of each file, e.g. the ETag on S3, as it would have when fetching the files
+ * itself. When the file system of a file can't tell whether it changed each job gets a tree of its own. The trees of
+ * the older versions are deleted periodically once no job directory links to them anymore, which happens when the
+ * job directories are cleaned up.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class DiskStagedEnvironmentServiceImpl implements StagedEnvironmentService {
+
+    private static final String TMP_DIR = "tmp";
+    private static final String[] TYPE_DIRS = {
+        JobConstants.APPLICATION_PATH_VAR,
+        JobConstants.COMMAND_PATH_VAR,
+        JobConstants.CLUSTER_PATH_VAR,
+    };
+    private static final char SEPARATOR = '\0';
+
+    private final DependencyCacheService dependencyCacheService;
+    private final GenieFileTransferService fileTransferService;
+    private final Path rootDir;
+    private final Path tmpDir;
+    private final Path jobsDir;
+    private final TaskScheduler scheduler;
+    private final long cleanupRate;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // Trees being staged. Other jobs needing the same tree wait for it rather than staging it again
+    private final ConcurrentMap<Path, CompletableFuture<Void>> staging = new ConcurrentHashMap<>();
+    // Jobs are linked to trees under the read lock and trees are deleted under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter hitRate;
+    private final Counter missRate;
+    private final Counter deletionRate;
+
+    /**
+     * Constructor.
+     *
+     * @param dependencyCacheService The service used to fetch the files of the entities
+     * @param fileTransferService    The service used to tell whether the files of the entities changed
+     * @param rootDir                The directory to keep the trees in. Created when the first tree is staged
+     * @param jobsDir                The directory of the job directories which link to the trees
+     * @param scheduler              The scheduler to periodically delete the trees of older versions with
+     * @param cleanupRate            How often, in milliseconds, to delete the trees of older versions
+     * @param registry               The metrics registry to use
+     */
+    public DiskStagedEnvironmentServiceImpl(
+        @NotNull final DependencyCacheService dependencyCacheService,
+        @NotNull final GenieFileTransferService fileTransferService,
+        @NotNull final File rootDir,
+        @NotNull final File jobsDir,
+        @NotNull final TaskScheduler scheduler,
+        final long cleanupRate,
+        @NotNull final Registry registry
+    ) {
+        this.dependencyCacheService = dependencyCacheService;
+        this.fileTransferService = fileTransferService;
+        this.rootDir = rootDir.toPath().toAbsolutePath().normalize();
+        // Each node process stages in its own directory so it knows anything else under tmp was cut short
+        this.tmpDir = this.rootDir.resolve(TMP_DIR).resolve(UUID.randomUUID().toString());
+        this.jobsDir = jobsDir.toPath();
+        this.scheduler = scheduler;
+        this.cleanupRate = cleanupRate;
+        this.hitRate = registry.counter("genie.jobs.environments.hit.rate");
+        this.missRate = registry.counter("genie.jobs.environments.miss.rate");
+        this.deletionRate = registry.counter("genie.jobs.environments.deletion.rate");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void link(
+        @NotNull final AdminResources type,
+        @NotBlank final String id,
+        @NotBlank final String version,
+        @NotNull final Map<String, String> files,
+        @NotNull final File link
+    ) throws GenieException {
+        final Path environment = this.rootDir
+            .resolve(getTypeDir(type))
+            .resolve(id)
+            .resolve(this.getKey(version, files));
+        while (true) {
+            final boolean staged = this.stage(type, environment, files);
+
+            this.lock.readLock().lock();
+            try {
+                if (Files.isDirectory(environment)) {
+                    Files.createSymbolicLink(link.toPath(), environment);
+                    if (staged) {
+                        this.missRate.increment();
+                    } else {
+                        this.hitRate.increment();
+                    }
+                    return;
+                }
+            } catch (final IOException | UnsupportedOperationException e) {
+                throw new GenieServerException("Unable to link " + link + " to " + environment, e);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+
+            // Deleted between being staged and linked as a newer version came along, stage it again
+            log.debug("Staged environment {} was deleted before it could be linked. Staging it again", environment);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumEnvironments() {
+        int numEnvironments = 0;
+        for (final List<Path> versions : this.getVersions()) {
+            numEnvironments += versions.size();
+        }
+        return numEnvironments;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int collectGarbage() {
+        this.deleteAbandonedStaging();
+
+        this.lock.writeLock().lock();
+        try {
+            final List<Path> replaced = new ArrayList<>();
+            for (final List<Path> versions : this.getVersions()) {
+                // The most recently staged version is the current one
+                versions.sort(Comparator.comparingLong(DiskStagedEnvironmentServiceImpl::getLastModified).reversed());
+                replaced.addAll(versions.subList(1, versions.size()));
+            }
+            if (replaced.isEmpty()) {
+                return 0;
+            }
+
+            final Set<Path> linked;
+            try {
+                linked = this.getLinkedEnvironments();
+            } catch (final IOException ioe) {
+                // Better to keep every replaced tree than delete one a job may be using
+                log.error("Unable to find the staged environments jobs link to. Not deleting any", ioe);
+                return 0;
+            }
+            int deleted = 0;
+            for (final Path environment : replaced) {
+                if (!linked.contains(environment)) {
+                    try {
+                        deleteTree(environment);
+                        this.deletionRate.increment();
+                        deleted++;
+                    } catch (final IOException ioe) {
+                        log.error("Unable to delete staged environment {}", environment, ioe);
+                    }
+                }
+            }
+            log.info("Deleted {} staged environments of replaced versions", deleted);
+            return deleted;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Once the application is started schedule the periodic deletion of the trees of older versions.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.scheduler.scheduleWithFixedDelay(this::collectGarbage, this.cleanupRate);
+        }
+    }
+
+    private boolean stage(
+        final AdminResources type,
+        final Path environment,
+        final Map<String, String> files
+    ) throws GenieException {
+        if (Files.isDirectory(environment)) {
+            return false;
+        }
+
+        final CompletableFuture<Void> stage = new CompletableFuture<>();
+        final CompletableFuture<Void> existing = this.staging.putIfAbsent(environment, stage);
+        if (existing != null) {
+            this.await(environment, existing);
+            return false;
+        }
+
+        try {
+            // Another job may have finished staging it since it was checked
+            final boolean staged = !Files.isDirectory(environment);
+            if (staged) {
+                this.build(type, environment, files);
+            }
+            stage.complete(null);
+            return staged;
+        } catch (final GenieException | RuntimeException e) {
+            stage.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.staging.remove(environment, stage);
+        }
+    }
+
+    private void build(
+        final AdminResources type,
+        final Path environment,
+        final Map<String, String> files
+    ) throws GenieException {
+        final Path tmp = this.tmpDir.resolve(UUID.randomUUID().toString());
+        try {
+            Files.createDirectories(tmp.resolve(JobConstants.CONFIG_FILE_PATH_PREFIX));
+            if (type == AdminResources.APPLICATION) {
+                Files.createDirectories(tmp.resolve(JobConstants.DEPENDENCY_FILE_PATH_PREFIX));
+            }
+            for (final Map.Entry<String, String> file : files.entrySet()) {
+                final Path dst = tmp.resolve(file.getKey()).normalize();
+                if (!dst.startsWith(tmp) || dst.equals(tmp)) {
+                    throw new GeniePreconditionException(
+                        "File " + file.getKey() + " of staged environment " + environment + " is outside of it"
+                    );
+                }
+                Files.createDirectories(dst.getParent());
+                this.dependencyCacheService.getFile(file.getValue(), dst.toString());
+            }
+            makeContentsReadOnly(tmp);
+
+            // Moving a directory to another parent needs it to be writable so it's made read only once in place
+            Files.createDirectories(environment.getParent());
+            Files.move(tmp, environment, StandardCopyOption.ATOMIC_MOVE);
+            if (!environment.toFile().setWritable(false, false)) {
+                log.warn("Unable to make staged environment {} read only", environment);
+            }
+            log.info("Staged environment {} with {} files", environment, files.size());
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to stage environment " + environment, ioe);
+        } finally {
+            if (Files.exists(tmp)) {
+                try {
+                    deleteTree(tmp);
+                } catch (final IOException ioe) {
+                    log.warn("Unable to delete staging directory {}", tmp, ioe);
+                }
+            }
+        }
+    }
+
+    private void await(final Path environment, final CompletableFuture<Void> stage) throws GenieException {
+        try {
+            stage.get();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while waiting for environment " + environment + " to stage");
+        } catch (final ExecutionException ee) {
+            if (ee.getCause() instanceof GenieException) {
+                throw (GenieException) ee.getCause();
+            }
+            throw new GenieServerException("Unable to stage environment " + environment, ee.getCause());
+        }
+    }
+
+    private List<List<Path>> getVersions() {
+        final List<List<Path>> versions = new ArrayList<>();
+        for (final String typeDir : TYPE_DIRS) {
+            for (final Path entity : listDirectories(this.rootDir.resolve(typeDir))) {
+                final List<Path> entityVersions = listDirectories(entity);
+                if (!entityVersions.isEmpty()) {
+                    versions.add(entityVersions);
+                }
+            }
+        }
+        return versions;
+    }
+
+    private Set<Path> getLinkedEnvironments() throws IOException {
+        final Set<Path> linked = new HashSet<>();
+        for (final Path jobDir : listDirectories(this.jobsDir)) {
+            for (final String typeDir : TYPE_DIRS) {
+                final Path entities = jobDir.resolve(JobConstants.GENIE_PATH_VAR).resolve(typeDir);
+                if (!Files.isDirectory(entities)) {
+                    continue;
+                }
+                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(entities, Files::isSymbolicLink)) {
+                    for (final Path link : stream) {
+                        linked.add(Files.readSymbolicLink(link));
+                    }
+                }
+            }
+        }
+        return linked;
+    }
+
+    private void deleteAbandonedStaging() {
+        for (final Path dir : listDirectories(this.rootDir.resolve(TMP_DIR))) {
+            if (!dir.equals(this.tmpDir)) {
+                try {
+                    deleteTree(dir);
+                } catch (final IOException ioe) {
+                    log.warn("Unable to delete abandoned staging directory {}", dir, ioe);
+                }
+            }
+        }
+    }
+
+    private static String getTypeDir(final AdminResources type) {
+        switch (type) {
+            case APPLICATION:
+                return JobConstants.APPLICATION_PATH_VAR;
+            case COMMAND:
+                return JobConstants.COMMAND_PATH_VAR;
+            case CLUSTER:
+                return JobConstants.CLUSTER_PATH_VAR;
+            default:
+                throw new IllegalArgumentException("Unknown entity type " + type);
+        }
+    }
+
+    private String getKey(final String version, final Map<String, String> files) throws GenieException {
+        final Hasher hasher = Hashing.sha256().newHasher().putString(version, StandardCharsets.UTF_8);
+        for (final Map.Entry<String, String> file : new TreeMap<>(files).entrySet()) {
+            final String contentHash = this.fileTransferService.getContentHash(file.getValue());
+            if (contentHash == null) {
+                log.debug("Unable to tell which version {} is at. Staging a tree of its own", file.getValue());
+                return UUID.randomUUID().toString();
+            }
+            hasher
+                .putChar(SEPARATOR)
+                .putString(file.getKey(), StandardCharsets.UTF_8)
+                .putChar(SEPARATOR)
+                .putString(file.getValue(), StandardCharsets.UTF_8)
+                .putChar(SEPARATOR)
+                .putString(contentHash, StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static List<Path> listDirectories(final Path dir) {
+        final List<Path> dirs = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return dirs;
+        }
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            stream.forEach(dirs::add);
+        } catch (final IOException ioe) {
+            log.warn("Unable to list directory {}", dir, ioe);
+        }
+        return dirs;
+    }
+
+    private static long getLastModified(final Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (final IOException ioe) {
+            return 0L;
+        }
+    }
+
+    private static void makeContentsReadOnly(final Path dir) throws IOException {
+        Files.walkFileTree(
+            dir,
+            new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    if (!file.toFile().setReadOnly()) {
+                        log.warn("Unable to make staged file {} read only", file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(final Path directory, final IOException exc)
+                    throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    if (!directory.equals(dir) && !directory.toFile().setWritable(false, false)) {
+                        log.warn("Unable to make staged directory {} read only", directory);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            }
+        );
+    }
+
+    private static void deleteTree(final Path dir) throws IOException {
+        Files.walkFileTree(
+            dir,
+            new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attrs) {
+                    // The tree is read only once staged
+                    if (!directory.toFile().setWritable(true)) {
+                        log.warn("Unable to make directory {} writable to delete it", directory);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(final Path directory, final IOException exc)
+                    throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            }
+        );
+    }
+}
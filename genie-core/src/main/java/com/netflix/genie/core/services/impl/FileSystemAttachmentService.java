@@ -25,14 +25,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Implementation of the AttachmentService interface which saves and retrieves attachments from the local filesystem.
+ * <p>
+ * Unless configured otherwise attachments are kept next to the jobs directory so they're on the same file system
+ * and are moved into the job directory when the job is launched rather than copied.
  *
  * @author tgianos
  * @since 3.0.0
@@ -41,18 +50,29 @@ import java.io.InputStream;
 @Slf4j
 public class FileSystemAttachmentService implements AttachmentService {
 
-    private String attachmentsDirectory;
+    private final String attachmentsDirectory;
 
     /**
      * Constructor.
      *
-     * @param attachmentsDirectory The directory to use or null if want to default to system temp directory
+     * @param attachmentsDirectory The directory to use or null to default to the attachments directory next to the
+     *                             jobs directory
+     * @param jobsDir              The directory the jobs are run in
+     * @throws IOException If the jobs directory can't be resolved
      */
     @Autowired
     public FileSystemAttachmentService(
-        @Value("${genie.jobs.attachments.dir:#{null}}") final String attachmentsDirectory
-    ) {
-        this.attachmentsDirectory = attachmentsDirectory;
+        @Value("${genie.jobs.attachments.dir:#{null}}") final String attachmentsDirectory,
+        @NotNull final Resource jobsDir
+    ) throws IOException {
+        if (attachmentsDirectory != null) {
+            this.attachmentsDirectory = attachmentsDirectory;
+        } else {
+            final File jobsDirParent = jobsDir.getFile().getAbsoluteFile().getParentFile();
+            this.attachmentsDirectory = jobsDirParent == null
+                ? System.getProperty("java.io.tmpdir") + "/genie/attachments"
+                : new File(jobsDirParent, "attachments").getAbsolutePath();
+        }
     }
 
     /**
@@ -77,14 +97,44 @@ public class FileSystemAttachmentService implements AttachmentService {
      * {@inheritDoc}
      */
     @Override
-    public void copy(final String jobId, final File destination) throws GenieException {
+    public void save(
+        final String jobId,
+        final String filename,
+        final AttachmentContent content
+    ) throws GenieException {
+        final File attachment = new File(this.getAttachmentDirectory(), jobId + "/" + filename);
+        try {
+            FileUtils.forceMkdir(attachment.getParentFile());
+            content.transferTo(attachment);
+            log.info("Saved " + filename + " to " + attachment.getAbsolutePath());
+        } catch (final IOException ioe) {
+            throw new GenieServerException(ioe);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void move(final String jobId, final File destination) throws GenieException {
         if (destination.exists() && !destination.isDirectory()) {
             throw new GeniePreconditionException(destination + " is not a directory and it needs to be.");
         }
         final File source = new File(this.getAttachmentDirectory(), jobId);
         if (source.exists() && source.isDirectory()) {
             try {
-                FileUtils.copyDirectory(source, destination);
+                FileUtils.forceMkdir(destination);
+                try (final DirectoryStream<Path> attachments = Files.newDirectoryStream(source.toPath())) {
+                    for (final Path attachment : attachments) {
+                        // A rename on the same file system, a copy and delete otherwise
+                        Files.move(
+                            attachment,
+                            destination.toPath().resolve(attachment.getFileName()),
+                            StandardCopyOption.REPLACE_EXISTING
+                        );
+                    }
+                }
+                FileUtils.deleteDirectory(source);
             } catch (final IOException ioe) {
                 throw new GenieServerException(ioe);
             }
@@ -107,9 +157,6 @@ public class FileSystemAttachmentService implements AttachmentService {
     }
 
     private File getAttachmentDirectory() throws GenieException {
-        if (this.attachmentsDirectory == null) {
-            this.attachmentsDirectory = System.getProperty("java.io.tmpdir") + "/genie/attachments";
-        }
         final File dir = new File(this.attachmentsDirectory);
         if (dir.exists() && !dir.isDirectory()) {
             throw new GenieServerException(
@@ -0,0 +1,320 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.TransferPriority;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotNull;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules all the file transfers of a node so the ones jobs are waiting on to start aren't slowed down by archive
+ * uploads or cache warming.
+ * <p>
+ * At most maxConcurrent transfers run at once. A free slot goes to the highest priority class with a waiting transfer
+ * which is under its own concurrency limit. Each class can also be limited to a number of bytes per second. Every
+ * transfer of a limited class reserves its own start time, spaced after the previous reservation by the time its
+ * expected size takes at that rate, so concurrent transfers can't start together and exceed the limit between them.
+ * Transfers of unknown size are expected to be as big as the recent transfers of their class and the difference to
+ * their actual size is made up when they finish. Until the first transfer of a class finishes nothing is known about
+ * its sizes, so the first transfers of each slot may start together.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class FileTransferScheduler {
+
+    private static final String QUEUE_TIMER_NAME = "genie.files.transfers.queue.timer";
+    private static final String TRANSFER_TIMER_NAME = "genie.files.transfers.timer";
+    private static final String BYTES_RATE_NAME = "genie.files.transfers.bytes.rate";
+    private static final String PRIORITY_TAG = "priority";
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition slotFreed = this.lock.newCondition();
+    private final Map<TransferPriority, TransferClass> classes = new EnumMap<>(TransferPriority.class);
+    private final int maxConcurrent;
+    private int numActive;
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrent       The maximum number of transfers running at once on this node. 0 for no limit
+     * @param maxConcurrentLimits The maximum number of transfers of each class running at once. Missing or 0 for no
+     *                            limit
+     * @param maxBytesPerSecond   The maximum bytes per second transferred by each class. Missing or 0 for no limit
+     * @param registry            The metrics registry to use
+     */
+    public FileTransferScheduler(
+        final int maxConcurrent,
+        @NotNull final Map<TransferPriority, Integer> maxConcurrentLimits,
+        @NotNull final Map<TransferPriority, Long> maxBytesPerSecond,
+        @NotNull final Registry registry
+    ) {
+        this.maxConcurrent = toLimit(maxConcurrent);
+        for (final TransferPriority priority : TransferPriority.values()) {
+            final String tag = priority.name().toLowerCase();
+            this.classes.put(
+                priority,
+                new TransferClass(
+                    priority,
+                    toLimit(maxConcurrentLimits.getOrDefault(priority, 0)),
+                    maxBytesPerSecond.getOrDefault(priority, 0L),
+                    registry.timer(registry.createId(QUEUE_TIMER_NAME).withTag(PRIORITY_TAG, tag)),
+                    registry.timer(registry.createId(TRANSFER_TIMER_NAME).withTag(PRIORITY_TAG, tag)),
+                    registry.counter(registry.createId(BYTES_RATE_NAME).withTag(PRIORITY_TAG, tag))
+                )
+            );
+        }
+    }
+
+    /**
+     * Wait for a slot to run a transfer of the given class in. The slot must be released once the transfer is done.
+     *
+     * @param priority The class of the transfer
+     * @return The slot the transfer runs in
+     * @throws GenieException If the thread is interrupted while waiting
+     */
+    public Slot acquire(@NotNull final TransferPriority priority) throws GenieException {
+        return this.acquire(priority, 0L);
+    }
+
+    /**
+     * Wait for a slot to run a transfer of the given class and size in. The slot must be released once the transfer
+     * is done.
+     *
+     * @param priority      The class of the transfer
+     * @param expectedBytes The number of bytes the transfer is expected to move. 0 or less if unknown
+     * @return The slot the transfer runs in
+     * @throws GenieException If the thread is interrupted while waiting
+     */
+    public Slot acquire(@NotNull final TransferPriority priority, final long expectedBytes) throws GenieException {
+        final TransferClass transferClass = this.classes.get(priority);
+        final long queued = System.nanoTime();
+        final long reserved;
+        try {
+            reserved = transferClass.pace(expectedBytes);
+            this.lock.lock();
+            try {
+                transferClass.numWaiting++;
+                try {
+                    while (!this.canStart(transferClass)) {
+                        this.slotFreed.await();
+                    }
+                } finally {
+                    transferClass.numWaiting--;
+                }
+                transferClass.numActive++;
+                this.numActive++;
+            } finally {
+                this.lock.unlock();
+            }
+        } catch (final InterruptedException ie) {
+            this.signal();
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted waiting to transfer a file", ie);
+        }
+        final long started = System.nanoTime();
+        transferClass.queueTimer.record(started - queued, TimeUnit.NANOSECONDS);
+        return new Slot(transferClass, started, reserved);
+    }
+
+    /**
+     * Get the number of transfers of a class waiting for a slot.
+     *
+     * @param priority The class of the transfers
+     * @return The number of waiting transfers
+     */
+    int getNumWaiting(final TransferPriority priority) {
+        this.lock.lock();
+        try {
+            return this.classes.get(priority).numWaiting;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean canStart(final TransferClass transferClass) {
+        if (this.numActive >= this.maxConcurrent || transferClass.numActive >= transferClass.maxConcurrent) {
+            return false;
+        }
+        for (final TransferClass other : this.classes.values()) {
+            if (other.priority.compareTo(transferClass.priority) >= 0) {
+                return true;
+            }
+            if (other.numWaiting > 0 && other.numActive < other.maxConcurrent) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release(final TransferClass transferClass) {
+        this.lock.lock();
+        try {
+            transferClass.numActive--;
+            this.numActive--;
+            this.slotFreed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void signal() {
+        this.lock.lock();
+        try {
+            this.slotFreed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static int toLimit(final int limit) {
+        return limit > 0 ? limit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * A slot a single transfer runs in.
+     *
+     * @author tgianos
+     * @since 3.0.0
+     */
+    public final class Slot {
+
+        private final TransferClass transferClass;
+        private final long started;
+        private final long reserved;
+        private boolean released;
+
+        private Slot(final TransferClass transferClass, final long started, final long reserved) {
+            this.transferClass = transferClass;
+            this.started = started;
+            this.reserved = reserved;
+        }
+
+        /**
+         * Free the slot for the next transfer once this one is done. Only the first call has any effect.
+         *
+         * @param bytes The number of bytes transferred
+         */
+        public void release(final long bytes) {
+            if (this.released) {
+                return;
+            }
+            this.released = true;
+            FileTransferScheduler.this.release(this.transferClass);
+            this.transferClass.transferTimer.record(System.nanoTime() - this.started, TimeUnit.NANOSECONDS);
+            if (bytes > 0) {
+                this.transferClass.bytesRate.increment(bytes);
+            }
+            this.transferClass.charge(Math.max(bytes, 0L), this.reserved);
+        }
+    }
+
+    /**
+     * The limits and state of the transfers of one priority.
+     */
+    private static final class TransferClass {
+
+        private final TransferPriority priority;
+        private final int maxConcurrent;
+        private final long maxBytesPerSecond;
+        private final Timer queueTimer;
+        private final Timer transferTimer;
+        private final Counter bytesRate;
+        // Guarded by the lock of the scheduler
+        private int numActive;
+        private int numWaiting;
+        // Guarded by this
+        private long nextStart = System.nanoTime();
+        private long averageBytes;
+
+        private TransferClass(
+            final TransferPriority priority,
+            final int maxConcurrent,
+            final long maxBytesPerSecond,
+            final Timer queueTimer,
+            final Timer transferTimer,
+            final Counter bytesRate
+        ) {
+            this.priority = priority;
+            this.maxConcurrent = maxConcurrent;
+            this.maxBytesPerSecond = maxBytesPerSecond;
+            this.queueTimer = queueTimer;
+            this.transferTimer = transferTimer;
+            this.bytesRate = bytesRate;
+        }
+
+        private long pace(final long expectedBytes) throws InterruptedException {
+            if (this.maxBytesPerSecond <= 0) {
+                return 0L;
+            }
+            final long reserved;
+            final long wait;
+            synchronized (this) {
+                reserved = expectedBytes > 0 ? expectedBytes : this.averageBytes;
+                final long now = System.nanoTime();
+                final long start = this.nextStart - now > 0 ? this.nextStart : now;
+                this.nextStart = start + this.toNanos(reserved);
+                wait = start - now;
+            }
+            if (wait > 0) {
+                log.debug("Delaying {} transfer by {} ms to stay under {} bytes per second",
+                    this.priority, TimeUnit.NANOSECONDS.toMillis(wait), this.maxBytesPerSecond);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (final InterruptedException ie) {
+                    // Give the time reserved for the transfer back as it will never run
+                    this.charge(0L, reserved);
+                    throw ie;
+                }
+            }
+            return reserved;
+        }
+
+        private synchronized void charge(final long bytes, final long reserved) {
+            if (this.maxBytesPerSecond <= 0) {
+                return;
+            }
+            final long now = System.nanoTime();
+            if (this.nextStart - now < 0) {
+                this.nextStart = now;
+            }
+            // The expected size was already charged when the transfer started so only the difference is left
+            this.nextStart += this.toNanos(bytes - reserved);
+            if (bytes > 0) {
+                this.averageBytes = this.averageBytes == 0 ? bytes : (this.averageBytes * 3 + bytes) / 4;
+            }
+        }
+
+        private long toNanos(final long bytes) {
+            return (long) ((double) bytes / this.maxBytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
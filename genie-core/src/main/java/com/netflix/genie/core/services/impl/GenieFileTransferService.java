@@ -20,15 +20,18 @@ package com.netflix.genie.core.services.impl;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.TransferPriority;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.validation.constraints.NotNull;
+import java.io.File;
 import java.util.List;
 
 /**
  * This class abstracts away all the implementations of FileTransfer interface. It iterates through a list of
- * available implementations and tries to perform the file transfer operations.
+ * available implementations and tries to perform the file transfer operations. Every transfer waits for a slot from
+ * the node wide transfer scheduler first.
  *
  * @author amsharma
  * @since 3.0.0
@@ -37,22 +40,27 @@ import java.util.List;
 public class GenieFileTransferService {
 
     private final List<FileTransfer> fileTransferList;
+    private final FileTransferScheduler scheduler;
 
     /**
      * Constructor.
      *
      * @param fileTransferImpls List of implementations of all fileTransfer interface
+     * @param scheduler         The scheduler all the transfers of this node go through
      * @throws GenieException If there is any problem
      */
     public GenieFileTransferService(
         @NotNull
-        final List<FileTransfer> fileTransferImpls
+        final List<FileTransfer> fileTransferImpls,
+        @NotNull
+        final FileTransferScheduler scheduler
     ) throws GenieException {
         this.fileTransferList = fileTransferImpls;
+        this.scheduler = scheduler;
     }
 
     /**
-     * Get the file needed by Genie for job execution.
+     * Get the file needed by Genie for job execution. The transfer is launch critical.
      *
      * @param srcRemotePath Path of the file in the remote location to be fetched
      * @param dstLocalPath  Local path where the file needs to be placed
@@ -64,11 +72,35 @@ public class GenieFileTransferService {
         @NotBlank(message = "Destination local path cannot be empty")
         final String dstLocalPath
     ) throws GenieException {
-        log.debug("Called with src path {} and destination path {}", srcRemotePath, dstLocalPath);
+        this.getFile(srcRemotePath, dstLocalPath, TransferPriority.LAUNCH);
+    }
+
+    /**
+     * Get a file with the given priority.
+     *
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @param dstLocalPath  Local path where the file needs to be placed
+     * @param priority      The class the transfer is scheduled in
+     * @throws GenieException If there is any problem
+     */
+    public void getFile(
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath,
+        @NotNull
+        final TransferPriority priority
+    ) throws GenieException {
+        log.debug("Called with src {}, destination {} and priority {}", srcRemotePath, dstLocalPath, priority);
 
         for (FileTransfer ft : fileTransferList) {
             if (ft.isValid(srcRemotePath)) {
-                ft.getFile(srcRemotePath, dstLocalPath);
+                final FileTransferScheduler.Slot slot = this.scheduler.acquire(priority);
+                try {
+                    ft.getFile(srcRemotePath, dstLocalPath);
+                } finally {
+                    slot.release(getSize(dstLocalPath));
+                }
                 return;
             }
         }
@@ -78,7 +110,7 @@ public class GenieFileTransferService {
     }
 
     /**
-     * Put the file provided by Genie.
+     * Put the file provided by Genie. The transfer is scheduled as an archive upload.
      *
      * @param srcLocalPath  The local path of the file which has to be transfered to remote location
      * @param dstRemotePath The remote destination path where the file has to be put
@@ -90,11 +122,35 @@ public class GenieFileTransferService {
         @NotBlank(message = "Destination remote path cannot be empty")
         final String dstRemotePath
     ) throws GenieException {
-        log.debug("Called with src path {} and destination path {}", srcLocalPath, dstRemotePath);
+        this.putFile(srcLocalPath, dstRemotePath, TransferPriority.ARCHIVE);
+    }
+
+    /**
+     * Put a file with the given priority.
+     *
+     * @param srcLocalPath  The local path of the file which has to be transfered to remote location
+     * @param dstRemotePath The remote destination path where the file has to be put
+     * @param priority      The class the transfer is scheduled in
+     * @throws GenieException If there is any problem
+     */
+    public void putFile(
+        @NotBlank(message = "Source local path cannot be empty.")
+        final String srcLocalPath,
+        @NotBlank(message = "Destination remote path cannot be empty")
+        final String dstRemotePath,
+        @NotNull
+        final TransferPriority priority
+    ) throws GenieException {
+        log.debug("Called with src {}, destination {} and priority {}", srcLocalPath, dstRemotePath, priority);
 
         for (FileTransfer ft : fileTransferList) {
             if (ft.isValid(dstRemotePath)) {
-                ft.putFile(srcLocalPath, dstRemotePath);
+                final FileTransferScheduler.Slot slot = this.scheduler.acquire(priority, getSize(srcLocalPath));
+                try {
+                    ft.putFile(srcLocalPath, dstRemotePath);
+                } finally {
+                    slot.release(getSize(srcLocalPath));
+                }
                 return;
             }
         }
@@ -102,4 +158,32 @@ public class GenieFileTransferService {
         throw new GenieNotFoundException("Could not find the appropriate FileTransfer implementation to get file"
             + dstRemotePath);
     }
+
+    /**
+     * Get a hash of the content of a file used by Genie.
+     *
+     * @param remotePath The path of the file
+     * @return A value which changes whenever the content of the file changes or null if it can't be told
+     * @throws GenieException If there is any problem
+     */
+    public String getContentHash(
+        @NotBlank(message = "Path cannot be empty.")
+        final String remotePath
+    ) throws GenieException {
+        log.debug("Called with path {}", remotePath);
+
+        for (FileTransfer ft : fileTransferList) {
+            if (ft.isValid(remotePath)) {
+                return ft.getContentHash(remotePath);
+            }
+        }
+
+        throw new GenieNotFoundException("Could not find the appropriate FileTransfer implementation to hash file"
+            + remotePath);
+    }
+
+    private static long getSize(final String localPath) {
+        final File file = new File(localPath);
+        return file.isFile() ? file.length() : 0L;
+    }
 }
@@ -0,0 +1,302 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * An implementation of the FileTransfer interface in which the remote locations are http:// or https:// URLs, e.g.
+ * an artifact repository.
+ * <p>
+ * Downloads are streamed to a temporary file next to the destination and moved into place once complete. The ETag
+ * and Last-Modified of each URL downloaded to each local path are kept. When the destination still holds the copy of
+ * the same URL the request is conditional on them, and the copy is kept when the server answers it hasn't changed.
+ * A destination holding anything else, e.g. a copy of another URL or a file changed since, is always downloaded again.
+ * All transfers share the connection pool of the client.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class HttpFileTransferImpl implements FileTransfer {
+
+    private static final Pattern HTTP_PATH_PATTERN = Pattern.compile("^https?://.+$", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_DOWNLOADS = 10000;
+
+    private final CloseableHttpClient httpClient;
+    // The last copy of each URL downloaded to each local path
+    private final Cache<String, Download> downloads = CacheBuilder.newBuilder().maximumSize(MAX_DOWNLOADS).build();
+    private final Counter downloadRate;
+    private final Counter notModifiedRate;
+
+    /**
+     * Constructor.
+     *
+     * @param httpClient The client to make the requests with. Closed when this is shut down
+     * @param registry   The metrics registry to use
+     */
+    public HttpFileTransferImpl(@NotNull final CloseableHttpClient httpClient, @NotNull final Registry registry) {
+        this.httpClient = httpClient;
+        this.downloadRate = registry.counter("genie.files.http.download.rate");
+        this.notModifiedRate = registry.counter("genie.files.http.notModified.rate");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValid(
+        @NotBlank(message = "Filename cannot be blank")
+        final String fileName
+    ) throws GenieException {
+        log.debug("Called with file name {}", fileName);
+        return HTTP_PATH_PATTERN.matcher(fileName).matches();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getFile(
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath
+    ) throws GenieException {
+        log.debug("Called with src path {} and destination path {}", srcRemotePath, dstLocalPath);
+
+        final Path dst = Paths.get(dstLocalPath);
+        final String downloadKey = srcRemotePath + '\0' + dst.toAbsolutePath();
+        final HttpGet get = new HttpGet(srcRemotePath);
+        final boolean conditional = this.setConditionalHeaders(get, downloadKey, dst);
+
+        try (final CloseableHttpResponse response = this.httpClient.execute(get)) {
+            final int status = response.getStatusLine().getStatusCode();
+            if (conditional && status == HttpStatus.SC_NOT_MODIFIED) {
+                log.debug("{} hasn't changed since it was downloaded to {}", srcRemotePath, dst);
+                this.notModifiedRate.increment();
+                return;
+            }
+            checkStatus(srcRemotePath, status, HttpStatus.SC_OK);
+
+            final HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new GenieServerException("No content returned for " + srcRemotePath);
+            }
+            final Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            final Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+            final Path tmp = dst.resolveSibling("." + dst.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try (final InputStream content = entity.getContent()) {
+                Files.copy(content, tmp);
+                final Date modified = lastModified == null ? null : DateUtils.parseDate(lastModified.getValue());
+                if (modified != null) {
+                    Files.setLastModifiedTime(tmp, FileTime.fromMillis(modified.getTime()));
+                }
+                // The copy at the destination is replaced, whatever was known about it no longer holds
+                this.downloads.invalidate(downloadKey);
+                Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            if (etag != null || lastModified != null) {
+                final BasicFileAttributes attributes = Files.readAttributes(dst, BasicFileAttributes.class);
+                this.downloads.put(
+                    downloadKey,
+                    new Download(
+                        etag == null ? null : etag.getValue(),
+                        lastModified == null ? null : lastModified.getValue(),
+                        attributes.size(),
+                        attributes.lastModifiedTime().toMillis()
+                    )
+                );
+            }
+            this.downloadRate.increment();
+        } catch (final IOException ioe) {
+            log.error("Error downloading {} to {}", srcRemotePath, dstLocalPath, ioe);
+            throw new GenieServerException("Error downloading file " + srcRemotePath, ioe);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putFile(
+        @NotBlank(message = "Source local path cannot be empty.")
+        final String srcLocalPath,
+        @NotBlank(message = "Destination remote path cannot be empty")
+        final String dstRemotePath
+    ) throws GenieException {
+        log.debug("Called with src path {} and destination path {}", srcLocalPath, dstRemotePath);
+
+        final HttpPut put = new HttpPut(dstRemotePath);
+        put.setEntity(new FileEntity(Paths.get(srcLocalPath).toFile(), ContentType.APPLICATION_OCTET_STREAM));
+        try (final CloseableHttpResponse response = this.httpClient.execute(put)) {
+            final int status = response.getStatusLine().getStatusCode();
+            if (status < HttpStatus.SC_OK || status >= HttpStatus.SC_MULTIPLE_CHOICES) {
+                throw new GenieServerException("Unexpected status " + status + " uploading to " + dstRemotePath);
+            }
+        } catch (final IOException ioe) {
+            log.error("Error uploading {} to {}", srcLocalPath, dstRemotePath, ioe);
+            throw new GenieServerException("Error uploading file to " + dstRemotePath, ioe);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The ETag of the file if the server sends one, its Last-Modified and Content-Length otherwise. A server sending
+     * neither gives no way to tell whether the file changed so null is returned.
+     */
+    @Override
+    public String getContentHash(
+        @NotBlank(message = "Path cannot be empty.")
+        final String remotePath
+    ) throws GenieException {
+        log.debug("Called with path {}", remotePath);
+
+        try (final CloseableHttpResponse response = this.httpClient.execute(new HttpHead(remotePath))) {
+            checkStatus(remotePath, response.getStatusLine().getStatusCode(), HttpStatus.SC_OK);
+            final Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            if (etag != null) {
+                return etag.getValue();
+            }
+            final Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+            if (lastModified != null) {
+                final Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+                return lastModified.getValue() + "/" + (contentLength == null ? "" : contentLength.getValue());
+            }
+            log.debug("No validator returned for {}. Unable to tell whether it changed", remotePath);
+            return null;
+        } catch (final IOException ioe) {
+            log.error("Error getting the headers of {}", remotePath, ioe);
+            throw new GenieServerException("Error getting the headers of file " + remotePath, ioe);
+        }
+    }
+
+    /**
+     * Close the client and its connection pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            this.httpClient.close();
+        } catch (final IOException ioe) {
+            log.error("Unable to close the HTTP client", ioe);
+        }
+    }
+
+    /**
+     * Make the request conditional on the ETag and Last-Modified of the copy of the URL last downloaded to the
+     * destination if the destination still holds that copy.
+     *
+     * @param get         The request for the file
+     * @param downloadKey The key of the URL and destination in the downloads
+     * @param dst         The destination of the file
+     * @return Whether the request is conditional
+     */
+    private boolean setConditionalHeaders(final HttpGet get, final String downloadKey, final Path dst) {
+        final Download download = this.downloads.getIfPresent(downloadKey);
+        if (download == null) {
+            return false;
+        }
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(dst, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()
+                || attributes.size() != download.size
+                || attributes.lastModifiedTime().toMillis() != download.modified) {
+                log.debug("{} changed since it was downloaded. Not making the request conditional", dst);
+                return false;
+            }
+        } catch (final IOException ioe) {
+            log.debug("Unable to read the attributes of {}. Not making the request conditional", dst, ioe);
+            return false;
+        }
+
+        if (download.etag != null) {
+            get.setHeader(HttpHeaders.IF_NONE_MATCH, download.etag);
+        }
+        if (download.lastModified != null) {
+            get.setHeader(HttpHeaders.IF_MODIFIED_SINCE, download.lastModified);
+        }
+        return true;
+    }
+
+    private static void checkStatus(final String url, final int status, final int expected) throws GenieException {
+        if (status == HttpStatus.SC_NOT_FOUND) {
+            throw new GenieNotFoundException("File " + url + " doesn't exist");
+        }
+        if (status != expected) {
+            throw new GenieServerException("Unexpected status " + status + " for " + url);
+        }
+    }
+
+    /**
+     * The validators the server sent for a copy of a URL and the size and modification time of the local file the
+     * copy was written to.
+     */
+    private static final class Download {
+        private final String etag;
+        private final String lastModified;
+        private final long size;
+        private final long modified;
+
+        Download(final String etag, final String lastModified, final long size, final long modified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.genie.core.jobs.JobStaging;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.genie.core.util.InstrumentedThreadPoolExecutor;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Creates the staging of the files for each job launched on this node. All jobs share a bounded I/O pool so the
+ * number of files fetched at once across the node is capped by its size. When the queue of the pool is full the
+ * thread handing it more work fetches the file itself, slowing down the setup of new jobs until the pool catches up.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class JobStagingService {
+
+    private final DependencyCacheService dependencyCacheService;
+    private final StagedEnvironmentService stagedEnvironmentService;
+    private final JobTimelineService jobTimelineService;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final int maxConcurrentFilesPerJob;
+    private final long timeout;
+    private final Timer fileTimer;
+    private final Counter fileFailureCounter;
+    private final Timer jobTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param dependencyCacheService    The service used to fetch the files through the cache of the node
+     * @param stagedEnvironmentService  The service to link the shared trees of entities with. Null to not share them
+     * @param jobTimelineService        The service to record each transfer in the launch timeline of its job with
+     * @param maxConcurrentFilesPerNode The maximum number of files to fetch at once across all jobs on this node
+     * @param queueCapacity             The maximum number of files waiting for a thread of the I/O pool
+     * @param maxConcurrentFilesPerJob  The maximum number of files to fetch at once for a single job
+     * @param timeout                   How long, in milliseconds, to wait for the files of a job to be staged
+     * @param registry                  The metrics registry to use
+     */
+    public JobStagingService(
+        @NotNull final DependencyCacheService dependencyCacheService,
+        final StagedEnvironmentService stagedEnvironmentService,
+        @NotNull final JobTimelineService jobTimelineService,
+        final int maxConcurrentFilesPerNode,
+        final int queueCapacity,
+        final int maxConcurrentFilesPerJob,
+        final long timeout,
+        @NotNull final Registry registry
+    ) {
+        this.dependencyCacheService = dependencyCacheService;
+        this.stagedEnvironmentService = stagedEnvironmentService;
+        this.jobTimelineService = jobTimelineService;
+        this.executor = new InstrumentedThreadPoolExecutor(
+            "genie.jobs.launch.staging",
+            maxConcurrentFilesPerNode,
+            queueCapacity,
+            new ThreadPoolExecutor.CallerRunsPolicy(),
+            registry
+        );
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("genie-jobs-launch-staging-timeout-%d").setDaemon(true).build()
+        );
+        this.maxConcurrentFilesPerJob = maxConcurrentFilesPerJob;
+        this.timeout = timeout;
+        this.fileTimer = registry.timer("genie.jobs.staging.file.timer");
+        this.fileFailureCounter = registry.counter("genie.jobs.staging.file.failure.rate");
+        this.jobTimer = registry.timer("genie.jobs.staging.timer");
+    }
+
+    /**
+     * Start staging the files for a job.
+     *
+     * @param jobId The id of the job
+     * @return The staging to register the files of the job with
+     */
+    public JobStaging newJobStaging(@NotBlank final String jobId) {
+        return new JobStaging(
+            jobId,
+            this.dependencyCacheService,
+            this.stagedEnvironmentService,
+            this.jobTimelineService,
+            this.executor,
+            this.scheduler,
+            this.maxConcurrentFilesPerJob,
+            this.timeout,
+            this.fileTimer,
+            this.fileFailureCounter,
+            this.jobTimer
+        );
+    }
+
+    /**
+     * Stop the I/O pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down the job staging pool");
+        this.executor.shutdownNow();
+        this.scheduler.shutdownNow();
+    }
+}
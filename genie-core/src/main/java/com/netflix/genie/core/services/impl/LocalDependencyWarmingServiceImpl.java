@@ -0,0 +1,377 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.ConfigDTO;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.DependencyWarmingService;
+import com.netflix.genie.core.util.InstrumentedThreadPoolExecutor;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Warms the dependency cache of this node on a single background thread.
+ * <p>
+ * The files of all UP clusters and ACTIVE commands and applications are warmed once the application has started.
+ * Each entity created or updated through this node is warmed again once the change is committed. Downloads are
+ * scheduled at the warm priority so they only use transfer slots launching jobs don't need. Each warming stops
+ * downloading once it has downloaded its byte budget. As the size of a file is only known once it's downloaded the
+ * budget can be exceeded by the last file. Files left over are only checked for being cached already.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class LocalDependencyWarmingServiceImpl implements DependencyWarmingService {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final String ALL = "all";
+
+    private final ClusterService clusterService;
+    private final CommandService commandService;
+    private final ApplicationService applicationService;
+    private final DependencyCacheService dependencyCacheService;
+    private final long budget;
+    private final ExecutorService executor;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    // The entities waiting to be warmed, so a burst of changes to one entity warms it once
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Whether each cacheable file of each UP or ACTIVE entity was in the cache when the entity was last warmed
+    private final ConcurrentMap<String, Map<String, Boolean>> coverage = new ConcurrentHashMap<>();
+    private final AtomicLong warmedBytes = new AtomicLong();
+    private final Counter bytesCounter;
+    private final Counter failureRate;
+    private final Timer warmTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param clusterService         The service to find the clusters to warm with
+     * @param commandService         The service to find the commands to warm with
+     * @param applicationService     The service to find the applications to warm with
+     * @param dependencyCacheService The cache to warm
+     * @param budget                 The maximum number of bytes each warming downloads. 0 to only check the cache
+     * @param registry               The metrics registry to use
+     */
+    public LocalDependencyWarmingServiceImpl(
+        @NotNull final ClusterService clusterService,
+        @NotNull final CommandService commandService,
+        @NotNull final ApplicationService applicationService,
+        @NotNull final DependencyCacheService dependencyCacheService,
+        final long budget,
+        @NotNull final Registry registry
+    ) {
+        this.clusterService = clusterService;
+        this.commandService = commandService;
+        this.applicationService = applicationService;
+        this.dependencyCacheService = dependencyCacheService;
+        this.budget = budget;
+        this.executor = new InstrumentedThreadPoolExecutor(
+            "genie.jobs.dependencies.warm",
+            1,
+            QUEUE_CAPACITY,
+            new ThreadPoolExecutor.AbortPolicy(),
+            registry
+        );
+
+        this.bytesCounter = registry.counter("genie.jobs.dependencies.warm.bytes");
+        this.failureRate = registry.counter("genie.jobs.dependencies.warm.failure.rate");
+        this.warmTimer = registry.timer("genie.jobs.dependencies.warm.timer");
+        registry.methodValue("genie.jobs.dependencies.warm.files.gauge", this, "getNumFiles");
+        registry.methodValue("genie.jobs.dependencies.warm.warmFiles.gauge", this, "getNumWarmFiles");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void warmAll() {
+        final long start = System.nanoTime();
+        final AtomicLong remaining = new AtomicLong(this.budget);
+        final Set<String> warmed = new HashSet<>();
+        try {
+            for (final Cluster cluster : this.getAll(
+                page -> this.clusterService.getClusters(null, Sets.newHashSet(ClusterStatus.UP), null, null, null, page)
+            )) {
+                this.warmEntity(ConfigEntityType.CLUSTER, cluster.getId(), this.getFiles(cluster), remaining);
+                warmed.add(getKey(ConfigEntityType.CLUSTER, cluster.getId()));
+            }
+            for (final Command command : this.getAll(
+                page -> this.commandService.getCommands(null, null, Sets.newHashSet(CommandStatus.ACTIVE), null, page)
+            )) {
+                this.warmEntity(ConfigEntityType.COMMAND, command.getId(), this.getFiles(command), remaining);
+                warmed.add(getKey(ConfigEntityType.COMMAND, command.getId()));
+            }
+            for (final Application application : this.getAll(
+                page -> this.applicationService.getApplications(
+                    null,
+                    null,
+                    Sets.newHashSet(ApplicationStatus.ACTIVE),
+                    null,
+                    null,
+                    page
+                )
+            )) {
+                final Set<String> files = this.getFiles(application);
+                files.addAll(application.getDependencies());
+                this.warmEntity(ConfigEntityType.APPLICATION, application.getId(), files, remaining);
+                warmed.add(getKey(ConfigEntityType.APPLICATION, application.getId()));
+            }
+
+            // Entities which are no longer UP or ACTIVE
+            this.coverage.keySet().retainAll(warmed);
+            log.info(
+                "Warmed the dependency cache with {} of {} files of {} entities",
+                this.getNumWarmFiles(),
+                this.getNumFiles(),
+                warmed.size()
+            );
+        } catch (final RuntimeException re) {
+            log.error("Unable to warm the dependency cache", re);
+            this.failureRate.increment();
+        } finally {
+            this.warmTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void warm(@NotNull final ConfigEntityType type, @NotBlank final String id) {
+        final long start = System.nanoTime();
+        try {
+            final Set<String> files;
+            switch (type) {
+                case CLUSTER:
+                    final Cluster cluster = this.clusterService.getCluster(id);
+                    files = cluster.getStatus() == ClusterStatus.UP ? this.getFiles(cluster) : null;
+                    break;
+                case COMMAND:
+                    final Command command = this.commandService.getCommand(id);
+                    files = command.getStatus() == CommandStatus.ACTIVE ? this.getFiles(command) : null;
+                    break;
+                case APPLICATION:
+                    final Application application = this.applicationService.getApplication(id);
+                    if (application.getStatus() == ApplicationStatus.ACTIVE) {
+                        files = this.getFiles(application);
+                        files.addAll(application.getDependencies());
+                    } else {
+                        files = null;
+                    }
+                    break;
+                default:
+                    log.warn("Unknown configuration type {}. Ignoring.", type);
+                    return;
+            }
+
+            if (files == null) {
+                this.coverage.remove(getKey(type, id));
+            } else {
+                this.warmEntity(type, id, files, new AtomicLong(this.budget));
+            }
+        } catch (final GenieNotFoundException gnfe) {
+            // Deleted
+            this.coverage.remove(getKey(type, id));
+        } catch (final GenieException | RuntimeException e) {
+            log.error("Unable to warm the dependency cache with the files of {} {}", type, id, e);
+            this.failureRate.increment();
+        } finally {
+            this.warmTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumFiles() {
+        return this.coverage.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumWarmFiles() {
+        return (int) this.coverage
+            .values()
+            .stream()
+            .flatMap(files -> files.values().stream())
+            .filter(Boolean::booleanValue)
+            .count();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWarmedBytes() {
+        return this.warmedBytes.get();
+    }
+
+    /**
+     * Warm all the entities once the application is started.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        if (this.started.compareAndSet(false, true)) {
+            this.submit(ALL, this::warmAll);
+        }
+    }
+
+    /**
+     * Warm the entity which changed once the change has been committed.
+     *
+     * @param event The config changed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfigChanged(final ConfigChangedEvent event) {
+        if (event.getId() == null) {
+            this.submit(ALL, this::warmAll);
+        } else {
+            this.submit(getKey(event.getType(), event.getId()), () -> this.warm(event.getType(), event.getId()));
+        }
+    }
+
+    /**
+     * Stop warming when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void submit(final String key, final Runnable warming) {
+        if (!this.pending.add(key)) {
+            return;
+        }
+        try {
+            this.executor.execute(
+                () -> {
+                    this.pending.remove(key);
+                    warming.run();
+                }
+            );
+        } catch (final RejectedExecutionException ree) {
+            this.pending.remove(key);
+            log.warn("Too many warmings queued. Not warming {}", key);
+        }
+    }
+
+    private void warmEntity(
+        final ConfigEntityType type,
+        final String id,
+        final Set<String> files,
+        final AtomicLong remaining
+    ) {
+        final ImmutableMap.Builder<String, Boolean> warm = ImmutableMap.builder();
+        for (final String file : files) {
+            if (!this.dependencyCacheService.isCacheable(file)) {
+                continue;
+            }
+            try {
+                if (remaining.get() > 0) {
+                    final long bytes = this.dependencyCacheService.warm(file);
+                    remaining.addAndGet(-bytes);
+                    this.warmedBytes.addAndGet(bytes);
+                    this.bytesCounter.increment(bytes);
+                    warm.put(file, true);
+                } else {
+                    warm.put(file, this.dependencyCacheService.isCached(file));
+                }
+            } catch (final GenieException ge) {
+                log.warn("Unable to warm {} of {} {}", file, type, id, ge);
+                this.failureRate.increment();
+                warm.put(file, false);
+            }
+        }
+        this.coverage.put(getKey(type, id), warm.build());
+    }
+
+    private Set<String> getFiles(final ConfigDTO entity) {
+        final Set<String> files = new LinkedHashSet<>();
+        if (entity.getSetupFile() != null) {
+            files.add(entity.getSetupFile());
+        }
+        files.addAll(entity.getConfigs());
+        return files;
+    }
+
+    private <T> List<T> getAll(final Function<Pageable, Page<T>> finder) {
+        final List<T> all = new ArrayList<>();
+        Page<T> page = finder.apply(new PageRequest(0, PAGE_SIZE, Sort.Direction.ASC, "id"));
+        all.addAll(page.getContent());
+        while (page.hasNext()) {
+            page = finder.apply(page.nextPageable());
+            all.addAll(page.getContent());
+        }
+        return all;
+    }
+
+    private static String getKey(final ConfigEntityType type, final String id) {
+        return type.name() + "/" + id;
+    }
+}
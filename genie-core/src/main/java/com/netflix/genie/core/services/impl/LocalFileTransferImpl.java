@@ -17,18 +17,38 @@
  */
 package com.netflix.genie.core.services.impl;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.services.FileTransfer;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.validator.constraints.NotBlank;
 
-import java.io.File;
+import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * An implementation of the FileTransferService interface in which the remote locations are on local unix filesystem.
+ * <p>
+ * Files are copied with FileChannel.transferTo so the kernel moves the bytes without them passing through the JVM.
+ * Files under one of the link prefixes, e.g. a read only repository of artifacts on the node or on NFS, are hard
+ * linked instead when they are on the same file system as the destination. Directories are transferred recursively
+ * and an existing destination is replaced.
  *
  * @author amsharma
  * @since 3.0.0
@@ -36,6 +56,26 @@ import java.nio.file.Files;
 @Slf4j
 public class LocalFileTransferImpl implements FileTransfer {
 
+    private final List<Path> linkPrefixes;
+
+    /**
+     * Constructor. Every file is copied.
+     */
+    public LocalFileTransferImpl() {
+        this(ImmutableList.of());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param linkPrefixes The directories whose files are hard linked rather than copied when fetched
+     */
+    public LocalFileTransferImpl(@NotNull final List<String> linkPrefixes) {
+        this.linkPrefixes = ImmutableList.copyOf(
+            linkPrefixes.stream().map(LocalFileTransferImpl::normalize).collect(Collectors.toList())
+        );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -60,9 +100,10 @@ public class LocalFileTransferImpl implements FileTransfer {
     ) throws GenieException {
         log.debug("Called with src path {} and destination path {}", srcRemotePath, dstLocalPath);
         try {
-            final File src = new File(srcRemotePath);
-            final File dest = new File(dstLocalPath);
-            Files.copy(src.toPath(), dest.toPath());
+            // Only whole path components match, /data/repo doesn't cover /data/repo-scratch
+            final Path src = normalize(srcRemotePath);
+            final boolean link = this.linkPrefixes.stream().anyMatch(src::startsWith);
+            this.transfer(Paths.get(srcRemotePath), Paths.get(dstLocalPath), link);
         } catch (IOException ioe) {
             log.error("Got error while copying remote file {} to local path {}", srcRemotePath, dstLocalPath);
             throw new GenieServerException(
@@ -85,9 +126,8 @@ public class LocalFileTransferImpl implements FileTransfer {
     ) throws GenieException {
         log.debug("Called with src path {} and destination path {}", srcLocalPath, dstRemotePath);
         try {
-            final File src = new File(srcLocalPath);
-            final File dest = new File(dstRemotePath);
-            Files.copy(src.toPath(), dest.toPath());
+            // Never linked as the job directory is deleted or changed later
+            this.transfer(Paths.get(srcLocalPath), Paths.get(dstRemotePath), false);
         } catch (IOException ioe) {
             log.error("Got error while copying local file {} to remote path {}", srcLocalPath, dstRemotePath);
             throw new GenieServerException(
@@ -97,4 +137,104 @@ public class LocalFileTransferImpl implements FileTransfer {
                     + dstRemotePath, ioe);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A SHA-256 over the size and last modified time of the file, or of every file under it for a directory, so
+     * nothing has to be read.
+     */
+    @Override
+    public String getContentHash(
+        @NotBlank (message = "Path cannot be empty.")
+        final String remotePath
+    ) throws GenieException {
+        log.debug("Called with path {}", remotePath);
+        try {
+            final Path root = Paths.get(remotePath);
+            final List<Path> paths;
+            try (final Stream<Path> walk = Files.walk(root)) {
+                paths = walk.sorted().collect(Collectors.toList());
+            }
+            final Hasher hasher = Hashing.sha256().newHasher();
+            for (final Path path : paths) {
+                final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                hasher.putString(root.relativize(path).toString(), StandardCharsets.UTF_8).putChar('\0');
+                if (!attributes.isDirectory()) {
+                    hasher.putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis());
+                }
+            }
+            return hasher.hash().toString();
+        } catch (IOException ioe) {
+            log.error("Got error while hashing file {}", remotePath);
+            throw new GenieServerException("Got error while hashing file " + remotePath, ioe);
+        }
+    }
+
+    private void transfer(final Path src, final Path dst, final boolean link) throws IOException {
+        if (!Files.isDirectory(src)) {
+            this.transferFile(src, dst, link);
+            return;
+        }
+
+        Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                final Path dir,
+                final BasicFileAttributes attrs
+            ) throws IOException {
+                final Path target = dst.resolve(src.relativize(dir).toString());
+                Files.createDirectories(target);
+                copyPermissions(dir, target);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                transferFile(file, dst.resolve(src.relativize(file).toString()), link);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void transferFile(final Path src, final Path dst, final boolean link) throws IOException {
+        // Replaced rather than written over so a link to the previous file, or the source itself, is left alone
+        Files.deleteIfExists(dst);
+        if (link) {
+            try {
+                Files.createLink(dst, src);
+                return;
+            } catch (final IOException | UnsupportedOperationException e) {
+                // e.g. the source is on another file system or the user isn't allowed to link to it
+                log.debug("Unable to link {} to {}. Copying it instead", dst, src, e);
+            }
+        }
+
+        try (
+            final FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+            final FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+        ) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    throw new IOException(src + " was truncated while being copied");
+                }
+                position += transferred;
+            }
+        }
+        copyPermissions(src, dst);
+    }
+
+    private static Path normalize(final String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    private static void copyPermissions(final Path src, final Path dst) throws IOException {
+        // Keeps scripts and binaries in fetched directories executable
+        if (Files.getFileAttributeView(src, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(dst, Files.getPosixFilePermissions(src));
+        }
+    }
 }
@@ -89,7 +89,7 @@ public class LocalJobKillServiceImpl implements JobKillService {
         // Will throw exception if not found
         // TODO: Could instead check JobMonitorCoordinator eventually for in memory check
         final JobStatus jobStatus = this.jobSearchService.getJobStatus(id);
-        if (jobStatus == JobStatus.INIT) {
+        if (jobStatus == JobStatus.QUEUED || jobStatus == JobStatus.INIT) {
             // Send a job finished event to force system to update the job to killed
             this.eventPublisher.publishEvent(
                 new JobFinishedEvent(
@@ -0,0 +1,263 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.services.JobQuotaService;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in memory implementation of the job quota service. The number of jobs running for each user and group on this
+ * node are kept in counters which are taken with a compare and swap against their limit, so checking and taking a
+ * quota is one atomic step with no locking and no database access. The counters are rebuilt from the jobs still
+ * running on this node at startup.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class LocalJobQuotaServiceImpl implements JobQuotaService {
+
+    private static final double DEFAULT_WEIGHT = 1.0;
+
+    private final int defaultUserLimit;
+    private final Map<String, Integer> userLimits;
+    private final Map<String, Integer> groupLimits;
+    private final Map<String, Double> userWeights;
+    private final JobSearchService jobSearchService;
+    private final String hostName;
+    private final Registry registry;
+    private final ConcurrentMap<String, AtomicInteger> userCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> groupCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param defaultUserLimit The maximum number of jobs a user without a limit of their own can run at once. Zero
+     *                         or less for no limit
+     * @param userLimits       The maximum number of jobs specific users can run at once
+     * @param groupLimits      The maximum number of jobs the users of specific groups can run at once in total
+     * @param userWeights      The weights of specific users when sharing the node. Users without one have a weight
+     *                         of one
+     * @param jobSearchService The search service used to find jobs already running on this node at startup
+     * @param hostName         The name of this host
+     * @param registry         The metrics registry to publish the running jobs of each user to
+     */
+    public LocalJobQuotaServiceImpl(
+        final int defaultUserLimit,
+        @NotNull final Map<String, Integer> userLimits,
+        @NotNull final Map<String, Integer> groupLimits,
+        @NotNull final Map<String, Double> userWeights,
+        @NotNull final JobSearchService jobSearchService,
+        @NotBlank final String hostName,
+        @NotNull final Registry registry
+    ) {
+        this.defaultUserLimit = defaultUserLimit;
+        this.userLimits = ImmutableMap.copyOf(userLimits);
+        this.groupLimits = ImmutableMap.copyOf(groupLimits);
+        this.userWeights = ImmutableMap.copyOf(userWeights);
+        this.jobSearchService = jobSearchService;
+        this.hostName = hostName;
+        this.registry = registry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean reserve(@NotNull final JobRequest jobRequest) {
+        final String user = jobRequest.getUser();
+        final String group = StringUtils.trimToNull(jobRequest.getGroup());
+        final Reservation reservation = new Reservation(user, group);
+        if (this.reservations.putIfAbsent(jobRequest.getId(), reservation) != null) {
+            return false;
+        }
+
+        if (!this.tryIncrement(this.getUserCount(user), this.getUserLimit(user))) {
+            this.reservations.remove(jobRequest.getId(), reservation);
+            return false;
+        }
+        if (group != null && !this.tryIncrement(this.getGroupCount(group), this.groupLimits.getOrDefault(group, 0))) {
+            this.getUserCount(user).decrementAndGet();
+            this.reservations.remove(jobRequest.getId(), reservation);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(@NotBlank final String jobId) {
+        final Reservation reservation = this.reservations.remove(jobId);
+        if (reservation != null) {
+            this.getUserCount(reservation.getUser()).decrementAndGet();
+            if (reservation.getGroup() != null) {
+                this.getGroupCount(reservation.getGroup()).decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumRunning(@NotBlank final String user) {
+        final AtomicInteger count = this.userCounts.get(user);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getUserLimit(@NotBlank final String user) {
+        return this.userLimits.getOrDefault(user, this.defaultUserLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getShare(@NotBlank final String user) {
+        final double weight = this.userWeights.getOrDefault(user, DEFAULT_WEIGHT);
+        return weight > 0 ? this.getNumRunning(user) / weight : Double.MAX_VALUE;
+    }
+
+    /**
+     * Release the reservation held by a job as soon as it finishes. Ordered first so that anything else reacting
+     * to the job finishing already sees the quota as free.
+     *
+     * @param event The job finished event
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onJobFinished(final JobFinishedEvent event) {
+        this.release(event.getId());
+    }
+
+    /**
+     * When the application starts count any jobs which are still running on this node from before a restart
+     * against the quotas of their users and groups. These are counted even if they exceed the limits so the users
+     * can't start more until enough of them are done. Safe to run more than once as reservations are keyed by job
+     * id.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        for (final JobExecution execution : this.jobSearchService.getAllRunningJobExecutionsOnHost(this.hostName)) {
+            final String jobId = execution.getId();
+            if (this.reservations.containsKey(jobId)) {
+                continue;
+            }
+            final JobRequest jobRequest;
+            try {
+                jobRequest = this.jobSearchService.getJobRequest(jobId);
+            } catch (final GenieException ge) {
+                log.error("Unable to find request for running job {}. Not counting it against any quota", jobId, ge);
+                continue;
+            }
+            final String group = StringUtils.trimToNull(jobRequest.getGroup());
+            if (this.reservations.putIfAbsent(jobId, new Reservation(jobRequest.getUser(), group)) == null) {
+                this.getUserCount(jobRequest.getUser()).incrementAndGet();
+                if (group != null) {
+                    this.getGroupCount(group).incrementAndGet();
+                }
+            }
+        }
+        log.info(
+            "{} running jobs from {} users counted against quotas at startup",
+            this.reservations.size(),
+            this.userCounts.size()
+        );
+    }
+
+    private boolean tryIncrement(final AtomicInteger count, final int limit) {
+        while (true) {
+            final int current = count.get();
+            if (limit > 0 && current >= limit) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private AtomicInteger getUserCount(final String user) {
+        return this.userCounts.computeIfAbsent(
+            user,
+            key -> this.registry.gauge(
+                this.registry.createId("genie.jobs.quotas.running.gauge").withTag("user", key),
+                new AtomicInteger()
+            )
+        );
+    }
+
+    private AtomicInteger getGroupCount(final String group) {
+        return this.groupCounts.computeIfAbsent(
+            group,
+            key -> this.registry.gauge(
+                this.registry.createId("genie.jobs.quotas.running.gauge").withTag("group", key),
+                new AtomicInteger()
+            )
+        );
+    }
+
+    /**
+     * The user and group a job is counted against.
+     */
+    private static final class Reservation {
+        private final String user;
+        private final String group;
+
+        Reservation(final String user, final String group) {
+            this.user = user;
+            this.group = group;
+        }
+
+        String getUser() {
+            return this.user;
+        }
+
+        String getGroup() {
+            return this.group;
+        }
+    }
+}
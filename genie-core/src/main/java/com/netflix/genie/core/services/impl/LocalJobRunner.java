@@ -20,7 +20,6 @@ package com.netflix.genie.core.services.impl;
 import com.netflix.genie.common.dto.Application;
 import com.netflix.genie.common.dto.Cluster;
 import com.netflix.genie.common.dto.Command;
-import com.netflix.genie.common.dto.CommandStatus;
 import com.netflix.genie.common.dto.JobExecution;
 import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.exceptions.GenieException;
@@ -28,16 +27,19 @@ import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.events.JobFinishedEvent;
 import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.events.JobScheduledEvent;
 import com.netflix.genie.core.events.JobStartedEvent;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import com.netflix.genie.core.jobs.JobStaging;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.jobs.RunScriptWriter;
 import com.netflix.genie.core.jobs.workflow.WorkflowTask;
-import com.netflix.genie.core.services.ApplicationService;
-import com.netflix.genie.core.services.ClusterLoadBalancer;
-import com.netflix.genie.core.services.ClusterService;
-import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.JobMemoizationService;
 import com.netflix.genie.core.services.JobPersistenceService;
+import com.netflix.genie.core.services.JobResolverService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
@@ -46,16 +48,16 @@ import org.springframework.core.io.Resource;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -69,55 +71,52 @@ import java.util.stream.Collectors;
 public class LocalJobRunner implements JobSubmitterService {
 
     private final JobPersistenceService jobPersistenceService;
-    private final ApplicationService applicationService;
-    private final ClusterService clusterService;
-    private final CommandService commandService;
-    private final ClusterLoadBalancer clusterLoadBalancer;
+    private final JobResolverService jobResolverService;
     private final List<WorkflowTask> jobWorkflowTasks;
     private final Resource baseWorkingDirPath;
     private final ApplicationEventPublisher applicationEventPublisher;
     private final GenieFileTransferService fileTransferService;
-
-    // For reuse in queries
-    private final Set<CommandStatus> enumStatuses;
+    private final JobStagingService jobStagingService;
+    private final JobTimelineService jobTimelineService;
+    private final Executor jobKickoffExecutor;
+    private final JobMemoizationService jobMemoizationService;
 
     /**
      * Constructor create the object.
      *
      * @param jobPersistenceService     Implementation of the job persistence service
-     * @param applicationService        Implementation of application service interface
-     * @param clusterService            Implementation of cluster service interface
-     * @param commandService            Implementation of command service interface
-     * @param clusterLoadBalancer       Implementation of the cluster load balancer interface
+     * @param jobResolverService        Implementation of the job resolver service interface
      * @param fileTransferService       File Transfer service
+     * @param jobStagingService         Service to stage the files each job needs concurrently
+     * @param jobTimelineService        Service to record how long each stage of launching a job takes
+     * @param jobKickoffExecutor        Executor to launch the job processes on once their files are staged
+     * @param jobMemoizationService     Service to save the fingerprints of memoized jobs with
      * @param applicationEventPublisher Instance of the event publisher
      * @param workflowTasks             List of all the workflow tasks to be executed
      * @param genieWorkingDir           Working directory for genie where it creates jobs directories
      */
     public LocalJobRunner(
         @NotNull final JobPersistenceService jobPersistenceService,
-        @NotNull final ApplicationService applicationService,
-        @NotNull final ClusterService clusterService,
-        @NotNull final CommandService commandService,
-        @NotNull final ClusterLoadBalancer clusterLoadBalancer,
+        @NotNull final JobResolverService jobResolverService,
         @NotNull final GenieFileTransferService fileTransferService,
+        @NotNull final JobStagingService jobStagingService,
+        @NotNull final JobTimelineService jobTimelineService,
+        @NotNull final Executor jobKickoffExecutor,
+        @NotNull final JobMemoizationService jobMemoizationService,
         @NotNull final ApplicationEventPublisher applicationEventPublisher,
         @NotNull final List<WorkflowTask> workflowTasks,
         @NotNull final Resource genieWorkingDir
     ) {
         this.jobPersistenceService = jobPersistenceService;
-        this.applicationService = applicationService;
-        this.clusterService = clusterService;
-        this.commandService = commandService;
-        this.clusterLoadBalancer = clusterLoadBalancer;
+        this.jobResolverService = jobResolverService;
         this.jobWorkflowTasks = workflowTasks;
         this.baseWorkingDirPath = genieWorkingDir;
         this.fileTransferService = fileTransferService;
+        this.jobStagingService = jobStagingService;
+        this.jobTimelineService = jobTimelineService;
+        this.jobKickoffExecutor = jobKickoffExecutor;
+        this.jobMemoizationService = jobMemoizationService;
         this.applicationEventPublisher = applicationEventPublisher;
-
-        // We'll only care about active statuses
-        this.enumStatuses = EnumSet.noneOf(CommandStatus.class);
-        this.enumStatuses.add(CommandStatus.ACTIVE);
     }
 
     /**
@@ -143,13 +142,14 @@ public class LocalJobRunner implements JobSubmitterService {
             final File jobWorkingDir = this.createJobWorkingDirectory(id);
             final File runScript = this.createRunScript(jobWorkingDir);
 
-            //TODO: Combine the cluster and command selection into a single method/database query for efficiency
-            // Resolve the cluster for the job request based on the tags specified
-            final Cluster cluster = this.getCluster(jobRequest);
-            // Resolve the command for the job request based on command tags and cluster chosen
-            final Command command = this.getCommand(jobRequest, cluster);
-            // Resolve the applications to use based on the command that was selected
-            final List<Application> applications = this.getApplications(jobRequest, command);
+            // Resolve the cluster, command and applications for the job request based on the tags specified
+            final long resolutionStart = System.nanoTime();
+            final ResolvedJob resolvedJob = this.jobResolverService.resolveJob(jobRequest);
+            final Cluster cluster = resolvedJob.getCluster();
+            final Command command = resolvedJob.getCommand();
+            final List<Application> applications = resolvedJob.getApplications();
+            this.jobTimelineService.record(id, "resolution", resolutionStart);
+            this.jobTimelineService.resolved(id, cluster.getName(), command.getName());
 
             // Job can be run as there is a valid set of cluster, command and applications
             // Save all the runtime environment information for the job
@@ -159,22 +159,16 @@ public class LocalJobRunner implements JobSubmitterService {
                 command.getId(),
                 applications.stream().map(Application::getId).collect(Collectors.toList())
             );
+            if (jobRequest.isMemoize()) {
+                this.saveFingerprint(id, jobRequest, resolvedJob);
+            }
 
             // The map object stores the context for all the workflow tasks
             final Map<String, Object> context
                 = this.createJobContext(jobRequest, cluster, command, applications, jobWorkingDir);
 
-            // Execute the job
-            final JobExecution jobExecution = this.executeJob(context, runScript);
-
-            // Job Execution will be null in local mode.
-            if (jobExecution != null) {
-                // Persist the jobExecution information. This also updates jobStatus to Running
-                this.jobPersistenceService.createJobExecution(jobExecution);
-
-                // Publish a job start Event
-                this.applicationEventPublisher.publishEvent(new JobStartedEvent(jobExecution, this));
-            }
+            // Set the job up and schedule its launch for once its files are staged
+            this.executeJob(id, context, runScript);
         } catch (final GeniePreconditionException gpe) {
             log.error(gpe.getMessage(), gpe);
             this.applicationEventPublisher.publishEvent(
@@ -190,6 +184,15 @@ public class LocalJobRunner implements JobSubmitterService {
         }
     }
 
+    private void saveFingerprint(final String id, final JobRequest jobRequest, final ResolvedJob resolvedJob) {
+        try {
+            this.jobMemoizationService.saveFingerprint(id, jobRequest, resolvedJob);
+        } catch (final GenieException | RuntimeException e) {
+            // The job can still run. Later identical requests just won't find it.
+            log.error("Unable to save the fingerprint of memoized job {}", id, e);
+        }
+    }
+
     private File createJobWorkingDirectory(final String id) throws GenieException {
         try {
             final File jobDir = new File(this.baseWorkingDirPath.getFile(), id);
@@ -221,43 +224,6 @@ public class LocalJobRunner implements JobSubmitterService {
         return runScript;
     }
 
-    private Cluster getCluster(final JobRequest jobRequest) throws GenieException {
-        return this.clusterLoadBalancer.selectCluster(this.clusterService.chooseClusterForJobRequest(jobRequest));
-    }
-
-    private Command getCommand(final JobRequest jobRequest, final Cluster cluster) throws GenieException {
-        final Set<String> commandCriteria = jobRequest.getCommandCriteria();
-        // TODO: what happens if the get method throws an error we don't mark the job failed here
-        for (final Command command : this.clusterService.getCommandsForCluster(cluster.getId(), this.enumStatuses)) {
-            if (command.getTags().containsAll(jobRequest.getCommandCriteria())) {
-                return command;
-            }
-        }
-
-        throw new GeniePreconditionException(
-            "No command found matching all command criteria ["
-                + commandCriteria
-                + "] attached to cluster with id: "
-                + cluster.getId()
-        );
-    }
-
-    private List<Application> getApplications(
-        final JobRequest jobRequest,
-        final Command command
-    ) throws GenieException {
-        // TODO: What do we do about application status? Should probably check here
-        final List<Application> applications = new ArrayList<>();
-        if (jobRequest.getApplications().isEmpty()) {
-            applications.addAll(this.commandService.getApplicationsForCommand(command.getId()));
-        } else {
-            for (final String applicationId : jobRequest.getApplications()) {
-                applications.add(this.applicationService.getApplication(applicationId));
-            }
-        }
-        return applications;
-    }
-
     private Map<String, Object> createJobContext(
         final JobRequest jobRequest,
         final Cluster cluster,
@@ -280,21 +246,119 @@ public class LocalJobRunner implements JobSubmitterService {
 
         context.put(JobConstants.JOB_EXECUTION_ENV_KEY, jee);
         context.put(JobConstants.FILE_TRANSFER_SERVICE_KEY, this.fileTransferService);
+        context.put(JobConstants.JOB_TIMELINE_SERVICE_KEY, this.jobTimelineService);
+        context.put(JobConstants.JOB_STAGING_KEY, this.jobStagingService.newJobStaging(jobRequest.getId()));
 
         return context;
     }
 
-    private JobExecution executeJob(final Map<String, Object> context, final File runScript) throws GenieException {
-        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(runScript), "UTF-8")) {
-            context.put(JobConstants.WRITER_KEY, writer);
+    private void executeJob(
+        final String id,
+        final Map<String, Object> context,
+        final File runScript
+    ) throws GenieException {
+        final JobStaging staging = (JobStaging) context.get(JobConstants.JOB_STAGING_KEY);
+        // The tasks append the script piece by piece, it's written to disk in one go when the writer is closed
+        final Writer writer = new RunScriptWriter(runScript);
+        context.put(JobConstants.WRITER_KEY, writer);
 
-            for (WorkflowTask workflowTask : this.jobWorkflowTasks) {
-                workflowTask.executeTask(context);
+        boolean scheduled = false;
+        try {
+            // The tasks before the first launch task set the job up. They write the run script in order here while
+            // the files they register are fetched in the background.
+            final List<WorkflowTask> launchTasks = new ArrayList<>();
+            for (final WorkflowTask workflowTask : this.jobWorkflowTasks) {
+                if (!launchTasks.isEmpty() || workflowTask.isLaunchTask()) {
+                    launchTasks.add(workflowTask);
+                } else {
+                    this.executeTask(id, workflowTask, context);
+                }
             }
+
+            // No thread waits for the files. The launch runs on the kickoff executor once they are all on disk.
+            final CompletableFuture<Void> launch = staging
+                .whenStaged()
+                .thenRunAsync(() -> this.launchJob(id, context, launchTasks), this.jobKickoffExecutor);
+
+            // From now on killing the job has to cancel the launch rather than the setup which is done. This is
+            // published before the launch outcome is handled so a job failing right away is never tracked after
+            // it finished.
+            this.applicationEventPublisher.publishEvent(new JobScheduledEvent(id, launch, this));
+            scheduled = true;
+            launch.whenComplete(
+                (result, throwable) -> {
+                    this.closeWriter(writer);
+                    if (throwable != null) {
+                        this.onLaunchFailure(id, staging, throwable);
+                    }
+                }
+            );
         } catch (final IOException ioe) {
             throw new GenieServerException("Failed to execute job due to: " + ioe.getMessage(), ioe);
+        } finally {
+            if (!scheduled) {
+                // Stop fetching files for a job which won't be launched
+                staging.cancel();
+                this.closeWriter(writer);
+            }
         }
+    }
+
+    private void launchJob(final String id, final Map<String, Object> context, final List<WorkflowTask> launchTasks) {
+        try {
+            for (final WorkflowTask workflowTask : launchTasks) {
+                this.executeTask(id, workflowTask, context);
+            }
+
+            final JobExecution jobExecution = (JobExecution) context.get(JobConstants.JOB_EXECUTION_DTO_KEY);
+
+            // Job Execution will be null in local mode.
+            if (jobExecution != null) {
+                // Persist the jobExecution information. This also updates jobStatus to Running
+                final long persistStart = System.nanoTime();
+                this.jobPersistenceService.createJobExecution(jobExecution);
+                this.jobTimelineService.record(id, "execution.persist", persistStart);
 
-        return (JobExecution) context.get(JobConstants.JOB_EXECUTION_DTO_KEY);
+                // Publish a job start Event
+                this.applicationEventPublisher.publishEvent(new JobStartedEvent(jobExecution, this));
+            }
+        } catch (final GenieException | IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void executeTask(
+        final String id,
+        final WorkflowTask workflowTask,
+        final Map<String, Object> context
+    ) throws GenieException, IOException {
+        final long start = System.nanoTime();
+        workflowTask.executeTask(context);
+        this.jobTimelineService.record(id, "task." + workflowTask.getClass().getSimpleName(), start);
+    }
+
+    private void onLaunchFailure(final String id, final JobStaging staging, final Throwable throwable) {
+        staging.cancel();
+        if (throwable instanceof CancellationException) {
+            log.info("Launch of job {} was cancelled", id);
+            return;
+        }
+
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+        log.error("Unable to launch job {} due to {}", id, cause.getMessage(), cause);
+        final JobFinishedReason reason = cause instanceof GeniePreconditionException
+            ? JobFinishedReason.INVALID
+            : JobFinishedReason.FAILED_TO_INIT;
+        this.applicationEventPublisher.publishEvent(new JobFinishedEvent(id, reason, cause.getMessage(), this));
+    }
+
+    private void closeWriter(final Writer writer) {
+        try {
+            writer.close();
+        } catch (final IOException ioe) {
+            log.error("Unable to close the run script", ioe);
+        }
     }
 }
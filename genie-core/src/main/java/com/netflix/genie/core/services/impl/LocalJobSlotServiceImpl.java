@@ -0,0 +1,269 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobSlotService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An in memory implementation of the job slot service. The number of jobs and the cpu and memory they have reserved
+ * are kept together in a single immutable snapshot which is swapped with a compare and swap, so checking for and
+ * taking a slot along with its resources is one atomic step with no locking and no database access.
+ * <p>
+ * A job which requests more cpu or memory than the node has in total is still admitted when nothing else is
+ * running so that it doesn't wait forever.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class LocalJobSlotServiceImpl implements JobSlotService {
+
+    private final int maxSlots;
+    private final int maxCpu;
+    private final long maxMemory;
+    private final JobSearchService jobSearchService;
+    private final String hostName;
+    private final AtomicReference<Usage> usage = new AtomicReference<>(new Usage(0, 0, 0L));
+    private final ConcurrentMap<String, Usage> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSlots         The maximum number of jobs that can run on this node at any time
+     * @param maxCpu           The number of cpus on this node which can be reserved by jobs
+     * @param maxMemory        The amount of memory, in MB, on this node which can be reserved by jobs
+     * @param jobSearchService The search service used to find jobs already running on this node at startup
+     * @param hostName         The name of this host
+     */
+    public LocalJobSlotServiceImpl(
+        final int maxSlots,
+        final int maxCpu,
+        final long maxMemory,
+        @NotNull final JobSearchService jobSearchService,
+        @NotBlank final String hostName
+    ) {
+        this.maxSlots = maxSlots;
+        this.maxCpu = maxCpu;
+        this.maxMemory = maxMemory;
+        this.jobSearchService = jobSearchService;
+        this.hostName = hostName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean reserve(@NotNull final JobRequest jobRequest) {
+        final Usage requested = this.getRequested(jobRequest);
+        while (true) {
+            final Usage current = this.usage.get();
+            final Usage updated = current.plus(requested);
+            if (current.getNumJobs() >= this.maxSlots || (current.getNumJobs() > 0 && !this.fits(updated))) {
+                return false;
+            }
+            if (this.usage.compareAndSet(current, updated)) {
+                break;
+            }
+        }
+
+        if (this.reservations.putIfAbsent(jobRequest.getId(), requested) != null) {
+            // This job already holds a slot. Give back the one we just took
+            this.subtract(requested);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(@NotBlank final String jobId) {
+        final Usage reserved = this.reservations.remove(jobId);
+        if (reserved != null) {
+            this.subtract(reserved);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumReserved() {
+        return this.usage.get().getNumJobs();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxSlots() {
+        return this.maxSlots;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getReservedCpu() {
+        return this.usage.get().getCpu();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxCpu() {
+        return this.maxCpu;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReservedMemory() {
+        return this.usage.get().getMemory();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxMemory() {
+        return this.maxMemory;
+    }
+
+    /**
+     * Release the slot held by a job as soon as it finishes. Ordered first so that anything else reacting to the
+     * job finishing already sees the slot as free.
+     *
+     * @param event The job finished event
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onJobFinished(final JobFinishedEvent event) {
+        this.release(event.getId());
+    }
+
+    /**
+     * When the application starts re-reserve slots and resources for any jobs which are still running on this node
+     * from before a restart. These are counted even if they exceed the capacity of the node so it won't take more
+     * work until they are done. Safe to run more than once as reservations are keyed by job id.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        for (final JobExecution execution : this.jobSearchService.getAllRunningJobExecutionsOnHost(this.hostName)) {
+            final String jobId = execution.getId();
+            if (this.reservations.containsKey(jobId)) {
+                continue;
+            }
+            Usage requested;
+            try {
+                requested = this.getRequested(this.jobSearchService.getJobRequest(jobId));
+            } catch (final GenieException ge) {
+                log.error("Unable to find request for running job {}. Reserving a slot with no resources", jobId, ge);
+                requested = new Usage(1, 0, 0L);
+            }
+            if (this.reservations.putIfAbsent(jobId, requested) == null) {
+                this.add(requested);
+            }
+        }
+        final Usage current = this.usage.get();
+        log.info(
+            "{} job slots, {} cpus and {} MB of memory reserved on this node at startup",
+            current.getNumJobs(),
+            current.getCpu(),
+            current.getMemory()
+        );
+    }
+
+    private Usage getRequested(final JobRequest jobRequest) {
+        return new Usage(1, Math.max(jobRequest.getCpu(), 0), Math.max(jobRequest.getMemory(), 0));
+    }
+
+    private boolean fits(final Usage updated) {
+        return updated.getCpu() <= this.maxCpu && updated.getMemory() <= this.maxMemory;
+    }
+
+    private void add(final Usage delta) {
+        Usage current;
+        do {
+            current = this.usage.get();
+        } while (!this.usage.compareAndSet(current, current.plus(delta)));
+    }
+
+    private void subtract(final Usage delta) {
+        Usage current;
+        do {
+            current = this.usage.get();
+        } while (!this.usage.compareAndSet(current, current.minus(delta)));
+    }
+
+    /**
+     * An immutable count of jobs and the resources they have reserved.
+     */
+    private static final class Usage {
+        private final int numJobs;
+        private final int cpu;
+        private final long memory;
+
+        Usage(final int numJobs, final int cpu, final long memory) {
+            this.numJobs = numJobs;
+            this.cpu = cpu;
+            this.memory = memory;
+        }
+
+        int getNumJobs() {
+            return this.numJobs;
+        }
+
+        int getCpu() {
+            return this.cpu;
+        }
+
+        long getMemory() {
+            return this.memory;
+        }
+
+        Usage plus(final Usage other) {
+            return new Usage(this.numJobs + other.numJobs, this.cpu + other.cpu, this.memory + other.memory);
+        }
+
+        Usage minus(final Usage other) {
+            return new Usage(this.numJobs - other.numJobs, this.cpu - other.cpu, this.memory - other.memory);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.jobs.JobTimeline;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.EventListener;
+
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in memory implementation of the job timeline service which keeps the timelines of the most recently launched
+ * jobs on this node.
+ * <p>
+ * Every stage is also recorded in the genie.jobs.launch.stage.timer timer tagged with the stage and the cluster and
+ * command the job was resolved to. Stages which happen before the job is resolved are held back until it is, or
+ * tagged as unknown if the job finishes without being resolved.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class LocalJobTimelineServiceImpl implements JobTimelineService {
+
+    private static final String STAGE_TIMER_NAME = "genie.jobs.launch.stage.timer";
+    private static final String UNKNOWN = "unknown";
+
+    private final Registry registry;
+    private final Map<String, JobTimeline> timelines;
+
+    /**
+     * Constructor.
+     *
+     * @param maxJobs  The maximum number of job timelines to keep. The oldest are dropped first
+     * @param registry The metrics registry to use
+     */
+    public LocalJobTimelineServiceImpl(final int maxJobs, @NotNull final Registry registry) {
+        this.registry = registry;
+        this.timelines = Collections.synchronizedMap(
+            new LinkedHashMap<String, JobTimeline>() {
+                private static final long serialVersionUID = 3217498261390541739L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, JobTimeline> eldest) {
+                    return this.size() > maxJobs;
+                }
+            }
+        );
+        this.registry.mapSize("genie.jobs.launch.timelines.gauge", this.timelines);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(@NotBlank final String jobId, @NotBlank final String stage, final long startNanos) {
+        this.record(jobId, stage, null, startNanos, System.nanoTime());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(
+        @NotBlank final String jobId,
+        @NotBlank final String stage,
+        final String detail,
+        final long startNanos,
+        final long endNanos
+    ) {
+        final JobTimeline timeline = this.timelines.computeIfAbsent(jobId, JobTimeline::new);
+        timeline.add(stage, detail, startNanos, endNanos);
+        if (timeline.getClusterName() != null) {
+            this.export(timeline);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolved(
+        @NotBlank final String jobId,
+        @NotBlank final String clusterName,
+        @NotBlank final String commandName
+    ) {
+        final JobTimeline timeline = this.timelines.computeIfAbsent(jobId, JobTimeline::new);
+        timeline.setResolution(clusterName, commandName);
+        this.export(timeline);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobTimeline getTimeline(@NotBlank final String jobId) throws GenieException {
+        final JobTimeline timeline = this.timelines.get(jobId);
+        if (timeline == null) {
+            throw new GenieNotFoundException("No launch timeline for job " + jobId + " on this node");
+        }
+        return timeline;
+    }
+
+    /**
+     * Export the stages of a job which finished without being resolved so they aren't held back forever.
+     *
+     * @param event The job finished event
+     */
+    @EventListener
+    public void onJobFinished(final JobFinishedEvent event) {
+        final JobTimeline timeline = this.timelines.get(event.getId());
+        if (timeline != null && timeline.getClusterName() == null) {
+            this.resolved(event.getId(), UNKNOWN, UNKNOWN);
+        }
+    }
+
+    private void export(final JobTimeline timeline) {
+        for (final JobTimeline.Stage stage : timeline.takeUnexported()) {
+            this.registry
+                .timer(
+                    this.registry
+                        .createId(STAGE_TIMER_NAME)
+                        .withTag("stage", stage.getName())
+                        .withTag("cluster", timeline.getClusterName())
+                        .withTag("command", timeline.getCommandName())
+                )
+                .record(stage.getDuration(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -17,21 +17,59 @@
  */
 package com.netflix.genie.core.services.impl;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.util.InstrumentedThreadPoolExecutor;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.validator.constraints.NotBlank;
 
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * An implementation of the FileTransferService interface in which the remote locations are on Amazon S3.
+ * <p>
+ * Files bigger than the part size are split into parts which are downloaded with ranged gets or uploaded as a
+ * multipart upload concurrently on a pool shared by all transfers. Each part is retried on its own. Uploaded parts
+ * are checked by S3 against their MD5 and downloads are checked against the ETag of the object when it is an MD5,
+ * i.e. the object was uploaded in one piece or in parts of the same size.
  *
  * @author amsharma
  * @since 3.0.0
@@ -39,7 +77,17 @@ import java.util.regex.Pattern;
 @Slf4j
 public class S3FileTransferImpl implements FileTransfer {
 
+    // S3 doesn't accept smaller parts than 5 MB, except for the last one, or more than 10000 parts
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern MD5_ETAG_PATTERN = Pattern.compile("^([0-9a-f]{32})(-(\\d+))?$");
+
     private AmazonS3Client s3Client;
+    private final long partSize;
+    private final int maxRetries;
+    private final ExecutorService executor;
+    private final Counter partRetryRate;
 
     private final Pattern s3FilePattern =
         Pattern.compile("^(s3[n]?://)(.*?)/(.*/.*)");
@@ -51,12 +99,31 @@ public class S3FileTransferImpl implements FileTransfer {
      * Constructor.
      *
      * @param amazonS3Client An amazon s3 client object
+     * @param partSize       The size, in bytes, of the parts files are transferred in. At least 5 MB
+     * @param concurrency    The number of parts transferred at once across all files
+     * @param maxRetries     How many times to retry a part which failed to transfer
+     * @param registry       The metrics registry to use
      * @throws GenieException If there is a problem
      */
     public S3FileTransferImpl(
-        final AmazonS3Client amazonS3Client
-        ) throws GenieException {
+        @NotNull final AmazonS3Client amazonS3Client,
+        final long partSize,
+        final int concurrency,
+        final int maxRetries,
+        @NotNull final Registry registry
+    ) throws GenieException {
         this.s3Client = amazonS3Client;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.maxRetries = Math.max(maxRetries, 0);
+        // Parts are independent so a part which doesn't fit in the queue is transferred by the caller
+        this.executor = new InstrumentedThreadPoolExecutor(
+            "genie.aws.s3.transfer",
+            Math.max(concurrency, 1),
+            MAX_PARTS,
+            new ThreadPoolExecutor.CallerRunsPolicy(),
+            registry
+        );
+        this.partRetryRate = registry.counter("genie.aws.s3.transfer.part.retry.rate");
     }
 
     /**
@@ -88,11 +155,17 @@ public class S3FileTransferImpl implements FileTransfer {
             final String key = matcher.group(3);
 
             try {
-                s3Client.getObject(
-                    new GetObjectRequest(bucket, key),
-                    new File(dstLocalPath));
-            } catch (AmazonS3Exception ase) {
-                log.error("Error fetching file {} from s3 due to exception {}", srcRemotePath, ase);
+                final ObjectMetadata metadata = s3Client.getObjectMetadata(bucket, key);
+                if (metadata.getContentLength() <= this.partSize) {
+                    // The client checks the MD5 of objects fetched whole
+                    s3Client.getObject(
+                        new GetObjectRequest(bucket, key),
+                        new File(dstLocalPath));
+                } else {
+                    this.getParts(bucket, key, metadata, dstLocalPath);
+                }
+            } catch (AmazonClientException ace) {
+                log.error("Error fetching file {} from s3 due to exception {}", srcRemotePath, ace);
                 throw new GenieServerException("Error downloading file from s3. Filename: " + srcRemotePath);
             }
         } else {
@@ -116,15 +189,283 @@ public class S3FileTransferImpl implements FileTransfer {
         if (matcher.matches()) {
             final String bucket = matcher.group(2);
             final String key = matcher.group(3);
+            final File file = new File(srcLocalPath);
 
             try {
-                s3Client.putObject(bucket, key, new File(srcLocalPath));
-            } catch (AmazonS3Exception ase) {
-                log.error("Error posting file {} to s3 due to exception {}", dstRemotePath, ase);
+                if (file.length() <= this.partSize) {
+                    // The client sends the MD5 of objects put whole for S3 to check
+                    s3Client.putObject(bucket, key, file);
+                } else {
+                    this.putParts(bucket, key, file);
+                }
+            } catch (AmazonClientException ace) {
+                log.error("Error posting file {} to s3 due to exception {}", dstRemotePath, ace);
                 throw new GenieServerException("Error uploading file to s3. Filename: " + dstRemotePath);
             }
         } else {
             throw new GenieServerException("Invalid path for s3 file" + dstRemotePath);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The ETag of the object, which S3 derives from its content, so the object isn't downloaded.
+     */
+    @Override
+    public String getContentHash(
+        @NotBlank (message = "Path cannot be empty.")
+        final String remotePath
+    ) throws GenieException {
+        log.debug("Called with path {}", remotePath);
+
+        final Matcher matcher = s3FilePattern.matcher(remotePath);
+        if (matcher.matches()) {
+            final String bucket = matcher.group(2);
+            final String key = matcher.group(3);
+
+            try {
+                return s3Client.getObjectMetadata(bucket, key).getETag();
+            } catch (AmazonS3Exception ase) {
+                log.error("Error getting metadata of file {} from s3 due to exception {}", remotePath, ase);
+                throw new GenieServerException("Error getting metadata of file from s3. Filename: " + remotePath);
+            }
+        } else {
+            throw new GenieServerException("Invalid path for s3 file" + remotePath);
+        }
+    }
+
+    /**
+     * Stop the transfer pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void getParts(
+        final String bucket,
+        final String key,
+        final ObjectMetadata metadata,
+        final String dstLocalPath
+    ) throws GenieException {
+        final long length = metadata.getContentLength();
+        final long size = this.getPartSize(length);
+        final String path = "s3://" + bucket + "/" + key;
+        log.debug("Downloading {} bytes from {} in parts of {} bytes", length, path, size);
+
+        try {
+            final List<byte[]> digests;
+            try (final FileChannel channel = FileChannel.open(
+                Paths.get(dstLocalPath),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            )) {
+                final List<Future<byte[]>> parts = new ArrayList<>();
+                for (long start = 0; start < length; start += size) {
+                    final long partStart = start;
+                    final long partEnd = Math.min(start + size, length) - 1;
+                    parts.add(this.executor.submit(
+                        () -> this.retry(path, () -> this.getPart(bucket, key, partStart, partEnd, channel))
+                    ));
+                }
+                digests = this.await(path, parts);
+            } catch (final IOException ioe) {
+                throw new GenieServerException("Unable to write " + path + " to " + dstLocalPath, ioe);
+            }
+            if (!this.isExpectedETag(metadata, digests, dstLocalPath)) {
+                throw new GenieServerException("Checksum of " + path + " doesn't match its ETag " + metadata.getETag());
+            }
+        } catch (final GenieException e) {
+            try {
+                Files.deleteIfExists(Paths.get(dstLocalPath));
+            } catch (final IOException ioe) {
+                log.warn("Unable to delete partial download {}", dstLocalPath, ioe);
+            }
+            throw e;
+        }
+    }
+
+    private byte[] getPart(
+        final String bucket,
+        final String key,
+        final long start,
+        final long end,
+        final FileChannel channel
+    ) throws IOException {
+        final MessageDigest md5 = md5();
+        final S3Object object = this.s3Client.getObject(new GetObjectRequest(bucket, key).withRange(start, end));
+        try (final InputStream content = new DigestInputStream(object.getObjectContent(), md5)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long position = start;
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (position + read > end + 1) {
+                    throw new IOException("Got more bytes than requested for range " + start + "-" + end);
+                }
+                final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new IOException("Got " + (position - start) + " bytes for range " + start + "-" + end);
+            }
+        }
+        return md5.digest();
+    }
+
+    private void putParts(final String bucket, final String key, final File file) throws GenieException {
+        final long length = file.length();
+        final long size = this.getPartSize(length);
+        final String path = "s3://" + bucket + "/" + key;
+        log.debug("Uploading {} bytes to {} in parts of {} bytes", length, path, size);
+
+        final String uploadId
+            = this.s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key)).getUploadId();
+        try {
+            final List<Future<PartETag>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long start = 0; start < length; start += size) {
+                final UploadPartRequest request = new UploadPartRequest()
+                    .withBucketName(bucket)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber++)
+                    .withFile(file)
+                    .withFileOffset(start)
+                    .withPartSize(Math.min(size, length - start));
+                parts.add(this.executor.submit(() -> this.retry(path, () -> this.putPart(request))));
+            }
+            final List<PartETag> partETags = this.await(path, parts);
+            partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            this.s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+        } catch (final GenieException | AmazonClientException e) {
+            try {
+                this.s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            } catch (final AmazonClientException ace) {
+                log.warn("Unable to abort multipart upload {} of {}", uploadId, path, ace);
+            }
+            throw e;
+        }
+    }
+
+    private PartETag putPart(final UploadPartRequest request) throws IOException {
+        // S3 rejects the part if it doesn't match the MD5 it is sent with
+        try (final InputStream content = Files.newInputStream(request.getFile().toPath())) {
+            ByteStreams.skipFully(content, request.getFileOffset());
+            final MessageDigest md5 = md5();
+            ByteStreams.copy(
+                new DigestInputStream(ByteStreams.limit(content, request.getPartSize()), md5),
+                ByteStreams.nullOutputStream()
+            );
+            request.setMd5Digest(BaseEncoding.base64().encode(md5.digest()));
+        }
+        return this.s3Client.uploadPart(request).getPartETag();
+    }
+
+    private long getPartSize(final long length) {
+        // Grow the parts of huge files to stay under the maximum number of parts
+        return Math.max(this.partSize, (length + MAX_PARTS - 1) / MAX_PARTS);
+    }
+
+    private <T> T retry(final String path, final Part<T> part) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return part.transfer();
+            } catch (final IOException | AmazonClientException e) {
+                // Parts are interrupted once another part of the file has failed
+                if (attempt >= this.maxRetries || !isRetryable(e) || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                log.warn("Failed to transfer part of {}. Retrying", path, e);
+                this.partRetryRate.increment();
+            }
+        }
+    }
+
+    private <T> List<T> await(final String path, final List<Future<T>> parts) throws GenieException {
+        final List<T> results = new ArrayList<>();
+        try {
+            for (final Future<T> part : parts) {
+                results.add(part.get());
+            }
+            return results;
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while transferring " + path);
+        } catch (final ExecutionException ee) {
+            throw new GenieServerException("Unable to transfer a part of " + path, ee.getCause());
+        } finally {
+            parts.forEach(part -> part.cancel(true));
+        }
+    }
+
+    private boolean isExpectedETag(
+        final ObjectMetadata metadata,
+        final List<byte[]> digests,
+        final String dstLocalPath
+    ) throws GenieException {
+        final String eTag = metadata.getETag() == null ? "" : metadata.getETag().replace("\"", "");
+        final Matcher matcher = MD5_ETAG_PATTERN.matcher(eTag);
+        final boolean encrypted = metadata.getSSECustomerAlgorithm() != null
+            || (metadata.getSSEAlgorithm() != null
+            && !ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION.equals(metadata.getSSEAlgorithm()));
+        if (!matcher.matches() || encrypted) {
+            // Objects encrypted with KMS or customer keys have ETags which aren't MD5s of the content
+            log.debug("Can't verify {} with ETag {}", dstLocalPath, eTag);
+            return true;
+        }
+
+        if (matcher.group(3) == null) {
+            // Uploaded in one piece so the ETag is the MD5 of the whole file
+            final MessageDigest md5 = md5();
+            try (final InputStream content = Files.newInputStream(Paths.get(dstLocalPath))) {
+                ByteStreams.copy(new DigestInputStream(content, md5), ByteStreams.nullOutputStream());
+            } catch (final IOException ioe) {
+                throw new GenieServerException("Unable to read " + dstLocalPath + " to verify it", ioe);
+            }
+            return BaseEncoding.base16().lowerCase().encode(md5.digest()).equals(matcher.group(1));
+        }
+
+        if (Integer.parseInt(matcher.group(3)) != digests.size()) {
+            log.debug("Can't verify {} as it was uploaded in parts of a different size", dstLocalPath);
+            return true;
+        }
+        // Uploaded in parts of the same size so the ETag is the MD5 of the MD5s of the parts
+        final MessageDigest md5 = md5();
+        digests.forEach(md5::update);
+        return BaseEncoding.base16().lowerCase().encode(md5.digest()).equals(matcher.group(1));
+    }
+
+    private static boolean isRetryable(final Exception e) {
+        if (e instanceof AmazonServiceException) {
+            final AmazonServiceException ase = (AmazonServiceException) e;
+            // Other client errors, like access denied, will fail again
+            return ase.getStatusCode() >= 500
+                || ase.getStatusCode() == 400 && "BadDigest".equals(ase.getErrorCode())
+                || ase.getStatusCode() == 400 && "RequestTimeout".equals(ase.getErrorCode());
+        }
+        return true;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException nsae) {
+            // Every JVM has to support MD5
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * The transfer of one part of a file.
+     *
+     * @param <T> The result of the transfer
+     */
+    @FunctionalInterface
+    private interface Part<T> {
+        T transfer() throws IOException;
+    }
 }
@@ -0,0 +1,373 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.jobs.ConfigSnapshot;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.JobResolverService;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A job resolver which resolves job requests against an in memory snapshot of the configuration instead of the
+ * database.
+ * <p>
+ * The snapshot is rebuilt whenever an application, command or cluster is changed through this node, reloading only
+ * the entity which changed. Changes made through other nodes are picked up by reconciling the whole snapshot against
+ * the database at a fixed rate. Requests the snapshot can't resolve, for example because a cluster was added on
+ * another node since the last reconciliation, are handed to the database backed resolver.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class SnapshotJobResolverServiceImpl implements JobResolverService {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final JobResolverService fallbackResolverService;
+    private final ClusterService clusterService;
+    private final CommandService commandService;
+    private final ApplicationService applicationService;
+    private final ClusterLoadBalancer clusterLoadBalancer;
+    private final TaskScheduler scheduler;
+    private final long refreshRate;
+
+    private final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>(ConfigSnapshot.EMPTY);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // The configuration the snapshot is built from. Only read or modified while holding the lock.
+    private final Object lock = new Object();
+    private final Map<String, Cluster> clusters = new HashMap<>();
+    private final Map<String, List<String>> clusterCommands = new HashMap<>();
+    private final Map<String, Command> commands = new HashMap<>();
+    private final Map<String, List<String>> commandApplications = new HashMap<>();
+    private final Map<String, Application> applications = new HashMap<>();
+    private long version;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter refreshFailureCounter;
+    private final Timer refreshTimer;
+    private final AtomicLong snapshotVersion;
+
+    /**
+     * Constructor.
+     *
+     * @param fallbackResolverService The resolver to use for requests the snapshot can't resolve
+     * @param clusterService          The cluster service to load clusters with
+     * @param commandService          The command service to load commands with
+     * @param applicationService      The application service to load applications with
+     * @param clusterLoadBalancer     The load balancer used to pick a cluster from the candidates
+     * @param scheduler               The scheduler to run the periodic reconciliation with
+     * @param refreshRate             How often, in milliseconds, to reconcile the snapshot with the database
+     * @param registry                The metrics registry to use
+     */
+    public SnapshotJobResolverServiceImpl(
+        @NotNull final JobResolverService fallbackResolverService,
+        @NotNull final ClusterService clusterService,
+        @NotNull final CommandService commandService,
+        @NotNull final ApplicationService applicationService,
+        @NotNull final ClusterLoadBalancer clusterLoadBalancer,
+        @NotNull final TaskScheduler scheduler,
+        final long refreshRate,
+        @NotNull final Registry registry
+    ) {
+        this.fallbackResolverService = fallbackResolverService;
+        this.clusterService = clusterService;
+        this.commandService = commandService;
+        this.applicationService = applicationService;
+        this.clusterLoadBalancer = clusterLoadBalancer;
+        this.scheduler = scheduler;
+        this.refreshRate = refreshRate;
+
+        this.hitCounter = registry.counter("genie.jobs.resolution.snapshot.hit.rate");
+        this.missCounter = registry.counter("genie.jobs.resolution.snapshot.miss.rate");
+        this.refreshFailureCounter = registry.counter("genie.jobs.resolution.snapshot.refreshFailure.rate");
+        this.refreshTimer = registry.timer("genie.jobs.resolution.snapshot.refresh.timer");
+        this.snapshotVersion = registry.gauge("genie.jobs.resolution.snapshot.version.gauge", new AtomicLong());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResolvedJob resolveJob(
+        @NotNull(message = "No job request provided. Unable to resolve.")
+        final JobRequest jobRequest
+    ) throws GenieException {
+        final ResolvedJob resolvedJob = this.snapshot.get().resolve(jobRequest, this.clusterLoadBalancer);
+        if (resolvedJob != null) {
+            this.hitCounter.increment();
+            return resolvedJob;
+        }
+
+        log.debug("Unable to resolve job {} from the configuration snapshot. Falling back.", jobRequest.getId());
+        this.missCounter.increment();
+        return this.fallbackResolverService.resolveJob(jobRequest);
+    }
+
+    /**
+     * Get the snapshot currently used to resolve jobs.
+     *
+     * @return The current snapshot
+     */
+    public ConfigSnapshot getSnapshot() {
+        return this.snapshot.get();
+    }
+
+    /**
+     * Once the application is started load the snapshot and schedule its reconciliation with the database.
+     *
+     * @param event The context refreshed event
+     */
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.scheduler.scheduleAtFixedRate(this::refresh, this.refreshRate);
+        }
+    }
+
+    /**
+     * Reload the configuration which changed once the change has been committed.
+     *
+     * @param event The config changed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfigChanged(final ConfigChangedEvent event) {
+        if (event.getId() == null) {
+            this.refresh();
+            return;
+        }
+
+        synchronized (this.lock) {
+            try {
+                switch (event.getType()) {
+                    case CLUSTER:
+                        this.reloadCluster(event.getId());
+                        break;
+                    case COMMAND:
+                        this.reloadCommand(event.getId());
+                        break;
+                    case APPLICATION:
+                        this.reloadApplication(event.getId());
+                        break;
+                    default:
+                        log.warn("Unknown configuration type {}. Ignoring.", event.getType());
+                        return;
+                }
+                this.publish();
+            } catch (final GenieException ge) {
+                // The next reconciliation will pick the change up
+                log.error("Unable to reload {} {} into the configuration snapshot", event.getType(), event.getId(), ge);
+                this.refreshFailureCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the whole snapshot from the database.
+     */
+    public void refresh() {
+        final long start = System.nanoTime();
+        synchronized (this.lock) {
+            try {
+                final List<Application> allApplications = this.getAll(
+                    page -> this.applicationService.getApplications(null, null, null, null, null, page)
+                );
+                final List<Command> activeCommands = this.getAll(
+                    page -> this.commandService.getCommands(
+                        null,
+                        null,
+                        Sets.newHashSet(CommandStatus.ACTIVE),
+                        null,
+                        page
+                    )
+                );
+                final Map<String, List<String>> activeCommandApplications = new HashMap<>();
+                for (final Command command : activeCommands) {
+                    activeCommandApplications.put(command.getId(), this.getApplicationIds(command.getId()));
+                }
+                final List<Cluster> upClusters = this.getAll(
+                    page -> this.clusterService.getClusters(
+                        null,
+                        Sets.newHashSet(ClusterStatus.UP),
+                        null,
+                        null,
+                        null,
+                        page
+                    )
+                );
+                final Map<String, List<String>> upClusterCommands = new HashMap<>();
+                for (final Cluster cluster : upClusters) {
+                    upClusterCommands.put(cluster.getId(), this.getCommandIds(cluster.getId()));
+                }
+
+                this.applications.clear();
+                allApplications.forEach(application -> this.applications.put(application.getId(), application));
+                this.commands.clear();
+                activeCommands.forEach(command -> this.commands.put(command.getId(), command));
+                this.commandApplications.clear();
+                this.commandApplications.putAll(activeCommandApplications);
+                this.clusters.clear();
+                upClusters.forEach(cluster -> this.clusters.put(cluster.getId(), cluster));
+                this.clusterCommands.clear();
+                this.clusterCommands.putAll(upClusterCommands);
+                this.publish();
+            } catch (final Exception e) {
+                // Keep resolving with the last good snapshot until the next reconciliation
+                log.error("Unable to refresh the configuration snapshot", e);
+                this.refreshFailureCounter.increment();
+            } finally {
+                this.refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void reloadCluster(final String id) throws GenieException {
+        final Cluster cluster;
+        final List<Command> attached;
+        try {
+            cluster = this.clusterService.getCluster(id);
+            attached = this.clusterService.getCommandsForCluster(id, null);
+        } catch (final GenieNotFoundException gnfe) {
+            this.clusters.remove(id);
+            this.clusterCommands.remove(id);
+            return;
+        }
+
+        this.clusters.put(id, cluster);
+        this.clusterCommands.put(id, attached.stream().map(Command::getId).collect(Collectors.toList()));
+        for (final Command command : attached) {
+            // Commands attached through another node may not be known yet
+            if (command.getStatus() == CommandStatus.ACTIVE && !this.commandApplications.containsKey(command.getId())) {
+                this.reloadCommand(command.getId());
+            }
+        }
+    }
+
+    private void reloadCommand(final String id) throws GenieException {
+        final Command command;
+        final List<Application> attached;
+        try {
+            command = this.commandService.getCommand(id);
+            attached = this.commandService.getApplicationsForCommand(id);
+        } catch (final GenieNotFoundException gnfe) {
+            this.commands.remove(id);
+            this.commandApplications.remove(id);
+            // Deleting a command detaches it from all clusters
+            this.clusterCommands.values().forEach(commandIds -> commandIds.remove(id));
+            return;
+        }
+
+        this.commands.put(id, command);
+        this.commandApplications.put(id, attached.stream().map(Application::getId).collect(Collectors.toList()));
+        attached.forEach(application -> this.applications.put(application.getId(), application));
+    }
+
+    private void reloadApplication(final String id) throws GenieException {
+        try {
+            this.applications.put(id, this.applicationService.getApplication(id));
+        } catch (final GenieNotFoundException gnfe) {
+            this.applications.remove(id);
+        }
+    }
+
+    private List<String> getCommandIds(final String clusterId) throws GenieException {
+        return this.clusterService
+            .getCommandsForCluster(clusterId, null)
+            .stream()
+            .map(Command::getId)
+            .collect(Collectors.toList());
+    }
+
+    private List<String> getApplicationIds(final String commandId) throws GenieException {
+        return this.commandService
+            .getApplicationsForCommand(commandId)
+            .stream()
+            .map(Application::getId)
+            .collect(Collectors.toList());
+    }
+
+    private <T> List<T> getAll(final Function<Pageable, Page<T>> finder) {
+        final List<T> all = new ArrayList<>();
+        Page<T> page = finder.apply(new PageRequest(0, PAGE_SIZE, Sort.Direction.ASC, "id"));
+        all.addAll(page.getContent());
+        while (page.hasNext()) {
+            page = finder.apply(page.nextPageable());
+            all.addAll(page.getContent());
+        }
+        return all;
+    }
+
+    private void publish() {
+        final ConfigSnapshot next = new ConfigSnapshot(
+            ++this.version,
+            this.clusters,
+            this.clusterCommands,
+            this.commands,
+            this.commandApplications,
+            this.applications
+        );
+        this.snapshot.set(next);
+        this.snapshotVersion.set(next.getVersion());
+        log.debug(
+            "Published configuration snapshot {} with {} clusters, {} commands and {} applications",
+            next.getVersion(),
+            next.getNumClusters(),
+            next.getNumCommands(),
+            next.getNumApplications()
+        );
+    }
+}
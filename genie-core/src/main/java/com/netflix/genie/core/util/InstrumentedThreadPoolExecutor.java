@@ -0,0 +1,130 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size thread pool with a bounded queue which exports how saturated it is.
+ * <p>
+ * Given a name of genie.foo it exports genie.foo.active.gauge for the number of threads running tasks,
+ * genie.foo.queue.gauge for the number of tasks waiting for a thread, genie.foo.wait.timer for how long tasks waited
+ * for a thread and genie.foo.rejected.rate for the tasks handed to the rejection policy because the queue was full.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final Timer waitTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param name                     The prefix of the metrics of this pool. Also used to name its threads
+     * @param poolSize                 The number of threads in the pool
+     * @param queueCapacity            The maximum number of tasks waiting for a thread
+     * @param rejectedExecutionHandler What to do with tasks submitted while the queue is full
+     * @param registry                 The metrics registry to use
+     */
+    public InstrumentedThreadPoolExecutor(
+        @NotBlank final String name,
+        final int poolSize,
+        final int queueCapacity,
+        @NotNull final RejectedExecutionHandler rejectedExecutionHandler,
+        @NotNull final Registry registry
+    ) {
+        super(
+            poolSize,
+            poolSize,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            new ThreadFactoryBuilder().setNameFormat(name.replace('.', '-') + "-%d").setDaemon(true).build(),
+            new CountingRejectedExecutionHandler(rejectedExecutionHandler, registry.counter(name + ".rejected.rate"))
+        );
+        this.waitTimer = registry.timer(name + ".wait.timer");
+        registry.methodValue(name + ".active.gauge", this, "getActiveCount");
+        registry.collectionSize(name + ".queue.gauge", this.getQueue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(final Runnable command) {
+        super.execute(new QueuedTask(command));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void beforeExecute(final Thread thread, final Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        if (runnable instanceof QueuedTask) {
+            this.waitTimer.record(System.nanoTime() - ((QueuedTask) runnable).queuedTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A task remembering when it was handed to the pool.
+     */
+    private static final class QueuedTask implements Runnable {
+        private final Runnable delegate;
+        private final long queuedTime = System.nanoTime();
+
+        QueuedTask(final Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            this.delegate.run();
+        }
+    }
+
+    /**
+     * Counts the rejected tasks before applying the rejection policy.
+     */
+    private static final class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+        private final Counter rejectedRate;
+
+        CountingRejectedExecutionHandler(final RejectedExecutionHandler delegate, final Counter rejectedRate) {
+            this.delegate = delegate;
+            this.rejectedRate = rejectedRate;
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            this.rejectedRate.increment();
+            this.delegate.rejectedExecution(runnable, executor);
+        }
+    }
+}
@@ -55,6 +55,11 @@ public final class MetricsConstants {
      */
     public static final String GENIE_EXCEPTIONS_SERVER_UNAVAILABLE_RATE = "genie.exceptions.serverUnavailable.rate";
 
+    /**
+     * For counting how often requests are rejected because the system is too busy.
+     */
+    public static final String GENIE_EXCEPTIONS_TOO_MANY_REQUESTS_RATE = "genie.exceptions.tooManyRequests.rate";
+
     /**
      * For counting how often timeout exceptions happen in the system.
      */
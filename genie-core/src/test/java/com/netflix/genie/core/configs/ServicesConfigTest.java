@@ -23,28 +23,41 @@ import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
 import com.netflix.genie.core.jpa.repositories.JpaCommandRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
+import com.netflix.genie.core.jpa.repositories.JpaJobFingerprintRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
 import com.netflix.genie.core.jpa.services.JpaApplicationServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaClusterServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaCommandServiceImpl;
+import com.netflix.genie.core.jpa.services.JpaJobMemoizationServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobPersistenceServiceImpl;
+import com.netflix.genie.core.jpa.services.JpaJobResolverServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobSearchServiceImpl;
 import com.netflix.genie.core.services.ApplicationService;
 import com.netflix.genie.core.services.ClusterLoadBalancer;
 import com.netflix.genie.core.services.ClusterService;
 import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.DependencyCacheService;
 import com.netflix.genie.core.services.FileTransfer;
 import com.netflix.genie.core.services.JobCoordinatorService;
-import com.netflix.genie.core.services.JobCountService;
 import com.netflix.genie.core.services.JobKillService;
+import com.netflix.genie.core.services.JobMemoizationService;
 import com.netflix.genie.core.services.JobPersistenceService;
+import com.netflix.genie.core.services.JobQuotaService;
+import com.netflix.genie.core.services.JobResolverService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobSlotService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.impl.DiskDependencyCacheServiceImpl;
+import com.netflix.genie.core.services.impl.FileTransferScheduler;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
-import com.netflix.genie.core.services.impl.JobCountServiceImpl;
+import com.netflix.genie.core.services.impl.JobStagingService;
 import com.netflix.genie.core.services.impl.LocalJobKillServiceImpl;
+import com.netflix.genie.core.services.impl.LocalJobQuotaServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobRunner;
+import com.netflix.genie.core.services.impl.LocalJobSlotServiceImpl;
+import com.netflix.genie.core.services.impl.LocalJobTimelineServiceImpl;
 import com.netflix.genie.core.services.impl.RandomizedClusterLoadBalancerImpl;
 import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.spectator.api.Registry;
@@ -57,7 +70,11 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Configuration to create the Service beans for Genie Core Tests.
@@ -73,46 +90,52 @@ public class ServicesConfigTest {
      *
      * @param applicationRepo The application repository to use.
      * @param commandRepo     The command repository to use.
+     * @param eventPublisher  The application event publisher to use.
      * @return An application service instance.
      */
     @Bean
     public ApplicationService applicationService(
         final JpaApplicationRepository applicationRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaApplicationServiceImpl(applicationRepo, commandRepo);
+        return new JpaApplicationServiceImpl(applicationRepo, commandRepo, eventPublisher);
     }
 
     /**
      * Get JPA based implementation of the ClusterService.
      *
-     * @param clusterRepo The cluster repository to use.
-     * @param commandRepo The command repository to use.
+     * @param clusterRepo    The cluster repository to use.
+     * @param commandRepo    The command repository to use.
+     * @param eventPublisher The application event publisher to use.
      * @return A cluster service instance.
      */
     @Bean
     public ClusterService clusterService(
         final JpaClusterRepository clusterRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaClusterServiceImpl(clusterRepo, commandRepo);
+        return new JpaClusterServiceImpl(clusterRepo, commandRepo, eventPublisher);
     }
 
     /**
      * Get JPA based implementation of the CommandService.
      *
-     * @param commandRepo the command repository to use
-     * @param appRepo     the application repository to use
-     * @param clusterRepo the cluster repository to use
+     * @param commandRepo    the command repository to use
+     * @param appRepo        the application repository to use
+     * @param clusterRepo    the cluster repository to use
+     * @param eventPublisher the application event publisher to use
      * @return A command service instance.
      */
     @Bean
     public CommandService commandService(
         final JpaCommandRepository commandRepo,
         final JpaApplicationRepository appRepo,
-        final JpaClusterRepository clusterRepo
+        final JpaClusterRepository clusterRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaCommandServiceImpl(commandRepo, appRepo, clusterRepo);
+        return new JpaCommandServiceImpl(commandRepo, appRepo, clusterRepo, eventPublisher);
     }
 
     /**
@@ -132,6 +155,23 @@ public class ServicesConfigTest {
         return new JpaJobSearchServiceImpl(jobRepository, jobRequestRepository, jobExecutionRepository);
     }
 
+    /**
+     * Get JPA based implementation of the JobResolverService.
+     *
+     * @param clusterRepo         The cluster repository to use
+     * @param applicationRepo     The application repository to use
+     * @param clusterLoadBalancer The load balancer to use to pick a cluster for the job
+     * @return A job resolver service instance.
+     */
+    @Bean
+    public JobResolverService jobResolverService(
+        final JpaClusterRepository clusterRepo,
+        final JpaApplicationRepository applicationRepo,
+        final ClusterLoadBalancer clusterLoadBalancer
+    ) {
+        return new JpaJobResolverServiceImpl(clusterRepo, applicationRepo, clusterLoadBalancer);
+    }
+
     /**
      * Get JPA based implementation of the JobPersistenceService.
      *
@@ -195,25 +235,104 @@ public class ServicesConfigTest {
      * Get an instance of the Genie File Transfer service.
      *
      * @param fileTransferImpls List of implementations of all fileTransfer interface
+     * @param registry          The metrics registry to use
      * @return An singelton for GenieFileTransferService
      * @throws GenieException If there is any problem
      */
     @Bean
     public GenieFileTransferService genieFileTransferService(
-        final List<FileTransfer> fileTransferImpls
+        final List<FileTransfer> fileTransferImpls,
+        final Registry registry
+    ) throws GenieException {
+        return new GenieFileTransferService(
+            fileTransferImpls,
+            new FileTransferScheduler(0, Collections.emptyMap(), Collections.emptyMap(), registry)
+        );
+    }
+
+    /**
+     * Get the cache on the local disk of the files jobs need.
+     *
+     * @param fts       File Transfer service.
+     * @param cacheDir  The directory to keep the cache in.
+     * @param maxSize   The size, in bytes, to keep the cache under. 0 to not cache anything.
+     * @param link      Whether jobs are given read only hard links to the cached files rather than copies.
+     * @param runAsUser Whether jobs on this instance are run as the user, in which case files are never linked.
+     * @param registry  The metrics registry to use.
+     * @return The dependency cache service bean.
+     * @throws GenieException If the cache directory can't be set up
+     */
+    @Bean
+    public DependencyCacheService dependencyCacheService(
+        final GenieFileTransferService fts,
+        @Value("${genie.jobs.dependencies.cache.location:/tmp/genie/cache/}") final String cacheDir,
+        @Value("${genie.jobs.dependencies.cache.maxSize:10737418240}") final long maxSize,
+        @Value("${genie.jobs.dependencies.cache.link.enabled:false}") final boolean link,
+        @Value("${genie.jobs.runAsUser.enabled:false}") final boolean runAsUser,
+        final Registry registry
     ) throws GenieException {
-        return new GenieFileTransferService(fileTransferImpls);
+        return new DiskDependencyCacheServiceImpl(fts, new File(cacheDir), maxSize, link && !runAsUser, registry);
+    }
+
+    /**
+     * Get the service which stages the files each job needs concurrently on a bounded I/O pool.
+     *
+     * @param dcs                       The cache to fetch the files through.
+     * @param jobTimelineService        The service to record the launch timelines of jobs with.
+     * @param maxConcurrentFilesPerNode The maximum number of files to fetch at once across all jobs on this node.
+     * @param queueCapacity             The maximum number of files waiting to be fetched across all jobs.
+     * @param maxConcurrentFilesPerJob  The maximum number of files to fetch at once for a single job.
+     * @param timeout                   How long, in milliseconds, to wait for the files of a job to be staged.
+     * @param registry                  The metrics registry to use.
+     * @return The job staging service bean.
+     */
+    @Bean
+    public JobStagingService jobStagingService(
+        final DependencyCacheService dcs,
+        final JobTimelineService jobTimelineService,
+        @Value("${genie.jobs.staging.concurrency.node:16}") final int maxConcurrentFilesPerNode,
+        @Value("${genie.jobs.staging.queue.capacity:1000}") final int queueCapacity,
+        @Value("${genie.jobs.staging.concurrency.job:8}") final int maxConcurrentFilesPerJob,
+        @Value("${genie.jobs.staging.timeout:1800000}") final long timeout,
+        final Registry registry
+    ) {
+        return new JobStagingService(
+            dcs,
+            null,
+            jobTimelineService,
+            maxConcurrentFilesPerNode,
+            queueCapacity,
+            maxConcurrentFilesPerJob,
+            timeout,
+            registry
+        );
+    }
+
+    /**
+     * Get the service which records how long each stage of launching a job takes on this node.
+     *
+     * @param maxJobs  The maximum number of job timelines to keep in memory.
+     * @param registry The metrics registry to use.
+     * @return The job timeline service bean.
+     */
+    @Bean
+    public JobTimelineService jobTimelineService(
+        @Value("${genie.jobs.timeline.maxJobs:10000}") final int maxJobs,
+        final Registry registry
+    ) {
+        return new LocalJobTimelineServiceImpl(maxJobs, registry);
     }
 
     /**
      * Get a implementation of the JobSubmitterService that runs jobs locally.
      *
      * @param jps                 Implementation of the job persistence service.
-     * @param applicationService  Implementation of application service interface.
-     * @param clusterService      Implementation of cluster service interface.
-     * @param commandService      Implementation of command service interface.
-     * @param clusterLoadBalancer Implementation of the cluster load balancer interface.
+     * @param jobResolverService  Implementation of the job resolver service interface.
      * @param fts                 File Transfer service.
+     * @param jss                 Service to stage the files each job needs.
+     * @param jts                 Service to record the launch timelines of jobs.
+     * @param jobKickoffExecutor  Executor to launch jobs on once their files are staged.
+     * @param jms                 Service to save the fingerprints of memoized jobs with.
      * @param aep                 Instance of the event publisher.
      * @param workflowTasks       List of all the workflow tasks to be executed.
      * @param genieWorkingDir     Working directory for genie where it creates jobs directories.
@@ -222,22 +341,24 @@ public class ServicesConfigTest {
     @Bean
     public JobSubmitterService jobSubmitterService(
         final JobPersistenceService jps,
-        final ApplicationService applicationService,
-        final ClusterService clusterService,
-        final CommandService commandService,
-        final ClusterLoadBalancer clusterLoadBalancer,
+        final JobResolverService jobResolverService,
         final GenieFileTransferService fts,
+        final JobStagingService jss,
+        final JobTimelineService jts,
+        final ExecutorService jobKickoffExecutor,
+        final JobMemoizationService jms,
         final ApplicationEventPublisher aep,
         final List<WorkflowTask> workflowTasks,
         final Resource genieWorkingDir
     ) {
         return new LocalJobRunner(
             jps,
-            applicationService,
-            clusterService,
-            commandService,
-            clusterLoadBalancer,
+            jobResolverService,
             fts,
+            jss,
+            jts,
+            jobKickoffExecutor,
+            jms,
             aep,
             workflowTasks,
             genieWorkingDir
@@ -245,15 +366,83 @@ public class ServicesConfigTest {
     }
 
     /**
-     * The job count service to use.
+     * The job slot service to use.
      *
+     * @param maxRunningJobs   The maximum number of running jobs on system
+     * @param maxCpu           The number of cpus jobs can reserve on the system
+     * @param maxMemory        The memory, in MB, jobs can reserve on the system
      * @param jobSearchService The job search implementation to use
      * @param hostname         The hostname of this Genie node
-     * @return The job count service bean
+     * @return The job slot service bean
+     */
+    @Bean
+    public JobSlotService jobSlotService(
+        @Value("${genie.jobs.max.running:2}")
+        final int maxRunningJobs,
+        @Value("${genie.jobs.resources.cpu:2147483647}")
+        final int maxCpu,
+        @Value("${genie.jobs.resources.memory:9223372036854775807}")
+        final long maxMemory,
+        final JobSearchService jobSearchService,
+        final String hostname
+    ) {
+        return new LocalJobSlotServiceImpl(maxRunningJobs, maxCpu, maxMemory, jobSearchService, hostname);
+    }
+
+    /**
+     * The job quota service to use.
+     *
+     * @param defaultUserLimit The maximum number of jobs a user can run on the system at once
+     * @param jobSearchService The job search implementation to use
+     * @param hostname         The hostname of this Genie node
+     * @param registry         The registry to use
+     * @return The job quota service bean
+     */
+    @Bean
+    public JobQuotaService jobQuotaService(
+        @Value("${genie.jobs.quotas.defaultUserLimit:0}")
+        final int defaultUserLimit,
+        final JobSearchService jobSearchService,
+        final String hostname,
+        final Registry registry
+    ) {
+        return new LocalJobQuotaServiceImpl(
+            defaultUserLimit,
+            Collections.emptyMap(),
+            Collections.emptyMap(),
+            Collections.emptyMap(),
+            jobSearchService,
+            hostname,
+            registry
+        );
+    }
+
+    /**
+     * The job memoization service to use.
+     *
+     * @param jobFingerprintRepository The repository to store the fingerprints of jobs in
+     * @param jobSearchService         The job search implementation to use
+     * @param jobResolverService       The job resolver implementation to use
+     * @param fts                      The file transfer service to use
+     * @param ttl                      How long, in milliseconds, a successful job can be returned for
+     * @return The job memoization service bean
      */
     @Bean
-    public JobCountService jobCountService(final JobSearchService jobSearchService, final String hostname) {
-        return new JobCountServiceImpl(jobSearchService, hostname);
+    public JobMemoizationService jobMemoizationService(
+        final JpaJobFingerprintRepository jobFingerprintRepository,
+        final JobSearchService jobSearchService,
+        final JobResolverService jobResolverService,
+        final GenieFileTransferService fts,
+        @Value("${genie.jobs.memoization.ttl:86400000}")
+        final long ttl
+    ) {
+        return new JpaJobMemoizationServiceImpl(
+            jobFingerprintRepository,
+            jobSearchService,
+            jobResolverService,
+            fts,
+            ttl
+        );
     }
 
     /**
@@ -266,6 +455,16 @@ public class ServicesConfigTest {
         return new ThreadPoolTaskExecutor();
     }
 
+    /**
+     * The executor to launch jobs on once their files are staged.
+     *
+     * @return The executor to launch jobs on
+     */
+    @Bean
+    public ExecutorService jobKickoffExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
     /**
      * Registry bean.
      *
@@ -282,10 +481,16 @@ public class ServicesConfigTest {
      * @param taskExecutor          implementation of the async task executor interface to use
      * @param jobPersistenceService implementation of job persistence service interface.
      * @param jobSubmitterService   implementation of the job submitter service.
-     * @param jobCountService       implementation of job count service interface
+     * @param jobSlotService        implementation of job slot service interface
+     * @param jobQuotaService       implementation of job quota service interface
+     * @param jobMemoizationService implementation of job memoization service interface
+     * @param jobTimelineService    The service to record the launch timelines of jobs with
      * @param jobKillService        The job kill service to use.
      * @param baseArchiveLocation   The base directory location of where the job dir should be archived.
-     * @param maxRunningJobs        The maximum number of running jobs on system
+     * @param hostName              The name of this host
+     * @param maxQueuedJobs         The maximum number of jobs waiting for a free slot on the system
+     * @param queueRetryAfter       The number of seconds clients should wait to retry when the queue is full
+     * @param rejectOverQuota       Whether to reject jobs of users over their quota rather than queue them
      * @param registry              The registry to use
      * @param eventPublisher        The system event publisher
      * @return An instance of the JobCoordinatorService.
@@ -296,11 +501,19 @@ public class ServicesConfigTest {
         final JobPersistenceService jobPersistenceService,
         final JobSubmitterService jobSubmitterService,
         final JobKillService jobKillService,
-        final JobCountService jobCountService,
+        final JobSlotService jobSlotService,
+        final JobQuotaService jobQuotaService,
+        final JobMemoizationService jobMemoizationService,
+        final JobTimelineService jobTimelineService,
         @Value("${genie.jobs.archive.location}")
         final String baseArchiveLocation,
-        @Value("${genie.jobs.max.running:2}")
-        final int maxRunningJobs,
+        final String hostName,
+        @Value("${genie.jobs.max.queued:0}")
+        final int maxQueuedJobs,
+        @Value("${genie.jobs.queue.retryAfter:30}")
+        final long queueRetryAfter,
+        @Value("${genie.jobs.quotas.rejectOverQuota:false}")
+        final boolean rejectOverQuota,
         final Registry registry,
         final ApplicationEventPublisher eventPublisher
     ) {
@@ -309,9 +522,15 @@ public class ServicesConfigTest {
             jobPersistenceService,
             jobSubmitterService,
             jobKillService,
-            jobCountService,
+            jobSlotService,
+            jobQuotaService,
+            jobMemoizationService,
+            jobTimelineService,
             baseArchiveLocation,
-            maxRunningJobs,
+            hostName,
+            maxQueuedJobs,
+            queueRetryAfter,
+            rejectOverQuota,
             registry,
             eventPublisher
         );
@@ -0,0 +1,308 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterCriteria;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for the ConfigSnapshot class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class ConfigSnapshotUnitTests {
+
+    private static final String CLUSTER_1_ID = "cluster1";
+    private static final String CLUSTER_2_ID = "cluster2";
+    private static final String CLUSTER_3_ID = "cluster3";
+    private static final String COMMAND_1_ID = "command1";
+    private static final String COMMAND_2_ID = "command2";
+    private static final String COMMAND_3_ID = "command3";
+    private static final String APP_1_ID = "app1";
+    private static final String APP_2_ID = "app2";
+
+    private Map<String, Cluster> clusters;
+    private Map<String, List<String>> clusterCommands;
+    private Map<String, Command> commands;
+    private Map<String, List<String>> commandApplications;
+    private Map<String, Application> applications;
+    private ClusterLoadBalancer clusterLoadBalancer;
+    private ConfigSnapshot snapshot;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException on error
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.clusters = ImmutableMap.of(
+            CLUSTER_1_ID, this.createCluster(CLUSTER_1_ID, ClusterStatus.UP, "hive", "pig", "prod"),
+            CLUSTER_2_ID, this.createCluster(CLUSTER_2_ID, ClusterStatus.UP, "hive", "pig", "query"),
+            CLUSTER_3_ID, this.createCluster(CLUSTER_3_ID, ClusterStatus.OUT_OF_SERVICE, "pig", "adhoc")
+        );
+        this.clusterCommands = ImmutableMap.of(
+            CLUSTER_1_ID, Lists.newArrayList(COMMAND_3_ID, COMMAND_2_ID, COMMAND_1_ID),
+            CLUSTER_2_ID, Lists.newArrayList(COMMAND_1_ID),
+            CLUSTER_3_ID, Lists.newArrayList(COMMAND_1_ID, COMMAND_2_ID)
+        );
+        this.commands = ImmutableMap.of(
+            COMMAND_1_ID, this.createCommand(COMMAND_1_ID, CommandStatus.ACTIVE, "pig", "prod", "tez"),
+            COMMAND_2_ID, this.createCommand(COMMAND_2_ID, CommandStatus.ACTIVE, "pig", "prod", "mr"),
+            COMMAND_3_ID, this.createCommand(COMMAND_3_ID, CommandStatus.INACTIVE, "pig", "prod")
+        );
+        this.commandApplications = ImmutableMap.of(
+            COMMAND_1_ID, Lists.newArrayList(APP_2_ID, APP_1_ID),
+            COMMAND_2_ID, Lists.newArrayList()
+        );
+        this.applications = ImmutableMap.of(
+            APP_1_ID, this.createApplication(APP_1_ID),
+            APP_2_ID, this.createApplication(APP_2_ID)
+        );
+
+        this.clusterLoadBalancer = Mockito.mock(ClusterLoadBalancer.class);
+        Mockito
+            .when(this.clusterLoadBalancer.selectCluster(Mockito.anyListOf(Cluster.class)))
+            .thenReturn(this.clusters.get(CLUSTER_1_ID));
+        this.snapshot = new ConfigSnapshot(
+            3L,
+            this.clusters,
+            this.clusterCommands,
+            this.commands,
+            this.commandApplications,
+            this.applications
+        );
+    }
+
+    /**
+     * Make sure clusters which aren't UP and commands which aren't ACTIVE are left out of the snapshot.
+     */
+    @Test
+    public void canFilterOutUnavailableConfiguration() {
+        Assert.assertThat(this.snapshot.getVersion(), Matchers.is(3L));
+        Assert.assertThat(this.snapshot.getNumClusters(), Matchers.is(2));
+        Assert.assertThat(this.snapshot.getNumCommands(), Matchers.is(2));
+        Assert.assertThat(this.snapshot.getNumApplications(), Matchers.is(2));
+
+        Assert.assertThat(ConfigSnapshot.EMPTY.getVersion(), Matchers.is(0L));
+        Assert.assertThat(ConfigSnapshot.EMPTY.getNumClusters(), Matchers.is(0));
+        Assert.assertThat(ConfigSnapshot.EMPTY.getNumCommands(), Matchers.is(0));
+        Assert.assertThat(ConfigSnapshot.EMPTY.getNumApplications(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure the highest priority matching command of every matching cluster is a candidate and the applications
+     * of the command are used when none are requested.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canResolveJob() throws GenieException {
+        final ResolvedJob resolvedJob = this.snapshot.resolve(
+            this.createJobRequest(Sets.newHashSet("pig"), Sets.newHashSet("hive")),
+            this.clusterLoadBalancer
+        );
+
+        Assert.assertNotNull(resolvedJob);
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.clusterLoadBalancer, Mockito.times(1)).selectCluster(captor.capture());
+        Assert.assertThat(
+            captor.getValue(),
+            Matchers.containsInAnyOrder(this.clusters.get(CLUSTER_1_ID), this.clusters.get(CLUSTER_2_ID))
+        );
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_1_ID));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_2_ID));
+        Assert.assertTrue(resolvedJob.getApplications().isEmpty());
+    }
+
+    /**
+     * Make sure all the tags of the command criteria have to match and the requested applications are used in order.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canResolveJobWithRequestedApplications() throws GenieException {
+        final JobRequest jobRequest = new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(new ClusterCriteria(Sets.newHashSet("prod"))),
+            Sets.newHashSet("pig", "tez")
+        )
+            .withApplications(Lists.newArrayList(APP_1_ID, APP_2_ID))
+            .build();
+
+        final ResolvedJob resolvedJob = this.snapshot.resolve(jobRequest, this.clusterLoadBalancer);
+
+        Assert.assertNotNull(resolvedJob);
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_1_ID));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+        Assert.assertThat(
+            resolvedJob.getApplications(),
+            Matchers.contains(this.applications.get(APP_1_ID), this.applications.get(APP_2_ID))
+        );
+    }
+
+    /**
+     * Make sure the next cluster criteria is tried when nothing matches the first one.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canFallThroughClusterCriterias() throws GenieException {
+        Mockito
+            .when(this.clusterLoadBalancer.selectCluster(Mockito.anyListOf(Cluster.class)))
+            .thenReturn(this.clusters.get(CLUSTER_2_ID));
+        final JobRequest jobRequest = new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(
+                new ClusterCriteria(Sets.newHashSet("adhoc")),
+                new ClusterCriteria(Sets.newHashSet("query"))
+            ),
+            Sets.newHashSet("pig")
+        ).build();
+
+        final ResolvedJob resolvedJob = this.snapshot.resolve(jobRequest, this.clusterLoadBalancer);
+
+        Assert.assertNotNull(resolvedJob);
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_2_ID));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+        Assert.assertThat(
+            resolvedJob.getApplications(),
+            Matchers.contains(this.applications.get(APP_2_ID), this.applications.get(APP_1_ID))
+        );
+    }
+
+    /**
+     * Make sure null is returned when the snapshot can't resolve the request.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void cantResolveJob() throws GenieException {
+        // Unknown command tag
+        Assert.assertNull(
+            this.snapshot.resolve(
+                this.createJobRequest(Sets.newHashSet("spark"), Sets.newHashSet("prod")),
+                this.clusterLoadBalancer
+            )
+        );
+        // Only matches a cluster which isn't UP
+        Assert.assertNull(
+            this.snapshot.resolve(
+                this.createJobRequest(Sets.newHashSet("pig"), Sets.newHashSet("adhoc")),
+                this.clusterLoadBalancer
+            )
+        );
+        // Cluster and command both match but the command isn't attached to the cluster
+        Assert.assertNull(
+            this.snapshot.resolve(
+                this.createJobRequest(Sets.newHashSet("pig", "mr"), Sets.newHashSet("query", "pig")),
+                this.clusterLoadBalancer
+            )
+        );
+        Mockito.verify(this.clusterLoadBalancer, Mockito.never()).selectCluster(Mockito.anyListOf(Cluster.class));
+
+        // Unknown application
+        final JobRequest jobRequest = new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(new ClusterCriteria(Sets.newHashSet("prod"))),
+            Sets.newHashSet("pig")
+        )
+            .withApplications(Lists.newArrayList(APP_1_ID, UUID.randomUUID().toString()))
+            .build();
+        Assert.assertNull(this.snapshot.resolve(jobRequest, this.clusterLoadBalancer));
+    }
+
+    private JobRequest createJobRequest(final Set<String> commandCriteria, final Set<String> clusterTags) {
+        return new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(new ClusterCriteria(clusterTags)),
+            commandCriteria
+        ).build();
+    }
+
+    private Cluster createCluster(final String id, final ClusterStatus status, final String... tags) {
+        return new Cluster.Builder(id, UUID.randomUUID().toString(), UUID.randomUUID().toString(), status)
+            .withId(id)
+            .withTags(Sets.newHashSet(tags))
+            .build();
+    }
+
+    private Command createCommand(final String id, final CommandStatus status, final String... tags) {
+        return new Command.Builder(
+            id,
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            status,
+            UUID.randomUUID().toString(),
+            5000L
+        )
+            .withId(id)
+            .withTags(Sets.newHashSet(tags))
+            .build();
+    }
+
+    private Application createApplication(final String id) {
+        return new Application.Builder(
+            id,
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            ApplicationStatus.ACTIVE
+        )
+            .withId(id)
+            .build();
+    }
+}
@@ -21,6 +21,7 @@ import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
 import com.netflix.genie.core.util.MetricsConstants;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Counter;
@@ -44,6 +45,7 @@ public class JobLauncherUnitTests {
     private Registry registry;
     private Counter counter;
     private JobRequest jobRequest;
+    private JobTimelineService jobTimelineService;
 
     /**
      * Setup for the tests.
@@ -54,7 +56,9 @@ public class JobLauncherUnitTests {
         this.jobSubmitterService = Mockito.mock(JobSubmitterService.class);
         this.registry = Mockito.mock(Registry.class);
         this.counter = Mockito.mock(Counter.class);
-        this.jobLauncher = new JobLauncher(this.jobSubmitterService, this.jobRequest, this.registry);
+        this.jobTimelineService = Mockito.mock(JobTimelineService.class);
+        this.jobLauncher
+            = new JobLauncher(this.jobSubmitterService, this.jobRequest, this.registry, this.jobTimelineService);
     }
 
     /**
@@ -64,8 +68,12 @@ public class JobLauncherUnitTests {
      */
     @Test
     public void canRun() throws GenieException {
+        Mockito.when(this.jobRequest.getId()).thenReturn("job1");
         this.jobLauncher.run();
         Mockito.verify(this.jobSubmitterService, Mockito.times(1)).submitJob(this.jobRequest);
+        Mockito
+            .verify(this.jobTimelineService, Mockito.times(1))
+            .record(Mockito.eq("job1"), Mockito.eq("executor.queue"), Mockito.anyLong());
     }
 
     /**
@@ -0,0 +1,367 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the JobStaging class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JobStagingUnitTests {
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DependencyCacheService dependencyCacheService;
+    private StagedEnvironmentService stagedEnvironmentService;
+    private JobTimelineService jobTimelineService;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+    private Registry registry;
+    private File jobDir;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error creating the job directory
+     */
+    @Before
+    public void setup() throws IOException {
+        this.dependencyCacheService = Mockito.mock(DependencyCacheService.class);
+        this.stagedEnvironmentService = Mockito.mock(StagedEnvironmentService.class);
+        this.jobTimelineService = Mockito.mock(JobTimelineService.class);
+        this.executor = Executors.newFixedThreadPool(4);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.registry = new DefaultRegistry();
+        this.jobDir = this.folder.newFolder();
+    }
+
+    /**
+     * Stop the pools after each test.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Make sure the files are fetched concurrently and missing directories are created before fetching into them.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canStageFilesConcurrently() throws GenieException {
+        // Each transfer waits for the other one so staging can only finish if they run at the same time
+        final CountDownLatch latch = new CountDownLatch(2);
+        final File dependencies = new File(this.jobDir, "genie/applications/app1/dependencies");
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    Assert.assertTrue(dependencies.isDirectory());
+                    latch.countDown();
+                    latch.await(10, TimeUnit.SECONDS);
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(2, 10000L);
+        staging.getFile("s3://bucket/dep1.jar", new File(dependencies, "dep1.jar").getPath());
+        staging.getFile("s3://bucket/dep2.jar", new File(dependencies, "dep2.jar").getPath());
+        staging.awaitCompletion();
+
+        Assert.assertThat(latch.getCount(), Matchers.is(0L));
+        Mockito
+            .verify(this.dependencyCacheService, Mockito.times(1))
+            .getFile("s3://bucket/dep1.jar", new File(dependencies, "dep1.jar").getPath());
+        Mockito
+            .verify(this.dependencyCacheService, Mockito.times(1))
+            .getFile("s3://bucket/dep2.jar", new File(dependencies, "dep2.jar").getPath());
+        Assert.assertThat(this.registry.timer("genie.jobs.staging.file.timer").count(), Matchers.is(2L));
+        Assert.assertThat(this.registry.timer("genie.jobs.staging.timer").count(), Matchers.is(1L));
+        Mockito
+            .verify(this.jobTimelineService, Mockito.times(1))
+            .record(
+                Mockito.eq("job1"),
+                Mockito.eq("transfer"),
+                Mockito.eq("s3://bucket/dep1.jar"),
+                Mockito.anyLong(),
+                Mockito.anyLong()
+            );
+    }
+
+    /**
+     * Make sure no more than the maximum number of files of a job are fetched at once.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canLimitConcurrentFilesPerJob() throws GenieException {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    inFlight.decrementAndGet();
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(1, 10000L);
+        for (int i = 0; i < 5; i++) {
+            staging.getFile("s3://bucket/config" + i, new File(this.jobDir, "config" + i).getPath());
+        }
+        staging.awaitCompletion();
+
+        Assert.assertThat(maxInFlight.get(), Matchers.is(1));
+        Mockito.verify(this.dependencyCacheService, Mockito.times(5)).getFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Make sure staging fails with the error of the file which couldn't be fetched.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantStageFileWhichCantBeFetched() throws GenieException {
+        Mockito
+            .doThrow(new GenieNotFoundException("no such file"))
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.eq("s3://bucket/missing"), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(2, 10000L);
+        staging.getFile("s3://bucket/config", new File(this.jobDir, "config").getPath());
+        staging.getFile("s3://bucket/missing", new File(this.jobDir, "missing").getPath());
+        try {
+            staging.awaitCompletion();
+        } finally {
+            Assert.assertThat(
+                this.registry.counter("genie.jobs.staging.file.failure.rate").count(),
+                Matchers.is(1L)
+            );
+        }
+    }
+
+    /**
+     * Make sure staging fails if the files aren't fetched in time.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieServerException.class)
+    public void cantStageFilesInTime() throws GenieException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    latch.await(10, TimeUnit.SECONDS);
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(2, 50L);
+        staging.getFile("s3://bucket/setup", new File(this.jobDir, "setup").getPath());
+        try {
+            staging.awaitCompletion();
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Make sure files queued on the I/O pool are never fetched once staging is cancelled.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canCancelQueuedFiles() throws Exception {
+        // The pool has four threads, the first four transfers hold them while the others are queued
+        final CountDownLatch started = new CountDownLatch(4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    started.countDown();
+                    latch.await(10, TimeUnit.SECONDS);
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(8, 10000L);
+        for (int i = 0; i < 8; i++) {
+            staging.getFile("s3://bucket/dep" + i, new File(this.jobDir, "dep" + i).getPath());
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        staging.cancel();
+        latch.countDown();
+        this.executor.shutdown();
+        Assert.assertTrue(this.executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Mockito.verify(this.dependencyCacheService, Mockito.times(4)).getFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Make sure callers can be told once staging is done rather than waiting for it.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canNotifyWhenStaged() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    latch.await(10, TimeUnit.SECONDS);
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+
+        final JobStaging staging = this.createStaging(2, 10000L);
+        staging.getFile("s3://bucket/setup", new File(this.jobDir, "setup").getPath());
+        final CompletableFuture<Void> staged = staging.whenStaged();
+        Assert.assertThat(staging.whenStaged(), Matchers.sameInstance(staged));
+        Assert.assertFalse(staged.isDone());
+
+        final CompletableFuture<String> launched = staged.thenApply(result -> "launched");
+        latch.countDown();
+        Assert.assertThat(launched.get(10, TimeUnit.SECONDS), Matchers.is("launched"));
+        Assert.assertThat(this.registry.timer("genie.jobs.staging.timer").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure the directory of the link to a staged environment is created before it's linked and the job waits
+     * for the link.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canLinkEnvironment() throws GenieException {
+        final File applications = new File(this.jobDir, "genie/applications");
+        final File link = new File(applications, "app1");
+        final Map<String, String> files = new HashMap<>();
+        files.put("dependencies/dep1.jar", "s3://bucket/dep1.jar");
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    Assert.assertTrue(applications.isDirectory());
+                    return null;
+                }
+            )
+            .when(this.stagedEnvironmentService)
+            .link(AdminResources.APPLICATION, "app1", "1234", files, link);
+
+        final JobStaging staging = this.createStaging(2, 10000L);
+        Assert.assertTrue(staging.canLinkEnvironments());
+        staging.linkEnvironment(AdminResources.APPLICATION, "app1", "1234", files, link);
+        staging.awaitCompletion();
+
+        Mockito
+            .verify(this.stagedEnvironmentService, Mockito.times(1))
+            .link(AdminResources.APPLICATION, "app1", "1234", files, link);
+        Mockito.verify(this.dependencyCacheService, Mockito.never()).getFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Make sure environments can't be linked when they aren't shared.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieServerException.class)
+    public void cantLinkEnvironmentWhenNotShared() throws GenieException {
+        final JobStaging staging = this.createStaging(2, 10000L, null);
+        Assert.assertFalse(staging.canLinkEnvironments());
+        staging.linkEnvironment(
+            AdminResources.CLUSTER,
+            "cluster1",
+            "1234",
+            new HashMap<>(),
+            new File(this.jobDir, "genie/cluster/cluster1")
+        );
+    }
+
+    private JobStaging createStaging(final int maxConcurrentFiles, final long timeout) {
+        return this.createStaging(maxConcurrentFiles, timeout, this.stagedEnvironmentService);
+    }
+
+    private JobStaging createStaging(
+        final int maxConcurrentFiles,
+        final long timeout,
+        final StagedEnvironmentService environmentService
+    ) {
+        return new JobStaging(
+            "job1",
+            this.dependencyCacheService,
+            environmentService,
+            this.jobTimelineService,
+            this.executor,
+            this.scheduler,
+            maxConcurrentFiles,
+            timeout,
+            this.registry.timer("genie.jobs.staging.file.timer"),
+            this.registry.counter("genie.jobs.staging.file.failure.rate"),
+            this.registry.timer("genie.jobs.staging.timer")
+        );
+    }
+}
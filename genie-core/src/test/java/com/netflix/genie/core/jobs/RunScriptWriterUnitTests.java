@@ -0,0 +1,107 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Unit tests for the RunScriptWriter class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class RunScriptWriterUnitTests {
+
+    /**
+     * Temporary folder for the run script.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File runScript;
+    private RunScriptWriter writer;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.runScript = this.folder.newFile("run.sh");
+        this.writer = new RunScriptWriter(this.runScript);
+    }
+
+    /**
+     * Make sure nothing reaches the file until the writer is closed and everything does after.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canWriteScriptOnClose() throws IOException {
+        this.writer.write("export GENIE_JOB_ID=\"j\u00f8b\"\n");
+        this.writer.write("# comment\n", 0, 2);
+        this.writer.write(new char[]{'a', 'b', 'c'}, 1, 2);
+        this.writer.append("\nwait $!");
+        this.writer.flush();
+        Assert.assertThat(this.runScript.length(), Matchers.is(0L));
+
+        this.writer.close();
+        Assert.assertThat(
+            new String(Files.readAllBytes(this.runScript.toPath()), StandardCharsets.UTF_8),
+            Matchers.is("export GENIE_JOB_ID=\"j\u00f8b\"\n# bc\nwait $!")
+        );
+    }
+
+    /**
+     * Make sure closing twice writes the script once and writing after close fails.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void cantWriteAfterClose() throws IOException {
+        this.writer.write("echo hi");
+        this.writer.close();
+        Files.write(this.runScript.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        this.writer.close();
+        Assert.assertThat(
+            new String(Files.readAllBytes(this.runScript.toPath()), StandardCharsets.UTF_8),
+            Matchers.is("changed")
+        );
+
+        try {
+            this.writer.write("echo again");
+            Assert.fail("Expected an IOException");
+        } catch (final IOException ioe) {
+            Assert.assertThat(ioe.getMessage(), Matchers.containsString(this.runScript.toString()));
+        }
+    }
+}
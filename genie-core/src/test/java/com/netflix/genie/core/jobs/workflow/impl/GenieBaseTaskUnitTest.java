@@ -20,6 +20,9 @@ package com.netflix.genie.core.jobs.workflow.impl;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobStaging;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import com.netflix.genie.test.categories.UnitTest;
 import org.junit.Assert;
 import org.junit.Before;
@@ -27,6 +30,9 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Tests for GenieBaseTask.
  *
@@ -208,4 +214,25 @@ public class GenieBaseTaskUnitTest {
 
         Assert.assertEquals("dirpath/genie/cluster/id/dependencies/filename", localPath);
     }
+
+    /**
+     * Make sure files are handed to the job staging when there is one and fetched right away otherwise.
+     *
+     * @throws GenieException if there is a problem.
+     */
+    @Test
+    public void testFetchFile() throws GenieException {
+        final GenieFileTransferService fts = Mockito.mock(GenieFileTransferService.class);
+        final Map<String, Object> context = new HashMap<>();
+        context.put(JobConstants.FILE_TRANSFER_SERVICE_KEY, fts);
+
+        this.genieBaseTask.fetchFile(context, "s3://bucket/file1", "dirpath/file1");
+        Mockito.verify(fts, Mockito.times(1)).getFile("s3://bucket/file1", "dirpath/file1");
+
+        final JobStaging staging = Mockito.mock(JobStaging.class);
+        context.put(JobConstants.JOB_STAGING_KEY, staging);
+        this.genieBaseTask.fetchFile(context, "s3://bucket/file2", "dirpath/file2");
+        Mockito.verify(staging, Mockito.times(1)).getFile("s3://bucket/file2", "dirpath/file2");
+        Mockito.verify(fts, Mockito.never()).getFile("s3://bucket/file2", "dirpath/file2");
+    }
 }
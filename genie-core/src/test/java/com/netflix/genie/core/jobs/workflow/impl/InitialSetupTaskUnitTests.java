@@ -0,0 +1,130 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit Tests for the InitialSetupTask class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class InitialSetupTaskUnitTests {
+
+    private static final String USER = "einstien";
+    private static final String VERSION = "1.0";
+    private static final String CLUSTER_ID = "clusterid";
+    private static final String COMMAND_ID = "commandid";
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InitialSetupTask initialSetupTask;
+
+    /**
+     * Set up the tests.
+     */
+    @Before
+    public void setup() {
+        this.initialSetupTask = new InitialSetupTask();
+    }
+
+    /**
+     * Make sure the exports of the job are spliced into the ones of its command and cluster and the latter are built
+     * again once the command is updated.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canWriteExportsOfEachVersionOfCommand() throws GenieException, IOException {
+        final Cluster cluster = new Cluster.Builder("clustername", USER, VERSION, ClusterStatus.UP)
+            .withId(CLUSTER_ID)
+            .withUpdated(new Date(1000L))
+            .build();
+        final Command command = new Command.Builder("hive", USER, VERSION, CommandStatus.ACTIVE, "hive", 5000L)
+            .withId(COMMAND_ID)
+            .withUpdated(new Date(1000L))
+            .build();
+        final Command renamedCommand
+            = new Command.Builder("hive2", USER, VERSION, CommandStatus.ACTIVE, "hive", 5000L)
+            .withId(COMMAND_ID)
+            .withUpdated(new Date(2000L))
+            .build();
+
+        final String script1 = this.writeExports("job1", cluster, command);
+        final String script2 = this.writeExports("job2", cluster, command);
+        final String script3 = this.writeExports("job3", cluster, renamedCommand);
+
+        Assert.assertThat(script1, Matchers.containsString("export GENIE_JOB_ID=\"job1\""));
+        Assert.assertThat(script1, Matchers.containsString("export GENIE_COMMAND_NAME=\"hive\""));
+        Assert.assertThat(script1, Matchers.containsString("export GENIE_CLUSTER_ID=\"" + CLUSTER_ID + "\""));
+        Assert.assertThat(script2, Matchers.is(script1.replace("job1", "job2")));
+        Assert.assertThat(script3, Matchers.containsString("export GENIE_JOB_ID=\"job3\""));
+        Assert.assertThat(script3, Matchers.containsString("export GENIE_COMMAND_NAME=\"hive2\""));
+    }
+
+    private String writeExports(
+        final String jobId,
+        final Cluster cluster,
+        final Command command
+    ) throws GenieException, IOException {
+        final JobRequest jobRequest = new JobRequest.Builder(jobId, USER, VERSION, null, null, null)
+            .withId(jobId)
+            .build();
+        final JobExecutionEnvironment jobExecEnv = new JobExecutionEnvironment.Builder(
+            jobRequest,
+            cluster,
+            command,
+            this.folder.newFolder(jobId)
+        ).build();
+        final StringWriter writer = new StringWriter();
+        final Map<String, Object> context = new HashMap<>();
+        context.put(JobConstants.JOB_EXECUTION_ENV_KEY, jobExecEnv);
+        context.put(JobConstants.WRITER_KEY, writer);
+
+        this.initialSetupTask.executeTask(context);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import com.netflix.genie.test.categories.UnitTest;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.Executor;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the JobDirectoryAclTask class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JobDirectoryAclTaskUnitTests {
+
+    private static final String USER = "user";
+    private static final String GROUP = "group";
+
+    /**
+     * Temporary folder for the job directory.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Executor executor;
+    private File jobDir;
+    private File runScript;
+    private Map<String, Object> context;
+
+    /**
+     * Set up for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.executor = Mockito.mock(Executor.class);
+        this.jobDir = this.folder.newFolder();
+        this.runScript = new File(this.jobDir, JobConstants.GENIE_JOB_LAUNCHER_SCRIPT);
+        Assert.assertTrue(this.runScript.createNewFile());
+        Assert.assertTrue(this.runScript.setExecutable(true));
+
+        final JobRequest jobRequest = Mockito.mock(JobRequest.class);
+        Mockito.when(jobRequest.getUser()).thenReturn(USER);
+        Mockito.when(jobRequest.getGroup()).thenReturn(GROUP);
+        final JobExecutionEnvironment jobExecEnv = Mockito.mock(JobExecutionEnvironment.class);
+        Mockito.when(jobExecEnv.getJobRequest()).thenReturn(jobRequest);
+        Mockito.when(jobExecEnv.getJobWorkingDir()).thenReturn(this.jobDir);
+
+        this.context = new HashMap<>();
+        this.context.put(JobConstants.JOB_EXECUTION_ENV_KEY, jobExecEnv);
+    }
+
+    /**
+     * Make sure the user is given access to the job directory and the run script with a single command.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canGrantAccessToJobDirectory() throws Exception {
+        final JobDirectoryAclTask task = new JobDirectoryAclTask(false, this.executor);
+        task.executeTask(this.context);
+
+        final ArgumentCaptor<CommandLine> argumentCaptor = ArgumentCaptor.forClass(CommandLine.class);
+        Mockito.verify(this.executor, Mockito.times(1)).execute(argumentCaptor.capture());
+        Assert.assertThat(
+            argumentCaptor.getValue().toStrings(),
+            Matchers.arrayContaining(
+                "setfacl",
+                "-m",
+                "u:" + USER + ":rwx,d:u:" + USER + ":rwx",
+                this.jobDir.getCanonicalPath()
+            )
+        );
+        Assert.assertFalse(task.isLaunchTask());
+
+        Assert.assertThat(
+            Files.getPosixFilePermissions(this.runScript.toPath()),
+            Matchers.hasItems(PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_EXECUTE)
+        );
+    }
+
+    /**
+     * Make sure the user is created before it's given access to the job directory.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canCreateUserFirst() throws Exception {
+        final JobDirectoryAclTask task = new JobDirectoryAclTask(true, this.executor);
+        task.executeTask(this.context);
+
+        final ArgumentCaptor<CommandLine> argumentCaptor = ArgumentCaptor.forClass(CommandLine.class);
+        Mockito.verify(this.executor, Mockito.times(2)).execute(argumentCaptor.capture());
+        final List<CommandLine> commands = argumentCaptor.getAllValues();
+        Assert.assertThat(commands.get(0).toStrings(), Matchers.arrayContaining("id", "-u", USER));
+        Assert.assertThat(commands.get(1).getExecutable(), Matchers.is("setfacl"));
+    }
+
+    /**
+     * Make sure a failure to set the ACL fails the job.
+     *
+     * @throws Exception on error
+     */
+    @Test(expected = GenieServerException.class)
+    public void cantGrantAccessWhenSetfaclFails() throws Exception {
+        Mockito.when(this.executor.execute(Mockito.any(CommandLine.class))).thenThrow(IOException.class);
+        final JobDirectoryAclTask task = new JobDirectoryAclTask(false, this.executor);
+        try {
+            task.executeTask(this.context);
+        } catch (final GenieException ge) {
+            Mockito.verify(this.executor, Mockito.times(1)).execute(Mockito.any(CommandLine.class));
+            throw ge;
+        }
+    }
+}
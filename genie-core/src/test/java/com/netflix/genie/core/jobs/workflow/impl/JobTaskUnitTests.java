@@ -0,0 +1,108 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.AttachmentService;
+import com.netflix.genie.test.categories.UnitTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit Tests for the JobTask class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JobTaskUnitTests {
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JobTask jobTask;
+
+    /**
+     * Set up the tests.
+     *
+     * @throws GenieException on error
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.jobTask = new JobTask(Mockito.mock(AttachmentService.class));
+    }
+
+    /**
+     * Make sure every task of an array job gets its own directory and parameter and the script runs the command.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canWriteArrayScript() throws IOException {
+        final File jobDir = this.folder.newFolder();
+        this.jobTask.writeArrayScript(
+            jobDir,
+            "hive",
+            "-f query.q -d date=${GENIE_ARRAY_PARAMETER}",
+            Lists.newArrayList("2016-06-01", "2016-06-02")
+        );
+
+        final Path arrayDir = jobDir.toPath().resolve(JobConstants.GENIE_ARRAY_PATH_VAR);
+        Assert.assertEquals(
+            "2016-06-01",
+            new String(
+                Files.readAllBytes(arrayDir.resolve("0").resolve(JobConstants.GENIE_ARRAY_PARAMETER_FILE_NAME)),
+                StandardCharsets.UTF_8
+            )
+        );
+        Assert.assertEquals(
+            "2016-06-02",
+            new String(
+                Files.readAllBytes(arrayDir.resolve("1").resolve(JobConstants.GENIE_ARRAY_PARAMETER_FILE_NAME)),
+                StandardCharsets.UTF_8
+            )
+        );
+        Assert.assertFalse(Files.exists(arrayDir.resolve("2")));
+
+        final String script = new String(
+            Files.readAllBytes(
+                jobDir.toPath().resolve(JobConstants.GENIE_PATH_VAR).resolve(JobConstants.GENIE_ARRAY_SCRIPT_NAME)
+            ),
+            StandardCharsets.UTF_8
+        );
+        Assert.assertTrue(script.contains("export GENIE_ARRAY_INDEX=\"$1\"\n"));
+        Assert.assertTrue(script.contains("hive -f query.q -d date=${GENIE_ARRAY_PARAMETER} > stdout 2> stderr\n"));
+        Assert.assertTrue(script.contains("> ./genie/genie.done\n"));
+    }
+}
@@ -89,8 +89,11 @@ public class JobRequestEntityUnitTests {
         Assert.assertThat(this.entity.getSetupFile(), Matchers.nullValue());
         Assert.assertThat(this.entity.getTags(), Matchers.empty());
         Assert.assertFalse(this.entity.isDisableLogArchival());
+        Assert.assertFalse(this.entity.isMemoize());
         Assert.assertThat(this.entity.getApplicationsAsList(), Matchers.empty());
         Assert.assertThat(this.entity.getApplications(), Matchers.is(EMPTY_JSON_ARRAY));
+        Assert.assertThat(this.entity.getArrayParametersAsList(), Matchers.empty());
+        Assert.assertThat(this.entity.getArrayParameters(), Matchers.is(EMPTY_JSON_ARRAY));
         Assert.assertThat(this.entity.getTimeout(), Matchers.is(604800));
     }
 
@@ -220,6 +223,15 @@ public class JobRequestEntityUnitTests {
         Assert.assertTrue(this.entity.isDisableLogArchival());
     }
 
+    /**
+     * Make sure can set whether the job can be memoized or not.
+     */
+    @Test
+    public void canSetMemoize() {
+        this.entity.setMemoize(true);
+        Assert.assertTrue(this.entity.isMemoize());
+    }
+
     /**
      * Make sure can set the email address of the user.
      */
@@ -373,6 +385,24 @@ public class JobRequestEntityUnitTests {
         Assert.assertThat(this.entity.getApplicationsAsList(), Matchers.is(applications));
     }
 
+    /**
+     * Make sure array parameters round trip through JSON and a null column reads as not an array job.
+     *
+     * @throws GenieException on problem
+     */
+    @Test
+    public void canSetArrayParametersList() throws GenieException {
+        final List<String> arrayParameters = Lists.newArrayList("2016-06-02", "2016-06-01", "2016-06-02");
+        this.entity.setArrayParametersFromList(arrayParameters);
+        Assert.assertThat(this.entity.getArrayParametersAsList(), Matchers.is(arrayParameters));
+
+        this.entity.setArrayParameters(null);
+        Assert.assertThat(this.entity.getArrayParametersAsList(), Matchers.empty());
+
+        this.entity.setArrayParametersFromList(null);
+        Assert.assertThat(this.entity.getArrayParameters(), Matchers.is(EMPTY_JSON_ARRAY));
+    }
+
     /**
      * Make sure can set the timeout date for the job.
      */
@@ -449,6 +479,7 @@ public class JobRequestEntityUnitTests {
         requestEntity.setDependenciesFromSet(fileDependencies);
 
         requestEntity.setDisableLogArchival(true);
+        requestEntity.setMemoize(true);
 
         final String email = UUID.randomUUID().toString();
         requestEntity.setEmail(email);
@@ -473,6 +504,12 @@ public class JobRequestEntityUnitTests {
         );
         requestEntity.setApplicationsFromList(applications);
 
+        final List<String> arrayParameters = Lists.newArrayList(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString()
+        );
+        requestEntity.setArrayParametersFromList(arrayParameters);
+
         final int timeout = 824197;
         requestEntity.setTimeout(timeout);
 
@@ -496,12 +533,14 @@ public class JobRequestEntityUnitTests {
         Assert.assertThat(request.getCommandCriteria(), Matchers.is(commandCriteria));
         Assert.assertThat(request.getDependencies(), Matchers.is(fileDependencies));
         Assert.assertTrue(request.isDisableLogArchival());
+        Assert.assertTrue(request.isMemoize());
         Assert.assertThat(request.getEmail(), Matchers.is(email));
         Assert.assertThat(request.getGroup(), Matchers.is(group));
         Assert.assertThat(request.getSetupFile(), Matchers.is(setupFile));
         Assert.assertThat(request.getCpu(), Matchers.is(cpu));
         Assert.assertThat(request.getMemory(), Matchers.is(memory));
         Assert.assertThat(request.getApplications(), Matchers.is(applications));
+        Assert.assertThat(request.getArrayParameters(), Matchers.is(arrayParameters));
         Assert.assertThat(request.getTimeout(), Matchers.is(timeout));
     }
 }
@@ -0,0 +1,72 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.entities;
+
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Unit tests for the NodeLoadEntity class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class NodeLoadEntityUnitTests {
+
+    private NodeLoadEntity entity;
+
+    /**
+     * Setup for each test.
+     */
+    @Before
+    public void setup() {
+        this.entity = new NodeLoadEntity();
+    }
+
+    /**
+     * Make sure a new node load starts out empty.
+     */
+    @Test
+    public void hasDefaultValues() {
+        Assert.assertThat(this.entity.getRunning(), Matchers.is(0));
+        Assert.assertThat(this.entity.getFreeSlots(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure the number of running jobs can be set.
+     */
+    @Test
+    public void canSetRunning() {
+        this.entity.setRunning(4);
+        Assert.assertThat(this.entity.getRunning(), Matchers.is(4));
+    }
+
+    /**
+     * Make sure the number of free slots can be set.
+     */
+    @Test
+    public void canSetFreeSlots() {
+        this.entity.setFreeSlots(12);
+        Assert.assertThat(this.entity.getFreeSlots(), Matchers.is(12));
+    }
+}
@@ -35,6 +35,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 import org.mockito.internal.util.collections.Sets;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.HashSet;
 import java.util.UUID;
@@ -62,7 +63,11 @@ public class JpaApplicationServiceImplUnitTests {
     public void setup() {
         this.jpaApplicationRepository = Mockito.mock(JpaApplicationRepository.class);
         final JpaCommandRepository jpaCommandRepository = Mockito.mock(JpaCommandRepository.class);
-        this.appService = new JpaApplicationServiceImpl(this.jpaApplicationRepository, jpaCommandRepository);
+        this.appService = new JpaApplicationServiceImpl(
+            this.jpaApplicationRepository,
+            jpaCommandRepository,
+            Mockito.mock(ApplicationEventPublisher.class)
+        );
     }
 
     /**
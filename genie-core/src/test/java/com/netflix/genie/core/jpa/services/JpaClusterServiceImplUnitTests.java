@@ -18,6 +18,7 @@
 package com.netflix.genie.core.jpa.services;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.Cluster;
 import com.netflix.genie.common.dto.ClusterStatus;
 import com.netflix.genie.common.exceptions.GenieBadRequestException;
@@ -25,15 +26,21 @@ import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
 import com.netflix.genie.core.jpa.entities.ClusterEntity;
 import com.netflix.genie.core.jpa.entities.CommandEntity;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
 import com.netflix.genie.core.jpa.repositories.JpaCommandRepository;
 import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -58,6 +65,7 @@ public class JpaClusterServiceImplUnitTests {
     private JpaClusterServiceImpl service;
     private JpaClusterRepository jpaClusterRepository;
     private JpaCommandRepository jpaCommandRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     /**
      * Setup for the tests.
@@ -66,7 +74,12 @@ public class JpaClusterServiceImplUnitTests {
     public void setup() {
         this.jpaClusterRepository = Mockito.mock(JpaClusterRepository.class);
         this.jpaCommandRepository = Mockito.mock(JpaCommandRepository.class);
-        this.service = new JpaClusterServiceImpl(this.jpaClusterRepository, this.jpaCommandRepository);
+        this.eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        this.service = new JpaClusterServiceImpl(
+            this.jpaClusterRepository,
+            this.jpaCommandRepository,
+            this.eventPublisher
+        );
     }
 
     /**
@@ -388,4 +401,31 @@ public class JpaClusterServiceImplUnitTests {
         Mockito.when(this.jpaClusterRepository.findOne(id)).thenReturn(null);
         this.service.removeTagForCluster(id, "something");
     }
+
+    /**
+     * Make sure listeners are told when a cluster changes and not when the change fails.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canPublishClusterChangedEvent() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        final ClusterEntity clusterEntity = new ClusterEntity();
+        clusterEntity.setId(id);
+        Mockito.when(this.jpaClusterRepository.findOne(id)).thenReturn(clusterEntity);
+
+        this.service.updateTagsForCluster(id, Sets.newHashSet("prod"));
+
+        final ArgumentCaptor<ConfigChangedEvent> event = ArgumentCaptor.forClass(ConfigChangedEvent.class);
+        Mockito.verify(this.eventPublisher, Mockito.times(1)).publishEvent(event.capture());
+        Assert.assertThat(event.getValue().getType(), Matchers.is(ConfigEntityType.CLUSTER));
+        Assert.assertThat(event.getValue().getId(), Matchers.is(id));
+
+        try {
+            this.service.updateTagsForCluster(UUID.randomUUID().toString(), Sets.newHashSet("prod"));
+            Assert.fail();
+        } catch (final GenieNotFoundException gnfe) {
+            Mockito.verify(this.eventPublisher, Mockito.times(1)).publishEvent(Mockito.any(ConfigChangedEvent.class));
+        }
+    }
 }
@@ -0,0 +1,398 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.jpa.entities.JobFingerprintEntity;
+import com.netflix.genie.core.jpa.repositories.JpaJobFingerprintRepository;
+import com.netflix.genie.core.services.JobResolverService;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for JpaJobMemoizationServiceImpl.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JpaJobMemoizationServiceImplUnitTests {
+
+    private static final long TTL = 86400000L;
+    private static final String USER = "einstein";
+    private static final String COMMAND_ARGS = "-f query.q";
+    private static final String DEPENDENCY_1 = "s3://bucket/query.q";
+    private static final String DEPENDENCY_2 = "s3://bucket/udf.jar";
+    private static final String CONFIG = "s3://bucket/hive-site.xml";
+
+    private JpaJobFingerprintRepository jobFingerprintRepository;
+    private JobSearchService jobSearchService;
+    private JobResolverService jobResolverService;
+    private GenieFileTransferService fileTransferService;
+    private JpaJobMemoizationServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException on error
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.jobFingerprintRepository = Mockito.mock(JpaJobFingerprintRepository.class);
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        this.jobResolverService = Mockito.mock(JobResolverService.class);
+        this.fileTransferService = Mockito.mock(GenieFileTransferService.class);
+        Mockito.when(this.fileTransferService.getContentHash(Mockito.anyString())).thenReturn("hash");
+        this.service = new JpaJobMemoizationServiceImpl(
+            this.jobFingerprintRepository,
+            this.jobSearchService,
+            this.jobResolverService,
+            this.fileTransferService,
+            TTL
+        );
+    }
+
+    /**
+     * Make sure the fingerprint doesn't depend on the order of the files and does depend on everything else.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetFingerprint() throws GenieException {
+        final ResolvedJob resolvedJob = this.createResolvedJob(new Date(1000L));
+        final String fingerprint = this.service.getFingerprint(
+            this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1, DEPENDENCY_2),
+            resolvedJob
+        );
+        Assert.assertThat(fingerprint.length(), Matchers.is(64));
+
+        Assert.assertThat(
+            this.service.getFingerprint(
+                this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_2, DEPENDENCY_1),
+                resolvedJob
+            ),
+            Matchers.is(fingerprint)
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                this.createJobRequest("bob", COMMAND_ARGS, DEPENDENCY_1, DEPENDENCY_2),
+                resolvedJob
+            ),
+            Matchers.not(fingerprint)
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                this.createJobRequest(USER, "-f other.q", DEPENDENCY_1, DEPENDENCY_2),
+                resolvedJob
+            ),
+            Matchers.not(fingerprint)
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1, DEPENDENCY_2),
+                this.createResolvedJob(new Date(2000L))
+            ),
+            Matchers.not(fingerprint)
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                new JobRequest.Builder(UUID.randomUUID().toString(), USER, "1.0", COMMAND_ARGS, null, null)
+                    .withDependencies(Sets.newHashSet(DEPENDENCY_1, DEPENDENCY_2))
+                    .withArrayParameters(Lists.newArrayList("2016-06-01", "2016-06-02"))
+                    .withMemoize(true)
+                    .build(),
+                resolvedJob
+            ),
+            Matchers.not(fingerprint)
+        );
+
+        Mockito.when(this.fileTransferService.getContentHash(CONFIG)).thenReturn("changed");
+        Assert.assertThat(
+            this.service.getFingerprint(
+                this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1, DEPENDENCY_2),
+                resolvedJob
+            ),
+            Matchers.not(fingerprint)
+        );
+    }
+
+    /**
+     * Make sure the fingerprint depends on all the clusters the job could have run on and not on the one the load
+     * balancer happened to pick.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetSameFingerprintWhicheverCandidateClusterIsPicked() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        final Cluster cluster1 = this.createCluster("cluster1");
+        final Cluster cluster2 = this.createCluster("cluster2");
+        final Command command = this.createCommand(new Date(1000L));
+
+        final String fingerprint = this.service.getFingerprint(
+            jobRequest,
+            new ResolvedJob(cluster1, command, this.createApplications(), Lists.newArrayList(cluster1, cluster2))
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                jobRequest,
+                new ResolvedJob(cluster2, command, this.createApplications(), Lists.newArrayList(cluster2, cluster1))
+            ),
+            Matchers.is(fingerprint)
+        );
+        Assert.assertThat(
+            this.service.getFingerprint(
+                jobRequest,
+                new ResolvedJob(cluster1, command, this.createApplications())
+            ),
+            Matchers.not(fingerprint)
+        );
+    }
+
+    /**
+     * Make sure a change to any of the clusters the job could have run on, or to the content of their files, changes
+     * the fingerprint even when that cluster wasn't the one picked.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetNewFingerprintWhenCandidateClusterChanges() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        final Cluster cluster1 = this.createCluster("cluster1");
+        final Command command = this.createCommand(new Date(1000L));
+
+        final String fingerprint = this.service.getFingerprint(
+            jobRequest,
+            new ResolvedJob(
+                cluster1,
+                command,
+                this.createApplications(),
+                Lists.newArrayList(cluster1, this.createCluster("cluster2"))
+            )
+        );
+
+        final Cluster updatedCluster2 = new Cluster.Builder("cluster", USER, "1.0", ClusterStatus.UP)
+            .withId("cluster2")
+            .withUpdated(new Date(2000L))
+            .withConfigs(Sets.newHashSet("s3://bucket/cluster2/core-site.xml"))
+            .build();
+        Assert.assertThat(
+            this.service.getFingerprint(
+                jobRequest,
+                new ResolvedJob(
+                    cluster1,
+                    command,
+                    this.createApplications(),
+                    Lists.newArrayList(cluster1, updatedCluster2)
+                )
+            ),
+            Matchers.not(fingerprint)
+        );
+
+        Mockito.when(this.fileTransferService.getContentHash("s3://bucket/cluster2/core-site.xml")).thenReturn("new");
+        Assert.assertThat(
+            this.service.getFingerprint(
+                jobRequest,
+                new ResolvedJob(
+                    cluster1,
+                    command,
+                    this.createApplications(),
+                    Lists.newArrayList(cluster1, this.createCluster("cluster2"))
+                )
+            ),
+            Matchers.not(fingerprint)
+        );
+    }
+
+    /**
+     * Make sure the most recent successful job with the same fingerprint is returned.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetMemoizedJob() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        final ResolvedJob resolvedJob = this.createResolvedJob(new Date(1000L));
+        Mockito.when(this.jobResolverService.resolveJob(jobRequest)).thenReturn(resolvedJob);
+        final String fingerprint = this.service.getFingerprint(jobRequest, resolvedJob);
+
+        final String purgedJobId = UUID.randomUUID().toString();
+        final String failedJobId = UUID.randomUUID().toString();
+        final String succeededJobId = UUID.randomUUID().toString();
+        final ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        Mockito
+            .when(
+                this.jobFingerprintRepository.findByFingerprintAndCreatedAfterOrderByCreatedDesc(
+                    Mockito.eq(fingerprint),
+                    captor.capture()
+                )
+            )
+            .thenReturn(
+                Lists.newArrayList(
+                    this.createJobFingerprint(purgedJobId, fingerprint),
+                    this.createJobFingerprint(failedJobId, fingerprint),
+                    this.createJobFingerprint(succeededJobId, fingerprint)
+                )
+            );
+        Mockito.when(this.jobSearchService.getJobStatus(purgedJobId)).thenThrow(new GenieNotFoundException("gone"));
+        Mockito.when(this.jobSearchService.getJobStatus(failedJobId)).thenReturn(JobStatus.FAILED);
+        Mockito.when(this.jobSearchService.getJobStatus(succeededJobId)).thenReturn(JobStatus.SUCCEEDED);
+        final Job job = new Job.Builder(USER, USER, USER, COMMAND_ARGS).withId(succeededJobId).build();
+        Mockito.when(this.jobSearchService.getJob(succeededJobId)).thenReturn(job);
+
+        final long before = System.currentTimeMillis();
+        Assert.assertThat(this.service.getMemoizedJob(jobRequest), Matchers.is(job));
+        Assert.assertThat(captor.getValue().getTime(), Matchers.greaterThanOrEqualTo(before - TTL));
+        Mockito.verify(this.jobSearchService, Mockito.never()).getJob(failedJobId);
+    }
+
+    /**
+     * Make sure null is returned when no recent job has the same fingerprint.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void cantGetMemoizedJobIfNoneMatch() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        Mockito.when(this.jobResolverService.resolveJob(jobRequest)).thenReturn(this.createResolvedJob(new Date()));
+        Mockito
+            .when(
+                this.jobFingerprintRepository.findByFingerprintAndCreatedAfterOrderByCreatedDesc(
+                    Mockito.anyString(),
+                    Mockito.any(Date.class)
+                )
+            )
+            .thenReturn(Lists.newArrayList());
+
+        Assert.assertThat(this.service.getMemoizedJob(jobRequest), Matchers.nullValue());
+    }
+
+    /**
+     * Make sure the fingerprint of a job is saved under the id of the job.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canSaveFingerprint() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        final ResolvedJob resolvedJob = this.createResolvedJob(new Date());
+
+        this.service.saveFingerprint(jobId, jobRequest, resolvedJob);
+
+        final ArgumentCaptor<JobFingerprintEntity> captor = ArgumentCaptor.forClass(JobFingerprintEntity.class);
+        Mockito.verify(this.jobFingerprintRepository, Mockito.times(1)).save(captor.capture());
+        Assert.assertThat(captor.getValue().getId(), Matchers.is(jobId));
+        Assert.assertThat(
+            captor.getValue().getFingerprint(),
+            Matchers.is(this.service.getFingerprint(jobRequest, resolvedJob))
+        );
+    }
+
+    /**
+     * Make sure a job depending on a file which can't be checked for changes is never memoized.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void wontMemoizeJobIfFileCantBeChecked() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final JobRequest jobRequest = this.createJobRequest(USER, COMMAND_ARGS, DEPENDENCY_1);
+        final ResolvedJob resolvedJob = this.createResolvedJob(new Date());
+        Mockito.when(this.jobResolverService.resolveJob(jobRequest)).thenReturn(resolvedJob);
+        Mockito.when(this.fileTransferService.getContentHash(DEPENDENCY_1)).thenReturn(null);
+
+        Assert.assertThat(this.service.getFingerprint(jobRequest, resolvedJob), Matchers.nullValue());
+        Assert.assertThat(this.service.getMemoizedJob(jobRequest), Matchers.nullValue());
+        this.service.saveFingerprint(jobId, jobRequest, resolvedJob);
+
+        Mockito
+            .verify(this.jobFingerprintRepository, Mockito.never())
+            .findByFingerprintAndCreatedAfterOrderByCreatedDesc(Mockito.anyString(), Mockito.any(Date.class));
+        Mockito.verify(this.jobFingerprintRepository, Mockito.never()).save(Mockito.any(JobFingerprintEntity.class));
+    }
+
+    private JobRequest createJobRequest(final String user, final String commandArgs, final String... dependencies) {
+        return new JobRequest.Builder(UUID.randomUUID().toString(), user, "1.0", commandArgs, null, null)
+            .withDependencies(Sets.newHashSet(dependencies))
+            .withMemoize(true)
+            .build();
+    }
+
+    private ResolvedJob createResolvedJob(final Date updated) {
+        return new ResolvedJob(this.createCluster("cluster1"), this.createCommand(updated), this.createApplications());
+    }
+
+    private Cluster createCluster(final String id) {
+        return new Cluster.Builder("cluster", USER, "1.0", ClusterStatus.UP)
+            .withId(id)
+            .withUpdated(new Date(1000L))
+            .withConfigs(Sets.newHashSet("s3://bucket/" + id + "/core-site.xml"))
+            .build();
+    }
+
+    private Command createCommand(final Date updated) {
+        return new Command.Builder("hive", USER, "1.0", CommandStatus.ACTIVE, "hive", 5000L)
+            .withId("command1")
+            .withUpdated(updated)
+            .withConfigs(Sets.newHashSet(CONFIG))
+            .build();
+    }
+
+    private List<Application> createApplications() {
+        return Lists.newArrayList(
+            new Application.Builder("hadoop", USER, "1.0", ApplicationStatus.ACTIVE)
+                .withId("app1")
+                .withUpdated(new Date(1000L))
+                .withDependencies(Sets.newHashSet("s3://bucket/hadoop.tar.gz"))
+                .build()
+        );
+    }
+
+    private JobFingerprintEntity createJobFingerprint(final String id, final String fingerprint) throws GenieException {
+        final JobFingerprintEntity jobFingerprint = new JobFingerprintEntity();
+        jobFingerprint.setId(id);
+        jobFingerprint.setFingerprint(fingerprint);
+        return jobFingerprint;
+    }
+}
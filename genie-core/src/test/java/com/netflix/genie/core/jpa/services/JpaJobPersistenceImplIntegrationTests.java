@@ -19,6 +19,11 @@ package com.netflix.genie.core.jpa.services;
 
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.github.springtestdbunit.annotation.DatabaseTearDown;
+import com.google.common.collect.Lists;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
@@ -26,12 +31,17 @@ import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
 import com.netflix.genie.core.services.JobPersistenceService;
 import com.netflix.genie.test.categories.IntegrationTest;
 import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Calendar;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Integration tests for JpaJobPersistenceImpl.
@@ -54,6 +64,8 @@ public class JpaJobPersistenceImplIntegrationTests extends DBUnitTestBase {
     private JpaJobRepository jobRepository;
     @Autowired
     private JobPersistenceService jobPersistenceService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
     /**
      * Make sure we can delete jobs that were created before a given date.
@@ -79,4 +91,47 @@ public class JpaJobPersistenceImplIntegrationTests extends DBUnitTestBase {
         Assert.assertNotNull(this.jobRequestRepository.getOne(JOB_3_ID));
         Assert.assertNotNull(this.jobRepository.getOne(JOB_3_ID));
     }
+
+    /**
+     * Make sure saving a submission costs the same few statements however many jobs are in it. One lookup for
+     * conflicting ids and one batched insert each for the job requests and the jobs.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canCreateJobsWithConstantNumberOfStatements() throws GenieException {
+        final Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        this.createJobs(1);
+        Assert.assertThat(statistics.getPrepareStatementCount(), Matchers.is(3L));
+
+        statistics.clear();
+        this.createJobs(10);
+        Assert.assertThat(statistics.getPrepareStatementCount(), Matchers.is(3L));
+
+        Assert.assertThat(this.jobRequestRepository.count(), Matchers.is(14L));
+        Assert.assertThat(this.jobRepository.count(), Matchers.is(14L));
+    }
+
+    private void createJobs(final int numJobs) throws GenieException {
+        final List<JobRequest> jobRequests = Lists.newArrayList();
+        final List<Job> jobs = Lists.newArrayList();
+        for (int i = 0; i < numJobs; i++) {
+            final String id = UUID.randomUUID().toString();
+            jobRequests.add(
+                new JobRequest.Builder("name", "user", "1.0", "-f query.q", Lists.newArrayList(), null)
+                    .withId(id)
+                    .build()
+            );
+            jobs.add(
+                new Job.Builder("name", "user", "1.0", "-f query.q")
+                    .withId(id)
+                    .withStatus(JobStatus.INIT)
+                    .withStatusMsg("Job Accepted and in initialization phase.")
+                    .build()
+            );
+        }
+        this.jobPersistenceService.createJobs(jobRequests, jobs, "localhost", "localhost");
+    }
 }
@@ -49,6 +49,7 @@ import org.mockito.Mockito;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -217,6 +218,32 @@ public class JpaJobPersistenceServiceImplUnitTests {
         Assert.assertNull(argument.getValue().getStarted());
     }
 
+    /**
+     * Make sure a conditional status update only changes the status of a job still in the expected status.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canUpdateJobStatusOnlyFromExpectedStatus() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        final JobEntity jobEntity = new JobEntity();
+        jobEntity.setStatus(JobStatus.KILLED);
+        Mockito.when(this.jobRepo.findOne(Mockito.eq(id))).thenReturn(jobEntity);
+
+        Assert.assertFalse(
+            this.jobPersistenceService.updateJobStatus(id, JobStatus.QUEUED, JobStatus.INIT, JOB_1_STATUS_MSG)
+        );
+        Mockito.verify(this.jobRepo, Mockito.never()).save(Mockito.any(JobEntity.class));
+        Assert.assertEquals(JobStatus.KILLED, jobEntity.getStatus());
+
+        jobEntity.setStatus(JobStatus.QUEUED);
+        Assert.assertTrue(
+            this.jobPersistenceService.updateJobStatus(id, JobStatus.QUEUED, JobStatus.INIT, JOB_1_STATUS_MSG)
+        );
+        Assert.assertEquals(JobStatus.INIT, jobEntity.getStatus());
+        Assert.assertEquals(JOB_1_STATUS_MSG, jobEntity.getStatusMsg());
+    }
+
     /**
      * Test the updateJobStatus with status RUNNING.
      *
@@ -387,16 +414,45 @@ public class JpaJobPersistenceServiceImplUnitTests {
         Mockito.when(this.jobRepo.findOne(JOB_1_ID)).thenReturn(jobEntity);
         Mockito.when(this.clusterRepo.findOne(clusterId)).thenReturn(new ClusterEntity());
         Mockito.when(this.commandRepo.findOne(commandId)).thenReturn(new CommandEntity());
-        Mockito.when(this.applicationRepo.findOne(applicationId1)).thenReturn(new ApplicationEntity());
-        Mockito.when(this.applicationRepo.findOne(applicationId2)).thenReturn(null);
+        final ApplicationEntity application1 = new ApplicationEntity();
+        application1.setId(applicationId1);
+        final List<String> applicationIds = Lists.newArrayList(applicationId1, applicationId2);
+        Mockito.when(this.applicationRepo.findAll(applicationIds)).thenReturn(Lists.newArrayList(application1));
         this.jobPersistenceService.updateJobWithRuntimeEnvironment(
             JOB_1_ID,
             clusterId,
             commandId,
-            Lists.newArrayList(applicationId1, applicationId2)
+            applicationIds
         );
     }
 
+    /**
+     * Make sure the applications are looked up in one query and set on the job in the order they were given.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canUpdateRuntimeWithApplicationsInOrder() throws GenieException {
+        final String clusterId = UUID.randomUUID().toString();
+        final String commandId = UUID.randomUUID().toString();
+        final ApplicationEntity application1 = new ApplicationEntity();
+        application1.setId(UUID.randomUUID().toString());
+        final ApplicationEntity application2 = new ApplicationEntity();
+        application2.setId(UUID.randomUUID().toString());
+        final List<String> applicationIds = Lists.newArrayList(application1.getId(), application2.getId());
+        final JobEntity jobEntity = Mockito.mock(JobEntity.class);
+        Mockito.when(this.jobRepo.findOne(JOB_1_ID)).thenReturn(jobEntity);
+        Mockito.when(this.clusterRepo.findOne(clusterId)).thenReturn(new ClusterEntity());
+        Mockito.when(this.commandRepo.findOne(commandId)).thenReturn(new CommandEntity());
+        Mockito.when(this.applicationRepo.findAll(applicationIds))
+            .thenReturn(Lists.newArrayList(application2, application1));
+
+        this.jobPersistenceService.updateJobWithRuntimeEnvironment(JOB_1_ID, clusterId, commandId, applicationIds);
+
+        Mockito.verify(this.applicationRepo, Mockito.never()).findOne(Mockito.anyString());
+        Mockito.verify(jobEntity).setApplications(Lists.newArrayList(application1, application2));
+    }
+
     /******* Unit Tests for Job Request methods ********/
 
     /**
@@ -473,6 +529,104 @@ public class JpaJobPersistenceServiceImplUnitTests {
         Assert.assertThat(argument.getValue().getApplicationsAsList(), Matchers.empty());
     }
 
+    /**
+     * Make sure a batch is rejected if any of the jobs already exist.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GenieConflictException.class)
+    public void cantCreateJobsIfAnyAlreadyExist() throws GenieException {
+        final String job2Id = UUID.randomUUID().toString();
+        final JobRequestEntity existing = new JobRequestEntity();
+        existing.setId(job2Id);
+        Mockito
+            .when(this.jobRequestRepo.findAll(Lists.newArrayList(JOB_1_ID, job2Id)))
+            .thenReturn(Lists.newArrayList(existing));
+
+        this.jobPersistenceService.createJobs(
+            Lists.newArrayList(this.createJobRequest(JOB_1_ID), this.createJobRequest(job2Id)),
+            Lists.newArrayList(this.createJob(JOB_1_ID), this.createJob(job2Id)),
+            null,
+            null
+        );
+    }
+
+    /**
+     * Make sure a batch is rejected if the jobs don't line up with the job requests.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantCreateJobsIfIdsDontMatch() throws GenieException {
+        this.jobPersistenceService.createJobs(
+            Lists.newArrayList(this.createJobRequest(JOB_1_ID)),
+            Lists.newArrayList(this.createJob(UUID.randomUUID().toString())),
+            null,
+            null
+        );
+    }
+
+    /**
+     * Make sure all the job requests and jobs in a batch are saved with a single call.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canCreateJobs() throws GenieException {
+        final String job2Id = UUID.randomUUID().toString();
+        final String clientHost = UUID.randomUUID().toString();
+        final String hostName = UUID.randomUUID().toString();
+
+        this.jobPersistenceService.createJobs(
+            Lists.newArrayList(this.createJobRequest(JOB_1_ID), this.createJobRequest(job2Id)),
+            Lists.newArrayList(this.createJob(JOB_1_ID), this.createJob(job2Id)),
+            clientHost,
+            hostName
+        );
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Iterable<JobRequestEntity>> argument = ArgumentCaptor.forClass((Class) Iterable.class);
+        Mockito.verify(this.jobRequestRepo, Mockito.times(1)).save(argument.capture());
+        Mockito.verify(this.jobRequestRepo, Mockito.never()).exists(Mockito.anyString());
+        final List<JobRequestEntity> saved = Lists.newArrayList(argument.getValue());
+        Assert.assertThat(saved.size(), Matchers.is(2));
+        Assert.assertThat(saved.get(0).getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(saved.get(0).getClientHost(), Matchers.is(clientHost));
+        Assert.assertThat(saved.get(0).getJob().getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(saved.get(0).getJob().getStatus(), Matchers.is(JobStatus.INIT));
+        Assert.assertThat(saved.get(0).getJob().getHostName(), Matchers.is(hostName));
+        Assert.assertThat(saved.get(1).getId(), Matchers.is(job2Id));
+        Assert.assertThat(saved.get(1).getJob().getId(), Matchers.is(job2Id));
+    }
+
+    /**
+     * Make sure the jobs left queued on a host are failed.
+     */
+    @Test
+    public void canFailQueuedJobs() {
+        final String hostName = UUID.randomUUID().toString();
+        final JobEntity job1 = new JobEntity();
+        job1.setId(JOB_1_ID);
+        job1.setStatus(JobStatus.QUEUED);
+        final String job2Id = UUID.randomUUID().toString();
+        final JobEntity job2 = new JobEntity();
+        job2.setId(job2Id);
+        job2.setStatus(JobStatus.QUEUED);
+        Mockito
+            .when(this.jobRepo.findByHostNameAndStatus(hostName, JobStatus.QUEUED))
+            .thenReturn(Lists.newArrayList(job1, job2));
+
+        Assert.assertThat(
+            this.jobPersistenceService.failQueuedJobs(hostName, "lost"),
+            Matchers.contains(JOB_1_ID, job2Id)
+        );
+        Assert.assertThat(job1.getStatus(), Matchers.is(JobStatus.FAILED));
+        Assert.assertThat(job1.getStatusMsg(), Matchers.is("lost"));
+        Assert.assertNull(job1.getFinished());
+        Assert.assertThat(job2.getStatus(), Matchers.is(JobStatus.FAILED));
+        Mockito.verify(this.jobRepo, Mockito.times(1)).save(Lists.newArrayList(job1, job2));
+    }
+
     /******* Unit Tests for Job Execution methods ********/
 
     /**
@@ -546,4 +700,17 @@ public class JpaJobPersistenceServiceImplUnitTests {
         Mockito.when(this.jobExecutionRepo.findOne(Mockito.eq(JOB_1_ID))).thenReturn(null);
         this.jobPersistenceService.setExitCode(JOB_1_ID, 0);
     }
+
+    private JobRequest createJobRequest(final String id) {
+        return new JobRequest.Builder(JOB_1_NAME, JOB_1_USER, JOB_1_VERSION, JOB_1_COMMAND_ARGS, null, null)
+            .withId(id)
+            .build();
+    }
+
+    private Job createJob(final String id) {
+        return new Job.Builder(JOB_1_NAME, JOB_1_USER, JOB_1_VERSION, JOB_1_COMMAND_ARGS)
+            .withId(id)
+            .withStatus(JobStatus.INIT)
+            .build();
+    }
 }
@@ -0,0 +1,344 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DatabaseTearDown;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterCriteria;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.JobResolverService;
+import com.netflix.genie.test.categories.IntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Integration tests for the JpaJobResolverServiceImpl.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+@Category(IntegrationTest.class)
+@DatabaseSetup("JpaJobResolverServiceImplIntegrationTests/init.xml")
+@DatabaseTearDown("cleanup.xml")
+public class JpaJobResolverServiceImplIntegrationTests extends DBUnitTestBase {
+
+    private static final String APP_1_ID = "app1";
+    private static final String APP_2_ID = "app2";
+    private static final String APP_3_ID = "app3";
+
+    private static final String COMMAND_1_ID = "command1";
+    private static final String COMMAND_2_ID = "command2";
+
+    private static final String CLUSTER_1_ID = "cluster1";
+    private static final String CLUSTER_2_ID = "cluster2";
+
+    private static final int BENCHMARK_ITERATIONS = 200;
+
+    @Autowired
+    private JobResolverService service;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private CommandService commandService;
+
+    @Autowired
+    private ClusterLoadBalancer clusterLoadBalancer;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Make sure the highest priority command matching all the command criteria is picked along with its
+     * applications in order.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canResolveJob() throws GenieException {
+        final ResolvedJob resolvedJob
+            = this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig", "tez"), "prod"));
+
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_1_ID));
+        Assert.assertThat(resolvedJob.getCluster().getConfigs().size(), Matchers.is(1));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+        Assert.assertThat(resolvedJob.getCommand().getConfigs().size(), Matchers.is(1));
+        Assert.assertThat(
+            resolvedJob.getApplications().stream().map(Application::getId).collect(Collectors.toList()),
+            Matchers.contains(APP_2_ID, APP_1_ID)
+        );
+    }
+
+    /**
+     * Make sure the command with the highest priority on the cluster wins when several match.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canResolveJobByCommandPriority() throws GenieException {
+        final ResolvedJob resolvedJob = this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig"), "prod"));
+
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_1_ID));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_2_ID));
+        Assert.assertThat(resolvedJob.getApplications(), Matchers.empty());
+    }
+
+    /**
+     * Make sure the command resolved is the one for the cluster the load balancer picked.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canResolveJobWithSeveralCandidateClusters() throws GenieException {
+        for (int i = 0; i < 10; i++) {
+            final ResolvedJob resolvedJob
+                = this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig"), "hive"));
+            if (resolvedJob.getCluster().getId().equals(CLUSTER_1_ID)) {
+                Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_2_ID));
+            } else {
+                Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_2_ID));
+                Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+            }
+        }
+    }
+
+    /**
+     * Make sure all the candidate clusters are kept in id order with what's needed to tell one version of them from
+     * another.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canGetCandidateClusters() throws GenieException {
+        final ResolvedJob resolvedJob = this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig"), "hive"));
+
+        Assert.assertThat(
+            resolvedJob.getCandidateClusters().stream().map(Cluster::getId).collect(Collectors.toList()),
+            Matchers.contains(CLUSTER_1_ID, CLUSTER_2_ID)
+        );
+        for (final Cluster candidate : resolvedJob.getCandidateClusters()) {
+            final Cluster cluster = this.clusterService.getCluster(candidate.getId());
+            Assert.assertThat(candidate.getUpdated(), Matchers.is(cluster.getUpdated()));
+            Assert.assertThat(candidate.getSetupFile(), Matchers.is(cluster.getSetupFile()));
+            Assert.assertThat(candidate.getConfigs(), Matchers.is(cluster.getConfigs()));
+        }
+    }
+
+    /**
+     * Make sure the next cluster criteria is tried when no UP cluster matches the first one.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canResolveJobUsingLaterClusterCriteria() throws GenieException {
+        final ResolvedJob resolvedJob
+            = this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig"), "adhoc", "query"));
+
+        Assert.assertThat(resolvedJob.getCluster().getId(), Matchers.is(CLUSTER_2_ID));
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+    }
+
+    /**
+     * Make sure requested applications are returned in the order they were requested.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void canResolveJobWithRequestedApplications() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(
+            Sets.newHashSet("pig", "tez"),
+            Lists.newArrayList(APP_3_ID, APP_1_ID),
+            "prod"
+        );
+        final ResolvedJob resolvedJob = this.service.resolveJob(jobRequest);
+
+        Assert.assertThat(resolvedJob.getCommand().getId(), Matchers.is(COMMAND_1_ID));
+        Assert.assertThat(
+            resolvedJob.getApplications().stream().map(Application::getId).collect(Collectors.toList()),
+            Matchers.contains(APP_3_ID, APP_1_ID)
+        );
+    }
+
+    /**
+     * Make sure a requested application which doesn't exist fails the resolution.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantResolveJobWithMissingApplication() throws GenieException {
+        this.service.resolveJob(
+            this.createJobRequest(
+                Sets.newHashSet("pig"),
+                Lists.newArrayList(APP_1_ID, UUID.randomUUID().toString()),
+                "prod"
+            )
+        );
+    }
+
+    /**
+     * Make sure the resolution fails when no cluster matches.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantResolveJobWithoutMatchingCluster() throws GenieException {
+        this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pig"), UUID.randomUUID().toString()));
+    }
+
+    /**
+     * Make sure inactive commands aren't resolved.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantResolveJobWithoutActiveCommand() throws GenieException {
+        this.service.resolveJob(this.createJobRequest(Sets.newHashSet("hive"), "prod"));
+    }
+
+    /**
+     * Make sure command criteria have to match whole tags, not just part of one.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantResolveJobWithPartialCommandTag() throws GenieException {
+        this.service.resolveJob(this.createJobRequest(Sets.newHashSet("pi"), "prod"));
+    }
+
+    /**
+     * Compare the number of statements and time taken to resolve a job against resolving it with the cluster,
+     * command and application services one after another as was done before.
+     *
+     * @throws GenieException For any problem
+     */
+    @Test
+    public void resolvingUsesFewerQueriesThanSeparateLookups() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(Sets.newHashSet("pig", "tez"), "hive");
+        final Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // Warm up both paths before measuring
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                this.resolveWithServices(jobRequest);
+                this.service.resolveJob(jobRequest);
+            }
+
+            statistics.clear();
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                this.resolveWithServices(jobRequest);
+            }
+            final long servicesNanos = System.nanoTime() - start;
+            final long servicesStatements = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                this.service.resolveJob(jobRequest);
+            }
+            final long resolverNanos = System.nanoTime() - start;
+            final long resolverStatements = statistics.getPrepareStatementCount();
+
+            log.info(
+                "Resolving a job {} times with the services took {} ms and {} statements. With the resolver it took "
+                    + "{} ms and {} statements.",
+                BENCHMARK_ITERATIONS,
+                TimeUnit.NANOSECONDS.toMillis(servicesNanos),
+                servicesStatements,
+                TimeUnit.NANOSECONDS.toMillis(resolverNanos),
+                resolverStatements
+            );
+
+            // Timings are too noisy on shared build machines to assert on but the statement count is deterministic
+            Assert.assertThat(resolverStatements, Matchers.lessThan(servicesStatements));
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+
+    private void resolveWithServices(final JobRequest jobRequest) throws GenieException {
+        final Cluster cluster
+            = this.clusterLoadBalancer.selectCluster(this.clusterService.chooseClusterForJobRequest(jobRequest));
+        for (final Command command : this.clusterService.getCommandsForCluster(
+            cluster.getId(),
+            EnumSet.of(CommandStatus.ACTIVE)
+        )) {
+            if (command.getTags().containsAll(jobRequest.getCommandCriteria())) {
+                this.commandService.getApplicationsForCommand(command.getId());
+                return;
+            }
+        }
+        Assert.fail();
+    }
+
+    private JobRequest createJobRequest(final Set<String> commandCriteria, final String... clusterTags) {
+        return this.createJobRequest(commandCriteria, Lists.newArrayList(), clusterTags);
+    }
+
+    private JobRequest createJobRequest(
+        final Set<String> commandCriteria,
+        final List<String> applications,
+        final String... clusterTags
+    ) {
+        final List<ClusterCriteria> clusterCriterias = Lists.newArrayList();
+        for (final String clusterTag : clusterTags) {
+            clusterCriterias.add(new ClusterCriteria(Sets.newHashSet(clusterTag)));
+        }
+        return new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            clusterCriterias,
+            commandCriteria
+        )
+            .withId(UUID.randomUUID().toString())
+            .withApplications(applications)
+            .build();
+    }
+}
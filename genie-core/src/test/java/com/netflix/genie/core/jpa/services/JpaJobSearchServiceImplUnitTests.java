@@ -234,4 +234,34 @@ public class JpaJobSearchServiceImplUnitTests {
 
         Assert.assertThat(this.service.getJobHost(jobId), Matchers.is(hostName));
     }
+
+    /**
+     * Make sure that a job which is still queued, and so has no job execution, returns the host which accepted it.
+     *
+     * @throws GenieException on any problem
+     */
+    @Test
+    public void canGetJobHostOfQueuedJob() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final String hostName = UUID.randomUUID().toString();
+        final JobEntity job = Mockito.mock(JobEntity.class);
+        Mockito.when(job.getHostName()).thenReturn(hostName);
+        Mockito.when(this.jobExecutionRepository.findOne(jobId)).thenReturn(null);
+        Mockito.when(this.jobRepository.findOne(jobId)).thenReturn(job);
+
+        Assert.assertThat(this.service.getJobHost(jobId), Matchers.is(hostName));
+    }
+
+    /**
+     * Make sure that a job with no execution and no recorded host returns a GenieNotFound exception.
+     *
+     * @throws GenieException on any problem
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantGetJobHostIfNoHostRecorded() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobExecutionRepository.findOne(jobId)).thenReturn(null);
+        Mockito.when(this.jobRepository.findOne(jobId)).thenReturn(Mockito.mock(JobEntity.class));
+        this.service.getJobHost(jobId);
+    }
 }
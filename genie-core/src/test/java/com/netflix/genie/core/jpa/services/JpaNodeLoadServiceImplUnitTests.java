@@ -0,0 +1,140 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jpa.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jpa.entities.NodeLoadEntity;
+import com.netflix.genie.core.jpa.repositories.JpaNodeLoadRepository;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Unit tests for JpaNodeLoadServiceImpl.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JpaNodeLoadServiceImplUnitTests {
+
+    private static final long LOAD_EXPIRY = 30000L;
+
+    private JpaNodeLoadRepository nodeLoadRepository;
+    private JpaNodeLoadServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.nodeLoadRepository = Mockito.mock(JpaNodeLoadRepository.class);
+        this.service = new JpaNodeLoadServiceImpl(this.nodeLoadRepository, LOAD_EXPIRY);
+    }
+
+    /**
+     * Make sure the first load published by a node creates a row for it.
+     */
+    @Test
+    public void canPublishLoadForNewNode() {
+        final String hostName = UUID.randomUUID().toString();
+        Mockito.when(this.nodeLoadRepository.findOne(hostName)).thenReturn(null);
+
+        this.service.publishLoad(hostName, 3, 7);
+
+        final ArgumentCaptor<NodeLoadEntity> captor = ArgumentCaptor.forClass(NodeLoadEntity.class);
+        Mockito.verify(this.nodeLoadRepository, Mockito.times(1)).save(captor.capture());
+        Assert.assertThat(captor.getValue().getId(), Matchers.is(hostName));
+        Assert.assertThat(captor.getValue().getRunning(), Matchers.is(3));
+        Assert.assertThat(captor.getValue().getFreeSlots(), Matchers.is(7));
+    }
+
+    /**
+     * Make sure a node publishing its load again updates its existing row.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canPublishLoadForExistingNode() throws GenieException {
+        final String hostName = UUID.randomUUID().toString();
+        final NodeLoadEntity nodeLoad = new NodeLoadEntity();
+        nodeLoad.setId(hostName);
+        nodeLoad.setUpdated(new Date(0));
+        Mockito.when(this.nodeLoadRepository.findOne(hostName)).thenReturn(nodeLoad);
+
+        this.service.publishLoad(hostName, 5, 0);
+
+        Mockito.verify(this.nodeLoadRepository, Mockito.times(1)).save(nodeLoad);
+        Assert.assertThat(nodeLoad.getRunning(), Matchers.is(5));
+        Assert.assertThat(nodeLoad.getFreeSlots(), Matchers.is(0));
+        Assert.assertThat(nodeLoad.getUpdated(), Matchers.greaterThan(new Date(0)));
+    }
+
+    /**
+     * Make sure the least loaded node only considers other nodes with free slots which published recently.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetLeastLoadedNode() throws GenieException {
+        final String hostName = UUID.randomUUID().toString();
+        final String peer = UUID.randomUUID().toString();
+        final NodeLoadEntity nodeLoad = new NodeLoadEntity();
+        nodeLoad.setId(peer);
+        final ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        Mockito
+            .when(
+                this.nodeLoadRepository.findFirstByIdNotAndFreeSlotsGreaterThanAndUpdatedAfterOrderByFreeSlotsDesc(
+                    Mockito.eq(hostName),
+                    Mockito.eq(0),
+                    captor.capture()
+                )
+            )
+            .thenReturn(nodeLoad);
+
+        final long before = System.currentTimeMillis();
+        Assert.assertThat(this.service.getLeastLoadedNode(hostName), Matchers.is(peer));
+        Assert.assertThat(captor.getValue().getTime(), Matchers.greaterThanOrEqualTo(before - LOAD_EXPIRY));
+        Assert.assertThat(captor.getValue().getTime(), Matchers.lessThanOrEqualTo(System.currentTimeMillis()));
+    }
+
+    /**
+     * Make sure null is returned when no other node has capacity.
+     */
+    @Test
+    public void cantGetLeastLoadedNodeIfNoneHaveCapacity() {
+        Mockito
+            .when(
+                this.nodeLoadRepository.findFirstByIdNotAndFreeSlotsGreaterThanAndUpdatedAfterOrderByFreeSlotsDesc(
+                    Mockito.anyString(),
+                    Mockito.anyInt(),
+                    Mockito.any(Date.class)
+                )
+            )
+            .thenReturn(null);
+        Assert.assertThat(this.service.getLeastLoadedNode(UUID.randomUUID().toString()), Matchers.nullValue());
+    }
+}
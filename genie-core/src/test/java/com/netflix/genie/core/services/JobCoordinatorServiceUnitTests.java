@@ -17,15 +17,21 @@
  */
 package com.netflix.genie.core.services;
 
+import com.google.common.collect.Lists;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.exceptions.GenieConflictException;
 import com.netflix.genie.common.exceptions.GenieException;
-import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
 import com.netflix.genie.core.events.JobScheduledEvent;
 import com.netflix.genie.core.jobs.JobLauncher;
 import com.netflix.genie.test.categories.UnitTest;
-import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.DefaultRegistry;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
@@ -34,9 +40,13 @@ import org.junit.experimental.categories.Category;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Future;
@@ -50,42 +60,54 @@ import java.util.concurrent.Future;
 @Category(UnitTest.class)
 public class JobCoordinatorServiceUnitTests {
 
-    private static final int MAX_RUNNING_JOBS = 2;
+    private static final int MAX_QUEUED_JOBS = 1;
+    private static final long QUEUE_RETRY_AFTER = 15L;
     private static final String JOB_1_ID = "job1";
     private static final String JOB_1_NAME = "relativity";
     private static final String JOB_1_USER = "einstien";
     private static final String JOB_1_VERSION = "1.0";
     private static final String BASE_ARCHIVE_LOCATION = "file://baselocation";
+    private static final String HOST_NAME = "genie-node-1";
 
     private AsyncTaskExecutor taskExecutor;
     private JobCoordinatorService jobCoordinatorService;
     private JobPersistenceService jobPersistenceService;
     private JobKillService jobKillService;
-    private JobCountService jobCountService;
+    private JobSlotService jobSlotService;
+    private JobQuotaService jobQuotaService;
+    private JobMemoizationService jobMemoizationService;
+    private JobTimelineService jobTimelineService;
     private ApplicationEventPublisher eventPublisher;
 
     /**
      * Setup for the tests.
+     *
+     * @throws GenieException On error
      */
     @Before
-    public void setup() {
+    public void setup() throws GenieException {
         this.taskExecutor = Mockito.mock(AsyncTaskExecutor.class);
         this.jobPersistenceService = Mockito.mock(JobPersistenceService.class);
+        Mockito
+            .when(
+                this.jobPersistenceService.updateJobStatus(
+                    Mockito.anyString(),
+                    Mockito.eq(JobStatus.QUEUED),
+                    Mockito.any(JobStatus.class),
+                    Mockito.anyString()
+                )
+            )
+            .thenReturn(true);
         this.jobKillService = Mockito.mock(JobKillService.class);
-        this.jobCountService = Mockito.mock(JobCountService.class);
+        this.jobSlotService = Mockito.mock(JobSlotService.class);
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(true);
+        this.jobQuotaService = Mockito.mock(JobQuotaService.class);
+        Mockito.when(this.jobQuotaService.reserve(Mockito.any(JobRequest.class))).thenReturn(true);
+        this.jobMemoizationService = Mockito.mock(JobMemoizationService.class);
         this.eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
 
-        this.jobCoordinatorService = new JobCoordinatorService(
-            this.taskExecutor,
-            this.jobPersistenceService,
-            Mockito.mock(JobSubmitterService.class),
-            this.jobKillService,
-            this.jobCountService,
-            BASE_ARCHIVE_LOCATION,
-            MAX_RUNNING_JOBS,
-            Mockito.mock(Registry.class),
-            this.eventPublisher
-        );
+        this.jobTimelineService = Mockito.mock(JobTimelineService.class);
+        this.jobCoordinatorService = this.createJobCoordinatorService(MAX_QUEUED_JOBS, false);
     }
 
     /**
@@ -126,7 +148,6 @@ public class JobCoordinatorServiceUnitTests {
             .withDisableLogArchival(true)
             .build();
 
-        Mockito.when(this.jobPersistenceService.createJobRequest(jobRequest, clientHost)).thenReturn(jobRequest);
         final Future<?> task = Mockito.mock(Future.class);
         Mockito.doReturn(task).when(this.taskExecutor).submit(Mockito.any(JobLauncher.class));
 
@@ -134,16 +155,21 @@ public class JobCoordinatorServiceUnitTests {
 
         Mockito.verify(this.taskExecutor, Mockito.times(1)).submit(Mockito.any(JobLauncher.class));
         Mockito.verify(this.eventPublisher, Mockito.times(1)).publishEvent(Mockito.any(JobScheduledEvent.class));
+        Mockito
+            .verify(this.jobTimelineService, Mockito.times(1))
+            .record(Mockito.eq(JOB_1_ID), Mockito.eq("persist"), Mockito.anyLong());
 
-        final ArgumentCaptor<Job> argument = ArgumentCaptor.forClass(Job.class);
-        Mockito.verify(this.jobPersistenceService).createJob(argument.capture());
-
-        Assert.assertEquals(JOB_1_ID, argument.getValue().getId());
-        Assert.assertEquals(JOB_1_NAME, argument.getValue().getName());
-        Assert.assertEquals(JOB_1_USER, argument.getValue().getUser());
-        Assert.assertEquals(JOB_1_VERSION, argument.getValue().getVersion());
-        Assert.assertEquals(JobStatus.INIT, argument.getValue().getStatus());
-        Assert.assertEquals(description, argument.getValue().getDescription());
+        final Job job = this.getCreatedJobs(1).get(0);
+        Assert.assertEquals(JOB_1_ID, job.getId());
+        Assert.assertEquals(JOB_1_NAME, job.getName());
+        Assert.assertEquals(JOB_1_USER, job.getUser());
+        Assert.assertEquals(JOB_1_VERSION, job.getVersion());
+        Assert.assertEquals(JobStatus.INIT, job.getStatus());
+        Assert.assertEquals(description, job.getDescription());
+        Mockito.verify(this.jobPersistenceService, Mockito.never()).createJob(Mockito.any(Job.class));
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.never())
+            .createJobRequest(Mockito.any(JobRequest.class), Mockito.anyString());
     }
 
     /**
@@ -165,14 +191,10 @@ public class JobCoordinatorServiceUnitTests {
             .withId(JOB_1_ID)
             .build();
 
-        Mockito.when(this.jobPersistenceService.createJobRequest(jobRequest, clientHost)).thenReturn(jobRequest);
-        Mockito.when(this.jobCountService.getNumJobs()).thenReturn(MAX_RUNNING_JOBS - 1);
-        final ArgumentCaptor<Job> argument = ArgumentCaptor.forClass(Job.class);
         this.jobCoordinatorService.coordinateJob(jobRequest, clientHost);
-        Mockito.verify(this.jobPersistenceService).createJob(argument.capture());
         Assert.assertEquals(
             BASE_ARCHIVE_LOCATION + "/" + JOB_1_ID + ".tar.gz",
-            argument.getValue().getArchiveLocation()
+            this.getCreatedJobs(1).get(0).getArchiveLocation()
         );
     }
 
@@ -195,39 +217,497 @@ public class JobCoordinatorServiceUnitTests {
             .withId(JOB_1_ID)
             .build();
 
-        Mockito.when(this.jobPersistenceService.createJobRequest(jobRequest, clientHost)).thenReturn(jobRequest);
-        Mockito.when(this.jobCountService.getNumJobs()).thenReturn(MAX_RUNNING_JOBS - 1);
-        final ArgumentCaptor<Job> argument = ArgumentCaptor.forClass(Job.class);
         this.jobCoordinatorService.coordinateJob(jobRequest, clientHost);
-        Mockito.verify(this.jobPersistenceService).createJob(argument.capture());
-        Assert.assertNull(argument.getValue().getArchiveLocation());
+        Assert.assertNull(this.getCreatedJobs(1).get(0).getArchiveLocation());
+    }
+
+    /**
+     * Make sure the slot reserved for a job is given back if the job can't be handed to the executor.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void releasesSlotIfLaunchRejected() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+        Mockito
+            .when(this.taskExecutor.submit(Mockito.any(JobLauncher.class)))
+            .thenThrow(new TaskRejectedException("full"));
+        try {
+            this.jobCoordinatorService.coordinateJob(jobRequest, "localhost");
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Mockito.verify(this.jobSlotService, Mockito.times(1)).release(JOB_1_ID);
+            Mockito
+                .verify(this.jobPersistenceService, Mockito.times(1))
+                .updateJobStatus(Mockito.eq(JOB_1_ID), Mockito.eq(JobStatus.FAILED), Mockito.anyString());
+        }
     }
 
     /**
-     * Make sure if there are already the max running number of jobs running on the node the job is rejected.
+     * Make sure if there are already the max running number of jobs running on the node the job is queued.
      *
      * @throws GenieException On error
      */
-    @Test(expected = GenieServerUnavailableException.class)
-    public void cantRunJobIfFull() throws GenieException {
+    @Test
+    public void canQueueJobIfFull() throws GenieException {
         final String clientHost = "localhost";
-        final JobRequest jobRequest = new JobRequest.Builder(
-            JOB_1_NAME,
-            JOB_1_USER,
-            JOB_1_VERSION,
-            null,
-            null,
-            null
-        ).withDisableLogArchival(true)
-            .withId(JOB_1_ID)
-            .build();
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        Assert.assertThat(this.jobCoordinatorService.coordinateJob(jobRequest, clientHost), Matchers.is(JOB_1_ID));
+        Assert.assertThat(this.getCreatedJobs(1).get(0).getStatus(), Matchers.is(JobStatus.QUEUED));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(1));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+    }
+
+    /**
+     * Make sure if the node is full and the queue is full the job is rejected.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void cantRunJobIfFullAndQueueFull() throws GenieException {
+        final String clientHost = "localhost";
+        final JobRequest jobRequest1 = this.createJobRequest(JOB_1_ID);
+        final JobRequest jobRequest2 = this.createJobRequest(UUID.randomUUID().toString());
+
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        this.jobCoordinatorService.coordinateJob(jobRequest1, clientHost);
+        try {
+            this.jobCoordinatorService.coordinateJob(jobRequest2, clientHost);
+            Assert.fail();
+        } catch (final GenieTooManyRequestsException e) {
+            Assert.assertThat(e.getRetryAfterSeconds(), Matchers.is(QUEUE_RETRY_AFTER));
+        }
+        Assert.assertThat(this.getCreatedJobs(2).get(1).getStatus(), Matchers.is(JobStatus.FAILED));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(1));
+    }
+
+    /**
+     * Make sure the free slots count both the free run slots and the room left in the queue.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canGetNumFreeSlots() throws GenieException {
+        Mockito.when(this.jobSlotService.getMaxSlots()).thenReturn(2);
+        Mockito.when(this.jobSlotService.getNumReserved()).thenReturn(1);
+        Assert.assertThat(this.jobCoordinatorService.getNumFreeSlots(), Matchers.is(1 + MAX_QUEUED_JOBS));
+
+        Mockito.when(this.jobSlotService.getNumReserved()).thenReturn(2);
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        this.jobCoordinatorService.coordinateJob(this.createJobRequest(JOB_1_ID), "localhost");
+        Assert.assertThat(this.jobCoordinatorService.getNumFreeSlots(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure a job of a user who is at their limit is queued even though the host has a free slot.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canQueueJobIfOverQuota() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+
+        Mockito.when(this.jobQuotaService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        Assert.assertThat(this.jobCoordinatorService.coordinateJob(jobRequest, "localhost"), Matchers.is(JOB_1_ID));
+        final Job job = this.getCreatedJobs(1).get(0);
+        Assert.assertThat(job.getStatus(), Matchers.is(JobStatus.QUEUED));
+        Assert.assertThat(job.getStatusMsg(), Matchers.containsString(JOB_1_USER));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(1));
+        Mockito.verify(this.jobSlotService, Mockito.never()).reserve(Mockito.any(JobRequest.class));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+    }
 
-        Mockito.when(this.jobPersistenceService.createJobRequest(jobRequest, clientHost)).thenReturn(jobRequest);
-        Mockito.when(this.jobCountService.getNumJobs()).thenReturn(MAX_RUNNING_JOBS);
-        final ArgumentCaptor<Job> argument = ArgumentCaptor.forClass(Job.class);
+    /**
+     * Make sure a job of a user who is at their limit is rejected when configured to.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void cantRunJobIfOverQuotaAndRejecting() throws GenieException {
+        final JobCoordinatorService rejectingService = this.createJobCoordinatorService(MAX_QUEUED_JOBS, true);
+        Mockito.when(this.jobQuotaService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        try {
+            rejectingService.coordinateJob(this.createJobRequest(JOB_1_ID), "localhost");
+            Assert.fail();
+        } catch (final GenieTooManyRequestsException e) {
+            Assert.assertThat(e.getRetryAfterSeconds(), Matchers.is(QUEUE_RETRY_AFTER));
+        }
+        Assert.assertThat(this.getCreatedJobs(1).get(0).getStatus(), Matchers.is(JobStatus.FAILED));
+        Assert.assertThat(rejectingService.getNumQueuedJobs(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure the quota is given back if the job gets its quota but the host has no free slot.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void releasesQuotaIfNoSlot() throws GenieException {
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        this.jobCoordinatorService.coordinateJob(this.createJobRequest(JOB_1_ID), "localhost");
+        Mockito.verify(this.jobQuotaService, Mockito.times(1)).release(JOB_1_ID);
+    }
+
+    /**
+     * Make sure queued jobs of the user using the least of their share go first and jobs of users at their limit
+     * don't hold up the rest of the queue.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canDrainQueueByFairShare() throws GenieException {
+        final JobCoordinatorService fairShareService = this.createJobCoordinatorService(3, false);
+        final Future<?> task = Mockito.mock(Future.class);
+        Mockito.doReturn(task).when(this.taskExecutor).submit(Mockito.any(JobLauncher.class));
+        final JobRequest heavyJob = this.createJobRequest("heavy", "heavy");
+        final JobRequest blockedJob = this.createJobRequest("blocked", "blocked");
+        final JobRequest lightJob = this.createJobRequest("light", "light");
+        Mockito.when(this.jobQuotaService.getShare("heavy")).thenReturn(5.0);
+        Mockito.when(this.jobQuotaService.getShare("blocked")).thenReturn(0.0);
+        Mockito.when(this.jobQuotaService.getShare("light")).thenReturn(1.0);
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        fairShareService.coordinateJob(heavyJob, "localhost");
+        fairShareService.coordinateJob(blockedJob, "localhost");
+        fairShareService.coordinateJob(lightJob, "localhost");
+        Assert.assertThat(fairShareService.getNumQueuedJobs(), Matchers.is(3));
+
+        // One slot frees up and the user with the lowest share is at their limit
+        Mockito.when(this.jobQuotaService.reserve(blockedJob)).thenReturn(false);
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(true, false);
+        fairShareService.onJobFinished(
+            new JobFinishedEvent(UUID.randomUUID().toString(), JobFinishedReason.PROCESS_COMPLETED, "done", this)
+        );
+
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(1))
+            .updateJobStatus(
+                Mockito.eq("light"),
+                Mockito.eq(JobStatus.QUEUED),
+                Mockito.eq(JobStatus.INIT),
+                Mockito.anyString()
+            );
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.never())
+            .updateJobStatus(
+                Mockito.eq("heavy"),
+                Mockito.eq(JobStatus.QUEUED),
+                Mockito.eq(JobStatus.INIT),
+                Mockito.anyString()
+            );
+        Assert.assertThat(fairShareService.getNumQueuedJobs(), Matchers.is(2));
+    }
+
+    /**
+     * Make sure a queued job is launched once a running job finishes and frees a slot.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canLaunchQueuedJobWhenSlotFrees() throws GenieException {
+        final String clientHost = "localhost";
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+        final Future<?> task = Mockito.mock(Future.class);
+        Mockito.doReturn(task).when(this.taskExecutor).submit(Mockito.any(JobLauncher.class));
+
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
         this.jobCoordinatorService.coordinateJob(jobRequest, clientHost);
-        Mockito.verify(this.jobPersistenceService).createJob(argument.capture());
-        Assert.assertThat(argument.getValue().getStatus(), Matchers.is(JobStatus.FAILED));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+
+        Mockito.when(this.jobSlotService.reserve(jobRequest)).thenReturn(true);
+        this.jobCoordinatorService.onJobFinished(
+            new JobFinishedEvent(UUID.randomUUID().toString(), JobFinishedReason.PROCESS_COMPLETED, "done", this)
+        );
+
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(1))
+            .updateJobStatus(
+                Mockito.eq(JOB_1_ID),
+                Mockito.eq(JobStatus.QUEUED),
+                Mockito.eq(JobStatus.INIT),
+                Mockito.anyString()
+            );
+        Mockito.verify(this.taskExecutor, Mockito.times(1)).submit(Mockito.any(JobLauncher.class));
+        Mockito.verify(this.eventPublisher, Mockito.times(1)).publishEvent(Mockito.any(JobScheduledEvent.class));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure a job which is killed while queued is removed from the queue and never launched.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canRemoveKilledJobFromQueue() throws GenieException {
+        final String clientHost = "localhost";
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        this.jobCoordinatorService.coordinateJob(jobRequest, clientHost);
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(1));
+
+        this.jobCoordinatorService.onJobFinished(
+            new JobFinishedEvent(JOB_1_ID, JobFinishedReason.KILLED, "killed", this)
+        );
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(0));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+    }
+
+    /**
+     * Make sure a job killed after it was picked from the queue but before it was marked as initializing isn't
+     * launched and gives back its slot and quota.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void wontLaunchQueuedJobKilledWhileBeingDequeued() throws GenieException {
+        final JobRequest jobRequest = this.createJobRequest(JOB_1_ID);
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        this.jobCoordinatorService.coordinateJob(jobRequest, "localhost");
+        Mockito.verify(this.jobSlotService, Mockito.never()).release(JOB_1_ID);
+
+        // The kill already marked the job killed so it's no longer queued in the database
+        Mockito
+            .when(
+                this.jobPersistenceService.updateJobStatus(
+                    Mockito.eq(JOB_1_ID),
+                    Mockito.eq(JobStatus.QUEUED),
+                    Mockito.eq(JobStatus.INIT),
+                    Mockito.anyString()
+                )
+            )
+            .thenReturn(false);
+        Mockito.when(this.jobSlotService.reserve(jobRequest)).thenReturn(true);
+        this.jobCoordinatorService.onJobFinished(
+            new JobFinishedEvent(UUID.randomUUID().toString(), JobFinishedReason.PROCESS_COMPLETED, "done", this)
+        );
+
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(0));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+        Mockito.verify(this.jobSlotService, Mockito.times(1)).release(JOB_1_ID);
+        Mockito.verify(this.jobQuotaService, Mockito.atLeastOnce()).release(JOB_1_ID);
+    }
+
+    /**
+     * Make sure a memoized job request returns the identical job found instead of running again.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void canReturnMemoizedJob() throws GenieException {
+        final JobRequest jobRequest = this.createMemoizedJobRequest(JOB_1_ID);
+        final String memoizedJobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobMemoizationService.getMemoizedJob(jobRequest)).thenReturn(this.createJob(memoizedJobId));
+
+        Assert.assertThat(
+            this.jobCoordinatorService.coordinateJob(jobRequest, "localhost"),
+            Matchers.is(memoizedJobId)
+        );
+
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.never())
+            .createJobs(
+                Mockito.anyListOf(JobRequest.class),
+                Mockito.anyListOf(Job.class),
+                Mockito.anyString(),
+                Mockito.anyString()
+            );
+        Mockito.verify(this.jobSlotService, Mockito.never()).reserve(Mockito.any(JobRequest.class));
+        Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+    }
+
+    /**
+     * Make sure a memoized job request is run as usual if no identical job is found or the lookup fails and that
+     * requests which aren't memoized are never looked up.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void canRunMemoizedJobIfNoneFound() throws GenieException {
+        final JobRequest jobRequest1 = this.createMemoizedJobRequest(JOB_1_ID);
+        final JobRequest jobRequest2 = this.createMemoizedJobRequest(UUID.randomUUID().toString());
+        final JobRequest jobRequest3 = this.createJobRequest(UUID.randomUUID().toString());
+        Mockito
+            .when(this.jobMemoizationService.getMemoizedJob(jobRequest2))
+            .thenThrow(new GenieServerException("S3 is down"));
+
+        Assert.assertThat(this.jobCoordinatorService.coordinateJob(jobRequest1, "localhost"), Matchers.is(JOB_1_ID));
+        Assert.assertThat(
+            this.jobCoordinatorService.coordinateJob(jobRequest2, "localhost"),
+            Matchers.is(jobRequest2.getId())
+        );
+        Assert.assertThat(
+            this.jobCoordinatorService.coordinateJob(jobRequest3, "localhost"),
+            Matchers.is(jobRequest3.getId())
+        );
+
+        Mockito.verify(this.taskExecutor, Mockito.times(3)).submit(Mockito.any(JobLauncher.class));
+        Mockito.verify(this.jobMemoizationService, Mockito.never()).getMemoizedJob(jobRequest3);
+    }
+
+    /**
+     * Make sure memoized jobs found for a batch are returned in place of the requests and only the rest are run.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canCoordinateBatchWithMemoizedJobs() throws GenieException {
+        final String clientHost = "localhost";
+        final JobRequest jobRequest1 = this.createMemoizedJobRequest(JOB_1_ID);
+        final JobRequest jobRequest2 = this.createJobRequest(UUID.randomUUID().toString());
+        final JobRequest jobRequest3 = this.createMemoizedJobRequest(UUID.randomUUID().toString());
+        final String memoizedJobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobMemoizationService.getMemoizedJob(jobRequest1)).thenReturn(this.createJob(memoizedJobId));
+
+        final List<Job> jobs = this.jobCoordinatorService.coordinateJobs(
+            Lists.newArrayList(jobRequest1, jobRequest2, jobRequest3),
+            clientHost
+        );
+
+        Assert.assertThat(jobs.size(), Matchers.is(3));
+        Assert.assertThat(jobs.get(0).getId(), Matchers.is(memoizedJobId));
+        Assert.assertThat(jobs.get(0).getStatus(), Matchers.is(JobStatus.SUCCEEDED));
+        Assert.assertThat(jobs.get(1).getId(), Matchers.is(jobRequest2.getId()));
+        Assert.assertThat(jobs.get(1).getStatus(), Matchers.is(JobStatus.INIT));
+        Assert.assertThat(jobs.get(2).getId(), Matchers.is(jobRequest3.getId()));
+        Assert.assertThat(jobs.get(2).getStatus(), Matchers.is(JobStatus.INIT));
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(1))
+            .createJobs(
+                Lists.newArrayList(jobRequest2, jobRequest3),
+                Lists.newArrayList(jobs.get(1), jobs.get(2)),
+                clientHost,
+                HOST_NAME
+            );
+        Mockito.verify(this.taskExecutor, Mockito.times(2)).submit(Mockito.any(JobLauncher.class));
+    }
+
+    /**
+     * Make sure a batch of jobs is saved in one call and each job is run, queued or failed based on capacity.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canCoordinateBatchOfJobs() throws GenieException {
+        final String clientHost = "localhost";
+        final JobRequest jobRequest1 = this.createJobRequest(JOB_1_ID);
+        final JobRequest jobRequest2 = this.createJobRequest(UUID.randomUUID().toString());
+        final JobRequest jobRequest3 = this.createJobRequest(UUID.randomUUID().toString());
+        final List<JobRequest> jobRequests = Lists.newArrayList(jobRequest1, jobRequest2, jobRequest3);
+
+        Mockito.when(this.jobSlotService.reserve(Mockito.any(JobRequest.class))).thenReturn(false);
+        Mockito.when(this.jobSlotService.reserve(jobRequest1)).thenReturn(true);
+        final List<Job> jobs = this.jobCoordinatorService.coordinateJobs(jobRequests, clientHost);
+
+        Assert.assertThat(jobs.size(), Matchers.is(3));
+        Assert.assertThat(jobs.get(0).getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(jobs.get(0).getStatus(), Matchers.is(JobStatus.INIT));
+        Assert.assertThat(jobs.get(1).getId(), Matchers.is(jobRequest2.getId()));
+        Assert.assertThat(jobs.get(1).getStatus(), Matchers.is(JobStatus.QUEUED));
+        Assert.assertThat(jobs.get(2).getId(), Matchers.is(jobRequest3.getId()));
+        Assert.assertThat(jobs.get(2).getStatus(), Matchers.is(JobStatus.FAILED));
+
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(1))
+            .createJobs(jobRequests, jobs, clientHost, HOST_NAME);
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.never())
+            .createJobRequest(Mockito.any(JobRequest.class), Mockito.anyString());
+        Mockito.verify(this.jobPersistenceService, Mockito.never()).createJob(Mockito.any(Job.class));
+        Mockito.verify(this.taskExecutor, Mockito.times(1)).submit(Mockito.any(JobLauncher.class));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(1));
+    }
+
+    /**
+     * Make sure the slots reserved for a batch are given back if the batch can't be saved.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void releasesSlotsIfBatchCantBeSaved() throws GenieException {
+        final String clientHost = "localhost";
+        final String jobId2 = UUID.randomUUID().toString();
+        final List<JobRequest> jobRequests
+            = Lists.newArrayList(this.createJobRequest(JOB_1_ID), this.createJobRequest(jobId2));
+        Mockito
+            .doThrow(new GenieConflictException("exists"))
+            .when(this.jobPersistenceService)
+            .createJobs(
+                Mockito.anyListOf(JobRequest.class),
+                Mockito.anyListOf(Job.class),
+                Mockito.anyString(),
+                Mockito.anyString()
+            );
+
+        try {
+            this.jobCoordinatorService.coordinateJobs(jobRequests, clientHost);
+            Assert.fail();
+        } catch (final GenieConflictException gce) {
+            Mockito.verify(this.jobSlotService, Mockito.times(1)).release(JOB_1_ID);
+            Mockito.verify(this.jobSlotService, Mockito.times(1)).release(jobId2);
+            Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+        }
+    }
+
+    /**
+     * Make sure the slot reserved for a single job is given back if the job can't be saved, e.g. on a duplicate id.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void releasesSlotIfJobCantBeSaved() throws GenieException {
+        Mockito
+            .doThrow(new GenieConflictException("exists"))
+            .when(this.jobPersistenceService)
+            .createJobs(
+                Mockito.anyListOf(JobRequest.class),
+                Mockito.anyListOf(Job.class),
+                Mockito.anyString(),
+                Mockito.anyString()
+            );
+
+        try {
+            this.jobCoordinatorService.coordinateJob(this.createJobRequest(JOB_1_ID), "localhost");
+            Assert.fail();
+        } catch (final GenieConflictException gce) {
+            Mockito.verify(this.jobSlotService, Mockito.times(1)).release(JOB_1_ID);
+            Mockito.verify(this.taskExecutor, Mockito.never()).submit(Mockito.any(JobLauncher.class));
+        }
+    }
+
+    /**
+     * Make sure a batch can't contain the same job twice.
+     *
+     * @throws GenieException On error
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantCoordinateBatchWithDuplicateIds() throws GenieException {
+        this.jobCoordinatorService.coordinateJobs(
+            Lists.newArrayList(this.createJobRequest(JOB_1_ID), this.createJobRequest(JOB_1_ID)),
+            "localhost"
+        );
+    }
+
+    /**
+     * Make sure the jobs this host left queued when it stopped are failed when it starts again.
+     */
+    @Test
+    public void canFailJobsQueuedBeforeRestart() {
+        Mockito
+            .when(this.jobPersistenceService.failQueuedJobs(Mockito.eq(HOST_NAME), Mockito.anyString()))
+            .thenReturn(Lists.newArrayList(JOB_1_ID));
+        this.jobCoordinatorService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(1))
+            .failQueuedJobs(Mockito.eq(HOST_NAME), Mockito.anyString());
+
+        // Not being able to fail them is no reason for the host not to start
+        Mockito
+            .when(this.jobPersistenceService.failQueuedJobs(Mockito.eq(HOST_NAME), Mockito.anyString()))
+            .thenThrow(new IllegalStateException("database unavailable"));
+        this.jobCoordinatorService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        Assert.assertThat(this.jobCoordinatorService.getNumQueuedJobs(), Matchers.is(0));
     }
 
     /**
@@ -253,4 +733,71 @@ public class JobCoordinatorServiceUnitTests {
         Mockito.doThrow(new GenieException(123, "fake")).when(this.jobKillService).killJob(id);
         this.jobCoordinatorService.killJob(id);
     }
+
+    private JobCoordinatorService createJobCoordinatorService(final int maxQueuedJobs, final boolean rejectOverQuota) {
+        return new JobCoordinatorService(
+            this.taskExecutor,
+            this.jobPersistenceService,
+            Mockito.mock(JobSubmitterService.class),
+            this.jobKillService,
+            this.jobSlotService,
+            this.jobQuotaService,
+            this.jobMemoizationService,
+            this.jobTimelineService,
+            BASE_ARCHIVE_LOCATION,
+            HOST_NAME,
+            maxQueuedJobs,
+            QUEUE_RETRY_AFTER,
+            rejectOverQuota,
+            new DefaultRegistry(),
+            this.eventPublisher
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Job> getCreatedJobs(final int times) throws GenieException {
+        final ArgumentCaptor<List<Job>> argument = ArgumentCaptor.forClass((Class) List.class);
+        Mockito
+            .verify(this.jobPersistenceService, Mockito.times(times))
+            .createJobs(
+                Mockito.anyListOf(JobRequest.class),
+                argument.capture(),
+                Mockito.anyString(),
+                Mockito.eq(HOST_NAME)
+            );
+        final List<Job> jobs = new ArrayList<>();
+        argument.getAllValues().forEach(jobs::addAll);
+        return jobs;
+    }
+
+    private JobRequest createJobRequest(final String id) {
+        return this.createJobRequest(id, JOB_1_USER);
+    }
+
+    private JobRequest createMemoizedJobRequest(final String id) {
+        return new JobRequest.Builder(JOB_1_NAME, JOB_1_USER, JOB_1_VERSION, null, null, null)
+            .withId(id)
+            .withMemoize(true)
+            .build();
+    }
+
+    private Job createJob(final String id) {
+        return new Job.Builder(JOB_1_NAME, JOB_1_USER, JOB_1_VERSION, null)
+            .withId(id)
+            .withStatus(JobStatus.SUCCEEDED)
+            .build();
+    }
+
+    private JobRequest createJobRequest(final String id, final String user) {
+        return new JobRequest.Builder(
+            JOB_1_NAME,
+            user,
+            JOB_1_VERSION,
+            null,
+            null,
+            null
+        ).withDisableLogArchival(true)
+            .withId(id)
+            .build();
+    }
 }
@@ -0,0 +1,548 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.TransferPriority;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the DiskDependencyCacheServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class DiskDependencyCacheServiceImplUnitTests {
+
+    private static final String JAR = "s3://bucket/lib/my.jar";
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GenieFileTransferService fileTransferService;
+    private Registry registry;
+    private File cacheDir;
+    private File jobDir;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error creating the directories
+     */
+    @Before
+    public void setup() throws IOException {
+        this.fileTransferService = Mockito.mock(GenieFileTransferService.class);
+        this.registry = new DefaultRegistry();
+        this.cacheDir = this.folder.newFolder("cache");
+        this.jobDir = this.folder.newFolder("job");
+    }
+
+    /**
+     * Make sure files already on the node are copied directly without being cached.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void doesntCacheLocalFiles() throws GenieException {
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+        final String dst = this.dst("setup.sh");
+
+        cache.getFile("file:///apps/setup.sh", dst);
+        cache.getFile("/apps/setup.sh", dst);
+
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).getFile("file:///apps/setup.sh", dst);
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).getFile("/apps/setup.sh", dst);
+        Mockito.verify(this.fileTransferService, Mockito.never()).getContentHash(Mockito.anyString());
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure nothing is cached if the cache has no space.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void doesntCacheWhenDisabled() throws GenieException {
+        final DiskDependencyCacheServiceImpl cache = this.getCache(0L);
+        final String dst = this.dst("my.jar");
+
+        cache.getFile(JAR, dst);
+
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).getFile(JAR, dst);
+        Assert.assertFalse(new File(this.cacheDir, "files").exists());
+    }
+
+    /**
+     * Make sure a file is downloaded once and then served from the cache.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canServeFilesFromCache() throws Exception {
+        this.mockFile(JAR, "v1", "jar contents");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        final String first = this.dst("first.jar");
+        final String second = this.dst("second.jar");
+        cache.getFile(JAR, first);
+        cache.getFile(JAR, second);
+
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        Assert.assertThat(this.read(first), Matchers.is("jar contents"));
+        Assert.assertThat(this.read(second), Matchers.is("jar contents"));
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(1));
+        Assert.assertThat(cache.getSize(), Matchers.is(12L));
+        Assert.assertThat(this.registry.counter("genie.jobs.dependencies.cache.miss.rate").count(), Matchers.is(1L));
+        Assert.assertThat(this.registry.counter("genie.jobs.dependencies.cache.hit.rate").count(), Matchers.is(1L));
+        Assert.assertThat(
+            this.registry.counter("genie.jobs.dependencies.cache.saved.bytes").count(),
+            Matchers.is(12L)
+        );
+    }
+
+    /**
+     * Make sure the cache is still used after a restart.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canServeFilesCachedBeforeRestart() throws Exception {
+        this.mockFile(JAR, "v1", "jar contents");
+        this.getCache(1024L).getFile(JAR, this.dst("first.jar"));
+
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(1));
+        final String second = this.dst("second.jar");
+        cache.getFile(JAR, second);
+
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        Assert.assertThat(this.read(second), Matchers.is("jar contents"));
+    }
+
+    /**
+     * Make sure a new version of a file is downloaded again.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canDownloadChangedFiles() throws Exception {
+        this.mockFile(JAR, "v1", "version one");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+        cache.getFile(JAR, this.dst("first.jar"));
+
+        this.mockFile(JAR, "v2", "version two");
+        final String second = this.dst("second.jar");
+        cache.getFile(JAR, second);
+
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(2))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        Assert.assertThat(this.read(second), Matchers.is("version two"));
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(2));
+    }
+
+    /**
+     * Make sure the same content under two paths is only stored once.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void storesIdenticalContentOnce() throws Exception {
+        final String copy = "s3://other/lib/my.jar";
+        this.mockFile(JAR, "v1", "jar contents");
+        this.mockFile(copy, "v1", "jar contents");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        cache.getFile(JAR, this.dst("first.jar"));
+        final String second = this.dst("second.jar");
+        cache.getFile(copy, second);
+
+        Assert.assertThat(this.read(second), Matchers.is("jar contents"));
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(1));
+        Assert.assertThat(cache.getSize(), Matchers.is(12L));
+    }
+
+    /**
+     * Make sure the least recently used files are evicted once the cache is full.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canEvictLeastRecentlyUsedFiles() throws Exception {
+        final String first = "s3://bucket/lib/first.jar";
+        final String second = "s3://bucket/lib/second.jar";
+        final String third = "s3://bucket/lib/third.jar";
+        this.mockFile(first, "v1", "0123456789");
+        this.mockFile(second, "v1", "abcdefghij");
+        this.mockFile(third, "v1", "ABCDEFGHIJ");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(25L);
+
+        cache.getFile(first, this.dst("1.jar"));
+        cache.getFile(second, this.dst("2.jar"));
+        // Make first the most recently used
+        Thread.sleep(5L);
+        cache.getFile(first, this.dst("3.jar"));
+        cache.getFile(third, this.dst("4.jar"));
+
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(2));
+        Assert.assertThat(cache.getSize(), Matchers.is(20L));
+        Assert.assertThat(
+            this.registry.counter("genie.jobs.dependencies.cache.eviction.rate").count(),
+            Matchers.is(1L)
+        );
+        // Jobs keep the files they were given
+        Assert.assertThat(this.read(this.dst("2.jar")), Matchers.is("abcdefghij"));
+        // The evicted file is forgotten along with it
+        Assert.assertThat(new File(this.cacheDir, "index").list().length, Matchers.is(2));
+
+        cache.getFile(second, this.dst("5.jar"));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(2))
+            .getFile(Mockito.eq(second), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(first), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+    }
+
+    /**
+     * Make sure files are copied rather than linked when asked to and jobs can write to their copy without changing
+     * the cached file.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canCopyInsteadOfLink() throws Exception {
+        this.mockFile(JAR, "v1", "jar contents");
+        final DiskDependencyCacheServiceImpl cache = new DiskDependencyCacheServiceImpl(
+            this.fileTransferService,
+            this.cacheDir,
+            1024L,
+            false,
+            this.registry
+        );
+
+        final String dst = this.dst("my.jar");
+        cache.getFile(JAR, dst);
+
+        Assert.assertThat(Files.getAttribute(Paths.get(dst), "unix:nlink"), Matchers.is(1));
+        Assert.assertThat(this.read(dst), Matchers.is("jar contents"));
+
+        Assert.assertTrue(Files.isWritable(Paths.get(dst)));
+        Files.write(Paths.get(dst), "changed".getBytes(StandardCharsets.UTF_8));
+        final String second = this.dst("second.jar");
+        cache.getFile(JAR, second);
+        Assert.assertThat(this.read(second), Matchers.is("jar contents"));
+    }
+
+    /**
+     * Make sure the cache can be cleared.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canClear() throws Exception {
+        this.mockFile(JAR, "v1", "jar contents");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+        cache.getFile(JAR, this.dst("first.jar"));
+
+        cache.clear();
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(0));
+        Assert.assertThat(cache.getSize(), Matchers.is(0L));
+        Assert.assertThat(new File(this.cacheDir, "files").list().length, Matchers.is(0));
+        Assert.assertThat(new File(this.cacheDir, "index").list().length, Matchers.is(0));
+
+        cache.getFile(JAR, this.dst("second.jar"));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(2))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+    }
+
+    /**
+     * Make sure jobs asking for the same file at the same time share one download.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void sharesDownloadsInFlight() throws Exception {
+        final CountDownLatch downloading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn("v1");
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    downloading.countDown();
+                    Assert.assertTrue(release.await(10, TimeUnit.SECONDS));
+                    Files.write(
+                        Paths.get((String) invocation.getArguments()[1]),
+                        "jar contents".getBytes(StandardCharsets.UTF_8)
+                    );
+                    return null;
+                }
+            )
+            .when(this.fileTransferService)
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.any(TransferPriority.class));
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final String dst = this.dst(i + ".jar");
+                futures.add(executor.submit(() -> {
+                    cache.getFile(JAR, dst);
+                    return null;
+                }));
+            }
+            Assert.assertTrue(downloading.await(10, TimeUnit.SECONDS));
+            release.countDown();
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertThat(this.read(this.dst(i + ".jar")), Matchers.is("jar contents"));
+        }
+    }
+
+    /**
+     * Make sure a failed download isn't cached and is tried again by the next job.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void doesntCacheFailedDownloads() throws Exception {
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn("v1");
+        Mockito
+            .doThrow(new GenieServerException("throw"))
+            .when(this.fileTransferService)
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.any(TransferPriority.class));
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        try {
+            cache.getFile(JAR, this.dst("first.jar"));
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertThat(cache.getNumFiles(), Matchers.is(0));
+        }
+
+        this.mockFile(JAR, "v1", "jar contents");
+        final String dst = this.dst("second.jar");
+        cache.getFile(JAR, dst);
+        Assert.assertThat(this.read(dst), Matchers.is("jar contents"));
+        Assert.assertThat(new File(this.cacheDir, "tmp").list().length, Matchers.is(0));
+    }
+
+    /**
+     * Make sure warming downloads a file into the cache at the warm priority without giving it to a job, and jobs
+     * then get it from the cache.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canWarmFiles() throws Exception {
+        this.mockFile(JAR, "v1", "jar contents");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        Assert.assertTrue(cache.isCacheable(JAR));
+        Assert.assertFalse(cache.isCached(JAR));
+        Assert.assertThat(cache.warm(JAR), Matchers.is(12L));
+        Assert.assertTrue(cache.isCached(JAR));
+        Assert.assertThat(cache.warm(JAR), Matchers.is(0L));
+
+        final String dst = this.dst("first.jar");
+        cache.getFile(JAR, dst);
+        Assert.assertThat(this.read(dst), Matchers.is("jar contents"));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.WARM));
+        Mockito
+            .verify(this.fileTransferService, Mockito.never())
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+
+        // A new version isn't cached until it's warmed or fetched again
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn("v2");
+        Assert.assertFalse(cache.isCached(JAR));
+    }
+
+    /**
+     * Make sure a job asking for a file which is being warmed downloads it at the launch priority instead of waiting
+     * behind the warm transfers.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void doesntMakeJobsWaitOnWarming() throws Exception {
+        final CountDownLatch warming = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn("v1");
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    if (invocation.getArguments()[2] == TransferPriority.WARM) {
+                        warming.countDown();
+                        Assert.assertTrue(release.await(10, TimeUnit.SECONDS));
+                    }
+                    Files.write(
+                        Paths.get((String) invocation.getArguments()[1]),
+                        "jar contents".getBytes(StandardCharsets.UTF_8)
+                    );
+                    return null;
+                }
+            )
+            .when(this.fileTransferService)
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.any(TransferPriority.class));
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Long> warm = executor.submit(() -> cache.warm(JAR));
+            Assert.assertTrue(warming.await(10, TimeUnit.SECONDS));
+
+            // The warming is still blocked so this only returns if the job didn't wait on it
+            final String dst = this.dst("first.jar");
+            cache.getFile(JAR, dst);
+            Assert.assertThat(this.read(dst), Matchers.is("jar contents"));
+
+            release.countDown();
+            Assert.assertThat(warm.get(10, TimeUnit.SECONDS), Matchers.is(12L));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(1));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+        final String second = this.dst("second.jar");
+        cache.getFile(JAR, second);
+        Assert.assertThat(this.read(second), Matchers.is("jar contents"));
+        Mockito
+            .verify(this.fileTransferService, Mockito.times(1))
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.eq(TransferPriority.LAUNCH));
+    }
+
+    /**
+     * Make sure files whose version can't be told are downloaded directly every time instead of being cached.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void doesntCacheFilesWithoutValidator() throws Exception {
+        this.mockFile(JAR, null, "jar contents");
+        final DiskDependencyCacheServiceImpl cache = this.getCache(1024L);
+        final String first = this.dst("first.jar");
+        final String second = this.dst("second.jar");
+
+        cache.getFile(JAR, first);
+        cache.getFile(JAR, second);
+
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).getFile(JAR, first);
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).getFile(JAR, second);
+        Mockito
+            .verify(this.fileTransferService, Mockito.never())
+            .getFile(Mockito.eq(JAR), Mockito.anyString(), Mockito.any(TransferPriority.class));
+        Assert.assertFalse(cache.isCached(JAR));
+        Assert.assertThat(cache.warm(JAR), Matchers.is(0L));
+        Assert.assertThat(cache.getNumFiles(), Matchers.is(0));
+        Assert.assertThat(new File(this.cacheDir, "index").list(), Matchers.emptyArray());
+    }
+
+    /**
+     * Make sure files which aren't cached are never warmed.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void doesntWarmUncacheableFiles() throws GenieException {
+        Assert.assertFalse(this.getCache(1024L).isCacheable("file:///apps/setup.sh"));
+        Assert.assertThat(this.getCache(1024L).warm("/apps/setup.sh"), Matchers.is(0L));
+        Assert.assertFalse(this.getCache(0L).isCacheable(JAR));
+        Assert.assertFalse(this.getCache(0L).isCached(JAR));
+        Assert.assertThat(this.getCache(0L).warm(JAR), Matchers.is(0L));
+        Mockito.verifyZeroInteractions(this.fileTransferService);
+    }
+
+    private DiskDependencyCacheServiceImpl getCache(final long maxSize) throws GenieException {
+        return new DiskDependencyCacheServiceImpl(
+            this.fileTransferService,
+            this.cacheDir,
+            maxSize,
+            true,
+            this.registry
+        );
+    }
+
+    private void mockFile(final String path, final String validator, final String contents) throws GenieException {
+        Mockito.when(this.fileTransferService.getContentHash(path)).thenReturn(validator);
+        Mockito
+            .doAnswer(
+                invocation -> Files.write(
+                    Paths.get((String) invocation.getArguments()[1]),
+                    contents.getBytes(StandardCharsets.UTF_8)
+                )
+            )
+            .when(this.fileTransferService)
+            .getFile(Mockito.eq(path), Mockito.anyString(), Mockito.any(TransferPriority.class));
+    }
+
+    private String dst(final String name) {
+        return new File(this.jobDir, name).getAbsolutePath();
+    }
+
+    private String read(final String path) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.AdminResources;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for the DiskStagedEnvironmentServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class DiskStagedEnvironmentServiceImplUnitTests {
+
+    private static final String APP_ID = "app1";
+    private static final String JAR = "s3://bucket/lib/my.jar";
+    private static final String SETUP = "s3://bucket/setup.sh";
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DependencyCacheService dependencyCacheService;
+    private GenieFileTransferService fileTransferService;
+    private TaskScheduler scheduler;
+    private Registry registry;
+    private File rootDir;
+    private File jobsDir;
+    private DiskStagedEnvironmentServiceImpl service;
+    private Map<String, String> files;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error creating the directories
+     */
+    @Before
+    public void setup() throws GenieException, IOException {
+        this.dependencyCacheService = Mockito.mock(DependencyCacheService.class);
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    final String src = (String) invocation.getArguments()[0];
+                    final String dst = (String) invocation.getArguments()[1];
+                    Files.write(Paths.get(dst), src.getBytes(StandardCharsets.UTF_8));
+                    return null;
+                }
+            )
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.anyString(), Mockito.anyString());
+        this.fileTransferService = Mockito.mock(GenieFileTransferService.class);
+        Mockito.when(this.fileTransferService.getContentHash(Mockito.anyString())).thenReturn("v1");
+        this.scheduler = Mockito.mock(TaskScheduler.class);
+        this.registry = new DefaultRegistry();
+        this.rootDir = this.folder.newFolder("environments");
+        this.jobsDir = this.folder.newFolder("jobs");
+        this.service = new DiskStagedEnvironmentServiceImpl(
+            this.dependencyCacheService,
+            this.fileTransferService,
+            this.rootDir,
+            this.jobsDir,
+            this.scheduler,
+            1000L,
+            this.registry
+        );
+        this.files = new HashMap<>();
+        this.files.put("setup.sh", SETUP);
+        this.files.put("dependencies/my.jar", JAR);
+    }
+
+    /**
+     * Make sure the tree is staged once, read only, and jobs get a link to it.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canStageAndLinkEnvironment() throws GenieException, IOException {
+        final File link1 = this.link("job1");
+        final File link2 = this.link("job2");
+
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, link1);
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, link2);
+
+        Assert.assertTrue(Files.isSymbolicLink(link1.toPath()));
+        Assert.assertThat(Files.readSymbolicLink(link2.toPath()), Matchers.is(Files.readSymbolicLink(link1.toPath())));
+        Assert.assertThat(this.read(new File(link2, "dependencies/my.jar")), Matchers.is(JAR));
+        Assert.assertThat(this.read(new File(link2, "setup.sh")), Matchers.is(SETUP));
+        Assert.assertTrue(new File(link2, "config").isDirectory());
+        Assert.assertFalse(this.isWritable(new File(link2, "setup.sh").toPath()));
+        Assert.assertFalse(this.isWritable(Files.readSymbolicLink(link2.toPath())));
+
+        Mockito.verify(this.dependencyCacheService, Mockito.times(1)).getFile(Mockito.eq(JAR), Mockito.anyString());
+        Mockito.verify(this.dependencyCacheService, Mockito.times(1)).getFile(Mockito.eq(SETUP), Mockito.anyString());
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(1));
+        Assert.assertThat(this.registry.counter("genie.jobs.environments.miss.rate").count(), Matchers.is(1L));
+        Assert.assertThat(this.registry.counter("genie.jobs.environments.hit.rate").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure a new version of the entity or a change of its files gets a new tree.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canStageNewVersion() throws GenieException {
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, this.link("job1"));
+        this.service.link(AdminResources.APPLICATION, APP_ID, "2", this.files, this.link("job2"));
+        this.files.remove("setup.sh");
+        this.service.link(AdminResources.APPLICATION, APP_ID, "2", this.files, this.link("job3"));
+
+        Mockito.verify(this.dependencyCacheService, Mockito.times(3)).getFile(Mockito.eq(JAR), Mockito.anyString());
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(3));
+        Assert.assertThat(this.registry.counter("genie.jobs.environments.miss.rate").count(), Matchers.is(3L));
+    }
+
+    /**
+     * Make sure a file overwritten in place at the same location gets a new tree even though the entity didn't
+     * change, and a file which can't be checked for changes is staged for every job.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canStageChangedFiles() throws GenieException, IOException {
+        final File link1 = this.link("job1");
+        final File link2 = this.link("job2");
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, link1);
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn("v2");
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, link2);
+
+        Assert.assertThat(
+            Files.readSymbolicLink(link2.toPath()),
+            Matchers.not(Files.readSymbolicLink(link1.toPath()))
+        );
+        Mockito.verify(this.dependencyCacheService, Mockito.times(2)).getFile(Mockito.eq(JAR), Mockito.anyString());
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(2));
+
+        Mockito.when(this.fileTransferService.getContentHash(JAR)).thenReturn(null);
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, this.link("job3"));
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, this.link("job4"));
+        Mockito.verify(this.dependencyCacheService, Mockito.times(4)).getFile(Mockito.eq(JAR), Mockito.anyString());
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(4));
+    }
+
+    /**
+     * Make sure a tree which failed to stage isn't used and is staged again by the next job.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canStageAgainAfterFailure() throws GenieException {
+        Mockito
+            .doThrow(new GenieServerException("throw"))
+            .doNothing()
+            .when(this.dependencyCacheService)
+            .getFile(Mockito.eq(JAR), Mockito.anyString());
+
+        final File link1 = this.link("job1");
+        try {
+            this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, link1);
+            Assert.fail("Expected staging to fail");
+        } catch (final GenieServerException gse) {
+            Assert.assertFalse(Files.exists(link1.toPath(), LinkOption.NOFOLLOW_LINKS));
+            Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(0));
+        }
+
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, this.link("job2"));
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(1));
+    }
+
+    /**
+     * Make sure files can't be staged outside of the tree.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantStageFilesOutsideOfEnvironment() throws GenieException {
+        this.files.put("../../evil.sh", SETUP);
+        this.service.link(AdminResources.COMMAND, "command1", "1", this.files, this.link("job1"));
+    }
+
+    /**
+     * Make sure only the trees of replaced versions no job links to anymore are deleted.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canCollectGarbage() throws GenieException, IOException {
+        final File oldLink = this.link("job1");
+        this.service.link(AdminResources.APPLICATION, APP_ID, "1", this.files, oldLink);
+        final Path oldEnvironment = Files.readSymbolicLink(oldLink.toPath());
+        Files.setLastModifiedTime(oldEnvironment, FileTime.fromMillis(1000L));
+        final File newLink = this.link("job2");
+        this.service.link(AdminResources.APPLICATION, APP_ID, "2", this.files, newLink);
+        final Path newEnvironment = Files.readSymbolicLink(newLink.toPath());
+
+        // A job still uses the old version
+        Assert.assertThat(this.service.collectGarbage(), Matchers.is(0));
+        Assert.assertTrue(Files.isDirectory(oldEnvironment));
+
+        Files.delete(oldLink.toPath());
+        Files.delete(newLink.toPath());
+        Assert.assertThat(this.service.collectGarbage(), Matchers.is(1));
+        Assert.assertFalse(Files.exists(oldEnvironment));
+        Assert.assertTrue(Files.isDirectory(newEnvironment));
+        Assert.assertThat(this.service.getNumEnvironments(), Matchers.is(1));
+        Assert.assertThat(this.registry.counter("genie.jobs.environments.deletion.rate").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure staging cut short by a restart is cleaned up.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canDeleteAbandonedStaging() throws IOException {
+        final Path abandoned = this.rootDir.toPath().resolve("tmp/old/staging");
+        Files.createDirectories(abandoned);
+
+        Assert.assertThat(this.service.collectGarbage(), Matchers.is(0));
+        Assert.assertFalse(Files.exists(abandoned.getParent()));
+    }
+
+    /**
+     * Make sure the garbage collection is only scheduled once.
+     */
+    @Test
+    public void canScheduleGarbageCollection() {
+        this.service.onContextRefreshed(null);
+        this.service.onContextRefreshed(null);
+        Mockito
+            .verify(this.scheduler, Mockito.times(1))
+            .scheduleWithFixedDelay(Mockito.any(Runnable.class), Mockito.eq(1000L));
+    }
+
+    private File link(final String jobId) {
+        final File applications = new File(this.jobsDir, jobId + "/genie/applications");
+        Assert.assertTrue(applications.mkdirs());
+        return new File(applications, APP_ID);
+    }
+
+    private String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private boolean isWritable(final Path path) throws IOException {
+        // Checked on the permissions as the tests may run as root
+        return Files.getPosixFilePermissions(path).contains(PosixFilePermission.OWNER_WRITE);
+    }
+}
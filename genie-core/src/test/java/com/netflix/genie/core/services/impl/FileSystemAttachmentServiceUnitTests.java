@@ -20,17 +20,22 @@ package com.netflix.genie.core.services.impl;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.common.exceptions.GenieException;
 import org.apache.commons.io.FileUtils;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -58,7 +63,10 @@ public class FileSystemAttachmentServiceUnitTests {
      */
     @Before
     public void setup() throws IOException {
-        this.service = new FileSystemAttachmentService(this.folder.getRoot().getAbsolutePath());
+        this.service = new FileSystemAttachmentService(
+            this.folder.getRoot().getAbsolutePath(),
+            new FileSystemResource(this.folder.newFolder("jobs"))
+        );
     }
 
     /**
@@ -79,13 +87,48 @@ public class FileSystemAttachmentServiceUnitTests {
     }
 
     /**
-     * Test whether we can successfully delete an attachment from the filesystem.
+     * Test whether an attachment can transfer itself to where it is saved.
+     *
+     * @throws GenieException on error
+     * @throws IOException    if the attachment file can't be located
+     */
+    @Test
+    public void canSaveAttachmentContent() throws GenieException, IOException {
+        final String jobId = UUID.randomUUID().toString();
+        final File original = this.folder.newFile(UUID.randomUUID().toString() + ".q");
+        FileUtils.write(original, "SELECT * FROM my_table;");
+        this.service.save(jobId, original.getName(), destination -> FileUtils.moveFile(original, destination));
+
+        final File saved = new File(this.folder.getRoot(), jobId + "/" + original.getName());
+        Assert.assertFalse(original.exists());
+        Assert.assertThat(FileUtils.readFileToString(saved), Matchers.is("SELECT * FROM my_table;"));
+    }
+
+    /**
+     * Test the attachments are kept next to the jobs directory unless configured otherwise.
      *
      * @throws GenieException on error
      * @throws IOException    if the attachment file can't be located
      */
     @Test
-    public void canCopyAttachments() throws GenieException, IOException {
+    public void canDefaultToDirectoryNextToJobs() throws GenieException, IOException {
+        final File root = this.folder.newFolder();
+        final FileSystemAttachmentService defaultService
+            = new FileSystemAttachmentService(null, new FileSystemResource(new File(root, "jobs")));
+        final String jobId = UUID.randomUUID().toString();
+        defaultService.save(jobId, "query.q", new ByteArrayInputStream(new byte[0]));
+
+        Assert.assertTrue(new File(root, "attachments/" + jobId + "/query.q").exists());
+    }
+
+    /**
+     * Test whether we can successfully move attachments into a job directory.
+     *
+     * @throws GenieException on error
+     * @throws IOException    if the attachment file can't be located
+     */
+    @Test
+    public void canMoveAttachments() throws GenieException, IOException {
         final String jobId = UUID.randomUUID().toString();
         final String finalDirName = UUID.randomUUID().toString();
         final Set<File> originals = new HashSet<>();
@@ -100,14 +143,16 @@ public class FileSystemAttachmentServiceUnitTests {
         final File jobDir = new File(this.folder.getRoot().getAbsoluteFile(), jobId);
         Assert.assertTrue(jobDir.exists());
         final File finalDir = new File(this.folder.getRoot().getAbsoluteFile(), finalDirName);
-        this.service.copy(jobId, finalDir);
-        Assert.assertTrue(jobDir.exists());
+        final Map<String, Long> lengths = new HashMap<>();
+        originals.forEach(file -> lengths.put(file.getName(), file.length()));
+        this.service.move(jobId, finalDir);
+        Assert.assertFalse(jobDir.exists());
         Assert.assertTrue(finalDir.exists());
         for (final File file : originals) {
-            Assert.assertTrue(file.exists());
+            Assert.assertFalse(file.exists());
             final File finalFile = new File(finalDir, file.getName());
             Assert.assertTrue(finalFile.exists());
-            Assert.assertEquals(file.length(), finalFile.length());
+            Assert.assertEquals(lengths.get(file.getName()).longValue(), finalFile.length());
         }
     }
 
@@ -0,0 +1,279 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.services.TransferPriority;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the FileTransferScheduler class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class FileTransferSchedulerUnitTests {
+
+    private static final long TIMEOUT = 10L;
+
+    private Registry registry;
+    private ExecutorService executor;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.registry = new DefaultRegistry();
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Stop any transfer still waiting.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure no more transfers than the node limit run at once.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canLimitConcurrentTransfers() throws Exception {
+        final FileTransferScheduler scheduler = this.createScheduler(1, Collections.emptyMap());
+        final FileTransferScheduler.Slot slot = scheduler.acquire(TransferPriority.LAUNCH);
+
+        final Future<FileTransferScheduler.Slot> waiting = this.acquire(scheduler, TransferPriority.LAUNCH);
+        this.awaitWaiting(scheduler, TransferPriority.LAUNCH, 1);
+        Assert.assertFalse(waiting.isDone());
+
+        slot.release(0L);
+        waiting.get(TIMEOUT, TimeUnit.SECONDS).release(0L);
+        Assert.assertThat(scheduler.getNumWaiting(TransferPriority.LAUNCH), Matchers.is(0));
+    }
+
+    /**
+     * Make sure a free slot goes to the waiting transfer with the highest priority.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canPrioritizeTransfers() throws Exception {
+        final FileTransferScheduler scheduler = this.createScheduler(1, Collections.emptyMap());
+        final FileTransferScheduler.Slot archive = scheduler.acquire(TransferPriority.ARCHIVE);
+
+        final Future<FileTransferScheduler.Slot> warm = this.acquire(scheduler, TransferPriority.WARM);
+        this.awaitWaiting(scheduler, TransferPriority.WARM, 1);
+        final Future<FileTransferScheduler.Slot> launch = this.acquire(scheduler, TransferPriority.LAUNCH);
+        this.awaitWaiting(scheduler, TransferPriority.LAUNCH, 1);
+
+        archive.release(0L);
+        final FileTransferScheduler.Slot launchSlot = launch.get(TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertFalse(warm.isDone());
+        Assert.assertThat(scheduler.getNumWaiting(TransferPriority.WARM), Matchers.is(1));
+
+        launchSlot.release(0L);
+        warm.get(TIMEOUT, TimeUnit.SECONDS).release(0L);
+    }
+
+    /**
+     * Make sure a class at its own limit doesn't hold back the other classes.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canLimitConcurrentTransfersOfClass() throws Exception {
+        final FileTransferScheduler scheduler
+            = this.createScheduler(0, ImmutableMap.of(TransferPriority.LAUNCH, 1, TransferPriority.ARCHIVE, 1));
+        final FileTransferScheduler.Slot launch = scheduler.acquire(TransferPriority.LAUNCH);
+
+        final Future<FileTransferScheduler.Slot> waiting = this.acquire(scheduler, TransferPriority.LAUNCH);
+        this.awaitWaiting(scheduler, TransferPriority.LAUNCH, 1);
+
+        // The waiting launch transfer can't use a slot so lower priorities go ahead
+        scheduler.acquire(TransferPriority.ARCHIVE).release(0L);
+        scheduler.acquire(TransferPriority.WARM).release(0L);
+        Assert.assertFalse(waiting.isDone());
+
+        launch.release(0L);
+        waiting.get(TIMEOUT, TimeUnit.SECONDS).release(0L);
+    }
+
+    /**
+     * Make sure the transfers of a class are delayed once it went over its bytes per second.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canLimitBytesPerSecond() throws GenieException {
+        final FileTransferScheduler scheduler = new FileTransferScheduler(
+            0,
+            Collections.emptyMap(),
+            ImmutableMap.of(TransferPriority.ARCHIVE, 10000L),
+            this.registry
+        );
+
+        scheduler.acquire(TransferPriority.ARCHIVE).release(2000L);
+        final long start = System.nanoTime();
+        scheduler.acquire(TransferPriority.ARCHIVE).release(0L);
+        Assert.assertThat(
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            Matchers.greaterThanOrEqualTo(150L)
+        );
+
+        // Other classes aren't held back
+        final long launchStart = System.nanoTime();
+        scheduler.acquire(TransferPriority.LAUNCH).release(2000L);
+        Assert.assertThat(
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchStart),
+            Matchers.lessThan(150L)
+        );
+    }
+
+    /**
+     * Make sure transfers of a class waiting at the same time start one after the other so together they stay under
+     * the bytes per second of the class.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canLimitBytesPerSecondOfConcurrentTransfers() throws Exception {
+        final long maxBytesPerSecond = 100000L;
+        final long bytes = 10000L;
+        final int numThreads = 8;
+        final int numTransfersPerThread = 2;
+        final FileTransferScheduler scheduler = new FileTransferScheduler(
+            0,
+            Collections.emptyMap(),
+            ImmutableMap.of(TransferPriority.WARM, maxBytesPerSecond),
+            this.registry
+        );
+
+        // Lets the scheduler learn how big the transfers of the class are
+        scheduler.acquire(TransferPriority.WARM).release(bytes);
+
+        final long start = System.nanoTime();
+        final List<Future<?>> transfers = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            transfers.add(
+                this.executor.submit(
+                    () -> {
+                        for (int j = 0; j < numTransfersPerThread; j++) {
+                            scheduler.acquire(TransferPriority.WARM).release(bytes);
+                        }
+                        return null;
+                    }
+                )
+            );
+        }
+        for (final Future<?> transfer : transfers) {
+            transfer.get(TIMEOUT, TimeUnit.SECONDS);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        // Each transfer starts after the time the bytes of the one before it take at the limit
+        final long pacedBytes = bytes * (numThreads * numTransfersPerThread - 1);
+        Assert.assertThat(
+            TimeUnit.NANOSECONDS.toMillis(elapsed),
+            Matchers.greaterThanOrEqualTo(pacedBytes * 1000L / maxBytesPerSecond)
+        );
+    }
+
+    /**
+     * Make sure the queue time, transfer time and bytes of each class are recorded.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canRecordMetrics() throws GenieException {
+        final FileTransferScheduler scheduler = this.createScheduler(0, Collections.emptyMap());
+        final FileTransferScheduler.Slot slot = scheduler.acquire(TransferPriority.WARM);
+        slot.release(1024L);
+        slot.release(1024L);
+
+        Assert.assertThat(
+            this.registry.timer(this.getId("genie.files.transfers.queue.timer", "warm")).count(),
+            Matchers.is(1L)
+        );
+        Assert.assertThat(
+            this.registry.timer(this.getId("genie.files.transfers.timer", "warm")).count(),
+            Matchers.is(1L)
+        );
+        Assert.assertThat(
+            this.registry.counter(this.getId("genie.files.transfers.bytes.rate", "warm")).count(),
+            Matchers.is(1024L)
+        );
+        Assert.assertThat(
+            this.registry.timer(this.getId("genie.files.transfers.timer", "launch")).count(),
+            Matchers.is(0L)
+        );
+    }
+
+    private FileTransferScheduler createScheduler(
+        final int maxConcurrent,
+        final Map<TransferPriority, Integer> maxConcurrentLimits
+    ) {
+        return new FileTransferScheduler(maxConcurrent, maxConcurrentLimits, Collections.emptyMap(), this.registry);
+    }
+
+    private Future<FileTransferScheduler.Slot> acquire(
+        final FileTransferScheduler scheduler,
+        final TransferPriority priority
+    ) {
+        return this.executor.submit(() -> scheduler.acquire(priority));
+    }
+
+    private void awaitWaiting(
+        final FileTransferScheduler scheduler,
+        final TransferPriority priority,
+        final int numWaiting
+    ) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while (scheduler.getNumWaiting(priority) != numWaiting) {
+            Assert.assertTrue("Transfers never started waiting", System.nanoTime() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private Id getId(final String name, final String priority) {
+        return this.registry.createId(name).withTag("priority", priority);
+    }
+}
@@ -20,13 +20,19 @@ package com.netflix.genie.core.services.impl;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.TransferPriority;
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -44,6 +50,7 @@ public class GenieFileTransferServiceUnitTests {
     private LocalFileTransferImpl localFileTransfer;
     private S3FileTransferImpl s3FileTransfer;
     private final List<FileTransfer> fileTransfers = new ArrayList<>();
+    private Registry registry;
 
     private GenieFileTransferService genieFileTransferService;
 
@@ -60,7 +67,11 @@ public class GenieFileTransferServiceUnitTests {
         fileTransfers.add(localFileTransfer);
         fileTransfers.add(s3FileTransfer);
 
-        genieFileTransferService = new GenieFileTransferService(fileTransfers);
+        registry = new DefaultRegistry();
+        genieFileTransferService = new GenieFileTransferService(
+            fileTransfers,
+            new FileTransferScheduler(0, Collections.emptyMap(), Collections.emptyMap(), registry)
+        );
 
     }
 
@@ -144,5 +155,84 @@ public class GenieFileTransferServiceUnitTests {
         Mockito.verify(this.localFileTransfer, Mockito.times(0)).putFile(LOCAL_FILE_PATH, S3_FILE_PATH);
     }
 
+    /**
+     * Make sure gets are scheduled as launch critical and puts as archive uploads unless told otherwise.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testTransfersAreScheduledByPriority() throws GenieException {
+        Mockito.when(this.s3FileTransfer.isValid(Mockito.eq(S3_FILE_PATH))).thenReturn(true);
+
+        this.genieFileTransferService.getFile(S3_FILE_PATH, LOCAL_FILE_PATH);
+        this.genieFileTransferService.putFile(LOCAL_FILE_PATH, S3_FILE_PATH);
+        this.genieFileTransferService.getFile(S3_FILE_PATH, LOCAL_FILE_PATH, TransferPriority.WARM);
+
+        Assert.assertThat(this.getNumTransfers(TransferPriority.LAUNCH), Matchers.is(1L));
+        Assert.assertThat(this.getNumTransfers(TransferPriority.ARCHIVE), Matchers.is(1L));
+        Assert.assertThat(this.getNumTransfers(TransferPriority.WARM), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure the slot of a failed transfer is released.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testSlotReleasedOnFailure() throws GenieException {
+        this.genieFileTransferService = new GenieFileTransferService(
+            this.fileTransfers,
+            new FileTransferScheduler(1, Collections.emptyMap(), Collections.emptyMap(), this.registry)
+        );
+        Mockito.when(this.s3FileTransfer.isValid(Mockito.eq(S3_FILE_PATH))).thenReturn(true);
+        Mockito
+            .doThrow(new GenieNotFoundException("missing"))
+            .doNothing()
+            .when(this.s3FileTransfer)
+            .getFile(S3_FILE_PATH, LOCAL_FILE_PATH);
+
+        try {
+            this.genieFileTransferService.getFile(S3_FILE_PATH, LOCAL_FILE_PATH);
+            Assert.fail("Expected a GenieNotFoundException");
+        } catch (final GenieNotFoundException gnfe) {
+            // The second transfer would block forever if the slot of the first one wasn't released
+            this.genieFileTransferService.getFile(S3_FILE_PATH, LOCAL_FILE_PATH);
+        }
+        Assert.assertThat(this.getNumTransfers(TransferPriority.LAUNCH), Matchers.is(2L));
+    }
 
+    /**
+     * Test the getContentHash method in case none of the File transfer impls can handle the file.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void testGetContentHashNoValidImplFound() throws GenieException {
+        this.genieFileTransferService.getContentHash("foo");
+    }
+
+    /**
+     * Test the getContentHash method uses the implementation which can handle the file.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testGetContentHashValidImplFound() throws GenieException {
+        Mockito.when(this.localFileTransfer.isValid(Mockito.eq(S3_FILE_PATH))).thenReturn(false);
+        Mockito.when(this.s3FileTransfer.isValid(Mockito.eq(S3_FILE_PATH))).thenReturn(true);
+        Mockito.when(this.s3FileTransfer.getContentHash(S3_FILE_PATH)).thenReturn("etag");
+
+        Assert.assertThat(this.genieFileTransferService.getContentHash(S3_FILE_PATH), Matchers.is("etag"));
+        Mockito.verify(this.localFileTransfer, Mockito.never()).getContentHash(S3_FILE_PATH);
+    }
+
+    private long getNumTransfers(final TransferPriority priority) {
+        return this.registry
+            .timer(
+                this.registry
+                    .createId("genie.files.transfers.timer")
+                    .withTag("priority", priority.name().toLowerCase())
+            )
+            .count();
+    }
 }
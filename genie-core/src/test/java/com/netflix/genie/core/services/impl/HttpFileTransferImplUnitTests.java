@@ -0,0 +1,292 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.io.ByteStreams;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.impl.client.HttpClients;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the HttpFileTransferImpl class against an HTTP server embedded in the test.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class HttpFileTransferImplUnitTests {
+
+    private static final String ETAG = "\"v1\"";
+    private static final Date LAST_MODIFIED = new Date(1467331200000L);
+
+    /**
+     * Temporary directory for these tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String baseUrl;
+    private Registry registry;
+    private HttpFileTransferImpl fileTransfer;
+
+    private volatile String content = "first version";
+    private volatile String etag = ETAG;
+    private volatile boolean sendLastModified = true;
+    private final AtomicInteger numDownloads = new AtomicInteger();
+    private final List<String> ifNoneMatch = new ArrayList<>();
+    private final List<String> ifModifiedSince = new ArrayList<>();
+    private volatile String uploaded;
+
+    /**
+     * Start the server for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/artifacts/app.jar", this::serveArtifact);
+        this.server.createContext("/mirror/app.jar", this::serveArtifact);
+        this.server.createContext("/uploads/", this::receiveUpload);
+        this.server.start();
+        this.baseUrl = "http://localhost:" + this.server.getAddress().getPort();
+        this.registry = new DefaultRegistry();
+        this.fileTransfer = new HttpFileTransferImpl(HttpClients.createDefault(), this.registry);
+    }
+
+    /**
+     * Stop the server and the client after each test.
+     */
+    @After
+    public void cleanup() {
+        this.fileTransfer.shutdown();
+        this.server.stop(0);
+    }
+
+    /**
+     * Make sure only http and https URLs are handled.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canValidate() throws GenieException {
+        Assert.assertTrue(this.fileTransfer.isValid("http://artifacts/app.jar"));
+        Assert.assertTrue(this.fileTransfer.isValid("HTTPS://artifacts/app.jar"));
+        Assert.assertFalse(this.fileTransfer.isValid("s3://bucket/app.jar"));
+        Assert.assertFalse(this.fileTransfer.isValid("file:///apps/app.jar"));
+        Assert.assertFalse(this.fileTransfer.isValid("/apps/app.jar"));
+    }
+
+    /**
+     * Make sure a file is downloaded with the modification time the server reports.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canGetFile() throws Exception {
+        final File dst = new File(this.folder.getRoot(), "app.jar");
+        this.fileTransfer.getFile(this.baseUrl + "/artifacts/app.jar", dst.getPath());
+
+        Assert.assertThat(this.read(dst), Matchers.is("first version"));
+        Assert.assertThat(dst.lastModified(), Matchers.is(LAST_MODIFIED.getTime()));
+        Assert.assertThat(this.ifNoneMatch, Matchers.contains((String) null));
+        Assert.assertThat(this.folder.getRoot().list(), Matchers.arrayContaining("app.jar"));
+        Assert.assertThat(this.registry.counter("genie.files.http.download.rate").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure an unchanged file already at the destination isn't downloaded again.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canRevalidateFile() throws Exception {
+        final File dst = new File(this.folder.getRoot(), "app.jar");
+        this.fileTransfer.getFile(this.baseUrl + "/artifacts/app.jar", dst.getPath());
+        this.fileTransfer.getFile(this.baseUrl + "/artifacts/app.jar", dst.getPath());
+
+        Assert.assertThat(this.numDownloads.get(), Matchers.is(1));
+        Assert.assertThat(this.ifNoneMatch.get(1), Matchers.is(ETAG));
+        Assert.assertThat(this.ifModifiedSince.get(1), Matchers.is(DateUtils.formatDate(LAST_MODIFIED)));
+        Assert.assertThat(this.read(dst), Matchers.is("first version"));
+        Assert.assertThat(this.registry.counter("genie.files.http.notModified.rate").count(), Matchers.is(1L));
+
+        // Once the file changes it is downloaded again
+        this.content = "second version";
+        this.etag = "\"v2\"";
+        this.fileTransfer.getFile(this.baseUrl + "/artifacts/app.jar", dst.getPath());
+        Assert.assertThat(this.numDownloads.get(), Matchers.is(2));
+        Assert.assertThat(this.read(dst), Matchers.is("second version"));
+    }
+
+    /**
+     * Make sure the request is only conditional when the destination holds the copy last downloaded from the same URL.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void wontRevalidateFileNotDownloadedFromUrl() throws Exception {
+        final File dst = new File(this.folder.getRoot(), "app.jar");
+
+        // A file which was already there
+        Files.write(dst.toPath(), "local version".getBytes(StandardCharsets.UTF_8));
+        this.fileTransfer.getFile(this.baseUrl + "/artifacts/app.jar", dst.getPath());
+        Assert.assertThat(this.ifNoneMatch.get(0), Matchers.nullValue());
+        Assert.assertThat(this.ifModifiedSince.get(0), Matchers.nullValue());
+
+        // A copy of another URL
+        this.fileTransfer.getFile(this.baseUrl + "/mirror/app.jar", dst.getPath());
+        Assert.assertThat(this.ifNoneMatch.get(1), Matchers.nullValue());
+        Assert.assertThat(this.ifModifiedSince.get(1), Matchers.nullValue());
+
+        // The copy of the URL changed since it was downloaded
+        Files.write(dst.toPath(), "changed version".getBytes(StandardCharsets.UTF_8));
+        this.fileTransfer.getFile(this.baseUrl + "/mirror/app.jar", dst.getPath());
+        Assert.assertThat(this.ifNoneMatch.get(2), Matchers.nullValue());
+        Assert.assertThat(this.ifModifiedSince.get(2), Matchers.nullValue());
+
+        Assert.assertThat(this.numDownloads.get(), Matchers.is(3));
+        Assert.assertThat(this.read(dst), Matchers.is("first version"));
+        Assert.assertThat(this.registry.counter("genie.files.http.notModified.rate").count(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure a missing file is reported as not found and nothing is left at the destination.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void cantGetMissingFile() throws GenieException {
+        final File dst = new File(this.folder.getRoot(), "missing.jar");
+        try {
+            this.fileTransfer.getFile(this.baseUrl + "/missing.jar", dst.getPath());
+            Assert.fail("Expected a GenieNotFoundException");
+        } catch (final GenieNotFoundException gnfe) {
+            Assert.assertThat(this.folder.getRoot().list(), Matchers.emptyArray());
+        }
+    }
+
+    /**
+     * Make sure the ETag is used as the content hash, falling back to Last-Modified and Content-Length, and that no
+     * content hash is returned when the server sends neither.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetContentHash() throws GenieException {
+        Assert.assertThat(this.fileTransfer.getContentHash(this.baseUrl + "/artifacts/app.jar"), Matchers.is(ETAG));
+        this.etag = null;
+        Assert.assertThat(
+            this.fileTransfer.getContentHash(this.baseUrl + "/artifacts/app.jar"),
+            Matchers.is(DateUtils.formatDate(LAST_MODIFIED) + "/13")
+        );
+        this.sendLastModified = false;
+        Assert.assertThat(
+            this.fileTransfer.getContentHash(this.baseUrl + "/artifacts/app.jar"),
+            Matchers.nullValue()
+        );
+        Assert.assertThat(this.numDownloads.get(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure a file can be uploaded.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canPutFile() throws Exception {
+        final File src = this.folder.newFile("genie.tar.gz");
+        Files.write(src.toPath(), "archive".getBytes(StandardCharsets.UTF_8));
+
+        this.fileTransfer.putFile(src.getPath(), this.baseUrl + "/uploads/genie.tar.gz");
+        Assert.assertThat(this.uploaded, Matchers.is("archive"));
+    }
+
+    private void serveArtifact(final HttpExchange exchange) throws IOException {
+        final String currentEtag = this.etag;
+        if ("GET".equals(exchange.getRequestMethod())) {
+            this.ifNoneMatch.add(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            this.ifModifiedSince.add(exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+        }
+        if (currentEtag != null) {
+            exchange.getResponseHeaders().add("ETag", currentEtag);
+        }
+        if (this.sendLastModified) {
+            exchange.getResponseHeaders().add("Last-Modified", DateUtils.formatDate(LAST_MODIFIED));
+        }
+
+        if (currentEtag != null && currentEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        final byte[] body = this.content.getBytes(StandardCharsets.UTF_8);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        this.numDownloads.incrementAndGet();
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void receiveUpload(final HttpExchange exchange) throws IOException {
+        try (final InputStream in = exchange.getRequestBody()) {
+            this.uploaded = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+        exchange.sendResponseHeaders(201, -1);
+        exchange.close();
+    }
+
+    private String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unit tests for the LocalDependencyWarmingServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class LocalDependencyWarmingServiceImplUnitTests {
+
+    private static final String CLUSTER_ID = "cluster";
+    private static final String COMMAND_ID = "command";
+    private static final String APPLICATION_ID = "application";
+    private static final String CLUSTER_CONFIG = "s3://bucket/cluster/core-site.xml";
+    private static final String CLUSTER_SETUP = "s3://bucket/cluster/setup.sh";
+    private static final String COMMAND_CONFIG = "s3://bucket/command/pig.properties";
+    private static final String COMMAND_SETUP = "file:///apps/command/setup.sh";
+    private static final String APPLICATION_JAR = "s3://bucket/application/pig.jar";
+
+    private ClusterService clusterService;
+    private CommandService commandService;
+    private ApplicationService applicationService;
+    private DependencyCacheService dependencyCacheService;
+    private Registry registry;
+    private LocalDependencyWarmingServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException on error
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.clusterService = Mockito.mock(ClusterService.class);
+        this.commandService = Mockito.mock(CommandService.class);
+        this.applicationService = Mockito.mock(ApplicationService.class);
+        this.dependencyCacheService = Mockito.mock(DependencyCacheService.class);
+        this.registry = new DefaultRegistry();
+
+        this.mockCluster(ClusterStatus.UP);
+        final Command command = new Command.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            CommandStatus.ACTIVE,
+            UUID.randomUUID().toString(),
+            5000L
+        )
+            .withId(COMMAND_ID)
+            .withConfigs(Sets.newHashSet(COMMAND_CONFIG))
+            .withSetupFile(COMMAND_SETUP)
+            .build();
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(command)));
+        Mockito.when(this.commandService.getCommand(COMMAND_ID)).thenReturn(command);
+        final Application application = new Application.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            ApplicationStatus.ACTIVE
+        )
+            .withId(APPLICATION_ID)
+            .withDependencies(Sets.newHashSet(APPLICATION_JAR))
+            .build();
+        Mockito
+            .when(
+                this.applicationService.getApplications(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(application)));
+        Mockito.when(this.applicationService.getApplication(APPLICATION_ID)).thenReturn(application);
+
+        Mockito.when(this.dependencyCacheService.isCacheable(Mockito.startsWith("s3://"))).thenReturn(true);
+        Mockito.when(this.dependencyCacheService.warm(Mockito.anyString())).thenReturn(100L);
+
+        this.service = this.createService(10000L);
+    }
+
+    /**
+     * Stop the warming thread.
+     */
+    @After
+    public void cleanup() {
+        this.service.shutdown();
+    }
+
+    /**
+     * Make sure the cacheable files of all UP and ACTIVE entities are warmed.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canWarmAll() throws GenieException {
+        this.service.warmAll();
+
+        for (final String file : Lists.newArrayList(CLUSTER_CONFIG, CLUSTER_SETUP, COMMAND_CONFIG, APPLICATION_JAR)) {
+            Mockito.verify(this.dependencyCacheService, Mockito.times(1)).warm(file);
+        }
+        Mockito.verify(this.dependencyCacheService, Mockito.never()).warm(COMMAND_SETUP);
+        Mockito
+            .verify(this.clusterService)
+            .getClusters(
+                Mockito.any(),
+                Mockito.eq(Sets.newHashSet(ClusterStatus.UP)),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(Pageable.class)
+            );
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(4));
+        Assert.assertThat(this.service.getNumWarmFiles(), Matchers.is(4));
+        Assert.assertThat(this.service.getWarmedBytes(), Matchers.is(400L));
+        Assert.assertThat(this.registry.counter("genie.jobs.dependencies.warm.bytes").count(), Matchers.is(400L));
+    }
+
+    /**
+     * Make sure nothing more is downloaded once the budget is spent and the rest is only checked.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void stopsDownloadingOverBudget() throws GenieException {
+        this.service.shutdown();
+        this.service = this.createService(150L);
+        Mockito.when(this.dependencyCacheService.isCached(APPLICATION_JAR)).thenReturn(true);
+
+        this.service.warmAll();
+
+        Mockito.verify(this.dependencyCacheService, Mockito.times(2)).warm(Mockito.anyString());
+        Mockito.verify(this.dependencyCacheService, Mockito.times(2)).isCached(Mockito.anyString());
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(4));
+        Assert.assertThat(this.service.getNumWarmFiles(), Matchers.is(3));
+        Assert.assertThat(this.service.getWarmedBytes(), Matchers.is(200L));
+    }
+
+    /**
+     * Make sure a file which can't be warmed is reported as cold and doesn't stop the rest being warmed.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canWarmAroundFailures() throws GenieException {
+        Mockito.when(this.dependencyCacheService.warm(CLUSTER_CONFIG)).thenThrow(new GenieServerException("throw"));
+
+        this.service.warmAll();
+
+        Mockito.verify(this.dependencyCacheService, Mockito.times(1)).warm(APPLICATION_JAR);
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(4));
+        Assert.assertThat(this.service.getNumWarmFiles(), Matchers.is(3));
+        Assert.assertThat(this.registry.counter("genie.jobs.dependencies.warm.failure.rate").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure a changed entity is warmed again and forgotten once it's no longer UP or deleted.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canWarmChangedEntity() throws GenieException {
+        this.service.warm(ConfigEntityType.CLUSTER, CLUSTER_ID);
+        Mockito.verify(this.dependencyCacheService, Mockito.times(1)).warm(CLUSTER_CONFIG);
+        Mockito.verify(this.dependencyCacheService, Mockito.never()).warm(APPLICATION_JAR);
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(2));
+
+        this.service.warm(ConfigEntityType.APPLICATION, APPLICATION_ID);
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(3));
+
+        this.mockCluster(ClusterStatus.OUT_OF_SERVICE);
+        this.service.warm(ConfigEntityType.CLUSTER, CLUSTER_ID);
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(1));
+
+        Mockito
+            .when(this.applicationService.getApplication(APPLICATION_ID))
+            .thenThrow(new GenieNotFoundException("gone"));
+        this.service.warm(ConfigEntityType.APPLICATION, APPLICATION_ID);
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure entities no longer UP or ACTIVE are dropped by the next warming of everything.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canForgetInactiveEntities() throws GenieException {
+        this.service.warmAll();
+        Mockito
+            .when(
+                this.applicationService.getApplications(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList()));
+
+        this.service.warmAll();
+        Assert.assertThat(this.service.getNumFiles(), Matchers.is(3));
+    }
+
+    /**
+     * Make sure everything is warmed in the background on startup and changed entities when they change.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canWarmOnEvents() throws Exception {
+        this.service.onConfigChanged(new ConfigChangedEvent(ConfigEntityType.COMMAND, COMMAND_ID, this));
+        this.await(() -> this.service.getNumFiles() == 1);
+
+        this.service.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        this.await(() -> this.service.getNumFiles() == 4);
+        Assert.assertThat(this.service.getNumWarmFiles(), Matchers.is(4));
+    }
+
+    private LocalDependencyWarmingServiceImpl createService(final long budget) {
+        return new LocalDependencyWarmingServiceImpl(
+            this.clusterService,
+            this.commandService,
+            this.applicationService,
+            this.dependencyCacheService,
+            budget,
+            this.registry
+        );
+    }
+
+    private void mockCluster(final ClusterStatus status) throws GenieException {
+        final Cluster cluster = new Cluster.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            status
+        )
+            .withId(CLUSTER_ID)
+            .withConfigs(Sets.newHashSet(CLUSTER_CONFIG))
+            .withSetupFile(CLUSTER_SETUP)
+            .build();
+        Mockito
+            .when(
+                this.clusterService.getClusters(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(cluster)));
+        Mockito.when(this.clusterService.getCluster(CLUSTER_ID)).thenReturn(cluster);
+    }
+
+    private void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Never warmed", System.nanoTime() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+}
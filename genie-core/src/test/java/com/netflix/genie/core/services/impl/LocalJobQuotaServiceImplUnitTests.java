@@ -0,0 +1,204 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.UUID;
+
+/**
+ * Unit tests for the LocalJobQuotaServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class LocalJobQuotaServiceImplUnitTests {
+
+    private static final int DEFAULT_USER_LIMIT = 2;
+    private static final String USER = "einstein";
+    private static final String LIMITED_USER = "bohr";
+    private static final String WEIGHTED_USER = "curie";
+    private static final String GROUP = "physicists";
+
+    private final String hostName = UUID.randomUUID().toString();
+    private JobSearchService jobSearchService;
+    private LocalJobQuotaServiceImpl jobQuotaService;
+
+    /**
+     * Setup for tests.
+     */
+    @Before
+    public void setup() {
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        this.jobQuotaService = new LocalJobQuotaServiceImpl(
+            DEFAULT_USER_LIMIT,
+            ImmutableMap.of(LIMITED_USER, 1),
+            ImmutableMap.of(GROUP, 3),
+            ImmutableMap.of(WEIGHTED_USER, 4.0),
+            this.jobSearchService,
+            this.hostName,
+            new DefaultRegistry()
+        );
+    }
+
+    /**
+     * Make sure users can run jobs up to their own limit or the default one and no further.
+     */
+    @Test
+    public void canReserveUpToUserLimit() {
+        Assert.assertThat(this.jobQuotaService.getUserLimit(USER), Matchers.is(DEFAULT_USER_LIMIT));
+        Assert.assertThat(this.jobQuotaService.getUserLimit(LIMITED_USER), Matchers.is(1));
+
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(USER, null)));
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(USER, null)));
+        Assert.assertFalse(this.jobQuotaService.reserve(this.createJobRequest(USER, null)));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(USER), Matchers.is(DEFAULT_USER_LIMIT));
+
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(LIMITED_USER, null)));
+        Assert.assertFalse(this.jobQuotaService.reserve(this.createJobRequest(LIMITED_USER, null)));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(LIMITED_USER), Matchers.is(1));
+    }
+
+    /**
+     * Make sure the users of a group can't run more jobs in total than the group limit and a failed group check
+     * doesn't count against the user.
+     */
+    @Test
+    public void canReserveUpToGroupLimit() {
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(USER, GROUP)));
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(USER, GROUP)));
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(WEIGHTED_USER, GROUP)));
+        Assert.assertFalse(this.jobQuotaService.reserve(this.createJobRequest(WEIGHTED_USER, GROUP)));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(WEIGHTED_USER), Matchers.is(1));
+
+        // Without the group the user is only held to their own limit
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(WEIGHTED_USER, null)));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(WEIGHTED_USER), Matchers.is(2));
+    }
+
+    /**
+     * Make sure a job can only hold one reservation and releasing it frees the quota of the user and group.
+     */
+    @Test
+    public void canReleaseReservation() {
+        final JobRequest jobRequest = this.createJobRequest(LIMITED_USER, GROUP);
+        Assert.assertTrue(this.jobQuotaService.reserve(jobRequest));
+        Assert.assertFalse(this.jobQuotaService.reserve(jobRequest));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(LIMITED_USER), Matchers.is(1));
+
+        this.jobQuotaService.onJobFinished(
+            new JobFinishedEvent(jobRequest.getId(), JobFinishedReason.PROCESS_COMPLETED, "done", this)
+        );
+        Assert.assertThat(this.jobQuotaService.getNumRunning(LIMITED_USER), Matchers.is(0));
+        // Releasing twice is harmless
+        this.jobQuotaService.release(jobRequest.getId());
+        Assert.assertThat(this.jobQuotaService.getNumRunning(LIMITED_USER), Matchers.is(0));
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(LIMITED_USER, GROUP)));
+    }
+
+    /**
+     * Make sure a limit of zero or less means the user can run as many jobs as they like.
+     */
+    @Test
+    public void canReserveWithoutLimit() {
+        final LocalJobQuotaServiceImpl unlimited = new LocalJobQuotaServiceImpl(
+            0,
+            ImmutableMap.of(),
+            ImmutableMap.of(),
+            ImmutableMap.of(),
+            this.jobSearchService,
+            this.hostName,
+            new DefaultRegistry()
+        );
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(unlimited.reserve(this.createJobRequest(USER, GROUP)));
+        }
+        Assert.assertThat(unlimited.getNumRunning(USER), Matchers.is(100));
+    }
+
+    /**
+     * Make sure the share of a user is their running jobs divided by their weight.
+     */
+    @Test
+    public void canGetShare() {
+        Assert.assertThat(this.jobQuotaService.getShare(USER), Matchers.is(0.0));
+        this.jobQuotaService.reserve(this.createJobRequest(USER, null));
+        this.jobQuotaService.reserve(this.createJobRequest(WEIGHTED_USER, null));
+        this.jobQuotaService.reserve(this.createJobRequest(WEIGHTED_USER, null));
+        Assert.assertThat(this.jobQuotaService.getShare(USER), Matchers.is(1.0));
+        Assert.assertThat(this.jobQuotaService.getShare(WEIGHTED_USER), Matchers.is(0.5));
+    }
+
+    /**
+     * Make sure jobs already running on the host at startup are counted against their quotas even over the limit.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canCountRunningJobsAtStartup() throws GenieException {
+        final JobRequest jobRequest1 = this.createJobRequest(LIMITED_USER, GROUP);
+        final JobRequest jobRequest2 = this.createJobRequest(LIMITED_USER, GROUP);
+        final String jobId3 = UUID.randomUUID().toString();
+        final JobExecution execution1 = Mockito.mock(JobExecution.class);
+        Mockito.when(execution1.getId()).thenReturn(jobRequest1.getId());
+        final JobExecution execution2 = Mockito.mock(JobExecution.class);
+        Mockito.when(execution2.getId()).thenReturn(jobRequest2.getId());
+        final JobExecution execution3 = Mockito.mock(JobExecution.class);
+        Mockito.when(execution3.getId()).thenReturn(jobId3);
+        Mockito
+            .when(this.jobSearchService.getAllRunningJobExecutionsOnHost(this.hostName))
+            .thenReturn(Sets.newHashSet(execution1, execution2, execution3));
+        Mockito.when(this.jobSearchService.getJobRequest(jobRequest1.getId())).thenReturn(jobRequest1);
+        Mockito.when(this.jobSearchService.getJobRequest(jobRequest2.getId())).thenReturn(jobRequest2);
+        Mockito.when(this.jobSearchService.getJobRequest(jobId3)).thenThrow(new GenieNotFoundException("gone"));
+
+        this.jobQuotaService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        this.jobQuotaService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        Assert.assertThat(this.jobQuotaService.getNumRunning(LIMITED_USER), Matchers.is(2));
+        Assert.assertFalse(this.jobQuotaService.reserve(this.createJobRequest(LIMITED_USER, GROUP)));
+
+        // The group has one job of room left
+        Assert.assertTrue(this.jobQuotaService.reserve(this.createJobRequest(USER, GROUP)));
+        Assert.assertFalse(this.jobQuotaService.reserve(this.createJobRequest(USER, GROUP)));
+    }
+
+    private JobRequest createJobRequest(final String user, final String group) {
+        return new JobRequest.Builder("name", user, "1.0", null, null, null)
+            .withId(UUID.randomUUID().toString())
+            .withGroup(group)
+            .build();
+    }
+}
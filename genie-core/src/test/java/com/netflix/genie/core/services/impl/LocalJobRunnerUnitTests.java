@@ -28,13 +28,18 @@ import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.events.JobScheduledEvent;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobStaging;
+import com.netflix.genie.core.jobs.ResolvedJob;
 import com.netflix.genie.core.jobs.workflow.WorkflowTask;
-import com.netflix.genie.core.services.ApplicationService;
-import com.netflix.genie.core.services.ClusterLoadBalancer;
-import com.netflix.genie.core.services.ClusterService;
-import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.JobMemoizationService;
 import com.netflix.genie.core.services.JobPersistenceService;
+import com.netflix.genie.core.services.JobResolverService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
 import com.netflix.genie.test.categories.UnitTest;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -45,16 +50,20 @@ import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Unit Tests for the Local Job Submitter Impl class.
@@ -83,11 +92,15 @@ public class LocalJobRunnerUnitTests {
     public TemporaryFolder folder = new TemporaryFolder();
 
     private JobPersistenceService jobPersistenceService;
-    private ClusterService clusterService;
-    private ClusterLoadBalancer clusterLoadBalancer;
+    private JobResolverService jobResolverService;
+    private ApplicationEventPublisher applicationEventPublisher;
     private JobSubmitterService jobSubmitterService;
-    private ApplicationService applicationService;
+    private WorkflowTask task1;
     private WorkflowTask task2;
+    private JobStaging jobStaging;
+    private JobTimelineService jobTimelineService;
+    private JobMemoizationService jobMemoizationService;
+    private File jobsDir;
 
     /**
      * Setup for the tests.
@@ -97,75 +110,47 @@ public class LocalJobRunnerUnitTests {
     @Before
     public void setup() throws IOException {
         this.jobPersistenceService = Mockito.mock(JobPersistenceService.class);
-        this.applicationService = Mockito.mock(ApplicationService.class);
-        this.clusterService = Mockito.mock(ClusterService.class);
-        final CommandService commandService = Mockito.mock(CommandService.class);
-        this.clusterLoadBalancer = Mockito.mock(ClusterLoadBalancer.class);
-        final ApplicationEventPublisher applicationEventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        this.jobResolverService = Mockito.mock(JobResolverService.class);
+        this.applicationEventPublisher = Mockito.mock(ApplicationEventPublisher.class);
         final GenieFileTransferService fileTransferService = Mockito.mock(GenieFileTransferService.class);
-        final WorkflowTask task1 = Mockito.mock(WorkflowTask.class);
+        final JobStagingService jobStagingService = Mockito.mock(JobStagingService.class);
+        this.jobStaging = Mockito.mock(JobStaging.class);
+        Mockito.when(this.jobStaging.whenStaged()).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(jobStagingService.newJobStaging(Mockito.anyString())).thenReturn(this.jobStaging);
+        this.jobTimelineService = Mockito.mock(JobTimelineService.class);
+        this.jobMemoizationService = Mockito.mock(JobMemoizationService.class);
+        this.task1 = Mockito.mock(WorkflowTask.class);
         this.task2 = Mockito.mock(WorkflowTask.class);
 
         final List<WorkflowTask> jobWorkflowTasks = new ArrayList<>();
-        jobWorkflowTasks.add(task1);
+        jobWorkflowTasks.add(this.task1);
         jobWorkflowTasks.add(this.task2);
 
-        final File tmpFolder = this.folder.newFolder();
+        this.jobsDir = this.folder.newFolder();
         final Resource baseWorkingDirResource = Mockito.mock(Resource.class);
-        Mockito.when(baseWorkingDirResource.getFile()).thenReturn(tmpFolder);
+        Mockito.when(baseWorkingDirResource.getFile()).thenReturn(this.jobsDir);
 
         this.jobSubmitterService = new LocalJobRunner(
             this.jobPersistenceService,
-            this.applicationService,
-            this.clusterService,
-            commandService,
-            this.clusterLoadBalancer,
+            this.jobResolverService,
             fileTransferService,
-            applicationEventPublisher,
+            jobStagingService,
+            this.jobTimelineService,
+            Runnable::run,
+            this.jobMemoizationService,
+            this.applicationEventPublisher,
             jobWorkflowTasks,
             baseWorkingDirResource
         );
     }
 
     /**
-     * Test the submitJob method where the request does not resolve to any cluster.
+     * Test the submitJob method where the request does not resolve to any cluster and command.
      *
      * @throws GenieException If there is any problem.
      */
-    @SuppressWarnings("unchecked")
-    @Test(expected = GeniePreconditionException.class)
-    public void testSubmitJobNoClusterFound() throws GenieException {
-        final JobRequest jobRequest = new JobRequest.Builder(
-            JOB_1_NAME,
-            USER,
-            VERSION,
-            null,
-            null,
-            null
-        ).
-            withId(JOB_1_ID)
-            .build();
-
-        final List<Cluster> emptyList = new ArrayList<>();
-
-        Mockito.when(this.clusterService.chooseClusterForJobRequest(jobRequest)).thenReturn(emptyList);
-
-        Mockito.when(this.clusterLoadBalancer.selectCluster(emptyList)).thenThrow(GeniePreconditionException.class);
-
-        this.jobSubmitterService.submitJob(jobRequest);
-    }
-
-    /**
-     * Test the submitJob method where the request does not resolve to any commands.
-     *
-     * @throws GenieException If there is any problem.
-     */
-    @Test(expected = GeniePreconditionException.class)
-    public void testSubmitJobNoCommandFound() throws GenieException {
-
-        final Set<CommandStatus> enumStatuses = EnumSet.noneOf(CommandStatus.class);
-        enumStatuses.add(CommandStatus.ACTIVE);
-
+    @Test
+    public void testSubmitJobCantBeResolved() throws GenieException {
         final JobRequest jobRequest = new JobRequest.Builder(
             JOB_1_NAME,
             USER,
@@ -177,29 +162,27 @@ public class LocalJobRunnerUnitTests {
             withId(JOB_1_ID)
             .build();
 
-        final Cluster cluster = new Cluster.Builder(
-            CLUSTER_NAME,
-            USER,
-            VERSION,
-            ClusterStatus.UP
-        )
-            .withId(CLUSTER_ID)
-            .build();
-
-
-        final List<Cluster> cList = new ArrayList<>();
-        cList.add(cluster);
-
-        final List<Command> emptyList = new ArrayList<>();
-
-        Mockito.when(this.clusterService.chooseClusterForJobRequest(Mockito.eq(jobRequest))).
-            thenReturn(cList);
-        Mockito.when(this.clusterLoadBalancer.selectCluster(Mockito.eq(cList))).
-            thenReturn(cluster);
-        Mockito.when(this.clusterService.getCommandsForCluster(Mockito.eq(CLUSTER_ID), Mockito.eq(enumStatuses)))
-            .thenReturn(emptyList);
-
-        this.jobSubmitterService.submitJob(jobRequest);
+        Mockito
+            .when(this.jobResolverService.resolveJob(jobRequest))
+            .thenThrow(new GeniePreconditionException("No cluster configuration found"));
+
+        try {
+            this.jobSubmitterService.submitJob(jobRequest);
+            Assert.fail();
+        } catch (final GeniePreconditionException gpe) {
+            final ArgumentCaptor<JobFinishedEvent> event = ArgumentCaptor.forClass(JobFinishedEvent.class);
+            Mockito.verify(this.applicationEventPublisher).publishEvent(event.capture());
+            Assert.assertThat(event.getValue().getId(), Matchers.is(JOB_1_ID));
+            Assert.assertThat(event.getValue().getReason(), Matchers.is(JobFinishedReason.INVALID));
+            Mockito
+                .verify(this.jobPersistenceService, Mockito.never())
+                .updateJobWithRuntimeEnvironment(
+                    Mockito.anyString(),
+                    Mockito.anyString(),
+                    Mockito.anyString(),
+                    Mockito.anyListOf(String.class)
+                );
+        }
     }
 
     /**
@@ -212,37 +195,20 @@ public class LocalJobRunnerUnitTests {
     @SuppressWarnings("unchecked")
     @Test(expected = GenieServerException.class)
     public void testSubmitJob() throws GenieException, IOException {
-
-        final Set<CommandStatus> enumStatuses = EnumSet.noneOf(CommandStatus.class);
-        enumStatuses.add(CommandStatus.ACTIVE);
-
         final String app1 = UUID.randomUUID().toString();
         final String app2 = UUID.randomUUID().toString();
         final String app3 = UUID.randomUUID().toString();
         final List<String> applications = Lists.newArrayList(app3, app1, app2);
 
         final String placeholder = UUID.randomUUID().toString();
-        Mockito
-            .when(this.applicationService.getApplication(app3))
-            .thenReturn(
+        final List<Application> resolvedApplications = new ArrayList<>();
+        for (final String applicationId : applications) {
+            resolvedApplications.add(
                 new Application.Builder(placeholder, placeholder, placeholder, ApplicationStatus.ACTIVE)
-                    .withId(app3)
-                    .build()
-            );
-        Mockito
-            .when(this.applicationService.getApplication(app1))
-            .thenReturn(
-                new Application.Builder(placeholder, placeholder, placeholder, ApplicationStatus.ACTIVE)
-                    .withId(app1)
-                    .build()
-            );
-        Mockito
-            .when(this.applicationService.getApplication(app2))
-            .thenReturn(
-                new Application.Builder(placeholder, placeholder, placeholder, ApplicationStatus.ACTIVE)
-                    .withId(app2)
+                    .withId(applicationId)
                     .build()
             );
+        }
 
         final JobRequest jobRequest = new JobRequest.Builder(
             JOB_1_NAME,
@@ -266,9 +232,6 @@ public class LocalJobRunnerUnitTests {
             .build();
 
 
-        final List<Cluster> clusterList = new ArrayList<>();
-        clusterList.add(cluster);
-
         final Command command = new Command.Builder(
             COMMAND_NAME,
             USER,
@@ -280,14 +243,9 @@ public class LocalJobRunnerUnitTests {
             .withId(COMMAND_ID)
             .build();
 
-        final List<Command> commandList = new ArrayList<>();
-        commandList.add(command);
-
-        Mockito.when(this.clusterService.chooseClusterForJobRequest(jobRequest)).thenReturn(clusterList);
-        Mockito.when(this.clusterLoadBalancer.selectCluster(clusterList)).thenReturn(cluster);
         Mockito
-            .when(this.clusterService.getCommandsForCluster(CLUSTER_ID, enumStatuses))
-            .thenReturn(commandList);
+            .when(this.jobResolverService.resolveJob(jobRequest))
+            .thenReturn(new ResolvedJob(cluster, command, resolvedApplications));
         Mockito.doThrow(new IOException("something bad")).when(this.task2).executeTask(Mockito.anyMap());
 
         final ArgumentCaptor<String> jobId1 = ArgumentCaptor.forClass(String.class);
@@ -313,4 +271,177 @@ public class LocalJobRunnerUnitTests {
         Assert.assertThat(applicationIds.getValue().get(1), Matchers.is(app1));
         Assert.assertThat(applicationIds.getValue().get(2), Matchers.is(app2));
     }
+
+    /**
+     * Make sure the launch tasks only run once the files of the job are staged and the launch can be cancelled.
+     *
+     * @throws GenieException If there is any problem.
+     * @throws IOException    when there is any IO problem
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void canLaunchJobOnceStaged() throws GenieException, IOException {
+        final CompletableFuture<Void> staged = new CompletableFuture<>();
+        Mockito.when(this.jobStaging.whenStaged()).thenReturn(staged);
+        Mockito.when(this.task2.isLaunchTask()).thenReturn(true);
+
+        this.jobSubmitterService.submitJob(this.mockResolvedJobRequest());
+
+        Mockito.verify(this.task1, Mockito.times(1)).executeTask(Mockito.anyMap());
+        Mockito.verify(this.task2, Mockito.never()).executeTask(Mockito.anyMap());
+        final ArgumentCaptor<JobScheduledEvent> event = ArgumentCaptor.forClass(JobScheduledEvent.class);
+        Mockito.verify(this.applicationEventPublisher).publishEvent(event.capture());
+        Assert.assertThat(event.getValue().getId(), Matchers.is(JOB_1_ID));
+        Assert.assertFalse(event.getValue().getTask().isDone());
+
+        staged.complete(null);
+        Mockito.verify(this.task2, Mockito.times(1)).executeTask(Mockito.anyMap());
+        Mockito.verify(this.jobTimelineService).resolved(JOB_1_ID, CLUSTER_NAME, COMMAND_NAME);
+        Mockito
+            .verify(this.jobTimelineService, Mockito.times(1))
+            .record(Mockito.eq(JOB_1_ID), Mockito.eq("resolution"), Mockito.anyLong());
+        Mockito
+            .verify(this.jobTimelineService, Mockito.times(2))
+            .record(Mockito.eq(JOB_1_ID), Mockito.startsWith("task."), Mockito.anyLong());
+        Assert.assertTrue(event.getValue().getTask().isDone());
+        Mockito.verify(this.jobStaging, Mockito.never()).cancel();
+        Mockito
+            .verify(this.jobMemoizationService, Mockito.never())
+            .saveFingerprint(Mockito.anyString(), Mockito.any(JobRequest.class), Mockito.any(ResolvedJob.class));
+    }
+
+    /**
+     * Make sure the fingerprint of a memoized job is saved and the job still runs if it can't be.
+     *
+     * @throws GenieException If there is any problem.
+     * @throws IOException    when there is any IO problem
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void canRunMemoizedJobIfFingerprintCantBeSaved() throws GenieException, IOException {
+        Mockito
+            .doThrow(new GenieServerException("S3 is down"))
+            .when(this.jobMemoizationService)
+            .saveFingerprint(Mockito.eq(JOB_1_ID), Mockito.any(JobRequest.class), Mockito.any(ResolvedJob.class));
+
+        final JobRequest jobRequest = this.mockResolvedJobRequest(true);
+        this.jobSubmitterService.submitJob(jobRequest);
+
+        Mockito
+            .verify(this.jobMemoizationService, Mockito.times(1))
+            .saveFingerprint(Mockito.eq(JOB_1_ID), Mockito.eq(jobRequest), Mockito.any(ResolvedJob.class));
+        Mockito.verify(this.task2, Mockito.times(1)).executeTask(Mockito.anyMap());
+        final ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+        Mockito.verify(this.applicationEventPublisher, Mockito.times(1)).publishEvent(events.capture());
+        Assert.assertThat(events.getValue(), Matchers.instanceOf(JobScheduledEvent.class));
+    }
+
+    /**
+     * Make sure a job whose files can't be staged is never launched and finishes as failed to init.
+     *
+     * @throws GenieException If there is any problem.
+     * @throws IOException    when there is any IO problem
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void cantLaunchJobIfStagingFails() throws GenieException, IOException {
+        final CompletableFuture<Void> staged = new CompletableFuture<>();
+        staged.completeExceptionally(new GenieServerException("staging failed"));
+        Mockito.when(this.jobStaging.whenStaged()).thenReturn(staged);
+        Mockito.when(this.task2.isLaunchTask()).thenReturn(true);
+
+        this.jobSubmitterService.submitJob(this.mockResolvedJobRequest());
+
+        Mockito.verify(this.task2, Mockito.never()).executeTask(Mockito.anyMap());
+        Mockito.verify(this.jobStaging, Mockito.times(1)).cancel();
+        final ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+        Mockito.verify(this.applicationEventPublisher, Mockito.times(2)).publishEvent(events.capture());
+        Assert.assertThat(events.getAllValues().get(0), Matchers.instanceOf(JobScheduledEvent.class));
+        final JobFinishedEvent event = (JobFinishedEvent) events.getAllValues().get(1);
+        Assert.assertThat(event.getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(event.getReason(), Matchers.is(JobFinishedReason.FAILED_TO_INIT));
+        Assert.assertThat(event.getMessage(), Matchers.is("staging failed"));
+    }
+
+    /**
+     * Make sure the part of the run script written before the setup of a job failed ends up on disk.
+     *
+     * @throws GenieException If there is any problem.
+     * @throws IOException    when there is any IO problem
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void canWritePartialRunScriptWhenSetupFails() throws GenieException, IOException {
+        this.writeToRunScript(this.task1, "echo setup");
+        Mockito.doThrow(new IOException("setup failed")).when(this.task2).executeTask(Mockito.anyMap());
+
+        try {
+            this.jobSubmitterService.submitJob(this.mockResolvedJobRequest());
+            Assert.fail("Expected a GenieServerException");
+        } catch (final GenieServerException gse) {
+            Assert.assertThat(this.readRunScript(), Matchers.is("echo setup"));
+        }
+    }
+
+    /**
+     * Make sure the part of the run script written before the launch of a job failed ends up on disk.
+     *
+     * @throws GenieException If there is any problem.
+     * @throws IOException    when there is any IO problem
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void canWritePartialRunScriptWhenLaunchFails() throws GenieException, IOException {
+        this.writeToRunScript(this.task1, "echo setup");
+        Mockito.when(this.task2.isLaunchTask()).thenReturn(true);
+        Mockito.doThrow(new IOException("launch failed")).when(this.task2).executeTask(Mockito.anyMap());
+
+        this.jobSubmitterService.submitJob(this.mockResolvedJobRequest());
+
+        Assert.assertThat(this.readRunScript(), Matchers.is("echo setup"));
+        final ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+        Mockito.verify(this.applicationEventPublisher, Mockito.times(2)).publishEvent(events.capture());
+        Assert.assertThat(events.getAllValues().get(1), Matchers.instanceOf(JobFinishedEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeToRunScript(final WorkflowTask task, final String content) throws GenieException, IOException {
+        Mockito
+            .doAnswer(
+                invocation -> {
+                    final Map<String, Object> context = (Map<String, Object>) invocation.getArguments()[0];
+                    ((Writer) context.get(JobConstants.WRITER_KEY)).write(content);
+                    return null;
+                }
+            )
+            .when(task)
+            .executeTask(Mockito.anyMap());
+    }
+
+    private String readRunScript() throws IOException {
+        final File runScript = new File(new File(this.jobsDir, JOB_1_ID), JobConstants.GENIE_JOB_LAUNCHER_SCRIPT);
+        return new String(Files.readAllBytes(runScript.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private JobRequest mockResolvedJobRequest() throws GenieException {
+        return this.mockResolvedJobRequest(false);
+    }
+
+    private JobRequest mockResolvedJobRequest(final boolean memoize) throws GenieException {
+        final JobRequest jobRequest = new JobRequest.Builder(JOB_1_NAME, USER, VERSION, null, null, null)
+            .withId(JOB_1_ID)
+            .withMemoize(memoize)
+            .build();
+        final Cluster cluster = new Cluster.Builder(CLUSTER_NAME, USER, VERSION, ClusterStatus.UP)
+            .withId(CLUSTER_ID)
+            .build();
+        final Command command
+            = new Command.Builder(COMMAND_NAME, USER, VERSION, CommandStatus.ACTIVE, "foo", 5000L)
+            .withId(COMMAND_ID)
+            .build();
+        Mockito
+            .when(this.jobResolverService.resolveJob(jobRequest))
+            .thenReturn(new ResolvedJob(cluster, command, new ArrayList<>()));
+        return jobRequest;
+    }
 }
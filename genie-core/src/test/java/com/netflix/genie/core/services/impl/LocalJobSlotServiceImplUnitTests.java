@@ -0,0 +1,261 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the LocalJobSlotServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class LocalJobSlotServiceImplUnitTests {
+
+    private static final int MAX_SLOTS = 8;
+    private static final int MAX_CPU = 16;
+    private static final long MAX_MEMORY = 32768L;
+
+    private final String hostName = UUID.randomUUID().toString();
+    private JobSearchService jobSearchService;
+    private LocalJobSlotServiceImpl jobSlotService;
+
+    /**
+     * Setup for tests.
+     */
+    @Before
+    public void setup() {
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        this.jobSlotService = new LocalJobSlotServiceImpl(
+            MAX_SLOTS,
+            MAX_CPU,
+            MAX_MEMORY,
+            this.jobSearchService,
+            this.hostName
+        );
+    }
+
+    /**
+     * Make sure slots can be reserved up to the max and no further.
+     */
+    @Test
+    public void cantReserveMoreThanMax() {
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 1, 1)));
+        }
+        Assert.assertFalse(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 1, 1)));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(MAX_SLOTS));
+        Assert.assertThat(this.jobSlotService.getMaxSlots(), Matchers.is(MAX_SLOTS));
+    }
+
+    /**
+     * Make sure a job can only ever hold one slot and releasing is idempotent.
+     */
+    @Test
+    public void reservationsAreKeyedByJob() {
+        final String jobId = UUID.randomUUID().toString();
+        final JobRequest jobRequest = this.createJobRequest(jobId, 2, 1024);
+        Assert.assertTrue(this.jobSlotService.reserve(jobRequest));
+        Assert.assertFalse(this.jobSlotService.reserve(jobRequest));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(1));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(2));
+        Assert.assertThat(this.jobSlotService.getReservedMemory(), Matchers.is(1024L));
+
+        this.jobSlotService.release(jobId);
+        this.jobSlotService.release(jobId);
+        this.jobSlotService.release(UUID.randomUUID().toString());
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(0));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(0));
+        Assert.assertThat(this.jobSlotService.getReservedMemory(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure the slot is released when the job finished event is received.
+     */
+    @Test
+    public void releasesOnJobFinished() {
+        final String jobId = UUID.randomUUID().toString();
+        Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(jobId, 1, 1024)));
+        this.jobSlotService.onJobFinished(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "killed", this));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure jobs are only admitted while there is enough free cpu and memory on the node.
+     */
+    @Test
+    public void cantReserveMoreResourcesThanNodeHas() {
+        final String bigCpuJob = UUID.randomUUID().toString();
+        Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(bigCpuJob, 12, 1024)));
+        Assert.assertFalse(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 8, 1024)));
+        Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 4, 1024)));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(MAX_CPU));
+
+        this.jobSlotService.release(bigCpuJob);
+        final String bigMemoryJob = UUID.randomUUID().toString();
+        Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(bigMemoryJob, 1, 30720)));
+        Assert.assertFalse(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 1, 2048)));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(2));
+        Assert.assertThat(this.jobSlotService.getReservedMemory(), Matchers.is(31744L));
+    }
+
+    /**
+     * Make sure a job bigger than the whole node can still run once the node is otherwise idle.
+     */
+    @Test
+    public void canReserveOversizedJobOnIdleNode() {
+        final String smallJob = UUID.randomUUID().toString();
+        final JobRequest oversized = this.createJobRequest(UUID.randomUUID().toString(), MAX_CPU * 2, 1024);
+        Assert.assertTrue(this.jobSlotService.reserve(this.createJobRequest(smallJob, 1, 1024)));
+        Assert.assertFalse(this.jobSlotService.reserve(oversized));
+
+        this.jobSlotService.release(smallJob);
+        Assert.assertTrue(this.jobSlotService.reserve(oversized));
+        Assert.assertFalse(this.jobSlotService.reserve(this.createJobRequest(UUID.randomUUID().toString(), 1, 1)));
+    }
+
+    /**
+     * Make sure jobs already running on the host at startup hold slots and the resources they requested.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canReserveRunningJobsAtStartup() throws GenieException {
+        final String jobId1 = UUID.randomUUID().toString();
+        final String jobId2 = UUID.randomUUID().toString();
+        final JobExecution execution1 = Mockito.mock(JobExecution.class);
+        Mockito.when(execution1.getId()).thenReturn(jobId1);
+        final JobExecution execution2 = Mockito.mock(JobExecution.class);
+        Mockito.when(execution2.getId()).thenReturn(jobId2);
+        Mockito
+            .when(this.jobSearchService.getAllRunningJobExecutionsOnHost(this.hostName))
+            .thenReturn(Sets.newHashSet(execution1, execution2));
+        Mockito.when(this.jobSearchService.getJobRequest(jobId1)).thenReturn(this.createJobRequest(jobId1, 4, 2048));
+        Mockito.when(this.jobSearchService.getJobRequest(jobId2)).thenThrow(new GenieNotFoundException("gone"));
+
+        this.jobSlotService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        this.jobSlotService.onContextRefreshed(Mockito.mock(ContextRefreshedEvent.class));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(2));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(4));
+        Assert.assertThat(this.jobSlotService.getReservedMemory(), Matchers.is(2048L));
+        Assert.assertFalse(this.jobSlotService.reserve(this.createJobRequest(jobId1, 4, 2048)));
+
+        this.jobSlotService.release(jobId1);
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(1));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(0));
+    }
+
+    /**
+     * Hammer the service from many threads at once and make sure the number of jobs holding a slot and the cpu
+     * they hold never go over the max and everything is given back at the end.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void neverExceedsMaxUnderConcurrentReservations() throws Exception {
+        final int numThreads = 64;
+        final int numSubmissions = 5000;
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger holding = new AtomicInteger(0);
+        final AtomicInteger maxHolding = new AtomicInteger(0);
+        final AtomicInteger holdingCpu = new AtomicInteger(0);
+        final AtomicInteger maxHoldingCpu = new AtomicInteger(0);
+        final AtomicInteger numAdmitted = new AtomicInteger(0);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numSubmissions; i++) {
+                futures.add(
+                    executorService.submit(
+                        () -> {
+                            final String jobId = UUID.randomUUID().toString();
+                            final int cpu = jobId.hashCode() % 2 == 0 ? 1 : 3;
+                            start.await();
+                            if (this.jobSlotService.reserve(this.createJobRequest(jobId, cpu, 512))) {
+                                numAdmitted.incrementAndGet();
+                                final int current = holding.incrementAndGet();
+                                maxHolding.accumulateAndGet(current, Math::max);
+                                maxHoldingCpu.accumulateAndGet(holdingCpu.addAndGet(cpu), Math::max);
+                                Thread.yield();
+                                holdingCpu.addAndGet(-cpu);
+                                holding.decrementAndGet();
+                                this.jobSlotService.release(jobId);
+                            }
+                            return null;
+                        }
+                    )
+                );
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertThat(maxHolding.get(), Matchers.lessThanOrEqualTo(MAX_SLOTS));
+        Assert.assertThat(maxHoldingCpu.get(), Matchers.lessThanOrEqualTo(MAX_CPU));
+        Assert.assertThat(numAdmitted.get(), Matchers.greaterThan(0));
+        Assert.assertThat(this.jobSlotService.getNumReserved(), Matchers.is(0));
+        Assert.assertThat(this.jobSlotService.getReservedCpu(), Matchers.is(0));
+        Assert.assertThat(this.jobSlotService.getReservedMemory(), Matchers.is(0L));
+    }
+
+    private JobRequest createJobRequest(final String id, final int cpu, final int memory) {
+        return new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            new ArrayList<>(),
+            Sets.newHashSet(UUID.randomUUID().toString())
+        )
+            .withId(id)
+            .withCpu(cpu)
+            .withMemory(memory)
+            .build();
+    }
+}
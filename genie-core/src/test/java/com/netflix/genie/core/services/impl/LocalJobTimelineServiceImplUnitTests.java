@@ -0,0 +1,117 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.jobs.JobTimeline;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Unit tests for the LocalJobTimelineServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class LocalJobTimelineServiceImplUnitTests {
+
+    private static final String JOB_ID = "job1";
+
+    private Registry registry;
+    private LocalJobTimelineServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.registry = new DefaultRegistry();
+        this.service = new LocalJobTimelineServiceImpl(2, this.registry);
+    }
+
+    /**
+     * Make sure stages recorded before the job is resolved are exported with the cluster and command once it is.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canRecordStages() throws GenieException {
+        this.service.record(JOB_ID, "request", null, 100L, 300L);
+        Assert.assertThat(this.stageCount("request", "cluster1", "pig"), Matchers.is(0L));
+
+        this.service.resolved(JOB_ID, "cluster1", "pig");
+        this.service.record(JOB_ID, "transfer", "s3://bucket/setup", 400L, 1000L);
+
+        Assert.assertThat(this.stageCount("request", "cluster1", "pig"), Matchers.is(1L));
+        Assert.assertThat(this.stageCount("transfer", "cluster1", "pig"), Matchers.is(1L));
+
+        final JobTimeline timeline = this.service.getTimeline(JOB_ID);
+        Assert.assertThat(timeline.getClusterName(), Matchers.is("cluster1"));
+        Assert.assertThat(timeline.getCommandName(), Matchers.is("pig"));
+        Assert.assertThat(timeline.getStages().size(), Matchers.is(2));
+        Assert.assertThat(timeline.getStages().get(1).getStart(), Matchers.is(300L));
+        Assert.assertThat(timeline.getStages().get(1).getDuration(), Matchers.is(600L));
+        Assert.assertThat(timeline.getStages().get(1).getDetail(), Matchers.is("s3://bucket/setup"));
+    }
+
+    /**
+     * Make sure the stages of a job which finished without being resolved are still exported.
+     */
+    @Test
+    public void canExportStagesOfUnresolvedJob() {
+        this.service.record(JOB_ID, "request", null, 100L, 300L);
+        this.service.onJobFinished(new JobFinishedEvent(JOB_ID, JobFinishedReason.INVALID, "invalid", this));
+        Assert.assertThat(this.stageCount("request", "unknown", "unknown"), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure only the timelines of the most recent jobs are kept.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantGetTimelineOfOldJob() throws GenieException {
+        this.service.record(JOB_ID, "request", 100L);
+        this.service.record("job2", "request", 100L);
+        this.service.record("job3", "request", 100L);
+        Assert.assertNotNull(this.service.getTimeline("job3"));
+        this.service.getTimeline(JOB_ID);
+    }
+
+    private long stageCount(final String stage, final String cluster, final String command) {
+        return this.registry
+            .timer(
+                this.registry
+                    .createId("genie.jobs.launch.stage.timer")
+                    .withTag("stage", stage)
+                    .withTag("cluster", cluster)
+                    .withTag("command", command)
+            )
+            .count();
+    }
+}
@@ -17,22 +17,46 @@
  */
 package com.netflix.genie.core.services.impl;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.hamcrest.Matchers;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Class to test the S3FileTransferImpl class.
@@ -52,6 +76,16 @@ public class S3FileTransferImplUnitTests {
         + S3_KEY;
     private static final String LOCAL_PATH = "local";
 
+    private static final String S3_PARTS_KEY = "dir/key";
+    private static final String S3_PARTS_PATH = S3_PREFIX + S3_BUCKET + "/" + S3_PARTS_KEY;
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * Temporary directory for the files transferred in parts.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private S3FileTransferImpl s3FileTransfer;
     private AmazonS3Client s3Client;
 
@@ -63,7 +97,15 @@ public class S3FileTransferImplUnitTests {
     @Before
     public void setup() throws GenieException {
         s3Client = Mockito.mock(AmazonS3Client.class);
-        s3FileTransfer = new S3FileTransferImpl(s3Client);
+        s3FileTransfer = new S3FileTransferImpl(s3Client, PART_SIZE, 4, 2, new DefaultRegistry());
+    }
+
+    /**
+     * Clean up after the tests.
+     */
+    @After
+    public void cleanup() {
+        s3FileTransfer.shutdown();
     }
 
     /**
@@ -183,4 +225,237 @@ public class S3FileTransferImplUnitTests {
             .thenThrow(AmazonS3Exception.class);
         s3FileTransfer.getFile(LOCAL_PATH, S3_PATH);
     }
+
+    /**
+     * Test the getContentHash method returns the ETag of the object without downloading it.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testGetContentHashMethodValidS3Path() throws GenieException {
+        final ObjectMetadata objectMetadata = Mockito.mock(ObjectMetadata.class);
+        Mockito.when(objectMetadata.getETag()).thenReturn("etag");
+        Mockito.when(this.s3Client.getObjectMetadata(S3_BUCKET, S3_KEY)).thenReturn(objectMetadata);
+
+        Assert.assertEquals("etag", s3FileTransfer.getContentHash(S3_PATH));
+        Mockito.verify(this.s3Client, Mockito.never()).getObject(Mockito.any(GetObjectRequest.class));
+    }
+
+    /**
+     * Test the getContentHash method for invalid s3 path.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test(expected = GenieServerException.class)
+    public void testGetContentHashMethodInvalidS3Path() throws GenieException {
+        s3FileTransfer.getContentHash("filepath");
+    }
+
+    /**
+     * Test the getContentHash method when the metadata can't be fetched.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test(expected = GenieServerException.class)
+    public void testGetContentHashMethodFailureToFetch() throws GenieException {
+        Mockito.when(this.s3Client.getObjectMetadata(S3_BUCKET, S3_KEY)).thenThrow(AmazonS3Exception.class);
+        s3FileTransfer.getContentHash(S3_PATH);
+    }
+
+    /**
+     * Test the getFile method fetches files no bigger than a part in one piece.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testGetFileMethodSmallFile() throws GenieException {
+        this.mockMetadata(PART_SIZE, "etag");
+        final String local = new File(this.folder.getRoot(), "small").getAbsolutePath();
+
+        s3FileTransfer.getFile(S3_PARTS_PATH, local);
+        final ArgumentCaptor<GetObjectRequest> argument = ArgumentCaptor.forClass(GetObjectRequest.class);
+        Mockito.verify(this.s3Client).getObject(argument.capture(), Mockito.eq(new File(local)));
+        Assert.assertEquals(S3_PARTS_KEY, argument.getValue().getKey());
+        Assert.assertNull(argument.getValue().getRange());
+    }
+
+    /**
+     * Test the getFile method fetches big files in ranges and checks them against the ETag of a multipart upload.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void testGetFileMethodInParts() throws Exception {
+        final byte[] content = this.getContent(2 * PART_SIZE + 1024);
+        this.mockMetadata(content.length, this.getMultipartETag(content));
+        final List<GetObjectRequest> requests = this.mockRanges(content, new AtomicInteger(0));
+        final File local = new File(this.folder.getRoot(), "big");
+
+        s3FileTransfer.getFile(S3_PARTS_PATH, local.getAbsolutePath());
+        Assert.assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+        Assert.assertThat(requests.size(), Matchers.is(3));
+        Assert.assertThat(
+            requests.stream().map(request -> request.getRange()[0]).sorted().collect(Collectors.toList()),
+            Matchers.contains(0L, PART_SIZE, 2 * PART_SIZE)
+        );
+    }
+
+    /**
+     * Test the getFile method retries a range which failed and checks the file against the ETag of a single upload.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void testGetFileMethodRetriesParts() throws Exception {
+        final byte[] content = this.getContent(PART_SIZE + 1024);
+        this.mockMetadata(content.length, Hashing.md5().hashBytes(content).toString());
+        final List<GetObjectRequest> requests = this.mockRanges(content, new AtomicInteger(1));
+        final File local = new File(this.folder.getRoot(), "big");
+
+        s3FileTransfer.getFile(S3_PARTS_PATH, local.getAbsolutePath());
+        Assert.assertArrayEquals(content, Files.readAllBytes(local.toPath()));
+        Assert.assertThat(requests.size(), Matchers.is(3));
+    }
+
+    /**
+     * Test the getFile method fails and removes the file when it doesn't match the ETag.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void testGetFileMethodChecksumMismatch() throws Exception {
+        final byte[] content = this.getContent(PART_SIZE + 1024);
+        this.mockMetadata(content.length, Hashing.md5().hashBytes(new byte[0]).toString());
+        this.mockRanges(content, new AtomicInteger(0));
+        final File local = new File(this.folder.getRoot(), "big");
+
+        try {
+            s3FileTransfer.getFile(S3_PARTS_PATH, local.getAbsolutePath());
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertFalse(local.exists());
+        }
+    }
+
+    /**
+     * Test the putFile method uploads big files as a multipart upload with the MD5 of each part.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void testPutFileMethodInParts() throws Exception {
+        final File local = this.folder.newFile("big");
+        Files.write(local.toPath(), this.getContent(2 * PART_SIZE + 1024));
+        final List<UploadPartRequest> requests = this.mockMultipartUpload();
+
+        s3FileTransfer.putFile(local.getAbsolutePath(), S3_PARTS_PATH);
+        Assert.assertThat(requests.size(), Matchers.is(3));
+        requests.forEach(request -> Assert.assertNotNull(request.getMd5Digest()));
+        final ArgumentCaptor<CompleteMultipartUploadRequest> argument
+            = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        Mockito.verify(this.s3Client).completeMultipartUpload(argument.capture());
+        Assert.assertThat(argument.getValue().getUploadId(), Matchers.is("uploadId"));
+        Assert.assertThat(
+            argument.getValue().getPartETags().stream().map(PartETag::getPartNumber).collect(Collectors.toList()),
+            Matchers.contains(1, 2, 3)
+        );
+        Mockito
+            .verify(this.s3Client, Mockito.never())
+            .putObject(Mockito.anyString(), Mockito.anyString(), Mockito.any(File.class));
+    }
+
+    /**
+     * Test the putFile method aborts the multipart upload when a part can't be uploaded.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void testPutFileMethodAbortsFailedUpload() throws Exception {
+        final File local = this.folder.newFile("big");
+        Files.write(local.toPath(), this.getContent(PART_SIZE + 1024));
+        this.mockMultipartUpload();
+        final AmazonS3Exception accessDenied = new AmazonS3Exception("Access Denied");
+        accessDenied.setStatusCode(403);
+        Mockito.when(this.s3Client.uploadPart(Mockito.any(UploadPartRequest.class))).thenThrow(accessDenied);
+
+        try {
+            s3FileTransfer.putFile(local.getAbsolutePath(), S3_PARTS_PATH);
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            // Access denied isn't retried and the other part may be cancelled before it starts
+            Mockito.verify(this.s3Client, Mockito.atMost(2)).uploadPart(Mockito.any(UploadPartRequest.class));
+            Mockito.verify(this.s3Client).abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+            Mockito
+                .verify(this.s3Client, Mockito.never())
+                .completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class));
+        }
+    }
+
+    private void mockMetadata(final long length, final String eTag) {
+        final ObjectMetadata objectMetadata = Mockito.mock(ObjectMetadata.class);
+        Mockito.when(objectMetadata.getContentLength()).thenReturn(length);
+        Mockito.when(objectMetadata.getETag()).thenReturn(eTag);
+        Mockito.when(this.s3Client.getObjectMetadata(S3_BUCKET, S3_PARTS_KEY)).thenReturn(objectMetadata);
+    }
+
+    private List<GetObjectRequest> mockRanges(final byte[] content, final AtomicInteger failures) {
+        final List<GetObjectRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        Mockito
+            .when(this.s3Client.getObject(Mockito.any(GetObjectRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    final GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+                    requests.add(request);
+                    if (failures.getAndDecrement() > 0) {
+                        throw new AmazonClientException("Connection reset");
+                    }
+                    final long[] range = request.getRange();
+                    final S3Object object = new S3Object();
+                    object.setObjectContent(
+                        new ByteArrayInputStream(content, (int) range[0], (int) (range[1] - range[0] + 1))
+                    );
+                    return object;
+                }
+            );
+        return requests;
+    }
+
+    private List<UploadPartRequest> mockMultipartUpload() {
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("uploadId");
+        Mockito
+            .when(this.s3Client.initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(initiateResult);
+        final List<UploadPartRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        Mockito
+            .when(this.s3Client.uploadPart(Mockito.any(UploadPartRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    final UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+                    requests.add(request);
+                    final UploadPartResult result = new UploadPartResult();
+                    result.setPartNumber(request.getPartNumber());
+                    result.setETag("etag" + request.getPartNumber());
+                    return result;
+                }
+            );
+        return requests;
+    }
+
+    private byte[] getContent(final long length) {
+        final byte[] content = new byte[(int) length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private String getMultipartETag(final byte[] content) {
+        final Hasher hasher = Hashing.md5().newHasher();
+        int parts = 0;
+        for (int start = 0; start < content.length; start += PART_SIZE) {
+            final int end = (int) Math.min(start + PART_SIZE, content.length);
+            hasher.putBytes(Hashing.md5().hashBytes(content, start, end - start).asBytes());
+            parts++;
+        }
+        return hasher.hash().toString() + "-" + parts;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterCriteria;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.events.ConfigChangedEvent;
+import com.netflix.genie.core.events.ConfigEntityType;
+import com.netflix.genie.core.jobs.ResolvedJob;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterLoadBalancer;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.JobResolverService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.UUID;
+
+/**
+ * Unit tests for the SnapshotJobResolverServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class SnapshotJobResolverServiceImplUnitTests {
+
+    private static final String CLUSTER_ID = UUID.randomUUID().toString();
+    private static final String COMMAND_ID = UUID.randomUUID().toString();
+    private static final long REFRESH_RATE = 60000L;
+
+    private JobResolverService fallbackResolverService;
+    private ClusterService clusterService;
+    private CommandService commandService;
+    private ClusterLoadBalancer clusterLoadBalancer;
+    private TaskScheduler scheduler;
+    private Registry registry;
+    private Cluster cluster;
+    private Command command;
+    private JobRequest jobRequest;
+    private SnapshotJobResolverServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GenieException on error
+     */
+    @Before
+    public void setup() throws GenieException {
+        this.fallbackResolverService = Mockito.mock(JobResolverService.class);
+        this.clusterService = Mockito.mock(ClusterService.class);
+        this.commandService = Mockito.mock(CommandService.class);
+        final ApplicationService applicationService = Mockito.mock(ApplicationService.class);
+        this.clusterLoadBalancer = Mockito.mock(ClusterLoadBalancer.class);
+        this.scheduler = Mockito.mock(TaskScheduler.class);
+        this.registry = new DefaultRegistry();
+
+        this.cluster = new Cluster.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            ClusterStatus.UP
+        )
+            .withId(CLUSTER_ID)
+            .withTags(Sets.newHashSet("prod"))
+            .build();
+        this.command = new Command.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            CommandStatus.ACTIVE,
+            UUID.randomUUID().toString(),
+            5000L
+        )
+            .withId(COMMAND_ID)
+            .withTags(Sets.newHashSet("pig"))
+            .build();
+        this.jobRequest = new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(new ClusterCriteria(Sets.newHashSet("prod"))),
+            Sets.newHashSet("pig")
+        ).build();
+
+        Mockito
+            .when(
+                applicationService.getApplications(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList()));
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(this.command)));
+        Mockito.when(this.commandService.getCommand(COMMAND_ID)).thenReturn(this.command);
+        Mockito.when(this.commandService.getApplicationsForCommand(COMMAND_ID)).thenReturn(Lists.newArrayList());
+        Mockito
+            .when(
+                this.clusterService.getClusters(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(this.cluster)));
+        Mockito.when(this.clusterService.getCluster(CLUSTER_ID)).thenReturn(this.cluster);
+        Mockito
+            .when(this.clusterService.getCommandsForCluster(CLUSTER_ID, null))
+            .thenReturn(Lists.newArrayList(this.command));
+        Mockito.when(this.clusterLoadBalancer.selectCluster(Mockito.anyListOf(Cluster.class))).thenReturn(this.cluster);
+
+        this.service = new SnapshotJobResolverServiceImpl(
+            this.fallbackResolverService,
+            this.clusterService,
+            this.commandService,
+            applicationService,
+            this.clusterLoadBalancer,
+            this.scheduler,
+            REFRESH_RATE,
+            this.registry
+        );
+    }
+
+    /**
+     * Make sure requests are resolved from the snapshot once it's loaded and handed to the fallback before.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canResolveJobFromSnapshot() throws GenieException {
+        this.service.resolveJob(this.jobRequest);
+        Mockito.verify(this.fallbackResolverService, Mockito.times(1)).resolveJob(this.jobRequest);
+        Assert.assertThat(this.registry.counter("genie.jobs.resolution.snapshot.miss.rate").count(), Matchers.is(1L));
+
+        this.service.refresh();
+        Assert.assertThat(this.service.getSnapshot().getVersion(), Matchers.is(1L));
+
+        final ResolvedJob resolvedJob = this.service.resolveJob(this.jobRequest);
+        Assert.assertThat(resolvedJob.getCluster(), Matchers.is(this.cluster));
+        Assert.assertThat(resolvedJob.getCommand(), Matchers.is(this.command));
+        Assert.assertTrue(resolvedJob.getApplications().isEmpty());
+        Mockito.verify(this.fallbackResolverService, Mockito.times(1)).resolveJob(this.jobRequest);
+        Assert.assertThat(this.registry.counter("genie.jobs.resolution.snapshot.hit.rate").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure only the entity which changed is reloaded and deleted entities are removed from the snapshot.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canReloadChangedConfiguration() throws GenieException {
+        this.service.refresh();
+        Assert.assertThat(this.service.getSnapshot().getNumClusters(), Matchers.is(1));
+        Assert.assertThat(this.service.getSnapshot().getNumCommands(), Matchers.is(1));
+
+        this.service.onConfigChanged(new ConfigChangedEvent(ConfigEntityType.CLUSTER, CLUSTER_ID, this));
+        Assert.assertThat(this.service.getSnapshot().getVersion(), Matchers.is(2L));
+        Assert.assertThat(this.service.getSnapshot().getNumClusters(), Matchers.is(1));
+        Mockito.verify(this.clusterService, Mockito.times(1)).getCluster(CLUSTER_ID);
+        Mockito.verify(this.commandService, Mockito.never()).getCommand(COMMAND_ID);
+
+        Mockito.when(this.commandService.getCommand(COMMAND_ID)).thenThrow(new GenieNotFoundException("deleted"));
+        this.service.onConfigChanged(new ConfigChangedEvent(ConfigEntityType.COMMAND, COMMAND_ID, this));
+        Assert.assertThat(this.service.getSnapshot().getVersion(), Matchers.is(3L));
+        Assert.assertThat(this.service.getSnapshot().getNumCommands(), Matchers.is(0));
+        Assert.assertNull(this.service.getSnapshot().resolve(this.jobRequest, this.clusterLoadBalancer));
+
+        Mockito.when(this.clusterService.getCluster(CLUSTER_ID)).thenThrow(new GenieNotFoundException("deleted"));
+        this.service.onConfigChanged(new ConfigChangedEvent(ConfigEntityType.CLUSTER, CLUSTER_ID, this));
+        Assert.assertThat(this.service.getSnapshot().getVersion(), Matchers.is(4L));
+        Assert.assertThat(this.service.getSnapshot().getNumClusters(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure the last good snapshot is kept when it can't be refreshed.
+     */
+    @Test
+    public void canKeepSnapshotWhenRefreshFails() {
+        this.service.refresh();
+        Mockito
+            .when(
+                this.clusterService.getClusters(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenThrow(new RuntimeException("database down"));
+
+        this.service.refresh();
+        Assert.assertThat(this.service.getSnapshot().getVersion(), Matchers.is(1L));
+        Assert.assertThat(this.service.getSnapshot().getNumClusters(), Matchers.is(1));
+        Assert.assertThat(
+            this.registry.counter("genie.jobs.resolution.snapshot.refreshFailure.rate").count(),
+            Matchers.is(1L)
+        );
+    }
+
+    /**
+     * Make sure the reconciliation is only scheduled once no matter how often the context is refreshed.
+     */
+    @Test
+    public void canScheduleRefreshOnce() {
+        final ContextRefreshedEvent event = Mockito.mock(ContextRefreshedEvent.class);
+        this.service.onContextRefreshed(event);
+        this.service.onContextRefreshed(event);
+        Mockito
+            .verify(this.scheduler, Mockito.times(1))
+            .scheduleAtFixedRate(Mockito.any(Runnable.class), Mockito.eq(REFRESH_RATE));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the InstrumentedThreadPoolExecutor class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class InstrumentedThreadPoolExecutorUnitTests {
+
+    private static final String NAME = "genie.test.pool";
+
+    private Registry registry;
+    private CountDownLatch latch;
+    private InstrumentedThreadPoolExecutor executor;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.registry = new DefaultRegistry();
+        this.latch = new CountDownLatch(1);
+        this.executor = new InstrumentedThreadPoolExecutor(
+            NAME,
+            1,
+            1,
+            new ThreadPoolExecutor.AbortPolicy(),
+            this.registry
+        );
+    }
+
+    /**
+     * Stop the pool after each test.
+     */
+    @After
+    public void cleanup() {
+        this.latch.countDown();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure the time tasks wait for a thread is recorded.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canRecordWaitTime() throws Exception {
+        this.executor.submit(() -> "done").get(10, TimeUnit.SECONDS);
+        Assert.assertThat(this.registry.timer(NAME + ".wait.timer").count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure tasks which don't fit in the queue are counted before the rejection policy applies.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canCountRejectedTasks() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        this.executor.execute(
+            () -> {
+                started.countDown();
+                try {
+                    this.latch.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        this.executor.execute(Thread::yield);
+        Assert.assertThat(this.executor.getQueue().size(), Matchers.is(1));
+
+        try {
+            this.executor.execute(Thread::yield);
+            Assert.fail();
+        } catch (final RejectedExecutionException ree) {
+            Assert.assertThat(this.registry.counter(NAME + ".rejected.rate").count(), Matchers.is(1L));
+        }
+    }
+}
@@ -238,12 +238,14 @@ CREATE TABLE `job_requests` (
   `command_criteria` varchar(1024) NOT NULL DEFAULT '[]',
   `dependencies` varchar(30000) NOT NULL,
   `disable_log_archival` bit(1) NOT NULL DEFAULT b'0',
+  `memoize` bit(1) NOT NULL DEFAULT b'0',
   `email` varchar(255) DEFAULT NULL,
   `tags` varchar(2048) DEFAULT NULL,
   `cpu` int(11) NOT NULL DEFAULT '1',
   `memory` int(11) NOT NULL DEFAULT '1560',
   `client_host` varchar(255) DEFAULT NULL,
   `applications` varchar(2048) NOT NULL DEFAULT '[]',
+  `array_parameters` text DEFAULT NULL,
   `timeout` int(11) NOT NULL DEFAULT '604800',
   PRIMARY KEY (`id`),
   KEY `JOB_REQUESTS_CREATED_INDEX` (`created`)
@@ -277,6 +279,7 @@ CREATE TABLE `jobs` (
   `status_msg` varchar(255) DEFAULT NULL,
   `entity_version` int(11) NOT NULL DEFAULT '0',
   `tags` varchar(2048) DEFAULT NULL,
+  `host_name` varchar(255) DEFAULT NULL,
   KEY `id` (`id`),
   KEY `cluster_id` (`cluster_id`),
   KEY `command_id` (`command_id`),
@@ -288,6 +291,7 @@ CREATE TABLE `jobs` (
   KEY `JOBS_CLUSTER_NAME_INDEX` (`cluster_name`),
   KEY `JOBS_COMMAND_NAME_INDEX` (`command_name`),
   KEY `JOBS_TAGS_INDEX` (`tags`),
+  KEY `JOBS_HOST_NAME_INDEX` (`host_name`),
   CONSTRAINT `jobs_ibfk_1` FOREIGN KEY (`id`) REFERENCES `job_requests` (`id`) ON DELETE CASCADE,
   CONSTRAINT `jobs_ibfk_2` FOREIGN KEY (`cluster_id`) REFERENCES `clusters` (`id`),
   CONSTRAINT `jobs_ibfk_3` FOREIGN KEY (`command_id`) REFERENCES `commands` (`id`)
@@ -311,6 +315,44 @@ CREATE TABLE `jobs_applications` (
   CONSTRAINT `jobs_applications_ibfk_2` FOREIGN KEY (`application_id`) REFERENCES `applications` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
+--
+-- Table structure for table `node_loads`
+--
+
+DROP TABLE IF EXISTS `node_loads`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `node_loads` (
+  `id` varchar(255) NOT NULL,
+  `created` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  `updated` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  `entity_version` int(11) NOT NULL DEFAULT '0',
+  `running` int(11) NOT NULL DEFAULT '0',
+  `free_slots` int(11) NOT NULL DEFAULT '0',
+  PRIMARY KEY (`id`),
+  KEY `NODE_LOADS_UPDATED_INDEX` (`updated`),
+  KEY `NODE_LOADS_FREE_SLOTS_INDEX` (`free_slots`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `job_fingerprints`
+--
+
+DROP TABLE IF EXISTS `job_fingerprints`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `job_fingerprints` (
+  `id` varchar(255) NOT NULL,
+  `created` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  `updated` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  `entity_version` int(11) NOT NULL DEFAULT '0',
+  `fingerprint` varchar(64) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `JOB_FINGERPRINTS_FINGERPRINT_CREATED_INDEX` (`fingerprint`,`created`),
+  CONSTRAINT `job_fingerprints_ibfk_1` FOREIGN KEY (`id`) REFERENCES `jobs` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
@@ -254,12 +254,14 @@ CREATE TABLE `job_requests` (
   `command_criteria` VARCHAR(1024) NOT NULL DEFAULT '[]',
   `dependencies` VARCHAR(30000) DEFAULT NULL,
   `disable_log_archival` BIT(1) NOT NULL DEFAULT 0,
+  `memoize` BIT(1) NOT NULL DEFAULT 0,
   `email` VARCHAR(255) DEFAULT NULL,
   `tags` VARCHAR(2048) DEFAULT NULL,
   `cpu` INT(11) NOT NULL DEFAULT 1,
   `memory` INT(11) NOT NULL DEFAULT 1560,
   `client_host` VARCHAR(255) DEFAULT NULL,
   `applications` VARCHAR(2048) NOT NULL DEFAULT '[]',
+  `array_parameters` TEXT DEFAULT NULL,
   `timeout` INT NOT NULL DEFAULT 604800, # Seven days in seconds
   PRIMARY KEY (`id`),
   INDEX `JOB_REQUESTS_CREATED_INDEX` (`created`)
@@ -448,6 +450,7 @@ ALTER TABLE `jobs`
   MODIFY `started` DATETIME(3) DEFAULT NULL,
   MODIFY `finished` DATETIME(3) DEFAULT NULL,
   ADD COLUMN `tags` VARCHAR(2048) DEFAULT NULL,
+  ADD COLUMN `host_name` VARCHAR(255) DEFAULT NULL,
   DROP `forwarded`,
   DROP `applicationId`,
   DROP `applicationName`,
@@ -476,7 +479,8 @@ ALTER TABLE `jobs`
   ADD INDEX `JOBS_CREATED_INDEX` (`created`),
   ADD INDEX `JOBS_CLUSTER_NAME_INDEX` (`cluster_name`),
   ADD INDEX `JOBS_COMMAND_NAME_INDEX` (`command_name`),
-  ADD INDEX `JOBS_TAGS_INDEX` (`tags`);
+  ADD INDEX `JOBS_TAGS_INDEX` (`tags`),
+  ADD INDEX `JOBS_HOST_NAME_INDEX` (`host_name`);
 SELECT CURRENT_TIMESTAMP AS '', 'Successfully updated the jobs table.' AS '';
 
 SELECT CURRENT_TIMESTAMP AS '', 'De-normalizing jobs tags for 3.0...' AS '';
@@ -493,5 +497,32 @@ SELECT CURRENT_TIMESTAMP AS '', 'Dropping the job_tags table for 3.0...' AS '';
 DROP TABLE `job_tags`;
 SELECT CURRENT_TIMESTAMP AS '', 'Successfully dropped the job_tags table.' AS '';
 
+SELECT CURRENT_TIMESTAMP AS '', 'Creating the node_loads table...' AS '';
+CREATE TABLE `node_loads` (
+  `id` VARCHAR(255) NOT NULL,
+  `created` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  `updated` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  `entity_version` INT(11) NOT NULL DEFAULT 0,
+  `running` INT(11) NOT NULL DEFAULT 0,
+  `free_slots` INT(11) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`id`),
+  INDEX `NODE_LOADS_UPDATED_INDEX` (`updated`),
+  INDEX `NODE_LOADS_FREE_SLOTS_INDEX` (`free_slots`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+SELECT CURRENT_TIMESTAMP AS '', 'Successfully created the node_loads table.' AS '';
+
+SELECT CURRENT_TIMESTAMP AS '', 'Creating the job_fingerprints table...' AS '';
+CREATE TABLE `job_fingerprints` (
+  `id` VARCHAR(255) NOT NULL,
+  `created` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  `updated` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  `entity_version` INT(11) NOT NULL DEFAULT 0,
+  `fingerprint` VARCHAR(64) NOT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `JOB_FINGERPRINTS_FINGERPRINT_CREATED_INDEX` (`fingerprint`, `created`),
+  FOREIGN KEY (`id`) REFERENCES `jobs` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+SELECT CURRENT_TIMESTAMP AS '', 'Successfully created the job_fingerprints table.' AS '';
+
 SELECT CURRENT_TIMESTAMP AS '', 'Finished upgrading Genie schema from version 2.0.0 to 3.0.0' AS '';
 COMMIT;
@@ -192,12 +192,14 @@ CREATE TABLE job_requests (
     command_criteria character varying(1024) DEFAULT '[]'::character varying NOT NULL,
     dependencies character varying(30000) DEFAULT NULL::character varying NOT NULL,
     disable_log_archival boolean DEFAULT false NOT NULL,
+    memoize boolean DEFAULT false NOT NULL,
     email character varying(255) DEFAULT NULL::character varying,
     tags character varying(2048) DEFAULT NULL::character varying,
     cpu integer DEFAULT 1 NOT NULL,
     memory integer DEFAULT 1560 NOT NULL,
     client_host character varying(255) DEFAULT NULL::character varying,
     applications character varying(2048) DEFAULT '[]'::character varying NOT NULL,
+    array_parameters text,
     timeout integer DEFAULT 604800 NOT NULL
 );
 
@@ -225,7 +227,8 @@ CREATE TABLE jobs (
     status character varying(20) DEFAULT 'INIT'::character varying NOT NULL,
     status_msg character varying(255) NOT NULL,
     entityversion integer DEFAULT 0 NOT NULL,
-    tags character varying(2048) DEFAULT NULL::character varying
+    tags character varying(2048) DEFAULT NULL::character varying,
+    host_name character varying(255) DEFAULT NULL::character varying
 );
 
 
@@ -240,6 +243,33 @@ CREATE TABLE jobs_applications (
 );
 
 
+--
+-- Name: node_loads; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE node_loads (
+    id character varying(255) NOT NULL,
+    created timestamp(3) without time zone DEFAULT now() NOT NULL,
+    updated timestamp(3) without time zone DEFAULT now() NOT NULL,
+    entity_version integer DEFAULT 0 NOT NULL,
+    running integer DEFAULT 0 NOT NULL,
+    free_slots integer DEFAULT 0 NOT NULL
+);
+
+
+--
+-- Name: job_fingerprints; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE job_fingerprints (
+    id character varying(255) NOT NULL,
+    created timestamp(3) without time zone DEFAULT now() NOT NULL,
+    updated timestamp(3) without time zone DEFAULT now() NOT NULL,
+    entity_version integer DEFAULT 0 NOT NULL,
+    fingerprint character varying(64) NOT NULL
+);
+
+
 --
 -- Name: application_pkey; Type: CONSTRAINT; Schema: public; Owner: -
 --
@@ -280,6 +310,22 @@ ALTER TABLE ONLY job_requests
     ADD CONSTRAINT job_requests_pkey PRIMARY KEY (id);
 
 
+--
+-- Name: node_loads_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY node_loads
+    ADD CONSTRAINT node_loads_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: job_fingerprints_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY job_fingerprints
+    ADD CONSTRAINT job_fingerprints_pkey PRIMARY KEY (id);
+
+
 --
 -- Name: applications_name_index; Type: INDEX; Schema: public; Owner: -
 --
@@ -399,6 +445,13 @@ CREATE INDEX jobs_created_index ON jobs USING btree (created);
 CREATE INDEX jobs_finished_index ON jobs USING btree (finished);
 
 
+--
+-- Name: jobs_host_name_index; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX jobs_host_name_index ON jobs USING btree (host_name);
+
+
 --
 -- Name: jobs_started_index; Type: INDEX; Schema: public; Owner: -
 --
@@ -427,6 +480,27 @@ CREATE INDEX jobs_tags_index ON jobs USING btree (tags);
 CREATE INDEX jobs_user_index ON jobs USING btree ("user");
 
 
+--
+-- Name: node_loads_free_slots_index; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX node_loads_free_slots_index ON node_loads USING btree (free_slots);
+
+
+--
+-- Name: node_loads_updated_index; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX node_loads_updated_index ON node_loads USING btree (updated);
+
+
+--
+-- Name: job_fingerprints_fingerprint_created_index; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX job_fingerprints_fingerprint_created_index ON job_fingerprints USING btree (fingerprint, created);
+
+
 --
 -- Name: application_configs_application_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: -
 --
@@ -539,6 +613,14 @@ ALTER TABLE ONLY jobs
     ADD CONSTRAINT jobs_id_fkey FOREIGN KEY (id) REFERENCES job_requests(id) ON DELETE CASCADE;
 
 
+--
+-- Name: job_fingerprints_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY job_fingerprints
+    ADD CONSTRAINT job_fingerprints_id_fkey FOREIGN KEY (id) REFERENCES jobs(id) ON DELETE CASCADE;
+
+
 --
 -- PostgreSQL database dump complete
 --
@@ -276,12 +276,14 @@ CREATE TABLE job_requests (
   command_criteria VARCHAR(1024) NOT NULL DEFAULT '[]',
   dependencies VARCHAR(30000) DEFAULT NULL,
   disable_log_archival BOOLEAN NOT NULL DEFAULT FALSE,
+  memoize BOOLEAN NOT NULL DEFAULT FALSE,
   email VARCHAR(255) DEFAULT NULL,
   tags VARCHAR(2048) DEFAULT NULL,
   cpu INT NOT NULL DEFAULT 1,
   memory INT NOT NULL DEFAULT 1560,
   client_host VARCHAR(255) DEFAULT NULL,
   applications VARCHAR(2048) NOT NULL DEFAULT '[]',
+  array_parameters TEXT DEFAULT NULL,
   timeout INT NOT NULL DEFAULT 604800,
   PRIMARY KEY (id)
 );
@@ -480,6 +482,7 @@ ALTER TABLE jobs ALTER COLUMN started SET DEFAULT NULL;
 ALTER TABLE jobs ALTER COLUMN finished TYPE TIMESTAMP(3) WITHOUT TIME ZONE;
 ALTER TABLE jobs ALTER COLUMN finished SET DEFAULT NULL;
 ALTER TABLE jobs ADD COLUMN tags VARCHAR(2048) DEFAULT NULL;
+ALTER TABLE jobs ADD COLUMN host_name VARCHAR(255) DEFAULT NULL;
 ALTER TABLE jobs DROP forwarded;
 ALTER TABLE jobs DROP applicationid;
 ALTER TABLE jobs DROP applicationname;
@@ -509,6 +512,7 @@ CREATE INDEX JOBS_CREATED_INDEX ON jobs (created);
 CREATE INDEX JOBS_CLUSTER_NAME_INDEX ON jobs (cluster_name);
 CREATE INDEX JOBS_COMMAND_NAME_INDEX ON jobs (command_name);
 CREATE INDEX JOBS_TAGS_INDEX ON jobs (tags);
+CREATE INDEX JOBS_HOST_NAME_INDEX ON jobs (host_name);
 SELECT CURRENT_TIMESTAMP, 'Successfully updated the jobs table.';
 
 SELECT CURRENT_TIMESTAMP, 'De-normalizing jobs tags for 3.0...';
@@ -525,6 +529,33 @@ SELECT CURRENT_TIMESTAMP, 'Dropping the job_tags table for 3.0...';
 DROP TABLE job_tags;
 SELECT CURRENT_TIMESTAMP, 'Successfully dropped the job_tags table.';
 
+SELECT CURRENT_TIMESTAMP, 'Creating the node_loads table...';
+CREATE TABLE node_loads (
+  id VARCHAR(255) NOT NULL PRIMARY KEY,
+  created TIMESTAMP(3) WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated TIMESTAMP(3) WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  entity_version INT NOT NULL DEFAULT 0,
+  running INT NOT NULL DEFAULT 0,
+  free_slots INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX NODE_LOADS_UPDATED_INDEX ON node_loads (updated);
+CREATE INDEX NODE_LOADS_FREE_SLOTS_INDEX ON node_loads (free_slots);
+SELECT CURRENT_TIMESTAMP, 'Successfully created the node_loads table.';
+
+SELECT CURRENT_TIMESTAMP, 'Creating the job_fingerprints table...';
+CREATE TABLE job_fingerprints (
+  id VARCHAR(255) NOT NULL PRIMARY KEY,
+  created TIMESTAMP(3) WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated TIMESTAMP(3) WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  entity_version INT NOT NULL DEFAULT 0,
+  fingerprint VARCHAR(64) NOT NULL,
+  FOREIGN KEY (id) REFERENCES jobs (id) ON DELETE CASCADE
+);
+
+CREATE INDEX JOB_FINGERPRINTS_FINGERPRINT_CREATED_INDEX ON job_fingerprints (fingerprint, created);
+SELECT CURRENT_TIMESTAMP, 'Successfully created the job_fingerprints table.';
+
 SELECT CURRENT_TIMESTAMP, 'Finished upgrading Genie schema from version 2.0.0 to 3.0.0';
 
 COMMIT;
@@ -23,19 +23,29 @@ import com.netflix.genie.core.jobs.workflow.impl.ApplicationTask;
 import com.netflix.genie.core.jobs.workflow.impl.ClusterTask;
 import com.netflix.genie.core.jobs.workflow.impl.CommandTask;
 import com.netflix.genie.core.jobs.workflow.impl.InitialSetupTask;
+import com.netflix.genie.core.jobs.workflow.impl.JobDirectoryAclTask;
 import com.netflix.genie.core.jobs.workflow.impl.JobKickoffTask;
 import com.netflix.genie.core.jobs.workflow.impl.JobFailureAndKillHandlerLogicTask;
 import com.netflix.genie.core.jobs.workflow.impl.JobTask;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.impl.HttpFileTransferImpl;
 import com.netflix.genie.core.services.impl.LocalFileTransferImpl;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.exec.Executor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 
+import java.util.Arrays;
+
 /**
  * Configuration for Jobs Setup and Run.
  *
@@ -43,16 +53,67 @@ import org.springframework.core.annotation.Order;
  * @since 3.0.0
  */
 @Configuration
+@Slf4j
 public class JobConfig {
     /**
      * Bean to create a local file transfer object.
      *
+     * @param linkPrefixes The local directories whose files are hard linked into job directories rather than copied
+     * @param runAsUser    Whether jobs are run as the user, in which case nothing is linked unless the user is given
+     *                     access to the job directory with ACLs
+     * @param acl          Whether the user is given access to the job directory with ACLs rather than ownership
      * @return A unix copy implementation of the FileTransferService.
      */
     @Bean
     @Order(value = 2)
-    public FileTransfer localFileTransfer() {
-        return new LocalFileTransferImpl(); }
+    public FileTransfer localFileTransfer(
+        @Value("${genie.jobs.files.local.linkPrefixes:}") final String[] linkPrefixes,
+        @Value("${genie.jobs.runAsUser.enabled:false}") final boolean runAsUser,
+        @Value("${genie.jobs.runAsUser.acl.enabled:false}") final boolean acl
+    ) {
+        if (runAsUser && !acl && linkPrefixes.length > 0) {
+            // The job directory is handed over to the user, which would hand over the linked files too
+            log.warn("Not linking local files as jobs are run as the user");
+            return new LocalFileTransferImpl();
+        }
+        return new LocalFileTransferImpl(Arrays.asList(linkPrefixes));
+    }
+
+    /**
+     * Bean to create a file transfer object for files on HTTP servers, e.g. artifact repositories.
+     *
+     * @param maxConnections         The maximum number of connections open at once across all servers
+     * @param maxConnectionsPerRoute The maximum number of connections open at once to a single server
+     * @param connectTimeout         How long, in milliseconds, to wait for a connection to be established
+     * @param readTimeout            How long, in milliseconds, to wait for data before giving up on a request
+     * @param registry               The metrics registry to use
+     * @return An HTTP implementation of the FileTransfer interface
+     */
+    @Bean
+    @Order(value = 1)
+    public FileTransfer httpFileTransfer(
+        @Value("${genie.jobs.files.http.maxConnections:50}") final int maxConnections,
+        @Value("${genie.jobs.files.http.maxConnectionsPerRoute:10}") final int maxConnectionsPerRoute,
+        @Value("${genie.jobs.files.http.connectTimeout:10000}") final int connectTimeout,
+        @Value("${genie.jobs.files.http.readTimeout:60000}") final int readTimeout,
+        final Registry registry
+    ) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        final RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(connectTimeout)
+            .setConnectionRequestTimeout(connectTimeout)
+            .setSocketTimeout(readTimeout)
+            .build();
+        return new HttpFileTransferImpl(
+            HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build(),
+            registry
+        );
+    }
 
 
     /**
@@ -66,13 +127,32 @@ public class JobConfig {
         return new JobFailureAndKillHandlerLogicTask();
     }
 
+    /**
+     * Create a task that gives the user the job is run as access to the job directory with ACLs before anything is
+     * put in it, rather than changing the ownership of the whole directory when the job is launched.
+     *
+     * @param isUserCreationEnabled Flag that tells if the user specified should be created
+     * @param executor              An instance of an executor
+     * @return A job directory ACL task object
+     */
+    @Bean
+    @Order(value = 1)
+    @ConditionalOnExpression("${genie.jobs.runAsUser.enabled:false} && ${genie.jobs.runAsUser.acl.enabled:false}")
+    public WorkflowTask jobDirectoryAclTask(
+        @Value("${genie.jobs.createUser.enabled:false}")
+        final boolean isUserCreationEnabled,
+        final Executor executor
+    ) {
+        return new JobDirectoryAclTask(isUserCreationEnabled, executor);
+    }
+
     /**
      * Create an setup Task bean that does initial setup before any of the tasks start.
      *
      * @return An initial setup task object
      */
     @Bean
-    @Order(value = 1)
+    @Order(value = 2)
     public WorkflowTask initialSetupTask() {
         return new InitialSetupTask();
     }
@@ -83,7 +163,7 @@ public class JobConfig {
      * @return An cluster task object
      */
     @Bean
-    @Order(value = 2)
+    @Order(value = 3)
     public WorkflowTask clusterProcessorTask() {
         return new ClusterTask();
     }
@@ -94,7 +174,7 @@ public class JobConfig {
      * @return An application task object
      */
     @Bean
-    @Order(value = 3)
+    @Order(value = 4)
     public WorkflowTask applicationProcessorTask() {
         return new ApplicationTask();
     }
@@ -105,7 +185,7 @@ public class JobConfig {
      * @return An command task object
      */
     @Bean
-    @Order(value = 4)
+    @Order(value = 5)
     public WorkflowTask commandProcessorTask() {
         return new CommandTask();
     }
@@ -120,7 +200,7 @@ public class JobConfig {
      * @throws GenieException if there is any problem
      */
     @Bean
-    @Order(value = 5)
+    @Order(value = 6)
     @Autowired
     public WorkflowTask jobProcessorTask(
         final AttachmentService attachmentService
@@ -133,22 +213,31 @@ public class JobConfig {
      *
      * @param isRunAsUserEnabled Flag that tells if job should be run as user specified in the request
      * @param isUserCreationEnabled Flag that tells if the user specified should be created
+     * @param isJobDirectoryAclEnabled Flag that tells if the user is given access to the job directory with ACLs
      * @param executor An instance of an executor
      * @param hostName Host on which the job will run
      *
      * @return An application task object
      */
     @Bean
-    @Order(value = 6)
+    @Order(value = 7)
     @Autowired
     public WorkflowTask jobKickoffTask(
         @Value("${genie.jobs.runAsUser.enabled:false}")
         final boolean isRunAsUserEnabled,
         @Value("${genie.jobs.createUser.enabled:false}")
         final boolean isUserCreationEnabled,
+        @Value("${genie.jobs.runAsUser.acl.enabled:false}")
+        final boolean isJobDirectoryAclEnabled,
         final Executor executor,
         final String hostName
         ) {
-        return new JobKickoffTask(isRunAsUserEnabled, isUserCreationEnabled, executor, hostName);
+        return new JobKickoffTask(
+            isRunAsUserEnabled,
+            isUserCreationEnabled,
+            isRunAsUserEnabled && isJobDirectoryAclEnabled,
+            executor,
+            hostName
+        );
     }
 }
@@ -18,22 +18,33 @@
 package com.netflix.genie.web.configs;
 
 import com.google.common.collect.Lists;
+import com.netflix.genie.web.controllers.RequestTimingInterceptor;
+import com.netflix.genie.web.filters.RateLimitFilter;
+import com.netflix.genie.web.properties.RateLimitProperties;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
 import com.netflix.genie.web.resources.writers.DefaultDirectoryWriter;
 import com.netflix.genie.web.resources.writers.DirectoryWriter;
+import com.netflix.spectator.api.Registry;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.MultipartProperties;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import javax.servlet.MultipartConfigElement;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
@@ -60,6 +71,37 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
         configurer.setUseRegisteredSuffixPatternMatch(true);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time the parsing of job submissions so it shows up in the launch timeline of the jobs.
+     */
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestTimingInterceptor()).addPathPatterns("/api/v3/jobs", "/api/v3/jobs/batch");
+    }
+
+    /**
+     * Get the filter which rate limits calls to the job APIs. Ordered after the Spring Security filters so the
+     * authenticated user is known when the client is identified.
+     *
+     * @param rateLimitProperties The limits to apply
+     * @param registry            The metrics registry to use
+     * @return The registration of the rate limit filter
+     */
+    @Bean
+    @ConditionalOnProperty("genie.rateLimit.enabled")
+    public FilterRegistrationBean rateLimitFilter(
+        final RateLimitProperties rateLimitProperties,
+        final Registry registry
+    ) {
+        final FilterRegistrationBean registration
+            = new FilterRegistrationBean(new RateLimitFilter(rateLimitProperties, registry));
+        registration.addUrlPatterns("/api/v3/jobs", "/api/v3/jobs/*");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
+
     /**
      * Get a resource loader.
      *
@@ -146,6 +188,33 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
         return jobsDirResource;
     }
 
+    /**
+     * Get the configuration of multipart requests. Unless a location is configured the parts are buffered in the
+     * uploads directory next to the jobs directory so attachments can be moved into place rather than copied.
+     *
+     * @param multipartProperties The multipart properties configured
+     * @param jobsDir             The directory the jobs are run in
+     * @return The multipart configuration
+     * @throws IOException on error resolving or creating the uploads directory
+     */
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+        final MultipartProperties multipartProperties,
+        final Resource jobsDir
+    ) throws IOException {
+        if (!StringUtils.hasText(multipartProperties.getLocation())) {
+            final File jobsDirParent = jobsDir.getFile().getAbsoluteFile().getParentFile();
+            if (jobsDirParent != null) {
+                final File uploadsDir = new File(jobsDirParent, "uploads");
+                if (!uploadsDir.isDirectory() && !uploadsDir.mkdirs()) {
+                    throw new IllegalStateException("Unable to create uploads directory " + uploadsDir);
+                }
+                multipartProperties.setLocation(uploadsDir.getAbsolutePath());
+            }
+        }
+        return multipartProperties.createMultipartConfig();
+    }
+
     /**
      * Get a static resource handler for Genie Jobs.
      *
@@ -23,34 +23,60 @@ import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
 import com.netflix.genie.core.jpa.repositories.JpaCommandRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
+import com.netflix.genie.core.jpa.repositories.JpaJobFingerprintRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
+import com.netflix.genie.core.jpa.repositories.JpaNodeLoadRepository;
 import com.netflix.genie.core.jpa.services.JpaApplicationServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaClusterServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaCommandServiceImpl;
+import com.netflix.genie.core.jpa.services.JpaJobMemoizationServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobPersistenceServiceImpl;
+import com.netflix.genie.core.jpa.services.JpaJobResolverServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobSearchServiceImpl;
+import com.netflix.genie.core.jpa.services.JpaNodeLoadServiceImpl;
 import com.netflix.genie.core.metrics.GenieNodeStatistics;
 import com.netflix.genie.core.metrics.impl.GenieNodeStatisticsImpl;
 import com.netflix.genie.core.services.ApplicationService;
 import com.netflix.genie.core.services.ClusterLoadBalancer;
 import com.netflix.genie.core.services.ClusterService;
 import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.core.services.DependencyWarmingService;
 import com.netflix.genie.core.services.FileTransfer;
 import com.netflix.genie.core.services.JobCoordinatorService;
-import com.netflix.genie.core.services.JobCountService;
 import com.netflix.genie.core.services.JobKillService;
+import com.netflix.genie.core.services.JobMemoizationService;
 import com.netflix.genie.core.services.JobPersistenceService;
+import com.netflix.genie.core.services.JobQuotaService;
+import com.netflix.genie.core.services.JobResolverService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobSlotService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
 import com.netflix.genie.core.services.MailService;
+import com.netflix.genie.core.services.NodeLoadService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.genie.core.services.TransferPriority;
 import com.netflix.genie.core.services.impl.DefaultMailServiceImpl;
+import com.netflix.genie.core.services.impl.DiskDependencyCacheServiceImpl;
+import com.netflix.genie.core.services.impl.DiskStagedEnvironmentServiceImpl;
+import com.netflix.genie.core.services.impl.FileTransferScheduler;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.core.services.impl.JobStagingService;
+import com.netflix.genie.core.services.impl.LocalDependencyWarmingServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobKillServiceImpl;
+import com.netflix.genie.core.services.impl.LocalJobQuotaServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobRunner;
+import com.netflix.genie.core.services.impl.LocalJobSlotServiceImpl;
+import com.netflix.genie.core.services.impl.LocalJobTimelineServiceImpl;
 import com.netflix.genie.core.services.impl.MailServiceImpl;
 import com.netflix.genie.core.services.impl.RandomizedClusterLoadBalancerImpl;
+import com.netflix.genie.core.services.impl.SnapshotJobResolverServiceImpl;
+import com.netflix.genie.web.properties.FileTransferProperties;
+import com.netflix.genie.web.properties.JobQuotaProperties;
 import com.netflix.spectator.api.Registry;
+import com.sun.management.OperatingSystemMXBean;
 import org.apache.commons.exec.Executor;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -59,11 +85,19 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.Resource;
-import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Configuration for all the services.
@@ -74,6 +108,8 @@ import java.util.List;
 @Configuration
 public class ServicesConfig {
 
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
     /**
      * Returns a bean for mail service impl using the Spring Mail.
      *
@@ -126,46 +162,52 @@ public class ServicesConfig {
      *
      * @param applicationRepo The application repository to use.
      * @param commandRepo     The command repository to use.
+     * @param eventPublisher  The application event publisher to use.
      * @return An application service instance.
      */
     @Bean
     public ApplicationService applicationService(
         final JpaApplicationRepository applicationRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaApplicationServiceImpl(applicationRepo, commandRepo);
+        return new JpaApplicationServiceImpl(applicationRepo, commandRepo, eventPublisher);
     }
 
     /**
      * Get JPA based implementation of the ClusterService.
      *
-     * @param clusterRepo The cluster repository to use.
-     * @param commandRepo The command repository to use.
+     * @param clusterRepo    The cluster repository to use.
+     * @param commandRepo    The command repository to use.
+     * @param eventPublisher The application event publisher to use.
      * @return A cluster service instance.
      */
     @Bean
     public ClusterService clusterService(
         final JpaClusterRepository clusterRepo,
-        final JpaCommandRepository commandRepo
+        final JpaCommandRepository commandRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaClusterServiceImpl(clusterRepo, commandRepo);
+        return new JpaClusterServiceImpl(clusterRepo, commandRepo, eventPublisher);
     }
 
     /**
      * Get JPA based implementation of the CommandService.
      *
-     * @param commandRepo the command repository to use
-     * @param appRepo     the application repository to use
-     * @param clusterRepo the cluster repository to use
+     * @param commandRepo    the command repository to use
+     * @param appRepo        the application repository to use
+     * @param clusterRepo    the cluster repository to use
+     * @param eventPublisher the application event publisher to use
      * @return A command service instance.
      */
     @Bean
     public CommandService commandService(
         final JpaCommandRepository commandRepo,
         final JpaApplicationRepository appRepo,
-        final JpaClusterRepository clusterRepo
+        final JpaClusterRepository clusterRepo,
+        final ApplicationEventPublisher eventPublisher
     ) {
-        return new JpaCommandServiceImpl(commandRepo, appRepo, clusterRepo);
+        return new JpaCommandServiceImpl(commandRepo, appRepo, clusterRepo, eventPublisher);
     }
 
     /**
@@ -185,6 +227,62 @@ public class ServicesConfig {
         return new JpaJobSearchServiceImpl(jobRepository, jobRequestRepository, jobExecutionRepository);
     }
 
+    /**
+     * Get JPA based implementation of the JobResolverService.
+     *
+     * @param clusterRepo         The cluster repository to use
+     * @param applicationRepo     The application repository to use
+     * @param clusterLoadBalancer The load balancer to use to pick a cluster for the job
+     * @return A job resolver service instance.
+     */
+    @Bean
+    public JobResolverService jobResolverService(
+        final JpaClusterRepository clusterRepo,
+        final JpaApplicationRepository applicationRepo,
+        final ClusterLoadBalancer clusterLoadBalancer
+    ) {
+        return new JpaJobResolverServiceImpl(clusterRepo, applicationRepo, clusterLoadBalancer);
+    }
+
+    /**
+     * Get a JobResolverService which resolves jobs against an in memory snapshot of the configuration. Takes
+     * precedence over the JPA based resolver, which it falls back to when the snapshot can't resolve a request.
+     *
+     * @param jobResolverService  The database backed resolver to fall back to
+     * @param clusterService      The cluster service to load clusters from
+     * @param commandService      The command service to load commands from
+     * @param applicationService  The application service to load applications from
+     * @param clusterLoadBalancer The load balancer to use to pick a cluster for the job
+     * @param taskScheduler       The scheduler used to periodically reconcile the snapshot with the database
+     * @param refreshRate         How often, in milliseconds, to reconcile the snapshot with the database
+     * @param registry            The metrics registry to use
+     * @return A snapshot based job resolver service instance.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty("genie.jobs.resolution.snapshot.enabled")
+    public JobResolverService snapshotJobResolverService(
+        @Qualifier("jobResolverService") final JobResolverService jobResolverService,
+        final ClusterService clusterService,
+        final CommandService commandService,
+        final ApplicationService applicationService,
+        final ClusterLoadBalancer clusterLoadBalancer,
+        final TaskScheduler taskScheduler,
+        @Value("${genie.jobs.resolution.snapshot.refreshRate:60000}") final long refreshRate,
+        final Registry registry
+    ) {
+        return new SnapshotJobResolverServiceImpl(
+            jobResolverService,
+            clusterService,
+            commandService,
+            applicationService,
+            clusterLoadBalancer,
+            taskScheduler,
+            refreshRate,
+            registry
+        );
+    }
+
     /**
      * Get JPA based implementation of the JobPersistenceService.
      *
@@ -247,29 +345,213 @@ public class ServicesConfig {
         return new RandomizedClusterLoadBalancerImpl();
     }
 
+    /**
+     * Get the scheduler all the file transfers of this node go through.
+     *
+     * @param fileTransferProperties The limits of each class of transfers
+     * @param registry               The metrics registry to use
+     * @return The file transfer scheduler
+     */
+    @Bean
+    public FileTransferScheduler fileTransferScheduler(
+        final FileTransferProperties fileTransferProperties,
+        final Registry registry
+    ) {
+        final Map<TransferPriority, FileTransferProperties.Limits> limits = new EnumMap<>(TransferPriority.class);
+        limits.put(TransferPriority.LAUNCH, fileTransferProperties.getLaunch());
+        limits.put(TransferPriority.ARCHIVE, fileTransferProperties.getArchive());
+        limits.put(TransferPriority.WARM, fileTransferProperties.getWarm());
+
+        final Map<TransferPriority, Integer> maxConcurrent = new EnumMap<>(TransferPriority.class);
+        final Map<TransferPriority, Long> maxBytesPerSecond = new EnumMap<>(TransferPriority.class);
+        limits.forEach(
+            (priority, limit) -> {
+                maxConcurrent.put(priority, limit.getMaxConcurrent());
+                maxBytesPerSecond.put(priority, limit.getMaxBytesPerSecond());
+            }
+        );
+        return new FileTransferScheduler(
+            fileTransferProperties.getMaxConcurrent(),
+            maxConcurrent,
+            maxBytesPerSecond,
+            registry
+        );
+    }
+
     /**
      * Get an instance of the Genie File Transfer service.
      *
      * @param fileTransferImpls List of implementations of all fileTransfer interface
+     * @param scheduler         The scheduler all the transfers go through
      * @return A singleton for GenieFileTransferService
      * @throws GenieException If there is any problem
      */
     @Bean
     public GenieFileTransferService genieFileTransferService(
-        final List<FileTransfer> fileTransferImpls
+        final List<FileTransfer> fileTransferImpls,
+        final FileTransferScheduler scheduler
     ) throws GenieException {
-        return new GenieFileTransferService(fileTransferImpls);
+        return new GenieFileTransferService(fileTransferImpls, scheduler);
+    }
+
+    /**
+     * Get the cache on the local disk of the files jobs need.
+     *
+     * @param fts       File Transfer service.
+     * @param cacheDir  The directory to keep the cache in.
+     * @param maxSize   The size, in bytes, to keep the cache under. 0 to not cache anything.
+     * @param link      Whether jobs are given read only hard links to the cached files rather than copies.
+     * @param runAsUser Whether jobs on this instance are run as the user, in which case files are only linked if
+     *                  the user is given access to the job directory with ACLs.
+     * @param acl       Whether the user is given access to the job directory with ACLs rather than ownership.
+     * @param registry  The metrics registry to use.
+     * @return The dependency cache service bean.
+     * @throws GenieException If the cache directory can't be set up
+     */
+    @Bean
+    public DependencyCacheService dependencyCacheService(
+        final GenieFileTransferService fts,
+        @Value("${genie.jobs.dependencies.cache.location:/tmp/genie/cache/}") final String cacheDir,
+        @Value("${genie.jobs.dependencies.cache.maxSize:10737418240}") final long maxSize,
+        @Value("${genie.jobs.dependencies.cache.link.enabled:false}") final boolean link,
+        @Value("${genie.jobs.runAsUser.enabled:false}") final boolean runAsUser,
+        @Value("${genie.jobs.runAsUser.acl.enabled:false}") final boolean acl,
+        final Registry registry
+    ) throws GenieException {
+        // Files linked into a job directory which is handed over to the user would be handed over with it
+        final boolean linkFiles = link && (!runAsUser || acl);
+        return new DiskDependencyCacheServiceImpl(fts, new File(cacheDir), maxSize, linkFiles, registry);
+    }
+
+    /**
+     * Get the service which fills the dependency cache with the files of the clusters, commands and applications
+     * jobs can use.
+     *
+     * @param clusterService         The cluster service to use
+     * @param commandService         The command service to use
+     * @param applicationService     The application service to use
+     * @param dependencyCacheService The cache to warm
+     * @param budget                 The maximum number of bytes each warming downloads
+     * @param registry               The metrics registry to use
+     * @return The dependency warming service
+     */
+    @Bean
+    @ConditionalOnProperty("genie.jobs.dependencies.warm.enabled")
+    public DependencyWarmingService dependencyWarmingService(
+        final ClusterService clusterService,
+        final CommandService commandService,
+        final ApplicationService applicationService,
+        final DependencyCacheService dependencyCacheService,
+        @Value("${genie.jobs.dependencies.warm.budget:5368709120}") final long budget,
+        final Registry registry
+    ) {
+        return new LocalDependencyWarmingServiceImpl(
+            clusterService,
+            commandService,
+            applicationService,
+            dependencyCacheService,
+            budget,
+            registry
+        );
+    }
+
+    /**
+     * Get the trees of the files of clusters, commands and applications shared by the jobs on this node.
+     *
+     * @param dcs           The cache to fetch the files through.
+     * @param fts           The file transfer service used to tell whether the files changed.
+     * @param rootDir       The directory to keep the trees in.
+     * @param jobsDir       The directory of the job directories which link to the trees.
+     * @param taskScheduler The scheduler used to periodically delete the trees of older versions.
+     * @param cleanupRate   How often, in milliseconds, to delete the trees of older versions.
+     * @param registry      The metrics registry to use.
+     * @return The staged environment service bean.
+     * @throws IOException If the jobs directory can't be resolved
+     */
+    @Bean
+    public StagedEnvironmentService stagedEnvironmentService(
+        final DependencyCacheService dcs,
+        final GenieFileTransferService fts,
+        @Value("${genie.jobs.environments.location:/tmp/genie/environments/}") final String rootDir,
+        final Resource jobsDir,
+        final TaskScheduler taskScheduler,
+        @Value("${genie.jobs.environments.cleanup.rate:3600000}") final long cleanupRate,
+        final Registry registry
+    ) throws IOException {
+        return new DiskStagedEnvironmentServiceImpl(
+            dcs,
+            fts,
+            new File(rootDir),
+            jobsDir.getFile(),
+            taskScheduler,
+            cleanupRate,
+            registry
+        );
+    }
+
+    /**
+     * Get the service which stages the files each job needs concurrently on a bounded I/O pool.
+     *
+     * @param dcs                       The cache to fetch the files through.
+     * @param ses                       The shared trees of the files of entities to link jobs to.
+     * @param environmentsEnabled       Whether jobs link to shared trees rather than fetching the files of entities.
+     * @param jobTimelineService        The service to record the launch timelines of jobs with.
+     * @param maxConcurrentFilesPerNode The maximum number of files to fetch at once across all jobs on this node.
+     * @param queueCapacity             The maximum number of files waiting to be fetched across all jobs.
+     * @param maxConcurrentFilesPerJob  The maximum number of files to fetch at once for a single job.
+     * @param timeout                   How long, in milliseconds, to wait for the files of a job to be staged.
+     * @param registry                  The metrics registry to use.
+     * @return The job staging service bean.
+     */
+    @Bean
+    public JobStagingService jobStagingService(
+        final DependencyCacheService dcs,
+        final StagedEnvironmentService ses,
+        @Value("${genie.jobs.environments.enabled:false}") final boolean environmentsEnabled,
+        final JobTimelineService jobTimelineService,
+        @Value("${genie.jobs.staging.concurrency.node:16}") final int maxConcurrentFilesPerNode,
+        @Value("${genie.jobs.staging.queue.capacity:1000}") final int queueCapacity,
+        @Value("${genie.jobs.staging.concurrency.job:8}") final int maxConcurrentFilesPerJob,
+        @Value("${genie.jobs.staging.timeout:1800000}") final long timeout,
+        final Registry registry
+    ) {
+        return new JobStagingService(
+            dcs,
+            environmentsEnabled ? ses : null,
+            jobTimelineService,
+            maxConcurrentFilesPerNode,
+            queueCapacity,
+            maxConcurrentFilesPerJob,
+            timeout,
+            registry
+        );
+    }
+
+    /**
+     * Get the service which records how long each stage of launching a job takes on this node.
+     *
+     * @param maxJobs  The maximum number of job timelines to keep in memory.
+     * @param registry The metrics registry to use.
+     * @return The job timeline service bean.
+     */
+    @Bean
+    public JobTimelineService jobTimelineService(
+        @Value("${genie.jobs.timeline.maxJobs:10000}") final int maxJobs,
+        final Registry registry
+    ) {
+        return new LocalJobTimelineServiceImpl(maxJobs, registry);
     }
 
     /**
      * Get a implementation of the JobSubmitterService that runs jobs locally.
      *
      * @param jps                 Implementation of the job persistence service.
-     * @param applicationService  Implementation of application service interface.
-     * @param clusterService      Implementation of cluster service interface.
-     * @param commandService      Implementation of command service interface.
-     * @param clusterLoadBalancer Implementation of the cluster load balancer interface.
+     * @param jobResolverService  Implementation of the job resolver service interface.
      * @param fts                 File Transfer service.
+     * @param jss                 Service to stage the files each job needs.
+     * @param jts                 Service to record the launch timelines of jobs.
+     * @param jobKickoffExecutor  Executor to launch jobs on once their files are staged.
+     * @param jms                 Service to save the fingerprints of memoized jobs with.
      * @param aep                 Instance of the event publisher.
      * @param workflowTasks       List of all the workflow tasks to be executed.
      * @param genieWorkingDir     Working directory for genie where it creates jobs directories.
@@ -278,65 +560,196 @@ public class ServicesConfig {
     @Bean
     public JobSubmitterService jobSubmitterService(
         final JobPersistenceService jps,
-        final ApplicationService applicationService,
-        final ClusterService clusterService,
-        final CommandService commandService,
-        final ClusterLoadBalancer clusterLoadBalancer,
+        final JobResolverService jobResolverService,
         final GenieFileTransferService fts,
+        final JobStagingService jss,
+        final JobTimelineService jts,
+        @Qualifier("jobKickoffExecutor") final ExecutorService jobKickoffExecutor,
+        final JobMemoizationService jms,
         final ApplicationEventPublisher aep,
         final List<WorkflowTask> workflowTasks,
         final Resource genieWorkingDir
     ) {
         return new LocalJobRunner(
             jps,
-            applicationService,
-            clusterService,
-            commandService,
-            clusterLoadBalancer,
+            jobResolverService,
             fts,
+            jss,
+            jts,
+            jobKickoffExecutor,
+            jms,
             aep,
             workflowTasks,
             genieWorkingDir
         );
     }
 
+    /**
+     * Get the service which shares the load of this node with the other nodes through the database.
+     *
+     * @param nodeLoadRepository The repository to store the node loads in
+     * @param loadExpiry         How long, in milliseconds, the load published by a node is trusted for
+     * @return The node load service
+     */
+    @Bean
+    public NodeLoadService nodeLoadService(
+        final JpaNodeLoadRepository nodeLoadRepository,
+        @Value("${genie.jobs.forwarding.loadExpiry:30000}")
+        final long loadExpiry
+    ) {
+        return new JpaNodeLoadServiceImpl(nodeLoadRepository, loadExpiry);
+    }
+
+    /**
+     * Get the service which answers memoized job requests with a recent identical successful job.
+     *
+     * @param jobFingerprintRepository The repository to store the fingerprints of jobs in
+     * @param jobSearchService         The job search service to use to find the previous jobs
+     * @param jobResolverService       The job resolver service to use to resolve what a request would run with
+     * @param fts                      File Transfer service to get the content hash of the files of jobs with
+     * @param ttl                      How long, in milliseconds, a successful job can be returned for
+     * @return The job memoization service
+     */
+    @Bean
+    public JobMemoizationService jobMemoizationService(
+        final JpaJobFingerprintRepository jobFingerprintRepository,
+        final JobSearchService jobSearchService,
+        final JobResolverService jobResolverService,
+        final GenieFileTransferService fts,
+        @Value("${genie.jobs.memoization.ttl:86400000}")
+        final long ttl
+    ) {
+        return new JpaJobMemoizationServiceImpl(
+            jobFingerprintRepository,
+            jobSearchService,
+            jobResolverService,
+            fts,
+            ttl
+        );
+    }
+
+    /**
+     * Get the service which hands out job slots on this node. When resource aware admission is enabled jobs also
+     * reserve the cpu and memory they request against the capacity of the node. If the capacity isn't configured
+     * it is detected from the operating system.
+     *
+     * @param maxRunningJobs   The maximum number of jobs that can run on this node
+     * @param resourcesEnabled Whether to admit jobs based on the cpu and memory they request
+     * @param cpu              The number of cpus jobs can reserve. Detected if not positive
+     * @param memory           The memory, in MB, jobs can reserve. Detected if not positive
+     * @param jobSearchService The job search service to use to find jobs already running on this node
+     * @param hostName         The name of the host this Genie node is running on
+     * @return The job slot service
+     */
+    @Bean
+    public JobSlotService jobSlotService(
+        @Value("${genie.jobs.max.running:2}")
+        final int maxRunningJobs,
+        @Value("${genie.jobs.resources.enabled:false}")
+        final boolean resourcesEnabled,
+        @Value("${genie.jobs.resources.cpu:0}")
+        final int cpu,
+        @Value("${genie.jobs.resources.memory:0}")
+        final long memory,
+        final JobSearchService jobSearchService,
+        final String hostName
+    ) {
+        int maxCpu = Integer.MAX_VALUE;
+        long maxMemory = Long.MAX_VALUE;
+        if (resourcesEnabled) {
+            maxCpu = cpu > 0 ? cpu : Runtime.getRuntime().availableProcessors();
+            maxMemory = memory > 0
+                ? memory
+                : ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalPhysicalMemorySize()
+                / BYTES_PER_MB;
+        }
+        return new LocalJobSlotServiceImpl(maxRunningJobs, maxCpu, maxMemory, jobSearchService, hostName);
+    }
+
+    /**
+     * Get the service which limits how many jobs each user and group can run on this node and weighs how the node
+     * is shared between users when jobs are waiting.
+     *
+     * @param jobQuotaProperties The limits and weights of the users and groups
+     * @param jobSearchService   The job search service to use to find jobs already running on this node
+     * @param hostName           The name of the host this Genie node is running on
+     * @param registry           The metrics registry to use
+     * @return The job quota service
+     */
+    @Bean
+    public JobQuotaService jobQuotaService(
+        final JobQuotaProperties jobQuotaProperties,
+        final JobSearchService jobSearchService,
+        final String hostName,
+        final Registry registry
+    ) {
+        return new LocalJobQuotaServiceImpl(
+            jobQuotaProperties.getDefaultUserLimit(),
+            jobQuotaProperties.getUsers(),
+            jobQuotaProperties.getGroups(),
+            jobQuotaProperties.getWeights(),
+            jobSearchService,
+            hostName,
+            registry
+        );
+    }
+
     /**
      * Get an instance of the JobCoordinatorService.
      *
-     * @param taskExecutor          The task executor to use
+     * @param jobResolutionExecutor The executor to resolve and set up jobs on
      * @param jobPersistenceService implementation of job persistence service interface
      * @param jobSubmitterService   implementation of the job submitter service
      * @param jobKillService        The job kill service to use
-     * @param jobCountService       The job count service to use
+     * @param jobSlotService        The job slot service to use
+     * @param jobQuotaService       The job quota service to use
+     * @param jobMemoizationService The service to find previous runs of memoized job requests with
+     * @param jobTimelineService    The service to record the launch timelines of jobs with
      * @param baseArchiveLocation   The base directory location of where the job dir should be archived
-     * @param maxRunningJobs        The maximum number of jobs that can run on this node
+     * @param hostName              The name of this host
+     * @param maxQueuedJobs         The maximum number of jobs that can wait for a free slot on this node
+     * @param queueRetryAfter       The number of seconds clients should wait to retry when the queue is full
+     * @param rejectOverQuota       Whether to reject jobs of users over their quota rather than queue them
      * @param registry              The metrics registry to use
      * @param eventPublisher        The application event publisher to use
      * @return An instance of the JobCoordinatorService.
      */
     @Bean
     public JobCoordinatorService jobCoordinatorService(
-        final AsyncTaskExecutor taskExecutor,
+        @Qualifier("jobResolutionExecutor") final ExecutorService jobResolutionExecutor,
         final JobPersistenceService jobPersistenceService,
         final JobSubmitterService jobSubmitterService,
         final JobKillService jobKillService,
-        @Qualifier("jobMonitoringCoordinator")
-        final JobCountService jobCountService,
+        final JobSlotService jobSlotService,
+        final JobQuotaService jobQuotaService,
+        final JobMemoizationService jobMemoizationService,
+        final JobTimelineService jobTimelineService,
         @Value("${genie.jobs.archive.location}")
         final String baseArchiveLocation,
-        @Value("${genie.jobs.max.running:2}")
-        final int maxRunningJobs,
+        final String hostName,
+        @Value("${genie.jobs.max.queued:0}")
+        final int maxQueuedJobs,
+        @Value("${genie.jobs.queue.retryAfter:30}")
+        final long queueRetryAfter,
+        @Value("${genie.jobs.quotas.rejectOverQuota:false}")
+        final boolean rejectOverQuota,
         final Registry registry,
         final ApplicationEventPublisher eventPublisher
     ) {
         return new JobCoordinatorService(
-            taskExecutor,
+            new ConcurrentTaskExecutor(jobResolutionExecutor),
             jobPersistenceService,
             jobSubmitterService,
             jobKillService,
-            jobCountService,
+            jobSlotService,
+            jobQuotaService,
+            jobMemoizationService,
+            jobTimelineService,
             baseArchiveLocation,
-            maxRunningJobs,
+            hostName,
+            maxQueuedJobs,
+            queueRetryAfter,
+            rejectOverQuota,
             registry,
             eventPublisher
         );
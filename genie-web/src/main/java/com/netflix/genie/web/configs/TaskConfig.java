@@ -17,9 +17,11 @@
  */
 package com.netflix.genie.web.configs;
 
+import com.netflix.genie.core.util.InstrumentedThreadPoolExecutor;
 import com.netflix.genie.web.tasks.leader.LeadershipTask;
 import com.netflix.genie.web.tasks.leader.LeadershipTasksCoordinator;
 import com.netflix.genie.web.tasks.leader.LocalLeader;
+import com.netflix.spectator.api.Registry;
 import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.Executor;
 import org.apache.commons.exec.PumpStreamHandler;
@@ -29,12 +31,12 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * Configuration of beans for asynchronous tasks within Genie.
@@ -71,16 +73,51 @@ public class TaskConfig {
     }
 
     /**
-     * Get a task executor for executing tasks asynchronously that don't need to be scheduled at a recurring rate.
+     * Get the executor jobs are resolved and set up on. Its queue is bounded and jobs which don't fit are rejected
+     * and marked failed rather than piling up behind the ones already waiting.
      *
-     * @param poolSize The number of threads desired for this system. Likely best to do one more than number of CPUs
-     * @return The task executor the system to use
+     * @param poolSize      The number of jobs which can be set up at once
+     * @param queueCapacity The maximum number of jobs waiting to be set up
+     * @param registry      The metrics registry to use
+     * @return The executor to resolve and set up jobs on
      */
     @Bean
-    public AsyncTaskExecutor taskExecutor(@Value("${genie.tasks.executor.pool.size:1}") final int poolSize) {
-        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(poolSize);
-        return executor;
+    public ExecutorService jobResolutionExecutor(
+        @Value("${genie.jobs.launch.resolution.pool.size:1}") final int poolSize,
+        @Value("${genie.jobs.launch.resolution.queue.capacity:1000}") final int queueCapacity,
+        final Registry registry
+    ) {
+        return new InstrumentedThreadPoolExecutor(
+            "genie.jobs.launch.resolution",
+            poolSize,
+            queueCapacity,
+            new ThreadPoolExecutor.AbortPolicy(),
+            registry
+        );
+    }
+
+    /**
+     * Get the executor job processes are launched on once all their files are staged. When its queue is full the
+     * thread finishing the staging launches the job itself.
+     *
+     * @param poolSize      The number of jobs which can be launched at once
+     * @param queueCapacity The maximum number of staged jobs waiting to be launched
+     * @param registry      The metrics registry to use
+     * @return The executor to launch jobs on
+     */
+    @Bean
+    public ExecutorService jobKickoffExecutor(
+        @Value("${genie.jobs.launch.kickoff.pool.size:2}") final int poolSize,
+        @Value("${genie.jobs.launch.kickoff.queue.capacity:1000}") final int queueCapacity,
+        final Registry registry
+    ) {
+        return new InstrumentedThreadPoolExecutor(
+            "genie.jobs.launch.kickoff",
+            poolSize,
+            queueCapacity,
+            new ThreadPoolExecutor.CallerRunsPolicy(),
+            registry
+        );
     }
 
     /**
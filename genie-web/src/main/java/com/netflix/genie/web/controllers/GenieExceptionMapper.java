@@ -25,10 +25,12 @@ import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
 import com.netflix.genie.common.exceptions.GenieTimeoutException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
 import com.netflix.genie.core.util.MetricsConstants;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -56,6 +58,7 @@ public class GenieExceptionMapper {
     private final Counter serverRate;
     private final Counter serverUnavailableRate;
     private final Counter timeoutRate;
+    private final Counter tooManyRequestsRate;
     private final Counter genieRate;
     private final Counter constraintViolationRate;
 
@@ -73,6 +76,7 @@ public class GenieExceptionMapper {
         this.serverRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_SERVER_RATE);
         this.serverUnavailableRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_SERVER_UNAVAILABLE_RATE);
         this.timeoutRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_TIMEOUT_RATE);
+        this.tooManyRequestsRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_TOO_MANY_REQUESTS_RATE);
         this.genieRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_OTHER_RATE);
         this.constraintViolationRate = registry.counter(MetricsConstants.GENIE_EXCEPTIONS_CONSTRAINT_VIOLATION_RATE);
     }
@@ -103,6 +107,12 @@ public class GenieExceptionMapper {
             this.serverUnavailableRate.increment();
         } else if (e instanceof GenieTimeoutException) {
             this.timeoutRate.increment();
+        } else if (e instanceof GenieTooManyRequestsException) {
+            this.tooManyRequestsRate.increment();
+            response.setHeader(
+                HttpHeaders.RETRY_AFTER,
+                Long.toString(((GenieTooManyRequestsException) e).getRetryAfterSeconds())
+            );
         } else {
             this.genieRate.increment();
         }
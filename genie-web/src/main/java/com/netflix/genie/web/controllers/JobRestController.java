@@ -18,8 +18,12 @@
 package com.netflix.genie.web.controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.ByteStreams;
+import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.search.JobSearchResult;
@@ -27,9 +31,12 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobTimeline;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.JobCoordinatorService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.NodeLoadService;
 import com.netflix.genie.web.hateoas.assemblers.ApplicationResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.ClusterResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.CommandResourceAssembler;
@@ -55,7 +62,13 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -87,6 +100,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ConnectException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Enumeration;
@@ -108,9 +123,12 @@ import java.util.stream.Collectors;
 public class JobRestController {
 
     private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final int MAX_BATCH_SIZE = 500;
 
     private final JobCoordinatorService jobCoordinatorService;
     private final JobSearchService jobSearchService;
+    private final JobTimelineService jobTimelineService;
+    private final NodeLoadService nodeLoadService;
     private final AttachmentService attachmentService;
     private final ApplicationResourceAssembler applicationResourceAssembler;
     private final ClusterResourceAssembler clusterResourceAssembler;
@@ -123,13 +141,18 @@ public class JobRestController {
     private final HttpClient httpClient;
     private final GenieResourceHttpRequestHandler resourceHttpRequestHandler;
     private final JobForwardingProperties jobForwardingProperties;
+    private final ObjectMapper mapper = new ObjectMapper();
 
     // Metrics
     private final Counter submitJobRate;
     private final Counter submitJobWithoutAttachmentsRate;
     private final Counter submitJobWithAttachmentsRate;
+    private final Counter submitJobsRate;
+    private final Counter submitJobForwardedRate;
+    private final Counter submitJobForwardFailureRate;
     private final Counter getJobRate;
     private final Counter getJobStatusRate;
+    private final Counter getJobTimelineRate;
     private final Counter findJobsRate;
     private final Counter killJobRate;
     private final Counter getJobRequestRate;
@@ -144,6 +167,8 @@ public class JobRestController {
      *
      * @param jobCoordinatorService            The job coordinator service to use.
      * @param jobSearchService                 The search service to use
+     * @param jobTimelineService               The service holding the launch timelines of jobs
+     * @param nodeLoadService                  The service to find the least loaded node to forward jobs to
      * @param attachmentService                The attachment service to use to save attachments.
      * @param applicationResourceAssembler     Assemble application resources out of applications
      * @param clusterResourceAssembler         Assemble cluster resources out of applications
@@ -163,6 +188,8 @@ public class JobRestController {
     public JobRestController(
         final JobCoordinatorService jobCoordinatorService,
         final JobSearchService jobSearchService,
+        final JobTimelineService jobTimelineService,
+        final NodeLoadService nodeLoadService,
         final AttachmentService attachmentService,
         final ApplicationResourceAssembler applicationResourceAssembler,
         final ClusterResourceAssembler clusterResourceAssembler,
@@ -179,6 +206,8 @@ public class JobRestController {
     ) {
         this.jobCoordinatorService = jobCoordinatorService;
         this.jobSearchService = jobSearchService;
+        this.jobTimelineService = jobTimelineService;
+        this.nodeLoadService = nodeLoadService;
         this.attachmentService = attachmentService;
         this.applicationResourceAssembler = applicationResourceAssembler;
         this.clusterResourceAssembler = clusterResourceAssembler;
@@ -196,8 +225,12 @@ public class JobRestController {
         this.submitJobRate = registry.counter("genie.api.v3.jobs.submitJob.rate");
         this.submitJobWithoutAttachmentsRate = registry.counter("genie.api.v3.jobs.submitJobWithoutAttachments.rate");
         this.submitJobWithAttachmentsRate = registry.counter("genie.api.v3.jobs.submitJobWithAttachments.rate");
+        this.submitJobsRate = registry.counter("genie.api.v3.jobs.submitJobs.rate");
+        this.submitJobForwardedRate = registry.counter("genie.api.v3.jobs.submitJob.forwarded.rate");
+        this.submitJobForwardFailureRate = registry.counter("genie.api.v3.jobs.submitJob.forwardFailure.rate");
         this.getJobRate = registry.counter("genie.api.v3.jobs.getJob.rate");
         this.getJobStatusRate = registry.counter("genie.api.v3.jobs.getJobStatus.rate");
+        this.getJobTimelineRate = registry.counter("genie.api.v3.jobs.getJobTimeline.rate");
         this.findJobsRate = registry.counter("genie.api.v3.jobs.findJobs.rate");
         this.killJobRate = registry.counter("genie.api.v3.jobs.killJob.rate");
         this.getJobRequestRate = registry.counter("genie.api.v3.jobs.getJobRequest.rate");
@@ -219,7 +252,7 @@ public class JobRestController {
      */
     @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public ResponseEntity<Void> submitJob(
+    public ResponseEntity<byte[]> submitJob(
         @RequestBody
         final JobRequest jobRequest,
         @RequestHeader(value = FORWARDED_FOR_HEADER, required = false)
@@ -242,18 +275,19 @@ public class JobRestController {
     }
 
     /**
-     * Submit a new job with attachments.
+     * Submit a new job with attachments. If this node can't take any more jobs and forwarding is enabled the job,
+     * attachments included, is forwarded to the least loaded node instead of being rejected.
      *
      * @param jobRequest         The job request information
      * @param attachments        The attachments for the job
      * @param clientHost         client host sending the request
      * @param httpServletRequest The http servlet request
-     * @return The submitted job
+     * @return The submitted job. If it was forwarded and the other node rejected it, the error that node returned
      * @throws GenieException For any error
      */
     @RequestMapping(method = RequestMethod.POST, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public ResponseEntity<Void> submitJob(
+    public ResponseEntity<byte[]> submitJob(
         @RequestPart("request")
         final JobRequest jobRequest,
         @RequestPart("attachment")
@@ -269,69 +303,113 @@ public class JobRestController {
             throw new GeniePreconditionException("No job request entered. Unable to submit.");
         }
 
-        // get client's host from the context
-        final String localClientHost;
-        if (StringUtils.isNotBlank(clientHost)) {
-            localClientHost = clientHost.split(",")[0];
-        } else {
-            localClientHost = httpServletRequest.getRemoteAddr();
-        }
-
-        final JobRequest jobRequestWithId;
-        // If the job request does not contain an id create one else use the one provided.
-        final String jobId;
-        if (StringUtils.isNotBlank(jobRequest.getId())) {
-            jobId = jobRequest.getId();
-            jobRequestWithId = jobRequest;
-        } else {
-            jobId = UUID.randomUUID().toString();
-            jobRequestWithId = new JobRequest.Builder(
-                jobRequest.getName(),
-                jobRequest.getUser(),
-                jobRequest.getVersion(),
-                jobRequest.getCommandArgs(),
-                jobRequest.getClusterCriterias(),
-                jobRequest.getCommandCriteria()
-            ).withId(jobId)
-                .withCpu(jobRequest.getCpu())
-                .withMemory(jobRequest.getMemory())
-                .withDisableLogArchival(jobRequest.isDisableLogArchival())
-                .withGroup(jobRequest.getGroup())
-                .withSetupFile(jobRequest.getSetupFile())
-                .withDescription(jobRequest.getDescription())
-                .withTags(jobRequest.getTags())
-                .withEmail(jobRequest.getEmail())
-                .withDependencies(jobRequest.getDependencies())
-                .withTimeout(jobRequest.getTimeout())
-                .build();
+        final String localClientHost = this.getClientHost(clientHost, httpServletRequest);
+        // Attachments aren't part of the fingerprint of a job so jobs with them can't be memoized
+        final JobRequest jobRequestWithId
+            = this.getJobRequestWithId(jobRequest, attachments != null && attachments.length > 0);
+        final String jobId = jobRequestWithId.getId();
+        this.recordRequestParsed(jobId, httpServletRequest);
+
+        // Only forward requests which haven't been forwarded already so a job can't bounce between full nodes
+        if (this.jobForwardingProperties.isEnabled()
+            && httpServletRequest.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER) == null
+            && this.jobCoordinatorService.getNumFreeSlots() == 0) {
+            final String leastLoadedNode = this.nodeLoadService.getLeastLoadedNode(this.hostName);
+            if (leastLoadedNode != null) {
+                try {
+                    final ResponseEntity<byte[]> forwardResponse
+                        = this.forwardJob(leastLoadedNode, jobRequestWithId, attachments, httpServletRequest);
+                    log.info("Host is at capacity. Forwarded job {} to {}", jobId, leastLoadedNode);
+                    this.submitJobForwardedRate.increment();
+                    return forwardResponse;
+                } catch (final ConnectException | ConnectTimeoutException ce) {
+                    // The other node was never reached so nothing was accepted. Handle the job here as usual.
+                    log.error("Unable to reach {} to forward job {}. Submitting locally.", leastLoadedNode, jobId, ce);
+                    this.submitJobForwardFailureRate.increment();
+                } catch (final IOException ioe) {
+                    // The other node may have accepted the job already so running it here too could run it twice
+                    this.submitJobForwardFailureRate.increment();
+                    throw new GenieServerException("Unable to forward job " + jobId + " to " + leastLoadedNode, ioe);
+                }
+            }
         }
 
         // Download attachments
         if (attachments != null) {
+            final long attachmentsStart = System.nanoTime();
             for (final MultipartFile attachment : attachments) {
                 log.debug("Attachment name: {} Size: {}", attachment.getOriginalFilename(), attachment.getSize());
-                try {
-                    this.attachmentService.save(jobId, attachment.getOriginalFilename(), attachment.getInputStream());
-                } catch (final IOException ioe) {
-                    throw new GenieServerException(ioe);
-                }
+                // Moves the part the container buffered on disk rather than copying it
+                this.attachmentService.save(jobId, attachment.getOriginalFilename(), attachment::transferTo);
             }
+            this.jobTimelineService.record(jobId, "attachments", attachmentsStart);
         }
 
-        this.jobCoordinatorService.coordinateJob(jobRequestWithId, localClientHost);
+        // The id of a previous identical job is returned instead if the request is memoized and one was found
+        final String coordinatedJobId = this.jobCoordinatorService.coordinateJob(jobRequestWithId, localClientHost);
 
         final HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.setLocation(
             ServletUriComponentsBuilder
                 .fromCurrentRequest()
                 .path("/{id}")
-                .buildAndExpand(jobId)
+                .buildAndExpand(coordinatedJobId)
                 .toUri()
         );
 
         return new ResponseEntity<>(httpHeaders, HttpStatus.ACCEPTED);
     }
 
+    /**
+     * Submit a batch of new jobs. As many jobs as this node has capacity for are run, the rest are queued while
+     * there is room and any left over are failed. All the jobs are saved together in a single transaction.
+     *
+     * @param jobRequests        The job requests to submit
+     * @param clientHost         client host sending the request
+     * @param httpServletRequest The http servlet request
+     * @return The jobs created for the requests in the same order they were submitted, with their ids and statuses
+     * @throws GenieException For any error
+     */
+    @RequestMapping(
+        value = "/batch",
+        method = RequestMethod.POST,
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public List<Job> submitJobs(
+        @RequestBody
+        final List<JobRequest> jobRequests,
+        @RequestHeader(value = FORWARDED_FOR_HEADER, required = false)
+        final String clientHost,
+        final HttpServletRequest httpServletRequest
+    ) throws GenieException {
+        log.info("[submitJobs] Called to submit {} jobs", jobRequests == null ? 0 : jobRequests.size());
+        this.submitJobsRate.increment();
+        if (jobRequests == null || jobRequests.isEmpty()) {
+            throw new GeniePreconditionException("No job requests entered. Unable to submit.");
+        }
+        if (jobRequests.size() > MAX_BATCH_SIZE) {
+            throw new GeniePreconditionException(
+                "Can't submit more than " + MAX_BATCH_SIZE + " jobs in one batch. Got " + jobRequests.size()
+            );
+        }
+
+        final List<JobRequest> jobRequestsWithIds = new ArrayList<>(jobRequests.size());
+        for (final JobRequest jobRequest : jobRequests) {
+            if (jobRequest == null) {
+                throw new GeniePreconditionException("Job requests in a batch can't be null. Unable to submit.");
+            }
+            jobRequestsWithIds.add(this.getJobRequestWithId(jobRequest, false));
+        }
+        jobRequestsWithIds.forEach(jobRequest -> this.recordRequestParsed(jobRequest.getId(), httpServletRequest));
+
+        return this.jobCoordinatorService.coordinateJobs(
+            jobRequestsWithIds,
+            this.getClientHost(clientHost, httpServletRequest)
+        );
+    }
+
     /**
      * Get job information for given job id.
      *
@@ -363,6 +441,71 @@ public class JobRestController {
             .set("status", factory.textNode(this.jobSearchService.getJobStatus(id).toString()));
     }
 
+    /**
+     * Get the timeline of the launch of the given job. Each stage has its start, relative to the start of the first
+     * stage, and its duration in nanoseconds. Timelines are only kept in memory by the node the job was launched on so
+     * with forwarding enabled the request is sent on to that node.
+     *
+     * @param id            The id of the job to get the timeline for
+     * @param forwardedFrom The host this request was forwarded from if present
+     * @param request       the servlet request
+     * @return The stages the job went through until its process was running
+     * @throws GenieException If the job wasn't found or its timeline is no longer kept
+     * @throws IOException    If the request couldn't be forwarded to the node running the job
+     */
+    @RequestMapping(value = "/{id}/timeline", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public JsonNode getJobTimeline(
+        @PathVariable("id") final String id,
+        @RequestHeader(name = JobConstants.GENIE_FORWARDED_FROM_HEADER, required = false) final String forwardedFrom,
+        final HttpServletRequest request
+    ) throws GenieException, IOException {
+        log.debug("[getJobTimeline] Called for job with id: {}. Forwarded from: {}", id, forwardedFrom);
+        this.getJobTimelineRate.increment();
+
+        // If forwarded from is null this request hasn't been forwarded at all. Check we're on the right node
+        if (this.jobForwardingProperties.isEnabled() && forwardedFrom == null) {
+            final String jobHostname = this.jobSearchService.getJobHost(id);
+            if (!this.hostName.equals(jobHostname)) {
+                final HttpGet getRequest = new HttpGet(this.buildForwardURL(request, jobHostname));
+                this.copyRequestHeaders(request, getRequest);
+                final HttpResponse getResponse = this.httpClient.execute(getRequest);
+                try {
+                    final int statusCode = getResponse.getStatusLine().getStatusCode();
+                    if (statusCode != HttpStatus.OK.value()) {
+                        throw new GenieException(
+                            statusCode,
+                            "Unable to get timeline of job " + id + " from " + jobHostname + ": "
+                                + getResponse.getStatusLine().getReasonPhrase()
+                        );
+                    }
+                    try (final InputStream inputStream = getResponse.getEntity().getContent()) {
+                        return this.mapper.readTree(inputStream);
+                    }
+                } finally {
+                    EntityUtils.consumeQuietly(getResponse.getEntity());
+                }
+            }
+        }
+
+        final JobTimeline timeline = this.jobTimelineService.getTimeline(id);
+        final ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.put("id", timeline.getId());
+        node.put("startTime", timeline.getStartTime());
+        node.put("cluster", timeline.getClusterName());
+        node.put("command", timeline.getCommandName());
+        final ArrayNode stages = node.putArray("stages");
+        for (final JobTimeline.Stage stage : timeline.getStages()) {
+            final ObjectNode stageNode = stages.addObject();
+            stageNode.put("name", stage.getName());
+            if (stage.getDetail() != null) {
+                stageNode.put("detail", stage.getDetail());
+            }
+            stageNode.put("start", stage.getStart());
+            stageNode.put("duration", stage.getDuration());
+        }
+        return node;
+    }
+
     /**
      * Get jobs for given filter criteria.
      *
@@ -729,4 +872,106 @@ public class JobRestController {
             response.setHeader(header.getName(), header.getValue());
         }
     }
+
+    private ResponseEntity<byte[]> forwardJob(
+        final String nodeHostname,
+        final JobRequest jobRequest,
+        final MultipartFile[] attachments,
+        final HttpServletRequest request
+    ) throws IOException {
+        final HttpPost postRequest = new HttpPost(this.buildForwardURL(request, nodeHostname));
+        this.copyRequestHeaders(request, postRequest);
+        // The body is rebuilt so the headers describing the original body no longer apply
+        postRequest.removeHeaders(HttpHeaders.CONTENT_TYPE);
+        postRequest.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        postRequest.removeHeaders(HttpHeaders.TRANSFER_ENCODING);
+
+        // Send the request with its id filled in so the job keeps the id this node gave it
+        final String jobRequestJson = this.mapper.writeValueAsString(jobRequest);
+        if (attachments == null) {
+            postRequest.setEntity(new StringEntity(jobRequestJson, ContentType.APPLICATION_JSON));
+        } else {
+            final MultipartEntityBuilder entityBuilder = MultipartEntityBuilder
+                .create()
+                .addTextBody("request", jobRequestJson, ContentType.APPLICATION_JSON);
+            for (final MultipartFile attachment : attachments) {
+                entityBuilder.addBinaryBody(
+                    "attachment",
+                    attachment.getInputStream(),
+                    ContentType.DEFAULT_BINARY,
+                    attachment.getOriginalFilename()
+                );
+            }
+            postRequest.setEntity(entityBuilder.build());
+        }
+
+        final HttpResponse postResponse = this.httpClient.execute(postRequest);
+        try {
+            // Pass on where to find the job or, if the other node filled up in the meantime, when to retry
+            final HttpHeaders httpHeaders = new HttpHeaders();
+            for (final Header header : postResponse.getAllHeaders()) {
+                if (HttpHeaders.LOCATION.equalsIgnoreCase(header.getName())
+                    || HttpHeaders.RETRY_AFTER.equalsIgnoreCase(header.getName())) {
+                    httpHeaders.add(header.getName(), header.getValue());
+                }
+            }
+            final HttpStatus status = HttpStatus.valueOf(postResponse.getStatusLine().getStatusCode());
+            if (status.is2xxSuccessful() || postResponse.getEntity() == null) {
+                return new ResponseEntity<>(httpHeaders, status);
+            }
+
+            // Pass the error the other node rejected the job with on as is
+            if (postResponse.getEntity().getContentType() != null) {
+                httpHeaders.set(HttpHeaders.CONTENT_TYPE, postResponse.getEntity().getContentType().getValue());
+            }
+            return new ResponseEntity<>(EntityUtils.toByteArray(postResponse.getEntity()), httpHeaders, status);
+        } finally {
+            EntityUtils.consumeQuietly(postResponse.getEntity());
+        }
+    }
+
+    private String getClientHost(final String clientHost, final HttpServletRequest httpServletRequest) {
+        if (StringUtils.isNotBlank(clientHost)) {
+            return clientHost.split(",")[0];
+        } else {
+            return httpServletRequest.getRemoteAddr();
+        }
+    }
+
+    private JobRequest getJobRequestWithId(final JobRequest jobRequest, final boolean hasAttachments) {
+        // If the job request does not contain an id create one else use the one provided.
+        final boolean memoize = jobRequest.isMemoize() && !hasAttachments;
+        if (StringUtils.isNotBlank(jobRequest.getId()) && memoize == jobRequest.isMemoize()) {
+            return jobRequest;
+        }
+        return new JobRequest.Builder(
+            jobRequest.getName(),
+            jobRequest.getUser(),
+            jobRequest.getVersion(),
+            jobRequest.getCommandArgs(),
+            jobRequest.getClusterCriterias(),
+            jobRequest.getCommandCriteria()
+        ).withId(StringUtils.isNotBlank(jobRequest.getId()) ? jobRequest.getId() : UUID.randomUUID().toString())
+            .withCpu(jobRequest.getCpu())
+            .withMemory(jobRequest.getMemory())
+            .withDisableLogArchival(jobRequest.isDisableLogArchival())
+            .withMemoize(memoize)
+            .withGroup(jobRequest.getGroup())
+            .withSetupFile(jobRequest.getSetupFile())
+            .withDescription(jobRequest.getDescription())
+            .withTags(jobRequest.getTags())
+            .withEmail(jobRequest.getEmail())
+            .withDependencies(jobRequest.getDependencies())
+            .withApplications(jobRequest.getApplications())
+            .withArrayParameters(jobRequest.getArrayParameters())
+            .withTimeout(jobRequest.getTimeout())
+            .build();
+    }
+
+    private void recordRequestParsed(final String jobId, final HttpServletRequest httpServletRequest) {
+        final Object start = httpServletRequest.getAttribute(RequestTimingInterceptor.REQUEST_START_ATTRIBUTE);
+        if (start instanceof Long) {
+            this.jobTimelineService.record(jobId, "request", (Long) start);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.controllers;
+
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Stamps requests with the time they reached the handler, before the request body is read and converted, so the
+ * controllers can tell how long parsing the request took.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class RequestTimingInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * The request attribute holding the value of System.nanoTime() when the request reached the handler.
+     */
+    public static final String REQUEST_START_ATTRIBUTE = RequestTimingInterceptor.class.getName() + ".start";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean preHandle(
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final Object handler
+    ) {
+        request.setAttribute(REQUEST_START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+}
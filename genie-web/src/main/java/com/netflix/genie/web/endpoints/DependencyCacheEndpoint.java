@@ -0,0 +1,78 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.endpoints;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.services.DependencyCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An actuator endpoint reporting how much of the dependency cache of this node is used.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "endpoints.dependencyCache")
+public class DependencyCacheEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private static final String NUM_FILES_KEY = "numFiles";
+    private static final String SIZE_KEY = "size";
+    private static final String MAX_SIZE_KEY = "maxSize";
+
+    private final DependencyCacheService dependencyCacheService;
+
+    /**
+     * Constructor.
+     *
+     * @param dependencyCacheService The dependency cache of this node
+     */
+    @Autowired
+    public DependencyCacheEndpoint(@NotNull final DependencyCacheService dependencyCacheService) {
+        super("dependencyCache");
+        this.dependencyCacheService = dependencyCacheService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> invoke() {
+        final Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put(NUM_FILES_KEY, this.dependencyCacheService.getNumFiles());
+        cache.put(SIZE_KEY, this.dependencyCacheService.getSize());
+        cache.put(MAX_SIZE_KEY, this.dependencyCacheService.getMaxSize());
+        return cache;
+    }
+
+    /**
+     * Remove every file from the dependency cache of this node.
+     *
+     * @throws GenieException If the cache can't be cleared
+     */
+    public void clear() throws GenieException {
+        this.dependencyCacheService.clear();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.endpoints;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Exposes the dependency cache endpoint over HTTP. GET reports the cache and DELETE clears it.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Component
+public class DependencyCacheMvcEndpoint extends EndpointMvcAdapter {
+
+    private final DependencyCacheEndpoint delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The dependency cache endpoint to expose
+     */
+    @Autowired
+    public DependencyCacheMvcEndpoint(@NotNull final DependencyCacheEndpoint delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Remove every file from the dependency cache of this node.
+     *
+     * @return No content if the cache was cleared
+     * @throws GenieException If the cache can't be cleared
+     */
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseBody
+    public ResponseEntity<?> clear() throws GenieException {
+        if (!this.delegate.isEnabled()) {
+            return DISABLED_RESPONSE;
+        }
+        this.delegate.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.filters;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.genie.web.properties.RateLimitProperties;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often each client can call the job APIs using a token bucket per client and class of endpoint. Clients
+ * are identified by their authenticated principal or, when security is disabled, by the host they call from. Calls
+ * over the limit are rejected with a 429 and a Retry-After header before they reach the controllers or database.
+ * <p>
+ * The X-Forwarded-For header is only believed when the request comes from one of the configured trusted proxies as
+ * anyone else can put whatever they like in it to get a fresh bucket with every call.
+ * <p>
+ * The buckets are kept in a cache bounded by the maximum number of clients. Idle buckets are evicted once they would
+ * have refilled completely, at which point they are no different from a new bucket.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String JOBS_PATH = "/api/v3/jobs";
+    private static final String BATCH_PATH = JOBS_PATH + "/batch";
+    private static final String OUTPUT_SEGMENT = "output";
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final String ENDPOINT_TAG = "endpoint";
+
+    private final Map<Endpoint, RateLimitProperties.Limit> limits = new EnumMap<>(Endpoint.class);
+    private final ConcurrentMap<String, TokenBucket> buckets;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final Map<Endpoint, Counter> hitRates = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Counter> limitedRates = new EnumMap<>(Endpoint.class);
+    private final Set<String> trustedProxies;
+
+    /**
+     * Constructor.
+     *
+     * @param rateLimitProperties The limits to apply
+     * @param registry            The metrics registry to use
+     */
+    public RateLimitFilter(@NotNull final RateLimitProperties rateLimitProperties, @NotNull final Registry registry) {
+        this.limits.put(Endpoint.SUBMIT, rateLimitProperties.getSubmit());
+        this.limits.put(Endpoint.SEARCH, rateLimitProperties.getSearch());
+        this.limits.put(Endpoint.STATUS, rateLimitProperties.getStatus());
+        this.limits.put(Endpoint.OUTPUT, rateLimitProperties.getOutput());
+        this.trustedProxies = rateLimitProperties.getTrustedProxies();
+
+        long refillNanos = TimeUnit.SECONDS.toNanos(1L);
+        for (final Endpoint endpoint : Endpoint.values()) {
+            final RateLimitProperties.Limit limit = this.limits.get(endpoint);
+            if (limit.isEnabled()) {
+                refillNanos = Math.max(
+                    refillNanos,
+                    (long) Math.ceil(limit.getCapacity() / limit.getRefillRate() * TimeUnit.SECONDS.toNanos(1L))
+                );
+            }
+            final String name = endpoint.name().toLowerCase();
+            this.hitRates.put(
+                endpoint,
+                registry.counter(registry.createId("genie.api.rateLimit.hit.rate").withTag(ENDPOINT_TAG, name))
+            );
+            this.limitedRates.put(
+                endpoint,
+                registry.counter(registry.createId("genie.api.rateLimit.limited.rate").withTag(ENDPOINT_TAG, name))
+            );
+        }
+
+        final Cache<String, TokenBucket> bucketCache = CacheBuilder
+            .newBuilder()
+            .maximumSize(rateLimitProperties.getMaxClients())
+            .expireAfterAccess(refillNanos, TimeUnit.NANOSECONDS)
+            .build();
+        this.buckets = bucketCache.asMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doFilterInternal(
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final FilterChain filterChain
+    ) throws ServletException, IOException {
+        final Endpoint endpoint = this.getEndpoint(request);
+        final RateLimitProperties.Limit limit = endpoint == null ? null : this.limits.get(endpoint);
+        if (limit != null && limit.isEnabled()) {
+            this.hitRates.get(endpoint).increment();
+            final long now = System.nanoTime();
+            final String client = this.getClient(request);
+            final TokenBucket bucket = this.buckets.computeIfAbsent(
+                endpoint.name() + ":" + client,
+                key -> new TokenBucket(limit.getCapacity(), limit.getRefillRate(), now)
+            );
+            final long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                this.limitedRates.get(endpoint).increment();
+                log.debug("Rate limited {} request from {}", endpoint, client);
+                final long retryAfterSeconds = Math.max(
+                    (waitNanos + TimeUnit.SECONDS.toNanos(1L) - 1) / TimeUnit.SECONDS.toNanos(1L),
+                    1L
+                );
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+                response.sendError(
+                    HttpStatus.TOO_MANY_REQUESTS.value(),
+                    "Too many requests from " + client + ". Retry after " + retryAfterSeconds + " seconds."
+                );
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Work out which class of endpoint the request is for.
+     *
+     * @param request The request
+     * @return The class of endpoint or null if the endpoint isn't rate limited
+     */
+    Endpoint getEndpoint(final HttpServletRequest request) {
+        final String path = StringUtils.removeEnd(this.urlPathHelper.getPathWithinApplication(request), "/");
+        final String method = request.getMethod();
+        if (HttpMethod.POST.matches(method)) {
+            return path.equals(JOBS_PATH) || path.equals(BATCH_PATH) ? Endpoint.SUBMIT : null;
+        } else if (HttpMethod.GET.matches(method)) {
+            if (path.equals(JOBS_PATH)) {
+                return Endpoint.SEARCH;
+            } else if (path.startsWith(JOBS_PATH + "/")) {
+                // Everything about a single job is {id} or {id}/{resource}/...
+                final String[] segments = path.substring(JOBS_PATH.length() + 1).split("/", 3);
+                return segments.length > 1 && segments[1].equals(OUTPUT_SEGMENT) ? Endpoint.OUTPUT : Endpoint.STATUS;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Work out who is making the request. The authenticated user if there is one otherwise the originating host.
+     * <p>
+     * The host is the remote address unless that is a trusted proxy. Each proxy appends the address it got the
+     * request from to X-Forwarded-For so the header is read from the right and the first address which isn't a
+     * trusted proxy is the client. Anything to the left of it was sent by the client and can't be trusted.
+     *
+     * @param request The request
+     * @return The identity of the client
+     */
+    String getClient(final HttpServletRequest request) {
+        final Principal principal = request.getUserPrincipal();
+        if (principal != null && StringUtils.isNotBlank(principal.getName())) {
+            return principal.getName();
+        }
+        final String remoteAddr = request.getRemoteAddr();
+        final String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (!this.trustedProxies.contains(remoteAddr) || StringUtils.isBlank(forwardedFor)) {
+            return remoteAddr;
+        }
+        final String[] addresses = StringUtils.split(forwardedFor, ',');
+        String client = remoteAddr;
+        for (int i = addresses.length - 1; i >= 0; i--) {
+            final String address = addresses[i].trim();
+            if (StringUtils.isEmpty(address)) {
+                continue;
+            }
+            client = address;
+            if (!this.trustedProxies.contains(address)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * The classes of endpoint which are limited separately.
+     */
+    enum Endpoint {
+        SUBMIT,
+        SEARCH,
+        STATUS,
+        OUTPUT
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.filters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A token bucket which starts full, holds at most capacity tokens and refills at a steady rate. Tokens are taken
+ * with a compare and swap on the whole state of the bucket so taking one never blocks.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity        The most tokens the bucket can hold, which is the largest burst it allows. Must be
+     *                        greater than zero
+     * @param tokensPerSecond The number of tokens added to the bucket every second. Must be greater than zero
+     * @param nowNanos        The current value of System.nanoTime()
+     */
+    public TokenBucket(final int capacity, final double tokensPerSecond, final long nowNanos) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate of a token bucket must be greater than zero");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1L);
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * Try to take a token from the bucket.
+     *
+     * @param nowNanos The current value of System.nanoTime()
+     * @return Zero if a token was taken otherwise the number of nanoseconds until the next token is available
+     */
+    public long tryAcquire(final long nowNanos) {
+        while (true) {
+            final State current = this.state.get();
+            // Guard against the clock of another thread being slightly behind the one which last updated the state
+            final long elapsed = Math.max(nowNanos - current.getTimestamp(), 0L);
+            final double tokens = Math.min(this.capacity, current.getTokens() + elapsed * this.tokensPerNano);
+            if (tokens < 1.0) {
+                return (long) Math.ceil((1.0 - tokens) / this.tokensPerNano);
+            }
+            final long timestamp = Math.max(nowNanos, current.getTimestamp());
+            if (this.state.compareAndSet(current, new State(tokens - 1.0, timestamp))) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * The tokens in the bucket as of a point in time.
+     */
+    private static final class State {
+        private final double tokens;
+        private final long timestamp;
+
+        State(final double tokens, final long timestamp) {
+            this.tokens = tokens;
+            this.timestamp = timestamp;
+        }
+
+        double getTokens() {
+            return this.tokens;
+        }
+
+        long getTimestamp() {
+            return this.timestamp;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.health;
+
+import com.netflix.genie.core.services.DependencyWarmingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A health indicator reporting how much of the files jobs can need are in the dependency cache of the node. A cold
+ * cache only makes jobs slower to start so the node is always reported as up.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Component
+@ConditionalOnProperty("genie.jobs.dependencies.warm.enabled")
+public class DependencyWarmingHealthIndicator implements HealthIndicator {
+
+    private static final String NUM_FILES_KEY = "numFiles";
+    private static final String NUM_WARM_FILES_KEY = "numWarmFiles";
+    private static final String COVERAGE_KEY = "coverage";
+    private static final String WARMED_BYTES_KEY = "warmedBytes";
+
+    private final DependencyWarmingService dependencyWarmingService;
+
+    /**
+     * Constructor.
+     *
+     * @param dependencyWarmingService The service warming the dependency cache
+     */
+    @Autowired
+    public DependencyWarmingHealthIndicator(@NotNull final DependencyWarmingService dependencyWarmingService) {
+        this.dependencyWarmingService = dependencyWarmingService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Health health() {
+        final int numFiles = this.dependencyWarmingService.getNumFiles();
+        final int numWarmFiles = this.dependencyWarmingService.getNumWarmFiles();
+        return Health
+            .up()
+            .withDetail(NUM_FILES_KEY, numFiles)
+            .withDetail(NUM_WARM_FILES_KEY, numWarmFiles)
+            .withDetail(COVERAGE_KEY, numFiles == 0 ? 1.0 : (double) numWarmFiles / numFiles)
+            .withDetail(WARMED_BYTES_KEY, this.dependencyWarmingService.getWarmedBytes())
+            .build();
+    }
+}
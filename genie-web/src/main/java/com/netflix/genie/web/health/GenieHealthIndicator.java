@@ -17,6 +17,7 @@
  */
 package com.netflix.genie.web.health;
 
+import com.netflix.genie.core.services.JobSlotService;
 import com.netflix.genie.web.tasks.job.JobMonitoringCoordinator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,7 +29,7 @@ import javax.validation.constraints.NotNull;
 
 /**
  * A health indicator based around metrics from the Genie system most notably the number of running jobs relative to
- * the max configured.
+ * the max configured and the cpu and memory reserved by jobs relative to the capacity of the node.
  *
  * @author tgianos
  * @since 3.0.0
@@ -38,22 +39,30 @@ public class GenieHealthIndicator implements HealthIndicator {
 
     private static final String MAX_RUNNING_JOBS_KEY = "maxRunningJobs";
     private static final String NUMBER_RUNNING_JOBS_KEY = "numRunningJobs";
+    private static final String MAX_CPU_KEY = "maxCpu";
+    private static final String RESERVED_CPU_KEY = "reservedCpu";
+    private static final String MAX_MEMORY_KEY = "maxMemory";
+    private static final String RESERVED_MEMORY_KEY = "reservedMemory";
 
     private final JobMonitoringCoordinator jobMonitoringCoordinator;
+    private final JobSlotService jobSlotService;
     private final int maxRunningJobs;
 
     /**
      * Constructor.
      *
      * @param jobMonitoringCoordinator The job monitoring coordinator used to check how many jobs are running
+     * @param jobSlotService           The job slot service used to check how much cpu and memory jobs have reserved
      * @param maxRunningJobs           The maximum number of jobs that can run on this node
      */
     @Autowired
     public GenieHealthIndicator(
         @NotNull final JobMonitoringCoordinator jobMonitoringCoordinator,
+        @NotNull final JobSlotService jobSlotService,
         @Value("${genie.jobs.max.running:2}") final int maxRunningJobs
     ) {
         this.jobMonitoringCoordinator = jobMonitoringCoordinator;
+        this.jobSlotService = jobSlotService;
         this.maxRunningJobs = maxRunningJobs;
     }
 
@@ -63,18 +72,23 @@ public class GenieHealthIndicator implements HealthIndicator {
     @Override
     public Health health() {
         final int numRunningJobs = this.jobMonitoringCoordinator.getNumJobs();
-        if (numRunningJobs < this.maxRunningJobs) {
-            return Health
-                .up()
-                .withDetail(MAX_RUNNING_JOBS_KEY, this.maxRunningJobs)
-                .withDetail(NUMBER_RUNNING_JOBS_KEY, numRunningJobs)
-                .build();
+        final int reservedCpu = this.jobSlotService.getReservedCpu();
+        final int maxCpu = this.jobSlotService.getMaxCpu();
+        final long reservedMemory = this.jobSlotService.getReservedMemory();
+        final long maxMemory = this.jobSlotService.getMaxMemory();
+        final Health.Builder builder;
+        if (numRunningJobs < this.maxRunningJobs && reservedCpu < maxCpu && reservedMemory < maxMemory) {
+            builder = Health.up();
         } else {
-            return Health
-                .outOfService()
-                .withDetail(MAX_RUNNING_JOBS_KEY, this.maxRunningJobs)
-                .withDetail(NUMBER_RUNNING_JOBS_KEY, numRunningJobs)
-                .build();
+            builder = Health.outOfService();
         }
+        return builder
+            .withDetail(MAX_RUNNING_JOBS_KEY, this.maxRunningJobs)
+            .withDetail(NUMBER_RUNNING_JOBS_KEY, numRunningJobs)
+            .withDetail(MAX_CPU_KEY, maxCpu)
+            .withDetail(RESERVED_CPU_KEY, reservedCpu)
+            .withDetail(MAX_MEMORY_KEY, maxMemory)
+            .withDetail(RESERVED_MEMORY_KEY, reservedMemory)
+            .build();
     }
 }
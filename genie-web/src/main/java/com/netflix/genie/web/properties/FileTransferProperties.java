@@ -0,0 +1,69 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Properties limiting the file transfers of each priority class on a node.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@ConfigurationProperties(prefix = "genie.jobs.files.transfers")
+@Component
+@Getter
+@Setter
+public class FileTransferProperties {
+    private int maxConcurrent = 20;
+    private Limits launch = new Limits();
+    private Limits archive = new Limits(4);
+    private Limits warm = new Limits(2);
+
+    /**
+     * The limits of one class of transfers. 0 means no limit.
+     *
+     * @author tgianos
+     * @since 3.0.0
+     */
+    @Getter
+    @Setter
+    public static class Limits {
+        private int maxConcurrent;
+        private long maxBytesPerSecond;
+
+        /**
+         * Constructor for unlimited transfers.
+         */
+        public Limits() {
+            this(0);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param maxConcurrent The maximum number of transfers running at once
+         */
+        public Limits(final int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
@@ -36,4 +36,5 @@ public class JobForwardingProperties {
     private boolean enabled;
     private String scheme = "http";
     private int port = 8080;
+    private long loadPublishRate = 5000L;
 }
@@ -0,0 +1,69 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Properties related to rate limiting requests to the REST API.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@ConfigurationProperties(prefix = "genie.rateLimit")
+@Component
+@Getter
+@Setter
+public class RateLimitProperties {
+    private boolean enabled;
+    private int maxClients = 100000;
+    private Set<String> trustedProxies = new HashSet<>();
+    private Limit submit = new Limit();
+    private Limit search = new Limit();
+    private Limit status = new Limit();
+    private Limit output = new Limit();
+
+    /**
+     * The limit for one class of endpoints. Each client can make a burst of up to capacity requests and then
+     * refillRate requests a second. A capacity or refill rate of zero or less means the endpoints aren't limited.
+     *
+     * @author tgianos
+     * @since 3.0.0
+     */
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private double refillRate;
+
+        /**
+         * Whether requests to the endpoints are limited at all.
+         *
+         * @return True if both the capacity and refill rate are set
+         */
+        public boolean isEnabled() {
+            return this.capacity > 0 && this.refillRate > 0;
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -157,7 +158,7 @@ public class JobCompletionHandler {
             && status != JobStatus.KILLED
             && status != JobStatus.SUCCEEDED) {
             // Now we know this job should be marked in one of the finished states
-            if (status == JobStatus.INIT) {
+            if (status == JobStatus.QUEUED || status == JobStatus.INIT) {
                 try {
                     switch (event.getReason()) {
                         case KILLED:
@@ -288,6 +289,11 @@ public class JobCompletionHandler {
 
                     final File appDependencyDir = new File(applicationDependencyFolder);
 
+                    // The directory of an application with a staged environment links to the tree other jobs share
+                    if (Files.isSymbolicLink(appDependencyDir.getParentFile().toPath())) {
+                        continue;
+                    }
+
                     if (appDependencyDir.exists()) {
                         final CommandLine deleteCommand;
                         if (this.isRunAsUserEnabled) {
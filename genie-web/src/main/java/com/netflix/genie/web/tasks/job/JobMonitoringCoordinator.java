@@ -33,14 +33,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -57,7 +61,7 @@ import java.util.concurrent.ScheduledFuture;
 public class JobMonitoringCoordinator implements JobCountService {
 
     private final Map<String, ScheduledFuture<?>> jobMonitors = Collections.synchronizedMap(new HashMap<>());
-    private final Map<String, Future<?>> scheduledJobs = Collections.synchronizedMap(new HashMap<>());
+    private final Map<String, List<Future<?>>> scheduledJobs = Collections.synchronizedMap(new HashMap<>());
     private final String hostName;
     private final JobSearchService jobSearchService;
     private final TaskScheduler scheduler;
@@ -140,12 +144,14 @@ public class JobMonitoringCoordinator implements JobCountService {
     /**
      * This event is fired when a job is scheduled to run on this Genie node. We'll track the future here in case
      * it needs to be killed while still in INIT state. Once it's running the onJobStarted event will clear it out.
+     * A job can be scheduled more than once as its setup and its launch run on different executors so all the
+     * futures are kept.
      *
      * @param event The job scheduled event with information for tracking the job through the INIT stage
      */
     @EventListener
     public synchronized void onJobScheduled(final JobScheduledEvent event) {
-        this.scheduledJobs.put(event.getId(), event.getTask());
+        this.scheduledJobs.computeIfAbsent(event.getId(), key -> new ArrayList<>()).add(event.getTask());
     }
 
     /**
@@ -165,10 +171,12 @@ public class JobMonitoringCoordinator implements JobCountService {
 
     /**
      * When a job is finished this event is fired. This method will cancel the task monitoring the job process.
+     * Ordered first so the job is no longer counted as running by the time other listeners react to the event.
      *
      * @param event the event of the finished job
      */
     @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public synchronized void onJobFinished(final JobFinishedEvent event) {
         final String jobId = event.getId();
         if (this.jobMonitors.containsKey(jobId)) {
@@ -181,15 +189,16 @@ public class JobMonitoringCoordinator implements JobCountService {
             }
             this.jobMonitors.remove(jobId);
         } else if (this.scheduledJobs.containsKey(jobId)) {
-            final Future<?> task = this.scheduledJobs.get(jobId);
-            // If this job setup isn't actually done try killing it
-            // TODO: If we can't kill should we have back-off?
-            if (!task.isDone()) {
-                if (task.cancel(true)) {
-                    log.debug("Successfully cancelled job init task for job {}", jobId);
-                } else {
-                    log.error("Unable to cancel job init task for job {}", jobId);
-                    this.unableToCancel.increment();
+            for (final Future<?> task : this.scheduledJobs.get(jobId)) {
+                // If this job setup isn't actually done try killing it
+                // TODO: If we can't kill should we have back-off?
+                if (!task.isDone()) {
+                    if (task.cancel(true)) {
+                        log.debug("Successfully cancelled job init task for job {}", jobId);
+                    } else {
+                        log.error("Unable to cancel job init task for job {}", jobId);
+                        this.unableToCancel.increment();
+                    }
                 }
             }
             this.scheduledJobs.remove(jobId);
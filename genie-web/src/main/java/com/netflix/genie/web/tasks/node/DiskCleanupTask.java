@@ -116,7 +116,9 @@ public class DiskCleanupTask implements Runnable {
             final String id = dir.getName();
             try {
                 final Job job = this.jobSearchService.getJob(id);
-                if (job.getStatus() == JobStatus.INIT || job.getStatus() == JobStatus.RUNNING) {
+                if (job.getStatus() == JobStatus.QUEUED
+                    || job.getStatus() == JobStatus.INIT
+                    || job.getStatus() == JobStatus.RUNNING) {
                     // Don't want to delete anything still going
                     continue;
                 }
@@ -0,0 +1,101 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.netflix.genie.core.services.JobCoordinatorService;
+import com.netflix.genie.core.services.JobSlotService;
+import com.netflix.genie.core.services.NodeLoadService;
+import com.netflix.genie.web.properties.JobForwardingProperties;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * This task runs on every Genie node when job forwarding is enabled and periodically publishes how many jobs the
+ * node is running and how many more it can take so that full nodes know where to forward new jobs.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@ConditionalOnProperty("genie.jobs.forwarding.enabled")
+@Component
+@Slf4j
+public class NodeLoadPublishingTask implements Runnable {
+
+    private final String hostName;
+    private final JobCoordinatorService jobCoordinatorService;
+    private final JobSlotService jobSlotService;
+    private final NodeLoadService nodeLoadService;
+
+    private final Counter publishFailureCounter;
+
+    /**
+     * Constructor. Schedules this task to be run by the task scheduler.
+     *
+     * @param properties            The job forwarding properties to use
+     * @param scheduler             The scheduler to use to run this task at a fixed rate
+     * @param hostName              The host name of this node
+     * @param jobCoordinatorService The job coordinator service to get the free capacity of this node from
+     * @param jobSlotService        The job slot service to get the number of running jobs from
+     * @param nodeLoadService       The service to publish the load of this node through
+     * @param registry              The metrics registry
+     */
+    @Autowired
+    public NodeLoadPublishingTask(
+        @NotNull final JobForwardingProperties properties,
+        @NotNull final TaskScheduler scheduler,
+        @NotNull final String hostName,
+        @NotNull final JobCoordinatorService jobCoordinatorService,
+        @NotNull final JobSlotService jobSlotService,
+        @NotNull final NodeLoadService nodeLoadService,
+        @NotNull final Registry registry
+    ) {
+        this.hostName = hostName;
+        this.jobCoordinatorService = jobCoordinatorService;
+        this.jobSlotService = jobSlotService;
+        this.nodeLoadService = nodeLoadService;
+
+        this.publishFailureCounter = registry.counter("genie.tasks.nodeLoad.publishFailure.rate");
+
+        scheduler.scheduleAtFixedRate(this, properties.getLoadPublishRate());
+    }
+
+    /**
+     * Publish the current load of this node.
+     */
+    @Override
+    public void run() {
+        try {
+            this.nodeLoadService.publishLoad(
+                this.hostName,
+                this.jobSlotService.getNumReserved(),
+                this.jobCoordinatorService.getNumFreeSlots()
+            );
+        } catch (final RuntimeException re) {
+            // Don't let the exception escape or the scheduler will stop running this task
+            log.error("Unable to publish the load of {}", this.hostName, re);
+            this.publishFailureCounter.increment();
+        }
+    }
+}
@@ -104,7 +104,7 @@ export default class JobDetails extends React.Component {
                     </ul>
                   </td>
                 </tr>
-                {(this.state.job.status === 'RUNNING' || this.state.job.status === 'INIT') && !this.state.killJobRequestSent ?
+                {['QUEUED', 'INIT', 'RUNNING'].includes(this.state.job.status) && !this.state.killJobRequestSent ?
                   <tr>
                     <td>
                       <button
@@ -18,17 +18,25 @@
 package com.netflix.genie.web.configs;
 
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.filters.RateLimitFilter;
+import com.netflix.genie.web.properties.RateLimitProperties;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
 import com.netflix.genie.web.resources.writers.DefaultDirectoryWriter;
 import com.netflix.genie.web.resources.writers.DirectoryWriter;
+import com.netflix.spectator.api.DefaultRegistry;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.web.MultipartProperties;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
@@ -48,6 +56,12 @@ import java.util.UUID;
 @Category(UnitTest.class)
 public class MvcConfigUnitTests {
 
+    /**
+     * Temporary directory for the tests which need the file system.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private MvcConfig mvcConfig;
 
     /**
@@ -68,6 +82,17 @@ public class MvcConfigUnitTests {
         Mockito.verify(configurer, Mockito.times(1)).setUseRegisteredSuffixPatternMatch(true);
     }
 
+    /**
+     * Make sure the rate limit filter is registered for the job APIs.
+     */
+    @Test
+    public void canGetRateLimitFilter() {
+        final FilterRegistrationBean registration
+            = this.mvcConfig.rateLimitFilter(new RateLimitProperties(), new DefaultRegistry());
+        Assert.assertThat(registration.getFilter(), Matchers.instanceOf(RateLimitFilter.class));
+        Assert.assertThat(registration.getUrlPatterns(), Matchers.hasItem("/api/v3/jobs/*"));
+    }
+
     /**
      * Make sure we get a valid resource loader.
      */
@@ -103,6 +128,30 @@ public class MvcConfigUnitTests {
         Assert.assertTrue(this.mvcConfig.directoryWriter() instanceof DefaultDirectoryWriter);
     }
 
+    /**
+     * Make sure multipart requests are buffered next to the jobs directory unless configured otherwise.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetMultipartConfigElement() throws IOException {
+        final File root = this.folder.newFolder();
+        final Resource jobsDir = new FileSystemResource(new File(root, "jobs"));
+        final File uploadsDir = new File(root, "uploads");
+        Assert.assertThat(
+            this.mvcConfig.multipartConfigElement(new MultipartProperties(), jobsDir).getLocation(),
+            Matchers.is(uploadsDir.getAbsolutePath())
+        );
+        Assert.assertTrue(uploadsDir.isDirectory());
+
+        final MultipartProperties multipartProperties = new MultipartProperties();
+        multipartProperties.setLocation(root.getAbsolutePath());
+        Assert.assertThat(
+            this.mvcConfig.multipartConfigElement(multipartProperties, jobsDir).getLocation(),
+            Matchers.is(root.getAbsolutePath())
+        );
+    }
+
     /**
      * Test to make sure we can't create a jobs dir resource if the directory can't be created when the input jobs
      * dir is invalid in any way.
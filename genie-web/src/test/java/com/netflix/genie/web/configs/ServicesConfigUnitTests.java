@@ -23,34 +23,51 @@ import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
 import com.netflix.genie.core.jpa.repositories.JpaCommandRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
+import com.netflix.genie.core.jpa.repositories.JpaJobFingerprintRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
+import com.netflix.genie.core.jpa.repositories.JpaNodeLoadRepository;
 import com.netflix.genie.core.services.ApplicationService;
 import com.netflix.genie.core.services.ClusterLoadBalancer;
 import com.netflix.genie.core.services.ClusterService;
 import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.DependencyCacheService;
 import com.netflix.genie.core.services.FileTransfer;
-import com.netflix.genie.core.services.JobCountService;
 import com.netflix.genie.core.services.JobKillService;
+import com.netflix.genie.core.services.JobMemoizationService;
 import com.netflix.genie.core.services.JobPersistenceService;
+import com.netflix.genie.core.services.JobQuotaService;
+import com.netflix.genie.core.services.JobResolverService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobSlotService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.StagedEnvironmentService;
+import com.netflix.genie.core.services.impl.FileTransferScheduler;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.core.services.impl.JobStagingService;
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.properties.FileTransferProperties;
+import com.netflix.genie.web.properties.JobQuotaProperties;
+import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.spectator.api.Registry;
 import org.apache.commons.exec.Executor;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
-import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.TaskScheduler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Unit Tests for ServicesConfig class.
@@ -61,6 +78,12 @@ import java.util.List;
 @Category(UnitTest.class)
 public class ServicesConfigUnitTests {
 
+    /**
+     * Temporary directory for the tests which need the file system.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private JpaApplicationRepository applicationRepository;
     private JpaClusterRepository clusterRepository;
     private JpaCommandRepository commandRepository;
@@ -102,7 +125,105 @@ public class ServicesConfigUnitTests {
     @Test
     public void canGetGenieFileTransfer() throws GenieException {
         final ArrayList<FileTransfer> fileTransferList = new ArrayList<>();
-        Assert.assertNotNull(this.servicesConfig.genieFileTransferService(fileTransferList));
+        Assert.assertNotNull(
+            this.servicesConfig.genieFileTransferService(fileTransferList, Mockito.mock(FileTransferScheduler.class))
+        );
+    }
+
+    /**
+     * Confirm we can get a FileTransferScheduler instance.
+     */
+    @Test
+    public void canGetFileTransferScheduler() {
+        Assert.assertNotNull(
+            this.servicesConfig.fileTransferScheduler(new FileTransferProperties(), new DefaultRegistry())
+        );
+    }
+
+    /**
+     * Confirm we can get a DependencyWarmingService instance.
+     */
+    @Test
+    public void canGetDependencyWarmingService() {
+        Assert.assertNotNull(
+            this.servicesConfig.dependencyWarmingService(
+                Mockito.mock(ClusterService.class),
+                Mockito.mock(CommandService.class),
+                Mockito.mock(ApplicationService.class),
+                Mockito.mock(DependencyCacheService.class),
+                1024L,
+                new DefaultRegistry()
+            )
+        );
+    }
+
+    /**
+     * Confirm we can get a DependencyCacheService instance.
+     *
+     * @throws Exception If there is any problem.
+     */
+    @Test
+    public void canGetDependencyCacheService() throws Exception {
+        final DependencyCacheService dependencyCacheService = this.servicesConfig.dependencyCacheService(
+            Mockito.mock(GenieFileTransferService.class),
+            this.folder.newFolder().getAbsolutePath(),
+            1024L,
+            false,
+            false,
+            false,
+            new DefaultRegistry()
+        );
+        Assert.assertThat(dependencyCacheService.getMaxSize(), Matchers.is(1024L));
+        Assert.assertThat(dependencyCacheService.getNumFiles(), Matchers.is(0));
+    }
+
+    /**
+     * Confirm we can get a StagedEnvironmentService instance.
+     *
+     * @throws Exception If there is any problem.
+     */
+    @Test
+    public void canGetStagedEnvironmentService() throws Exception {
+        final Resource jobsDir = Mockito.mock(Resource.class);
+        Mockito.when(jobsDir.getFile()).thenReturn(this.folder.newFolder());
+        final StagedEnvironmentService stagedEnvironmentService = this.servicesConfig.stagedEnvironmentService(
+            Mockito.mock(DependencyCacheService.class),
+            Mockito.mock(GenieFileTransferService.class),
+            this.folder.newFolder().getAbsolutePath(),
+            jobsDir,
+            Mockito.mock(TaskScheduler.class),
+            1000L,
+            new DefaultRegistry()
+        );
+        Assert.assertThat(stagedEnvironmentService.getNumEnvironments(), Matchers.is(0));
+    }
+
+    /**
+     * Confirm we can get a JobStagingService instance.
+     */
+    @Test
+    public void canGetJobStagingService() {
+        final JobStagingService jobStagingService = this.servicesConfig.jobStagingService(
+            Mockito.mock(DependencyCacheService.class),
+            Mockito.mock(StagedEnvironmentService.class),
+            true,
+            Mockito.mock(JobTimelineService.class),
+            2,
+            10,
+            1,
+            1000L,
+            new DefaultRegistry()
+        );
+        Assert.assertNotNull(jobStagingService);
+        jobStagingService.shutdown();
+    }
+
+    /**
+     * Confirm we can get a JobTimelineService instance.
+     */
+    @Test
+    public void canGetJobTimelineService() {
+        Assert.assertNotNull(this.servicesConfig.jobTimelineService(100, new DefaultRegistry()));
     }
 
     /**
@@ -148,7 +269,8 @@ public class ServicesConfigUnitTests {
         Assert.assertNotNull(
             this.servicesConfig.applicationService(
                 this.applicationRepository,
-                this.commandRepository
+                this.commandRepository,
+                Mockito.mock(ApplicationEventPublisher.class)
             )
         );
     }
@@ -163,7 +285,8 @@ public class ServicesConfigUnitTests {
             this.servicesConfig.commandService(
                 this.commandRepository,
                 this.applicationRepository,
-                this.clusterRepository
+                this.clusterRepository,
+                Mockito.mock(ApplicationEventPublisher.class)
             )
         );
     }
@@ -176,7 +299,8 @@ public class ServicesConfigUnitTests {
         Assert.assertNotNull(
             this.servicesConfig.clusterService(
                 this.clusterRepository,
-                this.commandRepository
+                this.commandRepository,
+                Mockito.mock(ApplicationEventPublisher.class)
             )
         );
     }
@@ -212,17 +336,48 @@ public class ServicesConfigUnitTests {
         );
     }
 
+    /**
+     * Can get a bean for Job Resolver Service.
+     */
+    @Test
+    public void canGetJobResolverServiceBean() {
+        Assert.assertNotNull(
+            this.servicesConfig.jobResolverService(
+                this.clusterRepository,
+                this.applicationRepository,
+                Mockito.mock(ClusterLoadBalancer.class)
+            )
+        );
+    }
+
+    /**
+     * Can get a bean for the snapshot based Job Resolver Service.
+     */
+    @Test
+    public void canGetSnapshotJobResolverServiceBean() {
+        Assert.assertNotNull(
+            this.servicesConfig.snapshotJobResolverService(
+                Mockito.mock(JobResolverService.class),
+                Mockito.mock(ClusterService.class),
+                Mockito.mock(CommandService.class),
+                Mockito.mock(ApplicationService.class),
+                Mockito.mock(ClusterLoadBalancer.class),
+                Mockito.mock(TaskScheduler.class),
+                60000L,
+                new DefaultRegistry()
+            )
+        );
+    }
+
     /**
      * Can get a bean for Job Submitter Service.
      */
     @Test
     public void canGetJobSubmitterServiceBean() {
         final JobPersistenceService jobPersistenceService = Mockito.mock(JobPersistenceService.class);
-        final ApplicationService applicationService = Mockito.mock(ApplicationService.class);
-        final ClusterService clusterService = Mockito.mock(ClusterService.class);
-        final CommandService commandService = Mockito.mock(CommandService.class);
-        final ClusterLoadBalancer clusterLoadBalancer = Mockito.mock(ClusterLoadBalancer.class);
+        final JobResolverService jobResolverService = Mockito.mock(JobResolverService.class);
         final GenieFileTransferService genieFileTransferService = Mockito.mock(GenieFileTransferService.class);
+        final JobStagingService jobStagingService = Mockito.mock(JobStagingService.class);
         final ApplicationEventPublisher applicationEventPublisher = Mockito.mock(ApplicationEventPublisher.class);
         final Resource resource = Mockito.mock(Resource.class);
         final List<WorkflowTask> workflowTasks = new ArrayList<>();
@@ -230,11 +385,12 @@ public class ServicesConfigUnitTests {
         Assert.assertNotNull(
             this.servicesConfig.jobSubmitterService(
                 jobPersistenceService,
-                applicationService,
-                clusterService,
-                commandService,
-                clusterLoadBalancer,
+                jobResolverService,
                 genieFileTransferService,
+                jobStagingService,
+                Mockito.mock(JobTimelineService.class),
+                Mockito.mock(ExecutorService.class),
+                Mockito.mock(JobMemoizationService.class),
                 applicationEventPublisher,
                 workflowTasks,
                 resource
@@ -242,6 +398,69 @@ public class ServicesConfigUnitTests {
         );
     }
 
+    /**
+     * Can get a bean for Node Load Service.
+     */
+    @Test
+    public void canGetNodeLoadServiceBean() {
+        Assert.assertNotNull(this.servicesConfig.nodeLoadService(Mockito.mock(JpaNodeLoadRepository.class), 30000L));
+    }
+
+    /**
+     * Can get a bean for Job Memoization Service.
+     */
+    @Test
+    public void canGetJobMemoizationServiceBean() {
+        Assert.assertNotNull(
+            this.servicesConfig.jobMemoizationService(
+                Mockito.mock(JpaJobFingerprintRepository.class),
+                this.jobSearchService,
+                Mockito.mock(JobResolverService.class),
+                Mockito.mock(GenieFileTransferService.class),
+                86400000L
+            )
+        );
+    }
+
+    /**
+     * Can get a bean for Job Slot Service.
+     */
+    @Test
+    public void canGetJobSlotServiceBean() {
+        Assert.assertNotNull(this.servicesConfig.jobSlotService(2, false, 0, 0L, this.jobSearchService, "localhost"));
+    }
+
+    /**
+     * Make sure the capacity of the node is used when resource aware admission is enabled.
+     */
+    @Test
+    public void canGetResourceAwareJobSlotServiceBean() {
+        final JobSlotService configured
+            = this.servicesConfig.jobSlotService(2, true, 4, 8192L, this.jobSearchService, "localhost");
+        Assert.assertThat(configured.getMaxCpu(), Matchers.is(4));
+        Assert.assertThat(configured.getMaxMemory(), Matchers.is(8192L));
+
+        final JobSlotService detected
+            = this.servicesConfig.jobSlotService(2, true, 0, 0L, this.jobSearchService, "localhost");
+        Assert.assertThat(detected.getMaxCpu(), Matchers.is(Runtime.getRuntime().availableProcessors()));
+        Assert.assertThat(detected.getMaxMemory(), Matchers.greaterThan(0L));
+    }
+
+    /**
+     * Can get a bean for Job Quota Service.
+     */
+    @Test
+    public void canGetJobQuotaServiceBean() {
+        Assert.assertNotNull(
+            this.servicesConfig.jobQuotaService(
+                new JobQuotaProperties(),
+                this.jobSearchService,
+                "localhost",
+                new DefaultRegistry()
+            )
+        );
+    }
+
     /**
      * Can get a bean for Job Coordinator Service.
      */
@@ -249,13 +468,19 @@ public class ServicesConfigUnitTests {
     public void canGetJobCoordinatorServiceBean() {
         Assert.assertNotNull(
             this.servicesConfig.jobCoordinatorService(
-                Mockito.mock(AsyncTaskExecutor.class),
+                Mockito.mock(ExecutorService.class),
                 Mockito.mock(JobPersistenceService.class),
                 Mockito.mock(JobSubmitterService.class),
                 Mockito.mock(JobKillService.class),
-                Mockito.mock(JobCountService.class),
+                Mockito.mock(JobSlotService.class),
+                Mockito.mock(JobQuotaService.class),
+                Mockito.mock(JobMemoizationService.class),
+                Mockito.mock(JobTimelineService.class),
                 "file:///tmp",
-                2,
+                "localhost",
+                10,
+                30L,
+                false,
                 Mockito.mock(Registry.class),
                 Mockito.mock(ApplicationEventPublisher.class)
             )
@@ -25,6 +25,7 @@ import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
 import com.netflix.genie.common.exceptions.GenieTimeoutException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
@@ -52,6 +53,7 @@ public class GenieExceptionMapperUnitTests {
     private Counter serverRate;
     private Counter serverUnavailableRate;
     private Counter timeoutRate;
+    private Counter tooManyRequestsRate;
     private Counter genieRate;
     private Counter constraintViolationRate;
 
@@ -70,6 +72,7 @@ public class GenieExceptionMapperUnitTests {
         this.serverRate = Mockito.mock(Counter.class);
         this.serverUnavailableRate = Mockito.mock(Counter.class);
         this.timeoutRate = Mockito.mock(Counter.class);
+        this.tooManyRequestsRate = Mockito.mock(Counter.class);
         this.genieRate = Mockito.mock(Counter.class);
         this.constraintViolationRate = Mockito.mock(Counter.class);
 
@@ -83,6 +86,7 @@ public class GenieExceptionMapperUnitTests {
             .when(registry.counter("genie.exceptions.serverUnavailable.rate"))
             .thenReturn(this.serverUnavailableRate);
         Mockito.when(registry.counter("genie.exceptions.timeout.rate")).thenReturn(this.timeoutRate);
+        Mockito.when(registry.counter("genie.exceptions.tooManyRequests.rate")).thenReturn(this.tooManyRequestsRate);
         Mockito.when(registry.counter("genie.exceptions.other.rate")).thenReturn(this.genieRate);
         Mockito
             .when(registry.counter("genie.exceptions.constraintViolation.rate"))
@@ -106,6 +110,7 @@ public class GenieExceptionMapperUnitTests {
         this.mapper.handleGenieException(response, new GenieServerException("server"));
         this.mapper.handleGenieException(response, new GenieServerUnavailableException("Server Unavailable"));
         this.mapper.handleGenieException(response, new GenieTimeoutException("Timeout"));
+        this.mapper.handleGenieException(response, new GenieTooManyRequestsException("Too Many", 5L));
         this.mapper.handleGenieException(response, new GenieException(568, "Other"));
 
         Mockito.verify(this.badRequestRate, Mockito.times(1)).increment();
@@ -115,8 +120,10 @@ public class GenieExceptionMapperUnitTests {
         Mockito.verify(this.serverRate, Mockito.times(1)).increment();
         Mockito.verify(this.serverUnavailableRate, Mockito.times(1)).increment();
         Mockito.verify(this.timeoutRate, Mockito.times(1)).increment();
+        Mockito.verify(this.tooManyRequestsRate, Mockito.times(1)).increment();
         Mockito.verify(this.genieRate, Mockito.times(1)).increment();
-        Mockito.verify(this.response, Mockito.times(8)).sendError(Mockito.anyInt(), Mockito.anyString());
+        Mockito.verify(this.response, Mockito.times(1)).setHeader("Retry-After", "5");
+        Mockito.verify(this.response, Mockito.times(9)).sendError(Mockito.anyInt(), Mockito.anyString());
     }
 
     /**
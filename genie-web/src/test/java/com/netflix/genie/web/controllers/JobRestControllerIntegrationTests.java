@@ -867,7 +867,9 @@ public class JobRestControllerIntegrationTests extends RestControllerIntegration
         int counter = 0;
         while (true) {
             final String statusString = this.getStatus(statusEndpoint);
-            if (statusString.contains("INIT") || statusString.contains("RUNNING")) {
+            if (statusString.contains("QUEUED")
+                || statusString.contains("INIT")
+                || statusString.contains("RUNNING")) {
                 log.info("Iteration {} sleeping for {} ms", counter, SLEEP_TIME);
                 Thread.sleep(SLEEP_TIME);
                 counter++;
@@ -881,7 +883,7 @@ public class JobRestControllerIntegrationTests extends RestControllerIntegration
         int counter = 0;
         while (true) {
             final String statusString = this.getStatus(statusEndpoint);
-            if (statusString.contains("INIT")) {
+            if (statusString.contains("QUEUED") || statusString.contains("INIT")) {
                 log.info("Iteration {} sleeping for {} ms", counter, SLEEP_TIME);
                 Thread.sleep(SLEEP_TIME);
                 counter++;
@@ -17,11 +17,28 @@
  */
 package com.netflix.genie.web.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieTooManyRequestsException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.jobs.JobTimeline;
+import com.netflix.genie.core.jpa.entities.JobEntity;
+import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
+import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
+import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
+import com.netflix.genie.core.jpa.services.JpaJobSearchServiceImpl;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.JobCoordinatorService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.JobTimelineService;
+import com.netflix.genie.core.services.NodeLoadService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.hateoas.assemblers.ApplicationResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.ClusterResourceAssembler;
@@ -41,23 +58,37 @@ import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.nio.charset.Charset;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -73,7 +104,10 @@ public class JobRestControllerUnitTests {
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     //Mocked variables
+    private JobCoordinatorService jobCoordinatorService;
     private JobSearchService jobSearchService;
+    private JobTimelineService jobTimelineService;
+    private NodeLoadService nodeLoadService;
     private String hostname;
     private HttpClient httpClient;
     private GenieResourceHttpRequestHandler genieResourceHttpRequestHandler;
@@ -86,7 +120,10 @@ public class JobRestControllerUnitTests {
      */
     @Before
     public void setup() {
+        this.jobCoordinatorService = Mockito.mock(JobCoordinatorService.class);
         this.jobSearchService = Mockito.mock(JobSearchService.class);
+        this.jobTimelineService = Mockito.mock(JobTimelineService.class);
+        this.nodeLoadService = Mockito.mock(NodeLoadService.class);
         this.hostname = UUID.randomUUID().toString();
         this.httpClient = Mockito.mock(HttpClient.class);
         this.genieResourceHttpRequestHandler = Mockito.mock(GenieResourceHttpRequestHandler.class);
@@ -97,8 +134,10 @@ public class JobRestControllerUnitTests {
         Mockito.when(registry.counter(Mockito.anyString())).thenReturn(counter);
 
         this.controller = new JobRestController(
-            Mockito.mock(JobCoordinatorService.class),
+            this.jobCoordinatorService,
             this.jobSearchService,
+            this.jobTimelineService,
+            this.nodeLoadService,
             Mockito.mock(AttachmentService.class),
             Mockito.mock(ApplicationResourceAssembler.class),
             Mockito.mock(ClusterResourceAssembler.class),
@@ -179,6 +218,66 @@ public class JobRestControllerUnitTests {
         Mockito.verify(this.httpClient, Mockito.never()).execute(Mockito.any());
     }
 
+    /**
+     * Makes sure a job which is still queued, and so has no job execution yet, is killed on the node it was queued on
+     * instead of failing to find where it is running.
+     *
+     * @throws IOException      on error
+     * @throws ServletException on error
+     * @throws GenieException   on error
+     */
+    @Test
+    public void canKillQueuedJobWithForwardingEnabled() throws IOException, ServletException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        final String jobId = UUID.randomUUID().toString();
+        final String forwardedFrom = null;
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        final JobEntity queuedJob = new JobEntity();
+        queuedJob.setId(jobId);
+        queuedJob.setStatus(JobStatus.QUEUED);
+        queuedJob.setHostName(this.hostname);
+        final JpaJobRepository jobRepository = Mockito.mock(JpaJobRepository.class);
+        Mockito.when(jobRepository.findOne(jobId)).thenReturn(queuedJob);
+        final JpaJobExecutionRepository jobExecutionRepository = Mockito.mock(JpaJobExecutionRepository.class);
+        Mockito.when(jobExecutionRepository.findOne(jobId)).thenReturn(null);
+        final JobSearchService searchService = new JpaJobSearchServiceImpl(
+            jobRepository,
+            Mockito.mock(JpaJobRequestRepository.class),
+            jobExecutionRepository
+        );
+
+        final Registry registry = Mockito.mock(Registry.class);
+        Mockito.when(registry.counter(Mockito.anyString())).thenReturn(Mockito.mock(Counter.class));
+        final JobRestController jobRestController = new JobRestController(
+            this.jobCoordinatorService,
+            searchService,
+            this.jobTimelineService,
+            this.nodeLoadService,
+            Mockito.mock(AttachmentService.class),
+            Mockito.mock(ApplicationResourceAssembler.class),
+            Mockito.mock(ClusterResourceAssembler.class),
+            Mockito.mock(CommandResourceAssembler.class),
+            Mockito.mock(JobResourceAssembler.class),
+            Mockito.mock(JobRequestResourceAssembler.class),
+            Mockito.mock(JobExecutionResourceAssembler.class),
+            Mockito.mock(JobSearchResultResourceAssembler.class),
+            this.hostname,
+            this.httpClient,
+            this.genieResourceHttpRequestHandler,
+            this.jobForwardingProperties,
+            registry
+        );
+
+        jobRestController.killJob(jobId, forwardedFrom, request, response);
+
+        Mockito.verify(this.jobCoordinatorService, Mockito.times(1)).killJob(jobId);
+        Mockito.verify(response, Mockito.times(1)).setStatus(HttpStatus.ACCEPTED.value());
+        Mockito.verify(response, Mockito.never()).sendError(Mockito.anyInt(), Mockito.anyString());
+        Mockito.verify(this.httpClient, Mockito.never()).execute(Mockito.any());
+    }
+
     /**
      * Makes sure if we do forward and get back an error we return it to the user.
      *
@@ -433,4 +532,412 @@ public class JobRestControllerUnitTests {
         Mockito.verify(response, Mockito.times(1)).setHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE);
         Mockito.verify(this.genieResourceHttpRequestHandler, Mockito.never()).handleRequest(request, response);
     }
+
+    /**
+     * Make sure a batch of jobs is handed to the coordinator in one call with ids filled in where they're missing.
+     *
+     * @throws GenieException On Error
+     */
+    @Test
+    public void canSubmitBatchOfJobs() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final JobRequest withId = this.createJobRequest(jobId);
+        final JobRequest withoutId = this.createJobRequest(null);
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final List<Job> jobs = Lists.newArrayList(Mockito.mock(Job.class), Mockito.mock(Job.class));
+        Mockito
+            .when(this.jobCoordinatorService.coordinateJobs(Mockito.anyListOf(JobRequest.class), Mockito.eq("a")))
+            .thenReturn(jobs);
+
+        Assert.assertThat(
+            this.controller.submitJobs(Lists.newArrayList(withId, withoutId), "a,b", request),
+            Matchers.is(jobs)
+        );
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<JobRequest>> captor = ArgumentCaptor.forClass((Class) List.class);
+        Mockito.verify(this.jobCoordinatorService, Mockito.times(1)).coordinateJobs(captor.capture(), Mockito.eq("a"));
+        Assert.assertThat(captor.getValue().size(), Matchers.is(2));
+        Assert.assertThat(captor.getValue().get(0).getId(), Matchers.is(jobId));
+        Assert.assertThat(captor.getValue().get(1).getId(), Matchers.notNullValue());
+        Assert.assertThat(captor.getValue().get(1).getName(), Matchers.is(withoutId.getName()));
+        Mockito.verify(request, Mockito.never()).getRemoteAddr();
+    }
+
+    /**
+     * Make sure an empty batch is rejected.
+     *
+     * @throws GenieException On Error
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantSubmitEmptyBatch() throws GenieException {
+        this.controller.submitJobs(Lists.newArrayList(), null, Mockito.mock(HttpServletRequest.class));
+    }
+
+    /**
+     * Make sure a job is forwarded to the least loaded node when this node can't take any more jobs.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canForwardJobSubmissionIfFull() throws IOException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        Mockito.when(this.jobForwardingProperties.getScheme()).thenReturn("http");
+        Mockito.when(this.jobForwardingProperties.getPort()).thenReturn(8080);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(0);
+        final String otherNode = UUID.randomUUID().toString();
+        Mockito.when(this.nodeLoadService.getLeastLoadedNode(this.hostname)).thenReturn(otherNode);
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer("http://" + this.hostname + "/api/v3/jobs"));
+
+        final String location = "http://" + otherNode + ":8080/api/v3/jobs/" + jobId;
+        final StatusLine statusLine = Mockito.mock(StatusLine.class);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(HttpStatus.ACCEPTED.value());
+        final Header locationHeader = Mockito.mock(Header.class);
+        Mockito.when(locationHeader.getName()).thenReturn(HttpHeaders.LOCATION);
+        Mockito.when(locationHeader.getValue()).thenReturn(location);
+        final Header dateHeader = Mockito.mock(Header.class);
+        Mockito.when(dateHeader.getName()).thenReturn(HttpHeaders.DATE);
+        final HttpResponse forwardResponse = Mockito.mock(HttpResponse.class);
+        Mockito.when(forwardResponse.getStatusLine()).thenReturn(statusLine);
+        Mockito.when(forwardResponse.getAllHeaders()).thenReturn(new Header[]{locationHeader, dateHeader});
+        Mockito.when(this.httpClient.execute(Mockito.any(HttpPost.class))).thenReturn(forwardResponse);
+
+        final ResponseEntity<byte[]> response
+            = this.controller.submitJob(this.createJobRequest(jobId), null, null, request);
+
+        Assert.assertThat(response.getStatusCode(), Matchers.is(HttpStatus.ACCEPTED));
+        Assert.assertThat(response.getHeaders().getLocation().toString(), Matchers.is(location));
+        Assert.assertFalse(response.getHeaders().containsKey(HttpHeaders.DATE));
+        final ArgumentCaptor<HttpPost> captor = ArgumentCaptor.forClass(HttpPost.class);
+        Mockito.verify(this.httpClient, Mockito.times(1)).execute(captor.capture());
+        Assert.assertThat(
+            captor.getValue().getURI().toString(),
+            Matchers.is("http://" + otherNode + ":8080/api/v3/jobs")
+        );
+        Assert.assertTrue(captor.getValue().containsHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER));
+        Assert.assertThat(
+            captor.getValue().getEntity().getContentType().getValue(),
+            Matchers.startsWith(MediaType.APPLICATION_JSON_VALUE)
+        );
+        Mockito
+            .verify(this.jobCoordinatorService, Mockito.never())
+            .coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString());
+    }
+
+    /**
+     * Make sure a job which was already forwarded once isn't forwarded again even if this node is full.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void wontForwardJobSubmissionIfAlreadyForwarded() throws IOException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(0);
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito
+            .when(request.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER))
+            .thenReturn(UUID.randomUUID().toString());
+        Mockito
+            .when(this.jobCoordinatorService.coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString()))
+            .thenThrow(new GenieTooManyRequestsException("full"));
+
+        try {
+            this.controller.submitJob(this.createJobRequest(UUID.randomUUID().toString()), null, "a", request);
+        } finally {
+            Mockito.verify(this.nodeLoadService, Mockito.never()).getLeastLoadedNode(Mockito.anyString());
+            Mockito.verify(this.httpClient, Mockito.never()).execute(Mockito.any());
+        }
+    }
+
+    /**
+     * Make sure the job is handled locally if it can't be sent to the least loaded node.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieTooManyRequestsException.class)
+    public void canSubmitJobLocallyIfForwardFails() throws IOException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(0);
+        Mockito.when(this.jobForwardingProperties.getScheme()).thenReturn("http");
+        Mockito.when(this.jobForwardingProperties.getPort()).thenReturn(8080);
+        Mockito.when(this.nodeLoadService.getLeastLoadedNode(this.hostname)).thenReturn(UUID.randomUUID().toString());
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+        Mockito.when(this.httpClient.execute(Mockito.any(HttpPost.class))).thenThrow(new ConnectException("refused"));
+        Mockito
+            .when(this.jobCoordinatorService.coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString()))
+            .thenThrow(new GenieTooManyRequestsException("full"));
+
+        try {
+            this.controller.submitJob(this.createJobRequest(UUID.randomUUID().toString()), null, "a", request);
+        } finally {
+            Mockito
+                .verify(this.jobCoordinatorService, Mockito.times(1))
+                .coordinateJob(Mockito.any(JobRequest.class), Mockito.eq("a"));
+        }
+    }
+
+    /**
+     * Make sure the job isn't submitted locally too if the other node was reached, as it may have accepted the job.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieServerException.class)
+    public void wontSubmitJobLocallyIfForwardFailsAfterConnecting() throws IOException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(0);
+        Mockito.when(this.jobForwardingProperties.getScheme()).thenReturn("http");
+        Mockito.when(this.jobForwardingProperties.getPort()).thenReturn(8080);
+        Mockito.when(this.nodeLoadService.getLeastLoadedNode(this.hostname)).thenReturn(UUID.randomUUID().toString());
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+        Mockito
+            .when(this.httpClient.execute(Mockito.any(HttpPost.class)))
+            .thenThrow(new SocketTimeoutException("Read timed out"));
+
+        try {
+            this.controller.submitJob(this.createJobRequest(UUID.randomUUID().toString()), null, "a", request);
+        } finally {
+            Mockito
+                .verify(this.jobCoordinatorService, Mockito.never())
+                .coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString());
+        }
+    }
+
+    /**
+     * Make sure the error the other node rejected a forwarded job with is passed on to the client as is.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canReturnErrorOfForwardedJobSubmission() throws IOException, GenieException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        Mockito.when(this.jobForwardingProperties.getScheme()).thenReturn("http");
+        Mockito.when(this.jobForwardingProperties.getPort()).thenReturn(8080);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(0);
+        Mockito.when(this.nodeLoadService.getLeastLoadedNode(this.hostname)).thenReturn(UUID.randomUUID().toString());
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+
+        final String error = "{\"status\":412,\"message\":\"No cluster found matching all the criteria\"}";
+        final StatusLine statusLine = Mockito.mock(StatusLine.class);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(HttpStatus.PRECONDITION_FAILED.value());
+        final HttpResponse forwardResponse = Mockito.mock(HttpResponse.class);
+        Mockito.when(forwardResponse.getStatusLine()).thenReturn(statusLine);
+        Mockito.when(forwardResponse.getAllHeaders()).thenReturn(new Header[0]);
+        Mockito
+            .when(forwardResponse.getEntity())
+            .thenReturn(new StringEntity(error, ContentType.APPLICATION_JSON));
+        Mockito.when(this.httpClient.execute(Mockito.any(HttpPost.class))).thenReturn(forwardResponse);
+
+        final ResponseEntity<byte[]> response
+            = this.controller.submitJob(this.createJobRequest(UUID.randomUUID().toString()), null, "a", request);
+
+        Assert.assertThat(response.getStatusCode(), Matchers.is(HttpStatus.PRECONDITION_FAILED));
+        Assert.assertThat(new String(response.getBody(), UTF_8), Matchers.is(error));
+        Assert.assertThat(
+            response.getHeaders().getContentType().toString(),
+            Matchers.startsWith(MediaType.APPLICATION_JSON_VALUE)
+        );
+        Mockito
+            .verify(this.jobCoordinatorService, Mockito.never())
+            .coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString());
+    }
+
+    /**
+     * Make sure the location of the job returned by the coordinator is sent back and jobs with attachments are
+     * never memoized.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canSubmitMemoizedJob() throws GenieException {
+        final String jobId = UUID.randomUUID().toString();
+        final String memoizedJobId = UUID.randomUUID().toString();
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v3/jobs");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        Mockito
+            .when(this.jobCoordinatorService.coordinateJob(Mockito.any(JobRequest.class), Mockito.anyString()))
+            .thenReturn(memoizedJobId);
+        final JobRequest jobRequest = new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(),
+            Sets.newHashSet(UUID.randomUUID().toString())
+        )
+            .withId(jobId)
+            .withApplications(Lists.newArrayList(UUID.randomUUID().toString()))
+            .withMemoize(true)
+            .build();
+
+        try {
+            final ResponseEntity<byte[]> response = this.controller.submitJob(jobRequest, null, "a", request);
+            Assert.assertThat(response.getHeaders().getLocation().getPath(), Matchers.endsWith("/" + memoizedJobId));
+
+            this.controller.submitJob(
+                jobRequest,
+                new MultipartFile[]{new MockMultipartFile("attachment", "query.q", null, new byte[0])},
+                "a",
+                request
+            );
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        final ArgumentCaptor<JobRequest> captor = ArgumentCaptor.forClass(JobRequest.class);
+        Mockito
+            .verify(this.jobCoordinatorService, Mockito.times(2))
+            .coordinateJob(captor.capture(), Mockito.eq("a"));
+        Assert.assertTrue(captor.getAllValues().get(0).isMemoize());
+        Assert.assertFalse(captor.getAllValues().get(1).isMemoize());
+        Assert.assertThat(captor.getAllValues().get(1).getId(), Matchers.is(jobId));
+        Assert.assertThat(
+            captor.getAllValues().get(1).getApplications(),
+            Matchers.is(jobRequest.getApplications())
+        );
+    }
+
+    private JobRequest createJobRequest(final String id) {
+        return new JobRequest.Builder(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            Lists.newArrayList(),
+            Sets.newHashSet(UUID.randomUUID().toString())
+        )
+            .withId(id)
+            .build();
+    }
+
+    /**
+     * Make sure the launch timeline of a job is returned with its stages in the order they started.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canGetJobTimeline() throws GenieException, IOException {
+        final String jobId = UUID.randomUUID().toString();
+        final JobTimeline timeline = new JobTimeline(jobId);
+        timeline.add("transfer", "s3://bucket/setup", 1500L, 4000L);
+        timeline.add("request", null, 1000L, 1200L);
+        timeline.setResolution("cluster1", "pig");
+        Mockito.when(this.jobTimelineService.getTimeline(jobId)).thenReturn(timeline);
+
+        final JsonNode node = this.controller.getJobTimeline(jobId, null, Mockito.mock(HttpServletRequest.class));
+
+        Assert.assertThat(node.get("id").asText(), Matchers.is(jobId));
+        Assert.assertThat(node.get("cluster").asText(), Matchers.is("cluster1"));
+        Assert.assertThat(node.get("command").asText(), Matchers.is("pig"));
+        final JsonNode stages = node.get("stages");
+        Assert.assertThat(stages.size(), Matchers.is(2));
+        Assert.assertThat(stages.get(0).get("name").asText(), Matchers.is("request"));
+        Assert.assertFalse(stages.get(0).has("detail"));
+        Assert.assertThat(stages.get(0).get("start").asLong(), Matchers.is(0L));
+        Assert.assertThat(stages.get(0).get("duration").asLong(), Matchers.is(200L));
+        Assert.assertThat(stages.get(1).get("name").asText(), Matchers.is("transfer"));
+        Assert.assertThat(stages.get(1).get("detail").asText(), Matchers.is("s3://bucket/setup"));
+        Assert.assertThat(stages.get(1).get("start").asLong(), Matchers.is(500L));
+        Assert.assertThat(stages.get(1).get("duration").asLong(), Matchers.is(2500L));
+    }
+
+    /**
+     * Make sure the timeline of a job launched on another node is fetched from that node.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canForwardJobTimelineRequest() throws GenieException, IOException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs/" + jobId + "/timeline");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+        Mockito.when(this.jobSearchService.getJobHost(jobId)).thenReturn(UUID.randomUUID().toString());
+
+        final StatusLine statusLine = Mockito.mock(StatusLine.class);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(HttpStatus.OK.value());
+        final HttpResponse forwardResponse = Mockito.mock(HttpResponse.class);
+        Mockito.when(forwardResponse.getStatusLine()).thenReturn(statusLine);
+        final HttpEntity entity = Mockito.mock(HttpEntity.class);
+        Mockito
+            .when(entity.getContent())
+            .thenReturn(new ByteArrayInputStream(("{\"id\":\"" + jobId + "\",\"stages\":[]}").getBytes(UTF_8)));
+        Mockito.when(forwardResponse.getEntity()).thenReturn(entity);
+        Mockito.when(this.httpClient.execute(Mockito.any(HttpGet.class))).thenReturn(forwardResponse);
+
+        final JsonNode node = this.controller.getJobTimeline(jobId, null, request);
+
+        Assert.assertThat(node.get("id").asText(), Matchers.is(jobId));
+        Mockito.verify(this.httpClient, Mockito.times(1)).execute(Mockito.any(HttpGet.class));
+        Mockito.verify(this.jobTimelineService, Mockito.never()).getTimeline(Mockito.anyString());
+    }
+
+    /**
+     * Make sure the error the node the job was launched on returns for its timeline is passed on.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canRespondToJobTimelineRequestForwardError() throws GenieException, IOException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getRequestURI()).thenReturn("/api/v3/jobs/" + jobId + "/timeline");
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+        Mockito.when(this.jobSearchService.getJobHost(jobId)).thenReturn(UUID.randomUUID().toString());
+
+        final StatusLine statusLine = Mockito.mock(StatusLine.class);
+        Mockito.when(statusLine.getStatusCode()).thenReturn(HttpStatus.NOT_FOUND.value());
+        final HttpResponse forwardResponse = Mockito.mock(HttpResponse.class);
+        Mockito.when(forwardResponse.getStatusLine()).thenReturn(statusLine);
+        Mockito.when(this.httpClient.execute(Mockito.any(HttpGet.class))).thenReturn(forwardResponse);
+
+        try {
+            this.controller.getJobTimeline(jobId, null, request);
+            Assert.fail();
+        } catch (final GenieException ge) {
+            Assert.assertThat(ge.getErrorCode(), Matchers.is(HttpStatus.NOT_FOUND.value()));
+        }
+        Mockito.verify(this.jobTimelineService, Mockito.never()).getTimeline(Mockito.anyString());
+    }
+
+    /**
+     * Make sure the timeline is read locally when the request was already forwarded to this node.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void wontForwardJobTimelineRequestIfAlreadyForwarded() throws GenieException, IOException {
+        Mockito.when(this.jobForwardingProperties.isEnabled()).thenReturn(true);
+        final String jobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobTimelineService.getTimeline(jobId)).thenReturn(new JobTimeline(jobId));
+
+        final JsonNode node = this.controller.getJobTimeline(
+            jobId,
+            UUID.randomUUID().toString(),
+            Mockito.mock(HttpServletRequest.class)
+        );
+
+        Assert.assertThat(node.get("id").asText(), Matchers.is(jobId));
+        Mockito.verify(this.jobSearchService, Mockito.never()).getJobHost(jobId);
+        Mockito.verify(this.httpClient, Mockito.never()).execute(Mockito.any());
+    }
 }
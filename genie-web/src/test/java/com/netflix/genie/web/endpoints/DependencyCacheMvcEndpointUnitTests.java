@@ -0,0 +1,93 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.endpoints;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.services.DependencyCacheService;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Unit tests for the dependency cache endpoints.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class DependencyCacheMvcEndpointUnitTests {
+
+    private DependencyCacheService dependencyCacheService;
+    private DependencyCacheEndpoint endpoint;
+    private DependencyCacheMvcEndpoint mvcEndpoint;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.dependencyCacheService = Mockito.mock(DependencyCacheService.class);
+        this.endpoint = new DependencyCacheEndpoint(this.dependencyCacheService);
+        this.mvcEndpoint = new DependencyCacheMvcEndpoint(this.endpoint);
+    }
+
+    /**
+     * Make sure the endpoint reports how much of the cache is used.
+     */
+    @Test
+    public void canGetCache() {
+        Mockito.when(this.dependencyCacheService.getNumFiles()).thenReturn(3);
+        Mockito.when(this.dependencyCacheService.getSize()).thenReturn(2048L);
+        Mockito.when(this.dependencyCacheService.getMaxSize()).thenReturn(4096L);
+
+        final Map<String, Object> cache = this.endpoint.invoke();
+        Assert.assertThat(cache.get("numFiles"), Matchers.is(3));
+        Assert.assertThat(cache.get("size"), Matchers.is(2048L));
+        Assert.assertThat(cache.get("maxSize"), Matchers.is(4096L));
+    }
+
+    /**
+     * Make sure the cache can be cleared.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canClearCache() throws GenieException {
+        Assert.assertThat(this.mvcEndpoint.clear().getStatusCode(), Matchers.is(HttpStatus.NO_CONTENT));
+        Mockito.verify(this.dependencyCacheService, Mockito.times(1)).clear();
+    }
+
+    /**
+     * Make sure the cache isn't cleared when the endpoint is disabled.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void cantClearCacheWhenDisabled() throws GenieException {
+        this.endpoint.setEnabled(false);
+        Assert.assertThat(this.mvcEndpoint.clear().getStatusCode(), Matchers.is(HttpStatus.NOT_FOUND));
+        Mockito.verify(this.dependencyCacheService, Mockito.never()).clear();
+    }
+}
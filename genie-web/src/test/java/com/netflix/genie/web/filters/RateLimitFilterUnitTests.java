@@ -0,0 +1,236 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.filters;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.properties.RateLimitProperties;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Unit tests for the RateLimitFilter class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class RateLimitFilterUnitTests {
+
+    private static final String JOBS_PATH = "/api/v3/jobs";
+
+    private Registry registry;
+    private RateLimitFilter filter;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        final RateLimitProperties properties = new RateLimitProperties();
+        properties.getStatus().setCapacity(2);
+        // Slow enough that no token is added while the test runs
+        properties.getStatus().setRefillRate(0.001);
+        properties.getSearch().setCapacity(1);
+        properties.getSearch().setRefillRate(0.001);
+        properties.setTrustedProxies(Sets.newHashSet("10.0.1.1", "10.0.1.2"));
+        this.registry = new DefaultRegistry();
+        this.filter = new RateLimitFilter(properties, this.registry);
+    }
+
+    /**
+     * Make sure requests are put in the right class of endpoint.
+     */
+    @Test
+    public void canGetEndpoint() {
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("POST", JOBS_PATH)),
+            Matchers.is(RateLimitFilter.Endpoint.SUBMIT)
+        );
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("POST", JOBS_PATH + "/batch")),
+            Matchers.is(RateLimitFilter.Endpoint.SUBMIT)
+        );
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("GET", JOBS_PATH + "/")),
+            Matchers.is(RateLimitFilter.Endpoint.SEARCH)
+        );
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("GET", JOBS_PATH + "/job1")),
+            Matchers.is(RateLimitFilter.Endpoint.STATUS)
+        );
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("GET", JOBS_PATH + "/job1/status")),
+            Matchers.is(RateLimitFilter.Endpoint.STATUS)
+        );
+        Assert.assertThat(
+            this.filter.getEndpoint(new MockHttpServletRequest("GET", JOBS_PATH + "/job1/output/stdout")),
+            Matchers.is(RateLimitFilter.Endpoint.OUTPUT)
+        );
+        Assert.assertNull(this.filter.getEndpoint(new MockHttpServletRequest("DELETE", JOBS_PATH + "/job1")));
+        Assert.assertNull(this.filter.getEndpoint(new MockHttpServletRequest("GET", "/api/v3/clusters")));
+    }
+
+    /**
+     * Make sure the client is the authenticated user, then the host a trusted proxy got the request from, then the
+     * remote address.
+     */
+    @Test
+    public void canGetClient() {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", JOBS_PATH);
+        request.setRemoteAddr("10.0.1.1");
+        Assert.assertThat(this.filter.getClient(request), Matchers.is("10.0.1.1"));
+
+        request.addHeader("X-Forwarded-For", "10.0.0.1, 10.0.0.2");
+        Assert.assertThat(this.filter.getClient(request), Matchers.is("10.0.0.2"));
+
+        final Principal principal = Mockito.mock(Principal.class);
+        Mockito.when(principal.getName()).thenReturn("einstein");
+        request.setUserPrincipal(principal);
+        Assert.assertThat(this.filter.getClient(request), Matchers.is("einstein"));
+    }
+
+    /**
+     * Make sure X-Forwarded-For is ignored unless the request comes from a trusted proxy and only the addresses added
+     * by trusted proxies are believed.
+     */
+    @Test
+    public void wontTrustForwardedForFromClients() {
+        final MockHttpServletRequest direct = new MockHttpServletRequest("GET", JOBS_PATH);
+        direct.setRemoteAddr("10.0.0.3");
+        direct.addHeader("X-Forwarded-For", "10.0.0.1");
+        Assert.assertThat(this.filter.getClient(direct), Matchers.is("10.0.0.3"));
+
+        // The client made up the first address, the proxies added the rest
+        final MockHttpServletRequest proxied = new MockHttpServletRequest("GET", JOBS_PATH);
+        proxied.setRemoteAddr("10.0.1.1");
+        proxied.addHeader("X-Forwarded-For", "1.2.3.4, 10.0.0.3, 10.0.1.2");
+        Assert.assertThat(this.filter.getClient(proxied), Matchers.is("10.0.0.3"));
+
+        final MockHttpServletRequest internal = new MockHttpServletRequest("GET", JOBS_PATH);
+        internal.setRemoteAddr("10.0.1.1");
+        internal.addHeader("X-Forwarded-For", "10.0.1.2");
+        Assert.assertThat(this.filter.getClient(internal), Matchers.is("10.0.1.2"));
+    }
+
+    /**
+     * Make sure a spoofed X-Forwarded-For doesn't get a client a new bucket for every request.
+     *
+     * @throws IOException      on error
+     * @throws ServletException on error
+     */
+    @Test
+    public void cantEscapeLimitBySpoofingForwardedFor() throws IOException, ServletException {
+        final FilterChain chain = Mockito.mock(FilterChain.class);
+        for (int i = 0; i < 3; i++) {
+            final MockHttpServletRequest request = this.createStatusRequest("10.0.0.1");
+            request.addHeader("X-Forwarded-For", "192.168.0." + i);
+            final MockHttpServletResponse response = new MockHttpServletResponse();
+            this.filter.doFilter(request, response, chain);
+            Assert.assertThat(
+                response.getStatus(),
+                Matchers.is(i < 2 ? HttpStatus.OK.value() : HttpStatus.TOO_MANY_REQUESTS.value())
+            );
+        }
+        Mockito.verify(chain, Mockito.times(2)).doFilter(Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Make sure a client over its limit gets a 429 with a Retry-After header and other clients are unaffected.
+     *
+     * @throws IOException      on error
+     * @throws ServletException on error
+     */
+    @Test
+    public void canLimitRequests() throws IOException, ServletException {
+        final FilterChain chain = Mockito.mock(FilterChain.class);
+        for (int i = 0; i < 2; i++) {
+            final MockHttpServletResponse response = new MockHttpServletResponse();
+            this.filter.doFilter(this.createStatusRequest("10.0.0.1"), response, chain);
+            Assert.assertThat(response.getStatus(), Matchers.is(HttpStatus.OK.value()));
+        }
+
+        final MockHttpServletResponse limited = new MockHttpServletResponse();
+        this.filter.doFilter(this.createStatusRequest("10.0.0.1"), limited, chain);
+        Assert.assertThat(limited.getStatus(), Matchers.is(HttpStatus.TOO_MANY_REQUESTS.value()));
+        Assert.assertThat(Long.parseLong(limited.getHeader(HttpHeaders.RETRY_AFTER)), Matchers.greaterThan(0L));
+
+        final MockHttpServletResponse otherClient = new MockHttpServletResponse();
+        this.filter.doFilter(this.createStatusRequest("10.0.0.2"), otherClient, chain);
+        Assert.assertThat(otherClient.getStatus(), Matchers.is(HttpStatus.OK.value()));
+
+        // The search endpoints have their own bucket
+        final MockHttpServletResponse search = new MockHttpServletResponse();
+        final MockHttpServletRequest searchRequest = new MockHttpServletRequest("GET", JOBS_PATH);
+        searchRequest.setRemoteAddr("10.0.0.1");
+        this.filter.doFilter(searchRequest, search, chain);
+        Assert.assertThat(search.getStatus(), Matchers.is(HttpStatus.OK.value()));
+
+        Mockito.verify(chain, Mockito.times(4)).doFilter(Mockito.any(), Mockito.any());
+        Assert.assertThat(
+            this.registry.counter(
+                this.registry.createId("genie.api.rateLimit.hit.rate").withTag("endpoint", "status")
+            ).count(),
+            Matchers.is(4L)
+        );
+        Assert.assertThat(
+            this.registry.counter(
+                this.registry.createId("genie.api.rateLimit.limited.rate").withTag("endpoint", "status")
+            ).count(),
+            Matchers.is(1L)
+        );
+    }
+
+    /**
+     * Make sure requests to endpoints without a limit are passed straight through.
+     *
+     * @throws IOException      on error
+     * @throws ServletException on error
+     */
+    @Test
+    public void wontLimitUnlimitedEndpoints() throws IOException, ServletException {
+        final FilterChain chain = Mockito.mock(FilterChain.class);
+        for (int i = 0; i < 10; i++) {
+            final MockHttpServletResponse response = new MockHttpServletResponse();
+            this.filter.doFilter(new MockHttpServletRequest("POST", JOBS_PATH), response, chain);
+            Assert.assertThat(response.getStatus(), Matchers.is(HttpStatus.OK.value()));
+        }
+        Mockito.verify(chain, Mockito.times(10)).doFilter(Mockito.any(), Mockito.any());
+    }
+
+    private MockHttpServletRequest createStatusRequest(final String remoteAddr) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", JOBS_PATH + "/job1/status");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.filters;
+
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the TokenBucket class.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class TokenBucketUnitTests {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * Make sure a full bucket allows a burst of its capacity and then refills at its rate.
+     */
+    @Test
+    public void canAcquireUpToCapacityThenAtRefillRate() {
+        final long start = 1000L;
+        final TokenBucket bucket = new TokenBucket(3, 2.0, start);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertThat(bucket.tryAcquire(start), Matchers.is(0L));
+        }
+        Assert.assertThat(bucket.tryAcquire(start), Matchers.is(ONE_SECOND / 2));
+
+        // A quarter of a second later half a token has been added
+        Assert.assertThat(bucket.tryAcquire(start + ONE_SECOND / 4), Matchers.is(ONE_SECOND / 4));
+        Assert.assertThat(bucket.tryAcquire(start + ONE_SECOND / 2), Matchers.is(0L));
+        Assert.assertThat(bucket.tryAcquire(start + ONE_SECOND / 2), Matchers.greaterThan(0L));
+    }
+
+    /**
+     * Make sure an idle bucket never holds more than its capacity.
+     */
+    @Test
+    public void cantAcquireMoreThanCapacityAfterIdle() {
+        final TokenBucket bucket = new TokenBucket(2, 10.0, 0L);
+        final long later = 100 * ONE_SECOND;
+        Assert.assertThat(bucket.tryAcquire(later), Matchers.is(0L));
+        Assert.assertThat(bucket.tryAcquire(later), Matchers.is(0L));
+        Assert.assertThat(bucket.tryAcquire(later), Matchers.greaterThan(0L));
+    }
+
+    /**
+     * Make sure a time earlier than the last one seen doesn't add or remove tokens.
+     */
+    @Test
+    public void canHandleClockGoingBackwards() {
+        final TokenBucket bucket = new TokenBucket(1, 1.0, ONE_SECOND);
+        Assert.assertThat(bucket.tryAcquire(ONE_SECOND), Matchers.is(0L));
+        Assert.assertThat(bucket.tryAcquire(0L), Matchers.is(ONE_SECOND));
+        Assert.assertThat(bucket.tryAcquire(2 * ONE_SECOND), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure a bucket which could never hand out a token can't be created.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void cantCreateEmptyBucket() {
+        new TokenBucket(0, 1.0, 0L);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.health;
+
+import com.netflix.genie.core.services.DependencyWarmingService;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Unit tests for DependencyWarmingHealthIndicator.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class DependencyWarmingHealthIndicatorUnitTests {
+
+    private DependencyWarmingService dependencyWarmingService;
+    private DependencyWarmingHealthIndicator healthIndicator;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.dependencyWarmingService = Mockito.mock(DependencyWarmingService.class);
+        this.healthIndicator = new DependencyWarmingHealthIndicator(this.dependencyWarmingService);
+    }
+
+    /**
+     * Make sure the coverage of the cache is reported without affecting the status of the node.
+     */
+    @Test
+    public void canReportCoverage() {
+        Mockito.when(this.dependencyWarmingService.getNumFiles()).thenReturn(8);
+        Mockito.when(this.dependencyWarmingService.getNumWarmFiles()).thenReturn(2);
+        Mockito.when(this.dependencyWarmingService.getWarmedBytes()).thenReturn(1024L);
+
+        final Health health = this.healthIndicator.health();
+        Assert.assertThat(health.getStatus(), Matchers.is(Status.UP));
+        Assert.assertThat(health.getDetails().get("numFiles"), Matchers.is(8));
+        Assert.assertThat(health.getDetails().get("numWarmFiles"), Matchers.is(2));
+        Assert.assertThat(health.getDetails().get("coverage"), Matchers.is(0.25));
+        Assert.assertThat(health.getDetails().get("warmedBytes"), Matchers.is(1024L));
+    }
+
+    /**
+     * Make sure a node without any files to warm is reported as fully covered.
+     */
+    @Test
+    public void canReportCoverageWithoutFiles() {
+        Assert.assertThat(this.healthIndicator.health().getDetails().get("coverage"), Matchers.is(1.0));
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.netflix.genie.web.health;
 
+import com.netflix.genie.core.services.JobSlotService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.tasks.job.JobMonitoringCoordinator;
 import org.hamcrest.Matchers;
@@ -38,6 +39,7 @@ public class GenieHealthIndicatorUnitTests {
 
     private GenieHealthIndicator genieHealthIndicator;
     private JobMonitoringCoordinator jobMonitoringCoordinator;
+    private JobSlotService jobSlotService;
     private int maxRunningJobs;
 
     /**
@@ -46,8 +48,12 @@ public class GenieHealthIndicatorUnitTests {
     @Before
     public void setup() {
         this.jobMonitoringCoordinator = Mockito.mock(JobMonitoringCoordinator.class);
+        this.jobSlotService = Mockito.mock(JobSlotService.class);
+        Mockito.when(this.jobSlotService.getMaxCpu()).thenReturn(4);
+        Mockito.when(this.jobSlotService.getMaxMemory()).thenReturn(8192L);
         this.maxRunningJobs = 2;
-        this.genieHealthIndicator = new GenieHealthIndicator(this.jobMonitoringCoordinator, this.maxRunningJobs);
+        this.genieHealthIndicator
+            = new GenieHealthIndicator(this.jobMonitoringCoordinator, this.jobSlotService, this.maxRunningJobs);
     }
 
     /**
@@ -62,4 +68,21 @@ public class GenieHealthIndicatorUnitTests {
         Mockito.when(this.jobMonitoringCoordinator.getNumJobs()).thenReturn(3);
         Assert.assertThat(this.genieHealthIndicator.health().getStatus(), Matchers.is(Status.OUT_OF_SERVICE));
     }
+
+    /**
+     * Make sure the node is taken out of service when jobs have reserved all its cpu or memory.
+     */
+    @Test
+    public void canGetHealthBasedOnResources() {
+        Mockito.when(this.jobMonitoringCoordinator.getNumJobs()).thenReturn(1);
+        Mockito.when(this.jobSlotService.getReservedCpu()).thenReturn(3);
+        Mockito.when(this.jobSlotService.getReservedMemory()).thenReturn(4096L);
+        Assert.assertThat(this.genieHealthIndicator.health().getStatus(), Matchers.is(Status.UP));
+        Assert.assertThat(this.genieHealthIndicator.health().getDetails().get("reservedCpu"), Matchers.is(3));
+        Mockito.when(this.jobSlotService.getReservedCpu()).thenReturn(4);
+        Assert.assertThat(this.genieHealthIndicator.health().getStatus(), Matchers.is(Status.OUT_OF_SERVICE));
+        Mockito.when(this.jobSlotService.getReservedCpu()).thenReturn(1);
+        Mockito.when(this.jobSlotService.getReservedMemory()).thenReturn(8192L);
+        Assert.assertThat(this.genieHealthIndicator.health().getStatus(), Matchers.is(Status.OUT_OF_SERVICE));
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Unit tests for FileTransferProperties.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class FileTransferPropertiesUnitTests {
+
+    private FileTransferProperties properties;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.properties = new FileTransferProperties();
+    }
+
+    /**
+     * Make sure by default launch transfers are only limited by the node and no class is limited in bandwidth.
+     */
+    @Test
+    public void hasDefaultValues() {
+        Assert.assertThat(this.properties.getMaxConcurrent(), Matchers.is(20));
+        Assert.assertThat(this.properties.getLaunch().getMaxConcurrent(), Matchers.is(0));
+        Assert.assertThat(this.properties.getArchive().getMaxConcurrent(), Matchers.is(4));
+        Assert.assertThat(this.properties.getWarm().getMaxConcurrent(), Matchers.is(2));
+        Assert.assertThat(this.properties.getLaunch().getMaxBytesPerSecond(), Matchers.is(0L));
+        Assert.assertThat(this.properties.getArchive().getMaxBytesPerSecond(), Matchers.is(0L));
+        Assert.assertThat(this.properties.getWarm().getMaxBytesPerSecond(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure setting the limits is persisted.
+     */
+    @Test
+    public void canSetLimits() {
+        final FileTransferProperties.Limits limits = new FileTransferProperties.Limits();
+        limits.setMaxConcurrent(3);
+        limits.setMaxBytesPerSecond(1048576L);
+        this.properties.setMaxConcurrent(10);
+        this.properties.setArchive(limits);
+        Assert.assertThat(this.properties.getMaxConcurrent(), Matchers.is(10));
+        Assert.assertThat(this.properties.getArchive().getMaxConcurrent(), Matchers.is(3));
+        Assert.assertThat(this.properties.getArchive().getMaxBytesPerSecond(), Matchers.is(1048576L));
+    }
+}
@@ -53,6 +53,7 @@ public class JobForwardingPropertiesUnitTests {
         Assert.assertFalse(this.properties.isEnabled());
         Assert.assertThat(this.properties.getScheme(), Matchers.is("http"));
         Assert.assertThat(this.properties.getPort(), Matchers.is(8080));
+        Assert.assertThat(this.properties.getLoadPublishRate(), Matchers.is(5000L));
     }
 
     /**
@@ -83,4 +84,14 @@ public class JobForwardingPropertiesUnitTests {
         this.properties.setPort(port);
         Assert.assertThat(this.properties.getPort(), Matchers.is(port));
     }
+
+    /**
+     * Make sure setting the load publish rate property is persisted.
+     */
+    @Test
+    public void canSetLoadPublishRate() {
+        final long loadPublishRate = 1000L;
+        this.properties.setLoadPublishRate(loadPublishRate);
+        Assert.assertThat(this.properties.getLoadPublishRate(), Matchers.is(loadPublishRate));
+    }
 }
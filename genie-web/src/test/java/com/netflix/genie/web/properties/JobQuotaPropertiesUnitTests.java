@@ -0,0 +1,84 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Map;
+
+/**
+ * Unit tests for JobQuotaProperties.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class JobQuotaPropertiesUnitTests {
+
+    private JobQuotaProperties properties;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.properties = new JobQuotaProperties();
+    }
+
+    /**
+     * Make sure by default nobody is limited and everybody has the same weight.
+     */
+    @Test
+    public void hasDefaultValues() {
+        Assert.assertThat(this.properties.getDefaultUserLimit(), Matchers.is(0));
+        Assert.assertTrue(this.properties.getUsers().isEmpty());
+        Assert.assertTrue(this.properties.getGroups().isEmpty());
+        Assert.assertTrue(this.properties.getWeights().isEmpty());
+    }
+
+    /**
+     * Make sure setting the default user limit is persisted.
+     */
+    @Test
+    public void canSetDefaultUserLimit() {
+        this.properties.setDefaultUserLimit(5);
+        Assert.assertThat(this.properties.getDefaultUserLimit(), Matchers.is(5));
+    }
+
+    /**
+     * Make sure setting the user, group and weight maps is persisted.
+     */
+    @Test
+    public void canSetLimitsAndWeights() {
+        final Map<String, Integer> users = ImmutableMap.of("etl", 20);
+        final Map<String, Integer> groups = ImmutableMap.of("analytics", 30);
+        final Map<String, Double> weights = ImmutableMap.of("etl", 2.0);
+        this.properties.setUsers(users);
+        this.properties.setGroups(groups);
+        this.properties.setWeights(weights);
+        Assert.assertThat(this.properties.getUsers(), Matchers.is(users));
+        Assert.assertThat(this.properties.getGroups(), Matchers.is(groups));
+        Assert.assertThat(this.properties.getWeights(), Matchers.is(weights));
+    }
+}
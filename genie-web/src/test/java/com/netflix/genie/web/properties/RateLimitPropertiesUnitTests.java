@@ -0,0 +1,105 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Set;
+
+/**
+ * Unit tests for RateLimitProperties.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class RateLimitPropertiesUnitTests {
+
+    private RateLimitProperties properties;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.properties = new RateLimitProperties();
+    }
+
+    /**
+     * Make sure by default rate limiting is off and no endpoints are limited.
+     */
+    @Test
+    public void hasDefaultValues() {
+        Assert.assertFalse(this.properties.isEnabled());
+        Assert.assertThat(this.properties.getMaxClients(), Matchers.is(100000));
+        Assert.assertThat(this.properties.getTrustedProxies(), Matchers.empty());
+        Assert.assertFalse(this.properties.getSubmit().isEnabled());
+        Assert.assertFalse(this.properties.getSearch().isEnabled());
+        Assert.assertFalse(this.properties.getStatus().isEnabled());
+        Assert.assertFalse(this.properties.getOutput().isEnabled());
+    }
+
+    /**
+     * Make sure setting the enabled property is persisted.
+     */
+    @Test
+    public void canEnable() {
+        this.properties.setEnabled(true);
+        Assert.assertTrue(this.properties.isEnabled());
+    }
+
+    /**
+     * Make sure setting the max clients is persisted.
+     */
+    @Test
+    public void canSetMaxClients() {
+        this.properties.setMaxClients(10);
+        Assert.assertThat(this.properties.getMaxClients(), Matchers.is(10));
+    }
+
+    /**
+     * Make sure setting the trusted proxies is persisted.
+     */
+    @Test
+    public void canSetTrustedProxies() {
+        final Set<String> trustedProxies = Sets.newHashSet("10.0.0.1", "10.0.0.2");
+        this.properties.setTrustedProxies(trustedProxies);
+        Assert.assertThat(this.properties.getTrustedProxies(), Matchers.is(trustedProxies));
+    }
+
+    /**
+     * Make sure a limit is only enabled once both its capacity and refill rate are set.
+     */
+    @Test
+    public void canSetLimit() {
+        final RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(10);
+        Assert.assertFalse(limit.isEnabled());
+        limit.setRefillRate(2.5);
+        Assert.assertTrue(limit.isEnabled());
+        this.properties.setStatus(limit);
+        Assert.assertThat(this.properties.getStatus().getCapacity(), Matchers.is(10));
+        Assert.assertThat(this.properties.getStatus().getRefillRate(), Matchers.is(2.5));
+    }
+}
@@ -311,4 +311,27 @@ public class JobMonitoringCoordinatorUnitTests {
         Mockito.verify(task, Mockito.times(2)).cancel(true);
         Mockito.verify(this.unableToCancel, Mockito.times(1)).increment();
     }
+
+    /**
+     * Make sure every task scheduled for a job is killed when the job finishes before it starts.
+     */
+    @Test
+    public void canStopAllJobTasks() {
+        final String jobId = UUID.randomUUID().toString();
+        final Future<?> setup = Mockito.mock(Future.class);
+        final Future<?> launch = Mockito.mock(Future.class);
+        Mockito.when(setup.isDone()).thenReturn(true);
+        Mockito.when(launch.isDone()).thenReturn(false);
+        Mockito.when(launch.cancel(true)).thenReturn(true);
+
+        this.coordinator.onJobScheduled(new JobScheduledEvent(jobId, setup, this));
+        this.coordinator.onJobScheduled(new JobScheduledEvent(jobId, launch, this));
+        Assert.assertThat(this.coordinator.getNumJobs(), Matchers.is(1));
+        this.coordinator.onJobFinished(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "killed", this));
+        Assert.assertThat(this.coordinator.getNumJobs(), Matchers.is(0));
+
+        Mockito.verify(setup, Mockito.never()).cancel(Mockito.anyBoolean());
+        Mockito.verify(launch, Mockito.times(1)).cancel(true);
+        Mockito.verify(this.unableToCancel, Mockito.never()).increment();
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ *
+ *  Copyright 2016 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.netflix.genie.core.services.JobCoordinatorService;
+import com.netflix.genie.core.services.JobSlotService;
+import com.netflix.genie.core.services.NodeLoadService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.properties.JobForwardingProperties;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Unit tests for the node load publishing task.
+ *
+ * @author tgianos
+ * @since 3.0.0
+ */
+@Category(UnitTest.class)
+public class NodeLoadPublishingTaskUnitTests {
+
+    private static final String HOST_NAME = "genie.netflix.com";
+
+    private TaskScheduler scheduler;
+    private JobCoordinatorService jobCoordinatorService;
+    private JobSlotService jobSlotService;
+    private NodeLoadService nodeLoadService;
+    private Counter publishFailureCounter;
+    private NodeLoadPublishingTask task;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.scheduler = Mockito.mock(TaskScheduler.class);
+        this.jobCoordinatorService = Mockito.mock(JobCoordinatorService.class);
+        this.jobSlotService = Mockito.mock(JobSlotService.class);
+        this.nodeLoadService = Mockito.mock(NodeLoadService.class);
+        this.publishFailureCounter = Mockito.mock(Counter.class);
+        final Registry registry = Mockito.mock(Registry.class);
+        Mockito
+            .when(registry.counter("genie.tasks.nodeLoad.publishFailure.rate"))
+            .thenReturn(this.publishFailureCounter);
+
+        final JobForwardingProperties properties = new JobForwardingProperties();
+        properties.setLoadPublishRate(1000L);
+        this.task = new NodeLoadPublishingTask(
+            properties,
+            this.scheduler,
+            HOST_NAME,
+            this.jobCoordinatorService,
+            this.jobSlotService,
+            this.nodeLoadService,
+            registry
+        );
+    }
+
+    /**
+     * Make sure the task schedules itself at the configured rate.
+     */
+    @Test
+    public void isScheduled() {
+        Mockito.verify(this.scheduler, Mockito.times(1)).scheduleAtFixedRate(this.task, 1000L);
+    }
+
+    /**
+     * Make sure the running jobs and free slots of the node are published.
+     */
+    @Test
+    public void canPublishLoad() {
+        Mockito.when(this.jobSlotService.getNumReserved()).thenReturn(3);
+        Mockito.when(this.jobCoordinatorService.getNumFreeSlots()).thenReturn(9);
+        this.task.run();
+        Mockito.verify(this.nodeLoadService, Mockito.times(1)).publishLoad(HOST_NAME, 3, 9);
+        Mockito.verify(this.publishFailureCounter, Mockito.never()).increment();
+    }
+
+    /**
+     * Make sure a failure to publish doesn't escape the task.
+     */
+    @Test
+    public void canHandlePublishFailure() {
+        Mockito
+            .doThrow(new IllegalStateException("database down"))
+            .when(this.nodeLoadService)
+            .publishLoad(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
+        this.task.run();
+        Mockito.verify(this.publishFailureCounter, Mockito.times(1)).increment();
+    }
+}